@@ -0,0 +1,114 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.cluster.routing.allocation;
+
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.ShardRoutingState;
+import org.elasticsearch.cluster.routing.allocation.AllocationService;
+import org.elasticsearch.common.settings.Settings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures allocating all shards of a new cluster with the balanced shards allocator and the default allocation deciders,
+ * starting the initializing shards between reroutes like the nodes would.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by the benchmarking framework
+public class AllocationBenchmark {
+
+    // number of indices | shards per index | replicas | nodes, there must be more nodes than copies of a shard
+    @Param({
+        "10|1|0|1",
+        "10|3|1|10",
+        "100|3|1|10",
+        "100|1|2|50",
+        "500|5|1|100"
+    })
+    public String indicesShardsReplicasNodes;
+
+    private AllocationService strategy;
+    private ClusterState initialClusterState;
+
+    @Setup
+    public void setUp() throws Exception {
+        final String[] params = indicesShardsReplicasNodes.split("\\|");
+        final int numIndices = Integer.parseInt(params[0]);
+        final int numShards = Integer.parseInt(params[1]);
+        final int numReplicas = Integer.parseInt(params[2]);
+        final int numNodes = Integer.parseInt(params[3]);
+
+        strategy = Allocators.createAllocationService(Settings.EMPTY);
+
+        MetaData.Builder metaDataBuilder = MetaData.builder();
+        for (int i = 0; i < numIndices; i++) {
+            metaDataBuilder.put(IndexMetaData.builder("test_" + i)
+                .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+                .numberOfShards(numShards).numberOfReplicas(numReplicas));
+        }
+        MetaData metaData = metaDataBuilder.build();
+        RoutingTable.Builder routingTableBuilder = RoutingTable.builder();
+        for (ObjectCursor<IndexMetaData> cursor : metaData.indices().values()) {
+            routingTableBuilder.addAsNew(cursor.value);
+        }
+        DiscoveryNodes.Builder nodes = DiscoveryNodes.builder();
+        for (int i = 0; i < numNodes; i++) {
+            nodes.put(Allocators.newNode("node_" + i));
+        }
+        initialClusterState = ClusterState.builder(ClusterName.DEFAULT)
+            .metaData(metaData).routingTable(routingTableBuilder.build()).nodes(nodes).build();
+    }
+
+    @Benchmark
+    public ClusterState allocateAllShards() {
+        ClusterState clusterState = initialClusterState;
+        while (clusterState.getRoutingNodes().hasUnassignedShards()) {
+            RoutingTable routingTable = strategy.applyStartedShards(clusterState,
+                clusterState.getRoutingNodes().shardsWithState(ShardRoutingState.INITIALIZING)).routingTable();
+            clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+            routingTable = strategy.reroute(clusterState, "reroute").routingTable();
+            clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+        }
+        return clusterState;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.cache;
+
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of reads from {@link Cache}, by one thread and by as many threads as there are processors,
+ * and its hit ratio when a scan over keys that are used only once competes with a set of frequently used keys.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@SuppressWarnings("unused") // invoked by the benchmarking framework
+public class CacheBenchmark {
+
+    private static final int NUMBER_OF_KEYS = 1 << 16;
+    private static final long SEED = 0xBEEFL;
+
+    @State(Scope.Benchmark)
+    public static class FullCache {
+        Cache<Integer, Integer> cache;
+
+        @Setup
+        public void setUp() {
+            cache = CacheBuilder.<Integer, Integer>builder().setMaximumWeight(NUMBER_OF_KEYS).build();
+            for (int i = 0; i < NUMBER_OF_KEYS; i++) {
+                cache.put(i, i);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ScannedCache {
+        static final int MAXIMUM_WEIGHT = NUMBER_OF_KEYS / 4;
+        static final int HOT_KEYS = MAXIMUM_WEIGHT / 2;
+
+        @Param({"false", "true"})
+        public boolean frequencyBasedAdmission;
+
+        Cache<Integer, Integer> cache;
+
+        @Setup
+        public void setUp() {
+            cache = CacheBuilder.<Integer, Integer>builder()
+                .setMaximumWeight(MAXIMUM_WEIGHT).frequencyBasedAdmission(frequencyBasedAdmission).build();
+        }
+    }
+
+    /**
+     * The keys that a thread reads, drawn uniformly from the keys of the cache up front so that generating them isn't
+     * measured.
+     */
+    @State(Scope.Thread)
+    public static class Keys {
+        final int[] keys = new int[1 << 12];
+        int index;
+        int operations;
+        int scanned;
+        int threadIndex;
+
+        @Setup
+        public void setUp(ThreadParams threadParams) {
+            threadIndex = threadParams.getThreadIndex();
+            Random random = new Random(SEED + threadIndex);
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextInt(NUMBER_OF_KEYS);
+            }
+        }
+
+        int next() {
+            return keys[index++ & (keys.length - 1)];
+        }
+
+        // alternates between a key of the hot set and a key that is used only once, every thread scanning its own range
+        int nextWithScan() {
+            if ((operations++ & 1) == 0) {
+                return next() % ScannedCache.HOT_KEYS;
+            }
+            return ScannedCache.MAXIMUM_WEIGHT + (threadIndex << 20) + (scanned++ & 0xfffff);
+        }
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class HitCounters {
+        public long hits;
+        public long misses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Integer get(FullCache state, Keys keys) {
+        return state.cache.get(keys.next());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Integer getContended(FullCache state, Keys keys) {
+        return state.cache.get(keys.next());
+    }
+
+    /**
+     * Half of the reads go to a hot set of keys that fits in the cache, the other half scan over keys that are used only
+     * once. The hit counters show how much of the hot set the scan evicts.
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Integer getWithScan(ScannedCache state, Keys keys, HitCounters counters) throws ExecutionException {
+        final Integer key = keys.nextWithScan();
+        Integer value = state.cache.get(key);
+        if (value == null) {
+            counters.misses++;
+            value = state.cache.computeIfAbsent(key, k -> k);
+        } else {
+            counters.hits++;
+        }
+        return value;
+    }
+}
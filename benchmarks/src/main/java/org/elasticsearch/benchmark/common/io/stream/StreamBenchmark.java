@@ -0,0 +1,179 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.io.stream;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the variable-length encoding of ints and longs, and the encoding of strings, by {@link BytesStreamOutput}
+ * and the {@link StreamInput} of the written bytes, which are on the hot path of the transport layer.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@SuppressWarnings("unused") // invoked by the benchmarking framework
+public class StreamBenchmark {
+
+    private static final long SEED = 0xBEEFL;
+    private static final int NUMBER_OF_VALUES = 1 << 12;
+
+    @State(Scope.Benchmark)
+    public static class Numbers {
+        // the maximum number of bits of the ints, 7 bits are encoded per byte; longs have twice as many bits
+        @Param({"7", "21", "31"})
+        public int bits;
+
+        final BytesStreamOutput out = new BytesStreamOutput();
+        int[] ints;
+        long[] longs;
+        BytesReference intBytes;
+        BytesReference longBytes;
+
+        @Setup
+        public void setUp() throws IOException {
+            Random random = new Random(SEED);
+            ints = new int[NUMBER_OF_VALUES];
+            longs = new long[NUMBER_OF_VALUES];
+            for (int i = 0; i < NUMBER_OF_VALUES; i++) {
+                ints[i] = random.nextInt() >>> (32 - bits);
+                longs[i] = random.nextLong() >>> (64 - 2 * bits);
+            }
+            intBytes = writeVInts(out, ints).bytes().copyBytesArray();
+            longBytes = writeVLongs(out, longs).bytes().copyBytesArray();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Strings {
+        // either ASCII characters or any character of the basic multilingual plane
+        @Param({"ascii", "unicode"})
+        public String characters;
+
+        final BytesStreamOutput out = new BytesStreamOutput();
+        String[] strings;
+        BytesReference bytes;
+
+        @Setup
+        public void setUp() throws IOException {
+            Random random = new Random(SEED);
+            strings = new String[NUMBER_OF_VALUES / 16];
+            final int maxChar = "ascii".equals(characters) ? 0x80 : 0xD800;
+            for (int i = 0; i < strings.length; i++) {
+                char[] chars = new char[random.nextInt(64)];
+                for (int j = 0; j < chars.length; j++) {
+                    chars[j] = (char) (0x20 + random.nextInt(maxChar - 0x20));
+                }
+                strings[i] = new String(chars);
+            }
+            bytes = writeStrings(out, strings).bytes().copyBytesArray();
+        }
+    }
+
+    @Benchmark
+    public BytesStreamOutput writeVInts(Numbers numbers) throws IOException {
+        return writeVInts(numbers.out, numbers.ints);
+    }
+
+    @Benchmark
+    public long readVInts(Numbers numbers) throws IOException {
+        long sum = 0;
+        try (StreamInput in = numbers.intBytes.streamInput()) {
+            for (int i = 0; i < NUMBER_OF_VALUES; i++) {
+                sum += in.readVInt();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public BytesStreamOutput writeVLongs(Numbers numbers) throws IOException {
+        return writeVLongs(numbers.out, numbers.longs);
+    }
+
+    @Benchmark
+    public long readVLongs(Numbers numbers) throws IOException {
+        long sum = 0;
+        try (StreamInput in = numbers.longBytes.streamInput()) {
+            for (int i = 0; i < NUMBER_OF_VALUES; i++) {
+                sum += in.readVLong();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public BytesStreamOutput writeStrings(Strings strings) throws IOException {
+        return writeStrings(strings.out, strings.strings);
+    }
+
+    @Benchmark
+    public long readStrings(Strings strings) throws IOException {
+        long length = 0;
+        try (StreamInput in = strings.bytes.streamInput()) {
+            for (int i = 0; i < strings.strings.length; i++) {
+                length += in.readString().length();
+            }
+        }
+        return length;
+    }
+
+    private static BytesStreamOutput writeVInts(BytesStreamOutput out, int[] values) throws IOException {
+        out.reset();
+        for (int value : values) {
+            out.writeVInt(value);
+        }
+        return out;
+    }
+
+    private static BytesStreamOutput writeVLongs(BytesStreamOutput out, long[] values) throws IOException {
+        out.reset();
+        for (long value : values) {
+            out.writeVLong(value);
+        }
+        return out;
+    }
+
+    private static BytesStreamOutput writeStrings(BytesStreamOutput out, String[] values) throws IOException {
+        out.reset();
+        for (String value : values) {
+            out.writeString(value);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.rounding;
+
+import org.elasticsearch.common.rounding.DateTimeUnit;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.common.rounding.TimeZoneRounding;
+import org.elasticsearch.common.unit.TimeValue;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rounding timestamps like the date histogram aggregation does for every value that it collects, with
+ * calendar units and with fixed intervals, in UTC and in a time zone with daylight saving time.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by the benchmarking framework
+public class TimeZoneRoundingBenchmark {
+
+    private static final long SEED = 0xBEEFL;
+    private static final int NUMBER_OF_VALUES = 1 << 12;
+
+    // a calendar unit, or a fixed interval
+    @Param({"HOUR_OF_DAY", "DAY_OF_MONTH", "MONTH_OF_YEAR", "90m"})
+    public String interval;
+
+    @Param({"UTC", "Europe/Amsterdam"})
+    public String timeZone;
+
+    private Rounding rounding;
+    private long[] timestamps;
+
+    @Setup
+    public void setUp() {
+        final TimeZoneRounding.Builder builder;
+        if (Character.isDigit(interval.charAt(0))) {
+            builder = TimeZoneRounding.builder(TimeValue.parseTimeValue(interval, "interval"));
+        } else {
+            builder = TimeZoneRounding.builder(DateTimeUnit.valueOf(interval));
+        }
+        rounding = builder.timeZone(DateTimeZone.forID(timeZone)).build();
+        // a year of timestamps, including both transitions of daylight saving time
+        final long start = 1451606400000L; // 2016-01-01T00:00:00Z
+        Random random = new Random(SEED);
+        timestamps = new long[NUMBER_OF_VALUES];
+        for (int i = 0; i < NUMBER_OF_VALUES; i++) {
+            timestamps[i] = start + (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(365));
+        }
+    }
+
+    @Benchmark
+    public long round() {
+        long sum = 0;
+        for (long timestamp : timestamps) {
+            sum += rounding.round(timestamp);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.util;
+
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures sequential and random accesses to a {@link LongArray}, and growing arrays like aggregations do when they
+ * collect new buckets, with and without recycling of pages.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by the benchmarking framework
+public class BigArraysBenchmark {
+
+    private static final long SEED = 0xBEEFL;
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean recycling;
+
+    private ThreadPool threadPool;
+    private BigArrays bigArrays;
+    private LongArray array;
+    private int[] indices;
+
+    @Setup
+    public void setUp() {
+        if (recycling) {
+            threadPool = new ThreadPool("benchmark");
+            bigArrays = new BigArrays(new PageCacheRecycler(Settings.EMPTY, threadPool), null);
+        } else {
+            bigArrays = BigArrays.NON_RECYCLING_INSTANCE;
+        }
+        Random random = new Random(SEED);
+        array = bigArrays.newLongArray(size);
+        for (int i = 0; i < size; i++) {
+            array.set(i, random.nextLong());
+        }
+        indices = new int[1 << 12];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = random.nextInt(size);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        array.close();
+        if (threadPool != null) {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public long sequentialGet() {
+        long sum = 0;
+        for (long i = 0; i < size; i++) {
+            sum += array.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long randomIncrement() {
+        long sum = 0;
+        for (int index : indices) {
+            sum += array.increment(index, 1);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long grow() {
+        LongArray grown = bigArrays.newLongArray(16, false);
+        try {
+            for (int i = 0; i < size; i++) {
+                grown = bigArrays.grow(grown, i + 1);
+                grown.set(i, i);
+            }
+            return grown.get(size - 1);
+        } finally {
+            grown.close();
+        }
+    }
+}
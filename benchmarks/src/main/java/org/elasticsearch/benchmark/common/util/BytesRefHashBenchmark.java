@@ -0,0 +1,108 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.util;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding terms to a {@link BytesRefHash}, like the terms aggregation does on fields without ordinals, and
+ * looking them up.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by the benchmarking framework
+public class BytesRefHashBenchmark {
+
+    private static final long SEED = 0xBEEFL;
+    private static final int NUMBER_OF_TERMS = 1 << 20;
+
+    // the number of distinct terms among the added terms
+    @Param({"100", "10000", "1048576"})
+    public int cardinality;
+
+    private BytesRef[] terms;
+    private BytesRefHash hash;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        BytesRef[] distinctTerms = new BytesRef[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            byte[] bytes = new byte[5 + random.nextInt(20)];
+            random.nextBytes(bytes);
+            distinctTerms[i] = new BytesRef(bytes);
+        }
+        terms = new BytesRef[NUMBER_OF_TERMS];
+        for (int i = 0; i < NUMBER_OF_TERMS; i++) {
+            terms[i] = distinctTerms[random.nextInt(cardinality)];
+        }
+        hash = add();
+    }
+
+    @TearDown
+    public void tearDown() {
+        hash.close();
+    }
+
+    @Benchmark
+    public long addTerms() {
+        try (BytesRefHash added = add()) {
+            return added.size();
+        }
+    }
+
+    @Benchmark
+    public long findTerms() {
+        long sum = 0;
+        for (BytesRef term : terms) {
+            sum += hash.find(term);
+        }
+        return sum;
+    }
+
+    private BytesRefHash add() {
+        BytesRefHash added = new BytesRefHash(1, BigArrays.NON_RECYCLING_INSTANCE);
+        for (BytesRef term : terms) {
+            added.add(term);
+        }
+        return added;
+    }
+}
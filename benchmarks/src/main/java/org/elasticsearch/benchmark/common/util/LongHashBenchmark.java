@@ -0,0 +1,105 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.util;
+
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding values to a {@link LongHash}, like the terms aggregation does on numeric fields, and looking them up.
+ * The highest cardinalities make the hash table much larger than the CPU caches.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by the benchmarking framework
+public class LongHashBenchmark {
+
+    private static final long SEED = 0xBEEFL;
+    private static final int NUMBER_OF_VALUES = 1 << 21;
+
+    // the number of distinct values among the added values
+    @Param({"100", "10000", "1000000", "2097152"})
+    public int cardinality;
+
+    private long[] values;
+    private LongHash hash;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        long[] distinctValues = new long[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            distinctValues[i] = random.nextLong();
+        }
+        values = new long[NUMBER_OF_VALUES];
+        for (int i = 0; i < NUMBER_OF_VALUES; i++) {
+            values[i] = distinctValues[random.nextInt(cardinality)];
+        }
+        hash = add();
+    }
+
+    @TearDown
+    public void tearDown() {
+        hash.close();
+    }
+
+    @Benchmark
+    public long addValues() {
+        try (LongHash added = add()) {
+            return added.size();
+        }
+    }
+
+    @Benchmark
+    public long findValues() {
+        long sum = 0;
+        for (long value : values) {
+            sum += hash.find(value);
+        }
+        return sum;
+    }
+
+    private LongHash add() {
+        LongHash added = new LongHash(1, BigArrays.NON_RECYCLING_INSTANCE);
+        for (long value : values) {
+            added.add(value);
+        }
+        return added;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.xcontent;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing documents, either by pulling their tokens like mappers do, or into maps like ingest and the
+ * source filtering do.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by the benchmarking framework
+public class XContentParserBenchmark {
+
+    private static final long SEED = 0xBEEFL;
+
+    @Param({"JSON", "SMILE", "CBOR", "YAML"})
+    public XContentType type;
+
+    private BytesReference document;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(SEED);
+        XContentBuilder builder = XContentFactory.contentBuilder(type);
+        builder.startObject();
+        builder.field("@timestamp", "2016-05-04T10:20:30.123Z");
+        builder.field("message", "GET /search?q=elasticsearch HTTP/1.1 200 " + random.nextInt(100000));
+        builder.field("bytes", random.nextInt(100000));
+        builder.field("response_time", random.nextDouble());
+        builder.field("success", random.nextBoolean());
+        builder.startObject("client");
+        builder.field("ip", "10.0." + random.nextInt(256) + "." + random.nextInt(256));
+        builder.field("agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko)");
+        builder.startObject("geo").field("lat", random.nextDouble() * 90).field("lon", random.nextDouble() * 180).endObject();
+        builder.endObject();
+        builder.startArray("tags");
+        for (int i = 0; i < 10; i++) {
+            builder.value("tag" + random.nextInt(100));
+        }
+        builder.endArray();
+        builder.startArray("events");
+        for (int i = 0; i < 20; i++) {
+            builder.startObject().field("id", random.nextLong()).field("name", "event" + i).field("value", random.nextFloat()).endObject();
+        }
+        builder.endArray();
+        builder.endObject();
+        document = builder.bytes();
+    }
+
+    @Benchmark
+    public long pullTokens() throws IOException {
+        long hash = 0;
+        try (XContentParser parser = type.xContent().createParser(document)) {
+            for (XContentParser.Token token = parser.nextToken(); token != null; token = parser.nextToken()) {
+                if (token == XContentParser.Token.FIELD_NAME || token == XContentParser.Token.VALUE_STRING) {
+                    hash += parser.text().hashCode();
+                } else if (token == XContentParser.Token.VALUE_NUMBER) {
+                    hash += parser.numberValue().hashCode();
+                }
+            }
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public Map<String, Object> convertToMap() {
+        return XContentHelper.convertToMap(document, false).v2();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations.metrics.cardinality;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures collecting hashes into {@link HyperLogLogPlusPlus} like the cardinality aggregation does, spread over
+ * buckets like under a terms aggregation, and computing the cardinalities of the buckets.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by the benchmarking framework
+public class HyperLogLogPlusPlusBenchmark {
+
+    private static final long SEED = 0xBEEFL;
+    private static final int NUMBER_OF_VALUES = 1 << 16;
+
+    @Param({"14"})
+    public int precision;
+
+    // with many buckets, each bucket sees few distinct values and stays in linear counting mode
+    @Param({"1", "100", "10000"})
+    public int buckets;
+
+    // the number of distinct values
+    @Param({"1000", "65536"})
+    public int cardinality;
+
+    private long[] bucketOrds;
+    private long[] hashes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        bucketOrds = new long[NUMBER_OF_VALUES];
+        hashes = new long[NUMBER_OF_VALUES];
+        for (int i = 0; i < NUMBER_OF_VALUES; i++) {
+            bucketOrds[i] = random.nextInt(buckets);
+            hashes[i] = BitMixer.mix64(random.nextInt(cardinality));
+        }
+    }
+
+    @Benchmark
+    public long collectAndCount() {
+        try (HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            for (int i = 0; i < NUMBER_OF_VALUES; i++) {
+                counts.collect(bucketOrds[i], hashes[i]);
+            }
+            long sum = 0;
+            for (long bucket = 0; bucket < counts.maxBucket(); bucket++) {
+                sum += counts.cardinality(bucket);
+            }
+            return sum;
+        }
+    }
+}
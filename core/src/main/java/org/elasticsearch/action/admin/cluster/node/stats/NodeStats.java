@@ -28,6 +28,7 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.discovery.DiscoveryStats;
 import org.elasticsearch.http.HttpStats;
+import org.elasticsearch.index.IndexingPressureStats;
 import org.elasticsearch.indices.NodeIndicesStats;
 import org.elasticsearch.indices.breaker.AllCircuitBreakerStats;
 import org.elasticsearch.ingest.IngestStats;
@@ -85,6 +86,9 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
     @Nullable
     private IngestStats ingestStats;
 
+    @Nullable
+    private IndexingPressureStats indexingPressureStats;
+
     NodeStats() {
     }
 
@@ -94,7 +98,8 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
                      @Nullable AllCircuitBreakerStats breaker,
                      @Nullable ScriptStats scriptStats,
                      @Nullable DiscoveryStats discoveryStats,
-                     @Nullable IngestStats ingestStats) {
+                     @Nullable IngestStats ingestStats,
+                     @Nullable IndexingPressureStats indexingPressureStats) {
         super(node);
         this.timestamp = timestamp;
         this.indices = indices;
@@ -109,6 +114,7 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
         this.scriptStats = scriptStats;
         this.discoveryStats = discoveryStats;
         this.ingestStats = ingestStats;
+        this.indexingPressureStats = indexingPressureStats;
     }
 
     public long getTimestamp() {
@@ -198,6 +204,11 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
         return ingestStats;
     }
 
+    @Nullable
+    public IndexingPressureStats getIndexingPressureStats() {
+        return indexingPressureStats;
+    }
+
     public static NodeStats readNodeStats(StreamInput in) throws IOException {
         NodeStats nodeInfo = new NodeStats();
         nodeInfo.readFrom(in);
@@ -236,6 +247,7 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
         scriptStats = in.readOptionalStreamable(ScriptStats::new);
         discoveryStats = in.readOptionalStreamable(() -> new DiscoveryStats(null));
         ingestStats = in.readOptionalWriteable(IngestStats::new);
+        indexingPressureStats = in.readOptionalWriteable(IndexingPressureStats::new);
     }
 
     @Override
@@ -294,6 +306,7 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
         out.writeOptionalStreamable(scriptStats);
         out.writeOptionalStreamable(discoveryStats);
         out.writeOptionalWriteable(ingestStats);
+        out.writeOptionalWriteable(indexingPressureStats);
     }
 
     @Override
@@ -359,6 +372,10 @@ public class NodeStats extends BaseNodeResponse implements ToXContent {
             getIngestStats().toXContent(builder, params);
         }
 
+        if (getIndexingPressureStats() != null) {
+            getIndexingPressureStats().toXContent(builder, params);
+        }
+
         return builder;
     }
 }
@@ -43,6 +43,7 @@ public class NodesStatsRequest extends BaseNodesRequest<NodesStatsRequest> {
     private boolean script;
     private boolean discovery;
     private boolean ingest;
+    private boolean indexingPressure;
 
     public NodesStatsRequest() {
     }
@@ -71,6 +72,7 @@ public class NodesStatsRequest extends BaseNodesRequest<NodesStatsRequest> {
         this.script = true;
         this.discovery = true;
         this.ingest = true;
+        this.indexingPressure = true;
         return this;
     }
 
@@ -90,6 +92,7 @@ public class NodesStatsRequest extends BaseNodesRequest<NodesStatsRequest> {
         this.script = false;
         this.discovery = false;
         this.ingest = false;
+        this.indexingPressure = false;
         return this;
     }
 
@@ -265,6 +268,18 @@ public class NodesStatsRequest extends BaseNodesRequest<NodesStatsRequest> {
         return this;
     }
 
+    public boolean indexingPressure() {
+        return indexingPressure;
+    }
+
+    /**
+     * Should the bytes of the write operations in flight be returned.
+     */
+    public NodesStatsRequest indexingPressure(boolean indexingPressure) {
+        this.indexingPressure = indexingPressure;
+        return this;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -280,6 +295,7 @@ public class NodesStatsRequest extends BaseNodesRequest<NodesStatsRequest> {
         script = in.readBoolean();
         discovery = in.readBoolean();
         ingest = in.readBoolean();
+        indexingPressure = in.readBoolean();
     }
 
     @Override
@@ -297,6 +313,7 @@ public class NodesStatsRequest extends BaseNodesRequest<NodesStatsRequest> {
         out.writeBoolean(script);
         out.writeBoolean(discovery);
         out.writeBoolean(ingest);
+        out.writeBoolean(indexingPressure);
     }
 
 }
@@ -145,4 +145,12 @@ public class NodesStatsRequestBuilder extends NodesOperationRequestBuilder<Nodes
         request.ingest(ingest);
         return this;
     }
+
+    /**
+     * Should the bytes of the write operations in flight be returned.
+     */
+    public NodesStatsRequestBuilder setIndexingPressure(boolean indexingPressure) {
+        request.indexingPressure(indexingPressure);
+        return this;
+    }
 }
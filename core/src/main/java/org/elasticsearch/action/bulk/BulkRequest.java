@@ -127,8 +127,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
     BulkRequest internalAdd(IndexRequest request, @Nullable Object payload) {
         requests.add(request);
         addPayload(payload);
-        // lack of source is validated in validate() method
-        sizeInBytes += (request.source() != null ? request.source().length() : 0) + REQUEST_OVERHEAD;
+        sizeInBytes += estimatedSizeInBytes(request);
         return this;
     }
 
@@ -146,15 +145,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
     BulkRequest internalAdd(UpdateRequest request, @Nullable Object payload) {
         requests.add(request);
         addPayload(payload);
-        if (request.doc() != null) {
-            sizeInBytes += request.doc().source().length();
-        }
-        if (request.upsertRequest() != null) {
-            sizeInBytes += request.upsertRequest().source().length();
-        }
-        if (request.script() != null) {
-            sizeInBytes += request.script().getScript().length() * 2;
-        }
+        sizeInBytes += estimatedSizeInBytes(request);
         return this;
     }
 
@@ -168,10 +159,38 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
     public BulkRequest add(DeleteRequest request, @Nullable Object payload) {
         requests.add(request);
         addPayload(payload);
-        sizeInBytes += REQUEST_OVERHEAD;
+        sizeInBytes += estimatedSizeInBytes(request);
         return this;
     }
 
+    /**
+     * The estimated size in bytes of a single action of a bulk request.
+     */
+    static long estimatedSizeInBytes(ActionRequest<?> request) {
+        if (request instanceof IndexRequest) {
+            IndexRequest indexRequest = (IndexRequest) request;
+            // lack of source is validated in validate() method
+            return (indexRequest.source() != null ? indexRequest.source().length() : 0) + REQUEST_OVERHEAD;
+        } else if (request instanceof UpdateRequest) {
+            UpdateRequest updateRequest = (UpdateRequest) request;
+            long size = 0;
+            if (updateRequest.doc() != null) {
+                size += updateRequest.doc().source().length();
+            }
+            if (updateRequest.upsertRequest() != null) {
+                size += updateRequest.upsertRequest().source().length();
+            }
+            if (updateRequest.script() != null) {
+                size += updateRequest.script().getScript().length() * 2;
+            }
+            return size;
+        } else if (request instanceof DeleteRequest) {
+            return REQUEST_OVERHEAD;
+        } else {
+            throw new IllegalArgumentException("No support for request [" + request + "]");
+        }
+    }
+
     private void addPayload(Object payload) {
         if (payloads == null) {
             if (payload == null) {
@@ -257,9 +276,25 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
     }
 
     public BulkRequest add(BytesReference data, @Nullable String defaultIndex, @Nullable String defaultType, @Nullable String defaultRouting, @Nullable String[] defaultFields, @Nullable String defaultPipeline, @Nullable Object payload, boolean allowExplicitIndex) throws Exception {
+        addActions(data, defaultIndex, defaultType, defaultRouting, defaultFields, defaultPipeline, payload, allowExplicitIndex);
+        return this;
+    }
+
+    /**
+     * Adds the complete actions of the given framed data, which may end with an incomplete action, and returns the number
+     * of bytes that were consumed. The remaining bytes are the start of the next action, this allows to parse the content
+     * of a bulk request while it is being received.
+     */
+    public int addCompleteActions(BytesReference data, @Nullable String defaultIndex, @Nullable String defaultType, @Nullable String defaultRouting, @Nullable String[] defaultFields, @Nullable String defaultPipeline, boolean allowExplicitIndex) throws Exception {
+        return addActions(data, defaultIndex, defaultType, defaultRouting, defaultFields, defaultPipeline, null, allowExplicitIndex);
+    }
+
+    private int addActions(BytesReference data, @Nullable String defaultIndex, @Nullable String defaultType, @Nullable String defaultRouting, @Nullable String[] defaultFields, @Nullable String defaultPipeline, @Nullable Object payload, boolean allowExplicitIndex) throws Exception {
         XContent xContent = XContentFactory.xContent(data);
         int line = 0;
         int from = 0;
+        // the end of the last complete action
+        int consumed = 0;
         int length = data.length();
         byte marker = xContent.streamSeparator();
         while (true) {
@@ -277,6 +312,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
                 // Move to START_OBJECT
                 XContentParser.Token token = parser.nextToken();
                 if (token == null) {
+                    consumed = from;
                     continue;
                 }
                 assert token == XContentParser.Token.START_OBJECT;
@@ -363,6 +399,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
 
                 if ("delete".equals(action)) {
                     add(new DeleteRequest(index, type, id).routing(routing).parent(parent).version(version).versionType(versionType), payload);
+                    consumed = from;
                 } else {
                     nextMarker = findNextMarker(marker, from, data, length);
                     if (nextMarker == -1) {
@@ -415,10 +452,11 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
                     }
                     // move pointers
                     from = nextMarker + 1;
+                    consumed = from;
                 }
             }
         }
-        return this;
+        return consumed;
     }
 
     /**
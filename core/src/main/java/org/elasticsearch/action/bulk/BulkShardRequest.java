@@ -37,6 +37,8 @@ public class BulkShardRequest extends ReplicationRequest<BulkShardRequest> {
 
     private boolean refresh;
 
+    private long estimatedSizeInBytes = -1;
+
     public BulkShardRequest() {
     }
 
@@ -54,6 +56,22 @@ public class BulkShardRequest extends ReplicationRequest<BulkShardRequest> {
         return items;
     }
 
+    /**
+     * The estimated size in bytes of the items of this request, computed like {@link BulkRequest#estimatedSizeInBytes()}.
+     */
+    long estimatedSizeInBytes() {
+        if (estimatedSizeInBytes == -1) {
+            long size = 0;
+            for (BulkItemRequest item : items) {
+                if (item != null) {
+                    size += BulkRequest.estimatedSizeInBytes(item.request());
+                }
+            }
+            estimatedSizeInBytes = size;
+        }
+        return estimatedSizeInBytes;
+    }
+
     @Override
     public String[] indices() {
         List<String> indices = new ArrayList<>();
@@ -92,6 +110,17 @@ public class BulkShardRequest extends ReplicationRequest<BulkShardRequest> {
         refresh = in.readBoolean();
     }
 
+    @Override
+    public void onRetry() {
+        for (BulkItemRequest item : items) {
+            if (item != null && item.request() instanceof ReplicationRequest) {
+                // all the items of the shard request are re-executed on the new primary, some of them might have been
+                // indexed already
+                ((ReplicationRequest<?>) item.request()).onRetry();
+            }
+        }
+    }
+
     @Override
     public String toString() {
         // This is included in error messages so we'll try to make it somewhat user friendly.
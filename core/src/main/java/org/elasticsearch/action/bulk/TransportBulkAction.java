@@ -45,10 +45,13 @@ import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.index.IndexingPressure;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndexAlreadyExistsException;
 import org.elasticsearch.indices.IndexClosedException;
@@ -79,23 +82,25 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
     private final TransportShardBulkAction shardBulkAction;
     private final TransportCreateIndexAction createIndexAction;
     private final LongSupplier relativeTimeProvider;
+    private final IndexingPressure indexingPressure;
 
     @Inject
     public TransportBulkAction(Settings settings, ThreadPool threadPool, TransportService transportService, ClusterService clusterService,
                                TransportShardBulkAction shardBulkAction, TransportCreateIndexAction createIndexAction,
                                ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
-                               AutoCreateIndex autoCreateIndex) {
+                               AutoCreateIndex autoCreateIndex, IndexingPressure indexingPressure) {
         this(settings, threadPool, transportService, clusterService,
                 shardBulkAction, createIndexAction,
                 actionFilters, indexNameExpressionResolver,
                 autoCreateIndex,
-                System::nanoTime);
+                System::nanoTime, indexingPressure);
     }
 
     public TransportBulkAction(Settings settings, ThreadPool threadPool, TransportService transportService, ClusterService clusterService,
                                TransportShardBulkAction shardBulkAction, TransportCreateIndexAction createIndexAction,
                                ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
-                               AutoCreateIndex autoCreateIndex, LongSupplier relativeTimeProvider) {
+                               AutoCreateIndex autoCreateIndex, LongSupplier relativeTimeProvider,
+                               IndexingPressure indexingPressure) {
         super(settings, BulkAction.NAME, threadPool, transportService, actionFilters, indexNameExpressionResolver, BulkRequest::new);
         Objects.requireNonNull(relativeTimeProvider);
         this.clusterService = clusterService;
@@ -105,6 +110,7 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
         this.autoCreateIndex = autoCreateIndex;
         this.allowIdGeneration = this.settings.getAsBoolean("action.bulk.action.allow_id_generation", true);
         this.relativeTimeProvider = relativeTimeProvider;
+        this.indexingPressure = indexingPressure;
     }
 
     @Override
@@ -114,6 +120,30 @@ public class TransportBulkAction extends HandledTransportAction<BulkRequest, Bul
 
     @Override
     protected void doExecute(Task task, BulkRequest bulkRequest, ActionListener<BulkResponse> listener) {
+        final Releasable releasable;
+        try {
+            releasable = indexingPressure.markCoordinatingOperationStarted(bulkRequest.estimatedSizeInBytes());
+        } catch (EsRejectedExecutionException e) {
+            listener.onFailure(e);
+            return;
+        }
+        // the bytes of the request are in flight until the response is sent, including the time to create missing indices
+        createIndicesAndExecuteBulk(task, bulkRequest, new ActionListener<BulkResponse>() {
+            @Override
+            public void onResponse(BulkResponse response) {
+                releasable.close();
+                listener.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                releasable.close();
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    private void createIndicesAndExecuteBulk(Task task, BulkRequest bulkRequest, ActionListener<BulkResponse> listener) {
         final long startTime = relativeTime();
         final AtomicArray<BulkItemResponse> responses = new AtomicArray<>(bulkRequest.requests.size());
 
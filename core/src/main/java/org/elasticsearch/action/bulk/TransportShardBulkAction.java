@@ -44,10 +44,12 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.IndexingPressure;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.VersionConflictEngineException;
@@ -75,18 +77,20 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
     private final UpdateHelper updateHelper;
     private final boolean allowIdGeneration;
     private final MappingUpdatedAction mappingUpdatedAction;
+    private final IndexingPressure indexingPressure;
 
     @Inject
     public TransportShardBulkAction(Settings settings, TransportService transportService, ClusterService clusterService,
                                     IndicesService indicesService, ThreadPool threadPool, ShardStateAction shardStateAction,
                                     MappingUpdatedAction mappingUpdatedAction, UpdateHelper updateHelper, ActionFilters actionFilters,
-                                    IndexNameExpressionResolver indexNameExpressionResolver) {
+                                    IndexNameExpressionResolver indexNameExpressionResolver, IndexingPressure indexingPressure) {
         super(settings, ACTION_NAME, transportService, clusterService, indicesService, threadPool, shardStateAction,
             actionFilters, indexNameExpressionResolver,
                 BulkShardRequest::new, BulkShardRequest::new, ThreadPool.Names.BULK);
         this.updateHelper = updateHelper;
         this.allowIdGeneration = settings.getAsBoolean("action.allow_id_generation", true);
         this.mappingUpdatedAction = mappingUpdatedAction;
+        this.indexingPressure = indexingPressure;
     }
 
     @Override
@@ -105,7 +109,17 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
     }
 
     @Override
-    protected Tuple<BulkShardResponse, BulkShardRequest> shardOperationOnPrimary(MetaData metaData, BulkShardRequest request) {
+    protected Releasable markPrimaryOperationStarted(BulkShardRequest request, boolean localToCoordinatingNode) {
+        return indexingPressure.markPrimaryOperationStarted(request.shardId(), request.estimatedSizeInBytes(), localToCoordinatingNode);
+    }
+
+    @Override
+    protected Releasable markReplicaOperationStarted(BulkShardRequest request) {
+        return indexingPressure.markReplicaOperationStarted(request.shardId(), request.estimatedSizeInBytes());
+    }
+
+    @Override
+    protected PrimaryResult shardOperationOnPrimary(MetaData metaData, BulkShardRequest request) {
         ShardId shardId = request.shardId();
         final IndexService indexService = indicesService.indexServiceSafe(shardId.getIndex());
         final IndexShard indexShard = indexService.getShard(shardId.getId());
@@ -118,13 +132,13 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
             location = handleItem(metaData, request, indexShard, preVersions, preVersionTypes, location, requestIndex, item);
         }
 
-        processAfterWrite(request.refresh(), indexShard, location);
+        processAfterWrite(request.refresh(), indexShard);
         BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
         BulkItemRequest[] items = request.items();
         for (int i = 0; i < items.length; i++) {
             responses[i] = items[i].getPrimaryResponse();
         }
-        return new Tuple<>(new BulkShardResponse(request.shardId(), responses), request);
+        return new PrimaryResult(new BulkShardResponse(request.shardId(), responses), request, location);
     }
 
     private Translog.Location handleItem(MetaData metaData, BulkShardRequest request, IndexShard indexShard, long[] preVersions, VersionType[] preVersionTypes, Translog.Location location, int requestIndex, BulkItemRequest item) {
@@ -437,7 +451,7 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
 
 
     @Override
-    protected void shardOperationOnReplica(BulkShardRequest request) {
+    protected Translog.Location shardOperationOnReplica(BulkShardRequest request) {
         final ShardId shardId = request.shardId();
         IndexService indexService = indicesService.indexServiceSafe(shardId.getIndex());
         IndexShard indexShard = indexService.getShard(shardId.id());
@@ -477,7 +491,8 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
             }
         }
 
-        processAfterWrite(request.refresh(), indexShard, location);
+        processAfterWrite(request.refresh(), indexShard);
+        return location;
     }
 
     private void applyVersion(BulkItemRequest item, long version, VersionType versionType) {
@@ -157,6 +157,16 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
 
     private String pipeline;
 
+    /**
+     * Value for {@link #getAutoGeneratedTimestamp()} if the document has an external
+     * provided ID.
+     */
+    public static final long UNSET_AUTO_GENERATED_TIMESTAMP = -1L;
+
+    private long autoGeneratedTimestamp = UNSET_AUTO_GENERATED_TIMESTAMP;
+
+    private boolean isRetry = false;
+
     public IndexRequest() {
     }
 
@@ -365,6 +375,26 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
         return this.pipeline;
     }
 
+    /**
+     * Returns the timestamp the auto generated ID was created or {@value #UNSET_AUTO_GENERATED_TIMESTAMP} if the
+     * document has no auto generated timestamp. This method will return a positive value iff the id was auto generated.
+     */
+    public long getAutoGeneratedTimestamp() {
+        return autoGeneratedTimestamp;
+    }
+
+    /**
+     * Returns <code>true</code> if this request has been sent to a shard copy more than once.
+     */
+    public boolean isRetry() {
+        return isRetry;
+    }
+
+    @Override
+    public void onRetry() {
+        isRetry = true;
+    }
+
     /**
      * The source of the document to index, recopied to a new array if it is unsafe.
      */
@@ -613,6 +643,10 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
         // generate id if not already provided and id generation is allowed
         if (allowIdGeneration) {
             if (id == null) {
+                assert autoGeneratedTimestamp == UNSET_AUTO_GENERATED_TIMESTAMP : "timestamp has already been generated!";
+                // the timestamp is used to detect retries of requests that might have already been indexed,
+                // we make sure it is never negative even if the clock goes backwards
+                autoGeneratedTimestamp = Math.max(0, System.currentTimeMillis());
                 id(Strings.base64UUID());
             }
         }
@@ -658,6 +692,8 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
         version = in.readLong();
         versionType = VersionType.fromValue(in.readByte());
         pipeline = in.readOptionalString();
+        isRetry = in.readBoolean();
+        autoGeneratedTimestamp = in.readLong();
     }
 
     @Override
@@ -680,6 +716,8 @@ public class IndexRequest extends ReplicationRequest<IndexRequest> implements Do
         out.writeLong(version);
         out.writeByte(versionType.getValue());
         out.writeOptionalString(pipeline);
+        out.writeBoolean(isRetry);
+        out.writeLong(autoGeneratedTimestamp);
     }
 
     @Override
@@ -48,6 +48,7 @@ import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -62,6 +63,7 @@ abstract class AbstractSearchAsyncAction<FirstResult extends SearchPhaseResult>
     private final IndexNameExpressionResolver indexNameExpressionResolver;
     protected final SearchPhaseController searchPhaseController;
     protected final ThreadPool threadPool;
+    protected final SearchTask task;
     protected final ActionListener<SearchResponse> listener;
     protected final GroupShardsIterator shardsIts;
     protected final SearchRequest request;
@@ -70,6 +72,7 @@ abstract class AbstractSearchAsyncAction<FirstResult extends SearchPhaseResult>
     protected final int expectedSuccessfulOps;
     private final int expectedTotalOps;
     protected final AtomicInteger successfulOps = new AtomicInteger();
+    protected final AtomicInteger skippedOps = new AtomicInteger();
     private final AtomicInteger totalOps = new AtomicInteger();
     protected final AtomicArray<FirstResult> firstResults;
     private volatile AtomicArray<ShardSearchFailure> shardFailures;
@@ -78,13 +81,14 @@ abstract class AbstractSearchAsyncAction<FirstResult extends SearchPhaseResult>
 
     protected AbstractSearchAsyncAction(ESLogger logger, SearchTransportService searchTransportService, ClusterService clusterService,
                                         IndexNameExpressionResolver indexNameExpressionResolver,
-                                        SearchPhaseController searchPhaseController, ThreadPool threadPool, SearchRequest request,
-                                        ActionListener<SearchResponse> listener) {
+                                        SearchPhaseController searchPhaseController, ThreadPool threadPool, SearchTask task,
+                                        SearchRequest request, ActionListener<SearchResponse> listener) {
         this.logger = logger;
         this.searchTransportService = searchTransportService;
         this.indexNameExpressionResolver = indexNameExpressionResolver;
         this.searchPhaseController = searchPhaseController;
         this.threadPool = threadPool;
+        this.task = task;
         this.request = request;
         this.listener = listener;
 
@@ -106,7 +110,8 @@ abstract class AbstractSearchAsyncAction<FirstResult extends SearchPhaseResult>
         Map<String, Set<String>> routingMap = indexNameExpressionResolver.resolveSearchRouting(clusterState, request.routing(),
             request.indices());
 
-        shardsIts = clusterService.operationRouting().searchShards(clusterState, concreteIndices, routingMap, request.preference());
+        shardsIts = clusterService.operationRouting().searchShards(clusterState, concreteIndices, routingMap, request.preference(),
+            searchTransportService.getResponseCollectorService());
         final int shardCount = shardsIts.size();
         final long shardCountLimit = clusterService.getClusterSettings().get(TransportSearchAction.SHARD_COUNT_LIMIT_SETTING);
         if (shardCount > shardCountLimit) {
@@ -131,17 +136,111 @@ abstract class AbstractSearchAsyncAction<FirstResult extends SearchPhaseResult>
                 ShardSearchFailure.EMPTY_ARRAY));
             return;
         }
+        if (shouldPreFilterShards()) {
+            preFilterShards();
+        } else {
+            executeFirstPhase(null);
+        }
+    }
+
+    private boolean shouldPreFilterShards() {
+        return shardsIts.size() > request.preFilterShardSize() && request.source() != null && request.source().query() != null;
+    }
+
+    /**
+     * Asks a copy of every shard whether the query can match any of its documents, and executes the first phase once all shards
+     * responded, skipping those that can't match. This is cheap compared to the query phase, which is worth it when searching many
+     * shards, most of which are excluded by the query, like time-based indices queried with a date range.
+     */
+    private void preFilterShards() {
+        final boolean[] skipShards = new boolean[shardsIts.size()];
+        final AtomicInteger pendingShards = new AtomicInteger(shardsIts.size());
+        int shardIndex = -1;
+        for (final ShardIterator shardIt : shardsIts) {
+            shardIndex++;
+            performCanMatch(shardIndex, shardIt, shardIt.nextOrNull(), skipShards, pendingShards);
+        }
+    }
+
+    private void performCanMatch(final int shardIndex, final ShardIterator shardIt, @Nullable final ShardRouting shard,
+                                 final boolean[] skipShards, final AtomicInteger pendingShards) {
+        if (shard == null) {
+            // no copy could tell, the first phase will report the failure if there is one
+            onCanMatchResult(shardIndex, true, skipShards, pendingShards);
+            return;
+        }
+        final DiscoveryNode node = nodes.get(shard.currentNodeId());
+        if (node == null) {
+            performCanMatch(shardIndex, shardIt, shardIt.nextOrNull(), skipShards, pendingShards);
+            return;
+        }
+        String[] filteringAliases = indexNameExpressionResolver.filteringAliases(clusterState,
+            shard.index().getName(), request.indices());
+        searchTransportService.sendCanMatch(node, internalSearchRequest(shard, shardsIts.size(), request, filteringAliases,
+            startTime()), new ActionListener<SearchTransportService.CanMatchResponse>() {
+                @Override
+                public void onResponse(SearchTransportService.CanMatchResponse response) {
+                    onCanMatchResult(shardIndex, response.canMatch(), skipShards, pendingShards);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("{}: failed to check whether [{}] can match", t, shard.shortSummary(), request);
+                    }
+                    performCanMatch(shardIndex, shardIt, shardIt.nextOrNull(), skipShards, pendingShards);
+                }
+            });
+    }
+
+    private void onCanMatchResult(int shardIndex, boolean canMatch, boolean[] skipShards, AtomicInteger pendingShards) {
+        skipShards[shardIndex] = canMatch == false;
+        if (pendingShards.decrementAndGet() == 0) {
+            boolean skipAll = true;
+            for (boolean skip : skipShards) {
+                skipAll &= skip;
+            }
+            if (skipAll) {
+                // we still search one shard so that the response has the same shape, e.g. empty aggregations
+                skipShards[0] = false;
+            }
+            for (ShardIterator shardIt : shardsIts) {
+                shardIt.reset();
+            }
+            executeFirstPhase(skipShards);
+        }
+    }
+
+    private void executeFirstPhase(@Nullable boolean[] skipShards) {
+        // the first copy of each shard that has an active copy
+        final List<FirstPhaseShard> shards = new ArrayList<>(shardsIts.size());
         int shardIndex = -1;
         for (final ShardIterator shardIt : shardsIts) {
             shardIndex++;
+            if (skipShards != null && skipShards[shardIndex]) {
+                onFirstPhaseSkipped(shardIt);
+                continue;
+            }
             final ShardRouting shard = shardIt.nextOrNull();
             if (shard != null) {
-                performFirstPhase(shardIndex, shardIt, shard);
+                shards.add(new FirstPhaseShard(shardIndex, shardIt, shard));
             } else {
                 // really, no shards active in this group
                 onFirstPhaseResult(shardIndex, null, null, shardIt, new NoShardAvailableActionException(shardIt.shardId()));
             }
         }
+        performFirstPhase(shards);
+    }
+
+    /**
+     * Sends the first phase requests for the first copy of the given shards. Subclasses may override this to send the requests
+     * for shards on the same node together, shards that fail must still be retried on their next copy one by one with
+     * {@link #performFirstPhase(int, ShardIterator, ShardRouting)}.
+     */
+    void performFirstPhase(final List<FirstPhaseShard> shards) {
+        for (FirstPhaseShard shard : shards) {
+            performFirstPhase(shard.shardIndex, shard.shardIt, shard.shard);
+        }
     }
 
     void performFirstPhase(final int shardIndex, final ShardIterator shardIt, final ShardRouting shard) {
@@ -153,34 +252,67 @@ abstract class AbstractSearchAsyncAction<FirstResult extends SearchPhaseResult>
             if (node == null) {
                 onFirstPhaseResult(shardIndex, shard, null, shardIt, new NoShardAvailableActionException(shardIt.shardId()));
             } else {
-                String[] filteringAliases = indexNameExpressionResolver.filteringAliases(clusterState,
-                    shard.index().getName(), request.indices());
-                sendExecuteFirstPhase(node, internalSearchRequest(shard, shardsIts.size(), request, filteringAliases,
-                    startTime()), new ActionListener<FirstResult>() {
-                        @Override
-                        public void onResponse(FirstResult result) {
-                            onFirstPhaseResult(shardIndex, shard, result, shardIt);
-                        }
-
-                        @Override
-                        public void onFailure(Throwable t) {
-                            onFirstPhaseResult(shardIndex, shard, node.getId(), shardIt, t);
-                        }
-                    });
+                sendExecuteFirstPhase(node, buildShardSearchRequest(shard), firstPhaseListener(shardIndex, shardIt, shard, node));
             }
         }
     }
 
+    ShardSearchTransportRequest buildShardSearchRequest(ShardRouting shard) {
+        String[] filteringAliases = indexNameExpressionResolver.filteringAliases(clusterState,
+            shard.index().getName(), request.indices());
+        return internalSearchRequest(shard, shardsIts.size(), request, filteringAliases, startTime());
+    }
+
+    ActionListener<FirstResult> firstPhaseListener(final int shardIndex, final ShardIterator shardIt, final ShardRouting shard,
+                                                           final DiscoveryNode node) {
+        return new ActionListener<FirstResult>() {
+            @Override
+            public void onResponse(FirstResult result) {
+                onFirstPhaseResult(shardIndex, shard, result, shardIt);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                onFirstPhaseResult(shardIndex, shard, node.getId(), shardIt, t);
+            }
+        };
+    }
+
+    static final class FirstPhaseShard {
+        final int shardIndex;
+        final ShardIterator shardIt;
+        final ShardRouting shard;
+
+        FirstPhaseShard(int shardIndex, ShardIterator shardIt, ShardRouting shard) {
+            this.shardIndex = shardIndex;
+            this.shardIt = shardIt;
+            this.shard = shard;
+        }
+    }
+
     void onFirstPhaseResult(int shardIndex, ShardRouting shard, FirstResult result, ShardIterator shardIt) {
         result.shardTarget(new SearchShardTarget(shard.currentNodeId(), shard.index(), shard.id()));
         processFirstPhaseResult(shardIndex, result);
+        onFirstPhaseSuccess(shardIt, shardIt.remaining() + 1);
+    }
+
+    /**
+     * Skipped shards count as successful, without a result.
+     */
+    private void onFirstPhaseSkipped(ShardIterator shardIt) {
+        skippedOps.incrementAndGet();
+        // none of the copies of this shard have been used
+        onFirstPhaseSuccess(shardIt, shardIt.remaining());
+    }
+
+    private void onFirstPhaseSuccess(ShardIterator shardIt, int ops) {
         // we need to increment successful ops first before we compare the exit condition otherwise if we
         // are fast we could concurrently update totalOps but then preempt one of the threads which can
         // cause the successor to read a wrong value from successfulOps if second phase is very fast ie. count etc.
         successfulOps.incrementAndGet();
         // increment all the "future" shards to update the total ops since we some may work and some may not...
         // and when that happens, we break on total ops, so we must maintain them
-        final int xTotalOps = totalOps.addAndGet(shardIt.remaining() + 1);
+        final int xTotalOps = totalOps.addAndGet(ops);
         if (xTotalOps == expectedTotalOps) {
             try {
                 innerMoveToSecondPhase();
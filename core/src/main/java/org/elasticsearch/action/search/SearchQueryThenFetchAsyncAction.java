@@ -39,20 +39,29 @@ import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<QuerySearchResultProvider> {
 
     final AtomicArray<FetchSearchResult> fetchResults;
     final AtomicArray<IntArrayList> docIdsToLoad;
+    private final SearchPhaseController.BatchedAggregationsReducer aggsReducer;
+    private final boolean batchShardRequests;
 
     SearchQueryThenFetchAsyncAction(ESLogger logger, SearchTransportService searchService,
                                             ClusterService clusterService, IndexNameExpressionResolver indexNameExpressionResolver,
                                             SearchPhaseController searchPhaseController, ThreadPool threadPool,
-                                            SearchRequest request, ActionListener<SearchResponse> listener) {
-        super(logger, searchService, clusterService, indexNameExpressionResolver, searchPhaseController, threadPool, request, listener);
+                                            SearchTask task, SearchRequest request, ActionListener<SearchResponse> listener) {
+        super(logger, searchService, clusterService, indexNameExpressionResolver, searchPhaseController, threadPool, task, request,
+                listener);
         fetchResults = new AtomicArray<>(firstResults.length());
         docIdsToLoad = new AtomicArray<>(firstResults.length());
+        aggsReducer = searchPhaseController.newBatchedAggregationsReducer(request, firstResults.length());
+        batchShardRequests = clusterService.getClusterSettings().get(TransportSearchAction.BATCH_SHARD_REQUESTS_SETTING);
     }
 
     @Override
@@ -63,7 +72,64 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<QuerySea
     @Override
     protected void sendExecuteFirstPhase(DiscoveryNode node, ShardSearchTransportRequest request,
                                          ActionListener<QuerySearchResultProvider> listener) {
-        searchTransportService.sendExecuteQuery(node, request, listener);
+        searchTransportService.sendExecuteQuery(node, request, task, consumeAggregations(listener));
+    }
+
+    /**
+     * Sends the query requests for shards that are on the same node in a single message if
+     * {@link TransportSearchAction#BATCH_SHARD_REQUESTS_SETTING} is set.
+     */
+    @Override
+    void performFirstPhase(List<FirstPhaseShard> shards) {
+        if (batchShardRequests == false) {
+            super.performFirstPhase(shards);
+            return;
+        }
+        Map<String, List<FirstPhaseShard>> shardsByNode = new HashMap<>();
+        for (FirstPhaseShard shard : shards) {
+            if (nodes.get(shard.shard.currentNodeId()) == null) {
+                performFirstPhase(shard.shardIndex, shard.shardIt, shard.shard);
+            } else {
+                shardsByNode.computeIfAbsent(shard.shard.currentNodeId(), nodeId -> new ArrayList<>()).add(shard);
+            }
+        }
+        for (Map.Entry<String, List<FirstPhaseShard>> entry : shardsByNode.entrySet()) {
+            List<FirstPhaseShard> nodeShards = entry.getValue();
+            if (nodeShards.size() == 1) {
+                super.performFirstPhase(nodeShards);
+                continue;
+            }
+            DiscoveryNode node = nodes.get(entry.getKey());
+            List<ShardSearchTransportRequest> requests = new ArrayList<>(nodeShards.size());
+            List<ActionListener<QuerySearchResultProvider>> listeners = new ArrayList<>(nodeShards.size());
+            for (FirstPhaseShard shard : nodeShards) {
+                requests.add(buildShardSearchRequest(shard.shard));
+                listeners.add(consumeAggregations(firstPhaseListener(shard.shardIndex, shard.shardIt, shard.shard, node)));
+            }
+            // shards that fail are retried on their next copy one by one
+            searchTransportService.sendExecuteQuery(node, requests, task, listeners);
+        }
+    }
+
+    /**
+     * Wraps the listener of a shard query result so that its aggregations are reduced in batches as results come in, if needed.
+     */
+    private ActionListener<QuerySearchResultProvider> consumeAggregations(ActionListener<QuerySearchResultProvider> listener) {
+        if (aggsReducer == null) {
+            return listener;
+        }
+        return new ActionListener<QuerySearchResultProvider>() {
+            @Override
+            public void onResponse(QuerySearchResultProvider result) {
+                aggsReducer.consume(result.queryResult());
+                listener.onResponse(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                listener.onFailure(t);
+            }
+        };
     }
 
     @Override
@@ -91,7 +157,7 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<QuerySea
 
     void executeFetch(final int shardIndex, final SearchShardTarget shardTarget, final AtomicInteger counter,
                       final ShardFetchSearchRequest fetchSearchRequest, DiscoveryNode node) {
-        searchTransportService.sendExecuteFetch(node, fetchSearchRequest, new ActionListener<FetchSearchResult>() {
+        searchTransportService.sendExecuteFetch(node, fetchSearchRequest, task, new ActionListener<FetchSearchResult>() {
             @Override
             public void onResponse(FetchSearchResult result) {
                 result.shardTarget(shardTarget);
@@ -130,13 +196,13 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<QuerySea
             @Override
             public void doRun() throws IOException {
                 final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, firstResults,
-                    fetchResults);
+                    fetchResults, aggsReducer);
                 String scrollId = null;
                 if (request.scroll() != null) {
                     scrollId = TransportSearchHelper.buildScrollId(request.searchType(), firstResults, null);
                 }
                 listener.onResponse(new SearchResponse(internalResponse, scrollId, expectedSuccessfulOps,
-                    successfulOps.get(), buildTookInMillis(), buildShardFailures()));
+                    successfulOps.get(), skippedOps.get(), buildTookInMillis(), buildShardFailures()));
                 releaseIrrelevantSearchContexts(firstResults, docIdsToLoad);
             }
 
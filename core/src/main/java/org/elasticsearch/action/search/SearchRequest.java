@@ -32,6 +32,8 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.script.Template;
 import org.elasticsearch.search.Scroll;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
 
 import java.io.IOException;
 
@@ -63,6 +65,14 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
 
     private Boolean requestCache;
 
+    public static final int DEFAULT_PRE_FILTER_SHARD_SIZE = 128;
+
+    private int preFilterShardSize = DEFAULT_PRE_FILTER_SHARD_SIZE;
+
+    public static final int DEFAULT_BATCHED_REDUCE_SIZE = 512;
+
+    private int batchedReduceSize = DEFAULT_BATCHED_REDUCE_SIZE;
+
     private Scroll scroll;
 
     private String[] types = Strings.EMPTY_ARRAY;
@@ -295,6 +305,47 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
         return this.requestCache;
     }
 
+    /**
+     * Sets a threshold that enforces a pre-filter roundtrip to filter out shards that can't match the query, if the number of
+     * shards the search request expands to exceeds the threshold. This filter roundtrip can limit the number of shards
+     * significantly if for instance a shard can not match any documents based on its rewrite method ie. if date filters are
+     * mandatory to match but the shard bounds and the query are disjoint. Defaults to <code>128</code>.
+     */
+    public SearchRequest preFilterShardSize(int preFilterShardSize) {
+        if (preFilterShardSize < 1) {
+            throw new IllegalArgumentException("preFilterShardSize must be >= 1, got " + preFilterShardSize);
+        }
+        this.preFilterShardSize = preFilterShardSize;
+        return this;
+    }
+
+    /**
+     * Returns the threshold on the number of shards above which a pre-filter roundtrip is executed.
+     */
+    public int preFilterShardSize() {
+        return preFilterShardSize;
+    }
+
+    /**
+     * Sets the number of shard results that should be reduced at once on the coordinating node. This value should be used as a
+     * protection mechanism to reduce the memory overhead per search request if the potential number of shards in the request can
+     * be large. Defaults to <code>512</code>.
+     */
+    public SearchRequest batchedReduceSize(int batchedReduceSize) {
+        if (batchedReduceSize <= 1) {
+            throw new IllegalArgumentException("batchedReduceSize must be >= 2, got " + batchedReduceSize);
+        }
+        this.batchedReduceSize = batchedReduceSize;
+        return this;
+    }
+
+    /**
+     * Returns the number of shard results that should be reduced at once on the coordinating node.
+     */
+    public int batchedReduceSize() {
+        return batchedReduceSize;
+    }
+
     /**
      * @return true if the request only has suggest
      */
@@ -302,6 +353,26 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
         return source != null && source.isSuggestOnly();
     }
 
+    @Override
+    public Task createTask(long id, String type, String action) {
+        return new SearchTask(id, type, action, getDescription(), TaskId.EMPTY_TASK_ID);
+    }
+
+    @Override
+    public String getDescription() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("indices[");
+        Strings.arrayToDelimitedString(indices, ",", sb);
+        sb.append("], types[");
+        Strings.arrayToDelimitedString(types, ",", sb);
+        sb.append("], search_type[").append(searchType).append("], source[");
+        if (source != null) {
+            sb.append(source.toString());
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -326,6 +397,8 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
         indicesOptions = IndicesOptions.readIndicesOptions(in);
 
         requestCache = in.readOptionalBoolean();
+        preFilterShardSize = in.readVInt();
+        batchedReduceSize = in.readVInt();
         template = in.readOptionalStreamable(Template::new);
     }
 
@@ -357,6 +430,8 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
         out.writeStringArray(types);
         indicesOptions.writeIndicesOptions(out);
         out.writeOptionalBoolean(requestCache);
+        out.writeVInt(preFilterShardSize);
+        out.writeVInt(batchedReduceSize);
         out.writeOptionalStreamable(template);
     }
 }
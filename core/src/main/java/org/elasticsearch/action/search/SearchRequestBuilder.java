@@ -34,6 +34,7 @@ import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.index.query.support.InnerHitsBuilder;
 import org.elasticsearch.search.highlight.HighlightBuilder;
 import org.elasticsearch.search.rescore.RescoreBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.search.suggest.SuggestBuilder;
@@ -353,6 +354,14 @@ public class SearchRequestBuilder extends ActionRequestBuilder<SearchRequest, Se
         return this;
     }
 
+    /**
+     * Restricts the results of this request to a slice of the results of the main query, see {@link SliceBuilder}.
+     */
+    public SearchRequestBuilder slice(SliceBuilder builder) {
+        sourceBuilder().slice(builder);
+        return this;
+    }
+
     /**
      * Applies when sorting, and controls if scores will be tracked as well. Defaults to
      * <tt>false</tt>.
@@ -362,6 +371,15 @@ public class SearchRequestBuilder extends ActionRequestBuilder<SearchRequest, Se
         return this;
     }
 
+    /**
+     * Controls whether the total number of hits is counted exactly. Defaults to <tt>true</tt>, if <tt>false</tt> searches that are
+     * sorted like the index may stop collecting early and return a lower bound of the total number of hits.
+     */
+    public SearchRequestBuilder setTrackTotalHits(boolean trackTotalHits) {
+        sourceBuilder().trackTotalHits(trackTotalHits);
+        return this;
+    }
+
     /**
      * Sets the fields to load and return as part of the search request. If none
      * are specified, the source of the document will be returned.
@@ -489,6 +507,23 @@ public class SearchRequestBuilder extends ActionRequestBuilder<SearchRequest, Se
         return this;
     }
 
+    /**
+     * Sets the number of shards above which a pre-filter roundtrip skips shards that can't match the query.
+     * Defaults to <code>128</code>.
+     */
+    public SearchRequestBuilder setPreFilterShardSize(int preFilterShardSize) {
+        request.preFilterShardSize(preFilterShardSize);
+        return this;
+    }
+
+    /**
+     * Sets the number of shard results that should be reduced at once on the coordinating node. Defaults to <code>512</code>.
+     */
+    public SearchRequestBuilder setBatchedReduceSize(int batchedReduceSize) {
+        request.batchedReduceSize(batchedReduceSize);
+        return this;
+    }
+
     /**
      * Should the query be profiled. Defaults to <code>false</code>
      */
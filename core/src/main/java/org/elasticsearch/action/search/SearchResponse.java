@@ -30,6 +30,7 @@ import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.rest.action.support.RestActions;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.internal.InternalSearchResponse;
@@ -56,6 +57,8 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
 
     private int successfulShards;
 
+    private int skippedShards;
+
     private ShardSearchFailure[] shardFailures;
 
     private long tookInMillis;
@@ -64,10 +67,16 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
     }
 
     public SearchResponse(InternalSearchResponse internalResponse, String scrollId, int totalShards, int successfulShards, long tookInMillis, ShardSearchFailure[] shardFailures) {
+        this(internalResponse, scrollId, totalShards, successfulShards, 0, tookInMillis, shardFailures);
+    }
+
+    public SearchResponse(InternalSearchResponse internalResponse, String scrollId, int totalShards, int successfulShards,
+                          int skippedShards, long tookInMillis, ShardSearchFailure[] shardFailures) {
         this.internalResponse = internalResponse;
         this.scrollId = scrollId;
         this.totalShards = totalShards;
         this.successfulShards = successfulShards;
+        this.skippedShards = skippedShards;
         this.tookInMillis = tookInMillis;
         this.shardFailures = shardFailures;
     }
@@ -136,6 +145,14 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         return successfulShards;
     }
 
+    /**
+     * The number of shards that were skipped because the pre-filter round found that they can't match the query.
+     * Skipped shards are also counted as successful.
+     */
+    public int getSkippedShards() {
+        return skippedShards;
+    }
+
     /**
      * The failed number of shards the search was executed on.
      */
@@ -183,6 +200,18 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        toXContentBeforeHits(builder, params);
+        for (SearchHit hit : getHits().getHits()) {
+            hit.toXContent(builder, params);
+        }
+        return toXContentAfterHits(builder, params);
+    }
+
+    /**
+     * Writes the response like {@link #toXContent} up to the opening of the array of hits. Writing the hits one at a time and
+     * then calling {@link #toXContentAfterHits} writes the same content, but allows to write it in chunks.
+     */
+    public XContentBuilder toXContentBeforeHits(XContentBuilder builder, Params params) throws IOException {
         if (scrollId != null) {
             builder.field(Fields._SCROLL_ID, scrollId);
         }
@@ -191,9 +220,16 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         if (isTerminatedEarly() != null) {
             builder.field(Fields.TERMINATED_EARLY, isTerminatedEarly());
         }
-        RestActions.buildBroadcastShardsHeader(builder, params, getTotalShards(), getSuccessfulShards(), getFailedShards(), getShardFailures());
-        internalResponse.toXContent(builder, params);
-        return builder;
+        RestActions.buildBroadcastShardsHeader(builder, params, getTotalShards(), getSuccessfulShards(), getSkippedShards(),
+            getFailedShards(), getShardFailures());
+        return internalResponse.toXContentBeforeHits(builder, params);
+    }
+
+    /**
+     * Writes the rest of the response after the hits, see {@link #toXContentBeforeHits}.
+     */
+    public XContentBuilder toXContentAfterHits(XContentBuilder builder, Params params) throws IOException {
+        return internalResponse.toXContentAfterHits(builder, params);
     }
 
     @Override
@@ -202,6 +238,7 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         internalResponse = readInternalSearchResponse(in);
         totalShards = in.readVInt();
         successfulShards = in.readVInt();
+        skippedShards = in.readVInt();
         int size = in.readVInt();
         if (size == 0) {
             shardFailures = ShardSearchFailure.EMPTY_ARRAY;
@@ -221,6 +258,7 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         internalResponse.writeTo(out);
         out.writeVInt(totalShards);
         out.writeVInt(successfulShards);
+        out.writeVInt(skippedShards);
 
         out.writeVInt(shardFailures.length);
         for (ShardSearchFailure shardSearchFailure : shardFailures) {
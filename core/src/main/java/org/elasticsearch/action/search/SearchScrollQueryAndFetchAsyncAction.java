@@ -43,6 +43,7 @@ class SearchScrollQueryAndFetchAsyncAction extends AbstractAsyncAction {
     private final ESLogger logger;
     private final SearchPhaseController searchPhaseController;
     private final SearchTransportService searchTransportService;
+    private final SearchTask task;
     private final SearchScrollRequest request;
     private final ActionListener<SearchResponse> listener;
     private final ParsedScrollId scrollId;
@@ -54,10 +55,12 @@ class SearchScrollQueryAndFetchAsyncAction extends AbstractAsyncAction {
 
     SearchScrollQueryAndFetchAsyncAction(ESLogger logger, ClusterService clusterService,
                                          SearchTransportService searchTransportService, SearchPhaseController searchPhaseController,
-                                         SearchScrollRequest request, ParsedScrollId scrollId, ActionListener<SearchResponse> listener) {
+                                         SearchTask task, SearchScrollRequest request, ParsedScrollId scrollId,
+                                         ActionListener<SearchResponse> listener) {
         this.logger = logger;
         this.searchPhaseController = searchPhaseController;
         this.searchTransportService = searchTransportService;
+        this.task = task;
         this.request = request;
         this.listener = listener;
         this.scrollId = scrollId;
@@ -128,7 +131,7 @@ class SearchScrollQueryAndFetchAsyncAction extends AbstractAsyncAction {
 
     void executePhase(final int shardIndex, DiscoveryNode node, final long searchId) {
         InternalScrollSearchRequest internalRequest = internalScrollSearchRequest(searchId, request);
-        searchTransportService.sendExecuteFetch(node, internalRequest, new ActionListener<ScrollQueryFetchSearchResult>() {
+        searchTransportService.sendExecuteFetch(node, internalRequest, task, new ActionListener<ScrollQueryFetchSearchResult>() {
             @Override
             public void onResponse(ScrollQueryFetchSearchResult result) {
                 queryFetchResults.set(shardIndex, result.result());
@@ -25,6 +25,8 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.search.Scroll;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
 
 import java.io.IOException;
 
@@ -96,6 +98,16 @@ public class SearchScrollRequest extends ActionRequest<SearchScrollRequest> {
         return scroll(new Scroll(TimeValue.parseTimeValue(keepAlive, null, getClass().getSimpleName() + ".keepAlive")));
     }
 
+    @Override
+    public Task createTask(long id, String type, String action) {
+        return new SearchTask(id, type, action, getDescription(), TaskId.EMPTY_TASK_ID);
+    }
+
+    @Override
+    public String getDescription() {
+        return "scrollId[" + scrollId + "], scroll[" + (scroll == null ? null : scroll.keepAlive()) + "]";
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -32,6 +32,8 @@ import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -55,31 +57,87 @@ public class TransportMultiSearchAction extends HandledTransportAction<MultiSear
         ClusterState clusterState = clusterService.state();
         clusterState.blocks().globalBlockedRaiseException(ClusterBlockLevel.READ);
 
-        final AtomicArray<MultiSearchResponse.Item> responses = new AtomicArray<>(request.requests().size());
-        final AtomicInteger counter = new AtomicInteger(responses.length());
-        for (int i = 0; i < responses.length(); i++) {
-            final int index = i;
-            searchAction.execute(request.requests().get(i), new ActionListener<SearchResponse>() {
-                @Override
-                public void onResponse(SearchResponse searchResponse) {
-                    responses.set(index, new MultiSearchResponse.Item(searchResponse, null));
-                    if (counter.decrementAndGet() == 0) {
-                        finishHim();
-                    }
-                }
+        int maxConcurrentSearches = request.maxConcurrentSearchRequests();
+        if (maxConcurrentSearches == 0) {
+            maxConcurrentSearches = defaultMaxConcurrentSearches(threadPool.info(ThreadPool.Names.SEARCH).getMax(), clusterState);
+        }
 
-                @Override
-                public void onFailure(Throwable e) {
-                    responses.set(index, new MultiSearchResponse.Item(null, e));
-                    if (counter.decrementAndGet() == 0) {
-                        finishHim();
-                    }
-                }
+        final Queue<SearchRequestSlot> searchRequestSlots = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < request.requests().size(); i++) {
+            searchRequestSlots.add(new SearchRequestSlot(request.requests().get(i), i));
+        }
+
+        final int numRequests = request.requests().size();
+        final AtomicArray<MultiSearchResponse.Item> responses = new AtomicArray<>(numRequests);
+        final AtomicInteger responseCounter = new AtomicInteger(numRequests);
+        final int numConcurrentSearches = Math.min(numRequests, maxConcurrentSearches);
+        for (int i = 0; i < numConcurrentSearches; i++) {
+            executeSearch(searchRequestSlots, responses, responseCounter, listener);
+        }
+    }
+
+    /**
+     * The default number of sub-searches that run concurrently: as many as the search thread pools of the data nodes can execute
+     * at once, assuming every node has the same pool size as this one. The pool size is capped so that a single multi search
+     * doesn't take over large clusters.
+     */
+    static int defaultMaxConcurrentSearches(int searchThreadPoolSize, ClusterState state) {
+        int numDataNodes = state.getNodes().getDataNodes().size();
+        return Math.max(1, numDataNodes * Math.min(searchThreadPoolSize, 10));
+    }
 
-                private void finishHim() {
-                    listener.onResponse(new MultiSearchResponse(responses.toArray(new MultiSearchResponse.Item[responses.length()])));
+    /**
+     * Executes the next queued sub-search, and the one after it once it completes, so that the number of sub-searches that are
+     * running stays the same until the queue is drained.
+     */
+    void executeSearch(final Queue<SearchRequestSlot> requests, final AtomicArray<MultiSearchResponse.Item> responses,
+                       final AtomicInteger responseCounter, final ActionListener<MultiSearchResponse> listener) {
+        final SearchRequestSlot request = requests.poll();
+        if (request == null) {
+            // the other sub-searches that are still running will pick up the remaining requests
+            return;
+        }
+
+        final Thread thread = Thread.currentThread();
+        searchAction.execute(request.request, new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse searchResponse) {
+                responses.set(request.responseSlot, new MultiSearchResponse.Item(searchResponse, null));
+                handleResponse();
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                responses.set(request.responseSlot, new MultiSearchResponse.Item(null, e));
+                handleResponse();
+            }
+
+            private void handleResponse() {
+                if (responseCounter.decrementAndGet() == 0) {
+                    finish();
+                } else if (thread == Thread.currentThread()) {
+                    // the search completed on the thread that started it, e.g. because it failed right away: fork so that
+                    // a long list of such searches doesn't overflow the stack
+                    threadPool.generic().execute(() -> executeSearch(requests, responses, responseCounter, listener));
+                } else {
+                    executeSearch(requests, responses, responseCounter, listener);
                 }
-            });
+            }
+
+            private void finish() {
+                listener.onResponse(new MultiSearchResponse(responses.toArray(new MultiSearchResponse.Item[responses.length()])));
+            }
+        });
+    }
+
+    static final class SearchRequestSlot {
+
+        final SearchRequest request;
+        final int responseSlot;
+
+        SearchRequestSlot(SearchRequest request, int responseSlot) {
+            this.request = request;
+            this.responseSlot = responseSlot;
         }
     }
 }
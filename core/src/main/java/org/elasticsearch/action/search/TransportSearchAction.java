@@ -33,6 +33,7 @@ import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.indices.IndexClosedException;
 import org.elasticsearch.search.action.SearchTransportService;
 import org.elasticsearch.search.controller.SearchPhaseController;
+import org.elasticsearch.tasks.Task;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
@@ -51,6 +52,12 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     public static final Setting<Long> SHARD_COUNT_LIMIT_SETTING = Setting.longSetting(
             "action.search.shard_count.limit", 1000L, 1L, Property.Dynamic, Property.NodeScope);
 
+    /**
+     * Whether the query phase requests of a search for shards that are on the same node are sent in a single transport message.
+     */
+    public static final Setting<Boolean> BATCH_SHARD_REQUESTS_SETTING = Setting.boolSetting(
+            "action.search.batch_shard_requests", false, Property.Dynamic, Property.NodeScope);
+
     private final ClusterService clusterService;
     private final SearchTransportService searchTransportService;
     private final SearchPhaseController searchPhaseController;
@@ -67,7 +74,12 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     }
 
     @Override
-    protected void doExecute(SearchRequest searchRequest, ActionListener<SearchResponse> listener) {
+    protected final void doExecute(SearchRequest searchRequest, ActionListener<SearchResponse> listener) {
+        throw new UnsupportedOperationException("the task parameter is required for this operation");
+    }
+
+    @Override
+    protected void doExecute(Task task, SearchRequest searchRequest, ActionListener<SearchResponse> listener) {
         // optimize search type for cases where there is only one shard group to search on
         try {
             ClusterState clusterState = clusterService.state();
@@ -100,19 +112,19 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         switch(searchRequest.searchType()) {
             case DFS_QUERY_THEN_FETCH:
                 searchAsyncAction = new SearchDfsQueryThenFetchAsyncAction(logger, searchTransportService, clusterService,
-                        indexNameExpressionResolver, searchPhaseController, threadPool, searchRequest, listener);
+                        indexNameExpressionResolver, searchPhaseController, threadPool, (SearchTask) task, searchRequest, listener);
                 break;
             case QUERY_THEN_FETCH:
                 searchAsyncAction = new SearchQueryThenFetchAsyncAction(logger, searchTransportService, clusterService,
-                        indexNameExpressionResolver, searchPhaseController, threadPool, searchRequest, listener);
+                        indexNameExpressionResolver, searchPhaseController, threadPool, (SearchTask) task, searchRequest, listener);
                 break;
             case DFS_QUERY_AND_FETCH:
                 searchAsyncAction = new SearchDfsQueryAndFetchAsyncAction(logger, searchTransportService, clusterService,
-                        indexNameExpressionResolver, searchPhaseController, threadPool, searchRequest, listener);
+                        indexNameExpressionResolver, searchPhaseController, threadPool, (SearchTask) task, searchRequest, listener);
                 break;
             case QUERY_AND_FETCH:
                 searchAsyncAction = new SearchQueryAndFetchAsyncAction(logger, searchTransportService, clusterService,
-                        indexNameExpressionResolver, searchPhaseController, threadPool, searchRequest, listener);
+                        indexNameExpressionResolver, searchPhaseController, threadPool, (SearchTask) task, searchRequest, listener);
                 break;
             default:
                 throw new IllegalStateException("Unknown search type: [" + searchRequest.searchType() + "]");
@@ -160,6 +160,14 @@ public abstract class ReplicationRequest<Request extends ReplicationRequest<Requ
         primaryTerm = term;
     }
 
+    /**
+     * This method is called before this replication request is retried. Requests
+     * can use it to mark themselves as a potential duplicate of an earlier attempt.
+     */
+    public void onRetry() {
+        // nothing by default
+    }
+
     @Override
     public ActionRequestValidationException validate() {
         ActionRequestValidationException validationException = null;
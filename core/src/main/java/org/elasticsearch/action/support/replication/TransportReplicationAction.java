@@ -43,7 +43,6 @@ import org.elasticsearch.cluster.routing.IndexShardRoutingTable;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Nullable;
-import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
@@ -65,6 +64,7 @@ import org.elasticsearch.tasks.Task;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.BaseTransportResponseHandler;
 import org.elasticsearch.transport.ConnectTransportException;
+import org.elasticsearch.transport.DelegatingTransportChannel;
 import org.elasticsearch.transport.EmptyTransportResponseHandler;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportChannelResponseHandler;
@@ -72,6 +72,7 @@ import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequestHandler;
 import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportResponseOptions;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
@@ -125,9 +126,11 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
         this.executor = executor;
         this.checkWriteConsistency = checkWriteConsistency();
         transportService.registerRequestHandler(actionName, request, ThreadPool.Names.SAME, new OperationTransportHandler());
-        transportService.registerRequestHandler(transportPrimaryAction, request, executor, new PrimaryOperationTransportHandler());
-        // we must never reject on because of thread pool capacity on replicas
-        transportService.registerRequestHandler(transportReplicaAction, replicaRequest, executor, true, new ReplicaOperationTransportHandler());
+        // the primary and replica handlers mark their requests as in flight on the network thread and then fork to the executor
+        transportService.registerRequestHandler(transportPrimaryAction, request, ThreadPool.Names.SAME,
+            new PrimaryOperationTransportHandler());
+        transportService.registerRequestHandler(transportReplicaAction, replicaRequest, ThreadPool.Names.SAME,
+            new ReplicaOperationTransportHandler());
 
         this.transportOptions = transportOptions();
 
@@ -157,15 +160,37 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
     /**
      * Primary operation on node with primary copy, the provided metadata should be used for request validation if needed
      *
-     * @return A tuple containing not null values, as first value the result of the primary operation and as second value
-     * the request to be executed on the replica shards.
+     * @return the result of the primary operation: the response, the request to be executed on the replica shards and the
+     * translog location, if any, that has to be durable before the operation is acknowledged.
      */
-    protected abstract Tuple<Response, ReplicaRequest> shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception;
+    protected abstract PrimaryResult shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception;
 
     /**
      * Replica operation on nodes with replica copies
+     *
+     * @return the translog location that has to be durable before the operation is acknowledged or <code>null</code> if
+     * there is nothing to sync.
+     */
+    @Nullable
+    protected abstract Translog.Location shardOperationOnReplica(ReplicaRequest shardRequest);
+
+    /**
+     * Marks the given request as in flight on the node with the primary copy, until the response is sent. Implementations
+     * can reject the request by throwing {@link org.elasticsearch.common.util.concurrent.EsRejectedExecutionException}.
+     *
+     * @param localToCoordinatingNode whether the request was sent by this node
      */
-    protected abstract void shardOperationOnReplica(ReplicaRequest shardRequest);
+    protected Releasable markPrimaryOperationStarted(Request request, boolean localToCoordinatingNode) {
+        return () -> {};
+    }
+
+    /**
+     * Marks the given request as in flight on a node with a replica copy, until the response is sent. Requests must not be
+     * rejected on replicas.
+     */
+    protected Releasable markReplicaOperationStarted(ReplicaRequest request) {
+        return () -> {};
+    }
 
     /**
      * True if write consistency should be checked for an implementation
@@ -229,6 +254,31 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
         return false;
     }
 
+    /**
+     * The result of the operation on the primary shard.
+     */
+    protected class PrimaryResult {
+
+        final Response response;
+        final ReplicaRequest replicaRequest;
+        @Nullable
+        final Translog.Location location;
+
+        public PrimaryResult(Response response, ReplicaRequest replicaRequest) {
+            this(response, replicaRequest, null);
+        }
+
+        /**
+         * @param location the translog location that has to be durable before the response is sent back, the wait for it
+         *                 doesn't block the calling thread (see {@link IndexShard#sync(Translog.Location, Consumer)}).
+         */
+        public PrimaryResult(Response response, ReplicaRequest replicaRequest, @Nullable Translog.Location location) {
+            this.response = response;
+            this.replicaRequest = replicaRequest;
+            this.location = location;
+        }
+    }
+
     protected static class WriteResult<T extends ReplicationResponse> {
 
         public final T response;
@@ -287,7 +337,11 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
 
         @Override
         public void messageReceived(Request request, TransportChannel channel, Task task) throws Exception {
-            new PrimaryPhase((ReplicationTask) task, request, channel).run();
+            // requests that the coordinating node sends to itself come through the direct channel of the transport service
+            final Releasable releasable = markPrimaryOperationStarted(request, "direct".equals(channel.getChannelType()));
+            // a rejection of the executor fails the primary phase, which sends the failure on the channel and releases the bytes
+            threadPool.executor(executor).execute(
+                new PrimaryPhase((ReplicationTask) task, request, new ReleasingTransportChannel(channel, releasable)));
         }
     }
 
@@ -299,7 +353,49 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
 
         @Override
         public void messageReceived(ReplicaRequest request, TransportChannel channel, Task task) throws Exception {
-            new AsyncReplicaAction(request, channel, (ReplicationTask) task).run();
+            final Releasable releasable = markReplicaOperationStarted(request);
+            threadPool.executor(executor).execute(
+                new AsyncReplicaAction(request, new ReleasingTransportChannel(channel, releasable), (ReplicationTask) task));
+        }
+    }
+
+    /**
+     * Releases the given releasable once a response was sent, whether it succeeded or not.
+     */
+    static class ReleasingTransportChannel extends DelegatingTransportChannel {
+
+        private final Releasable releasable;
+
+        ReleasingTransportChannel(TransportChannel channel, Releasable releasable) {
+            super(channel);
+            this.releasable = releasable;
+        }
+
+        @Override
+        public void sendResponse(TransportResponse response) throws IOException {
+            try {
+                super.sendResponse(response);
+            } finally {
+                releasable.close();
+            }
+        }
+
+        @Override
+        public void sendResponse(TransportResponse response, TransportResponseOptions options) throws IOException {
+            try {
+                super.sendResponse(response, options);
+            } finally {
+                releasable.close();
+            }
+        }
+
+        @Override
+        public void sendResponse(Throwable error) throws IOException {
+            try {
+                super.sendResponse(error);
+            } finally {
+                releasable.close();
+            }
         }
     }
 
@@ -332,6 +428,12 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
             this.task = task;
         }
 
+        @Override
+        public boolean isForceExecution() {
+            // we must never reject on because of thread pool capacity on replicas
+            return true;
+        }
+
         @Override
         public void onFailure(Throwable t) {
             if (t instanceof RetryOnReplicaException) {
@@ -376,14 +478,34 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
         protected void doRun() throws Exception {
             setPhase(task, "replica");
             assert request.shardId() != null : "request shardId must be set";
-            try (Releasable ignored = getIndexShardReferenceOnReplica(request.shardId(), request.primaryTerm())) {
-                shardOperationOnReplica(request);
+            final IndexShardReference indexShardReference = getIndexShardReferenceOnReplica(request.shardId(), request.primaryTerm());
+            boolean success = false;
+            try {
+                final Translog.Location location = shardOperationOnReplica(request);
                 if (logger.isTraceEnabled()) {
                     logger.trace("action [{}] completed on shard [{}] for request [{}]", transportReplicaAction, request.shardId(), request);
                 }
+                // the reference is released and the response sent once the operation is durable, this doesn't block the
+                // current thread while the translog is synced
+                indexShardReference.ensureDurable(location, durabilityFailure -> {
+                    indexShardReference.close();
+                    if (durabilityFailure == null) {
+                        setPhase(task, "finished");
+                        try {
+                            channel.sendResponse(TransportResponse.Empty.INSTANCE);
+                        } catch (Throwable t) {
+                            responseWithFailure(t);
+                        }
+                    } else {
+                        responseWithFailure(durabilityFailure);
+                    }
+                });
+                success = true;
+            } finally {
+                if (success == false) {
+                    indexShardReference.close();
+                }
             }
-            setPhase(task, "finished");
-            channel.sendResponse(TransportResponse.Empty.INSTANCE);
         }
     }
 
@@ -573,6 +695,7 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
                 return;
             }
             setPhase(task, "waiting_for_retry");
+            request.onRetry();
             final ThreadContext.StoredContext context = threadPool.getThreadContext().newStoredContext();
             observer.waitForNextChange(new ClusterStateObserver.Listener() {
                 @Override
@@ -690,12 +813,13 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
 
         private void executeLocally() throws Exception {
             // execute locally
-            Tuple<Response, ReplicaRequest> primaryResponse = shardOperationOnPrimary(state.metaData(), request);
-            primaryResponse.v2().primaryTerm(indexShardReference.opPrimaryTerm());
+            PrimaryResult primaryResult = shardOperationOnPrimary(state.metaData(), request);
+            primaryResult.replicaRequest.primaryTerm(indexShardReference.opPrimaryTerm());
             if (logger.isTraceEnabled()) {
                 logger.trace("action [{}] completed on shard [{}] for request [{}] with cluster state version [{}]", transportPrimaryAction, shardId, request, state.version());
             }
-            ReplicationPhase replicationPhase = new ReplicationPhase(task, primaryResponse.v2(), primaryResponse.v1(), shardId, channel, indexShardReference);
+            ReplicationPhase replicationPhase = new ReplicationPhase(task, primaryResult.replicaRequest, primaryResult.response, shardId,
+                channel, indexShardReference, primaryResult.location);
             finishAndMoveToReplication(replicationPhase);
         }
 
@@ -823,7 +947,8 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
 
     /**
      * Responsible for sending replica requests (see {@link AsyncReplicaAction}) to nodes with replica copy, including
-     * relocating copies
+     * relocating copies. If the primary operation left a translog location that has to be durable, waiting for it counts
+     * as one more pending operation which runs concurrently to the replica requests.
      */
     final class ReplicationPhase extends AbstractRunnable {
 
@@ -841,10 +966,19 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
         private final AtomicInteger pending;
         private final int totalShards;
         private final IndexShardReference indexShardReference;
+        @Nullable
+        private final Translog.Location primaryLocation;
 
         public ReplicationPhase(ReplicationTask task, ReplicaRequest replicaRequest, Response finalResponse, ShardId shardId,
                                 TransportChannel channel, IndexShardReference indexShardReference) {
+            this(task, replicaRequest, finalResponse, shardId, channel, indexShardReference, null);
+        }
+
+        public ReplicationPhase(ReplicationTask task, ReplicaRequest replicaRequest, Response finalResponse, ShardId shardId,
+                                TransportChannel channel, IndexShardReference indexShardReference,
+                                @Nullable Translog.Location primaryLocation) {
             this.task = task;
+            this.primaryLocation = primaryLocation;
             this.replicaRequest = replicaRequest;
             this.channel = channel;
             this.finalResponse = finalResponse;
@@ -869,6 +1003,10 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
             // we calculate number of target nodes to send replication operations, including nodes with relocating shards
             AtomicInteger numberOfPendingShardInstances = new AtomicInteger();
             this.totalShards = countTotalAndPending(shards, executeOnReplica, nodes, numberOfPendingShardInstances);
+            if (primaryLocation != null) {
+                // waiting for the primary operation to be durable
+                numberOfPendingShardInstances.incrementAndGet();
+            }
             this.pending = numberOfPendingShardInstances;
             this.shards = shards;
             this.executeOnReplica = executeOnReplica;
@@ -965,6 +1103,20 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
                 return;
             }
             performOnShards(shards, executeOnReplica, nodes, shard -> performOnReplica(shard), shard -> performOnReplica(shard.buildTargetRelocatingShard()));
+            if (primaryLocation != null) {
+                // the replica requests are on their way before the translog is synced, which may block the current thread. the
+                // sync is counted as pending from the start, so the response still waits for it
+                indexShardReference.ensureDurable(primaryLocation, this::onPrimaryDurable);
+            }
+        }
+
+        void onPrimaryDurable(@Nullable Throwable durabilityFailure) {
+            if (durabilityFailure == null) {
+                decPendingAndFinishIfNeeded();
+            } else {
+                logger.warn("[{}] failed to sync translog for action [{}]", durabilityFailure, shardId, actionName);
+                forceFinishAsFailed(durabilityFailure);
+            }
         }
 
         /**
@@ -1125,6 +1277,13 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
 
         /** returns the primary term of the current operation */
         long opPrimaryTerm();
+
+        /**
+         * Makes sure the given translog location is durable according to the shard's translog durability and notifies the
+         * listener once it is, with <code>null</code> on success or with the failure that prevented the translog from being
+         * synced. The calling thread is not blocked while the translog is synced.
+         */
+        void ensureDurable(@Nullable Translog.Location location, Consumer<Throwable> listener);
     }
 
     static final class IndexShardReferenceImpl implements IndexShardReference {
@@ -1173,9 +1332,23 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
         public long opPrimaryTerm() {
             return indexShard.getPrimaryTerm();
         }
+
+        @Override
+        public void ensureDurable(@Nullable Translog.Location location, Consumer<Throwable> listener) {
+            if (location != null && indexShard.getTranslogDurability() == Translog.Durability.REQUEST) {
+                indexShard.sync(location, listener);
+            } else {
+                listener.accept(null);
+            }
+        }
     }
 
-    protected final void processAfterWrite(boolean refresh, IndexShard indexShard, Translog.Location location) {
+    /**
+     * Refreshes the shard if requested and triggers a flush if needed. Making the written operations durable is left to the
+     * caller by returning their translog location (see {@link PrimaryResult} and {@link #shardOperationOnReplica}) so that
+     * the translog can be synced without blocking the current thread.
+     */
+    protected final void processAfterWrite(boolean refresh, IndexShard indexShard) {
         if (refresh) {
             try {
                 indexShard.refresh("refresh_flag_index");
@@ -1183,9 +1356,6 @@ public abstract class TransportReplicationAction<Request extends ReplicationRequ
                 // ignore
             }
         }
-        if (indexShard.getTranslogDurability() == Translog.Durability.REQUEST && location != null) {
-            indexShard.sync(location);
-        }
         indexShard.maybeFlush();
     }
 
@@ -32,6 +32,8 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Locale;
 
@@ -56,11 +58,19 @@ public class PageCacheRecycler extends AbstractComponent implements Releasable {
     // object pages are less useful to us so we give them a lower weight by default
     public static final Setting<Double> WEIGHT_OBJECTS_SETTING  =
         Setting.doubleSetting("cache.recycler.page.weight.objects", 0.1d, 0d, Property.NodeScope);
+    /**
+     * Whether the pages of byte, int, long and double arrays are allocated outside of the heap. These pages are
+     * shared between the types so the weights of bytes, ints and longs are summed up.
+     */
+    public static final Setting<Boolean> DIRECT_SETTING =
+        Setting.boolSetting("cache.recycler.page.direct", false, Property.NodeScope);
 
+    private final boolean direct;
     private final Recycler<byte[]> bytePage;
     private final Recycler<int[]> intPage;
     private final Recycler<long[]> longPage;
     private final Recycler<Object[]> objectPage;
+    private final Recycler<ByteBuffer> directPage;
 
     @Override
     public void close() {
@@ -68,6 +78,7 @@ public class PageCacheRecycler extends AbstractComponent implements Releasable {
         intPage.close();
         longPage.close();
         objectPage.close();
+        directPage.close();
     }
 
     private static int maximumSearchThreadPoolSize(ThreadPool threadPool, Settings settings) {
@@ -103,6 +114,8 @@ public class PageCacheRecycler extends AbstractComponent implements Releasable {
         // to direct ByteBuffers or sun.misc.Unsafe on a byte[] but this would have other issues
         // that would need to be addressed such as garbage collection of native memory or safety
         // of Unsafe writes.
+        // In direct mode, byte, int and long pages are all direct ByteBuffers that are never
+        // freed explicitly, so they share a single recycler in order to stay in the cache.
         final double bytesWeight = WEIGHT_BYTES_SETTING .get(settings);
         final double intsWeight = WEIGHT_INT_SETTING .get(settings);
         final double longsWeight = WEIGHT_LONG_SETTING .get(settings);
@@ -110,8 +123,21 @@ public class PageCacheRecycler extends AbstractComponent implements Releasable {
 
         final double totalWeight = bytesWeight + intsWeight + longsWeight + objectsWeight;
         final int maxPageCount = (int) Math.min(Integer.MAX_VALUE, limit / BigArrays.PAGE_SIZE_IN_BYTES);
+        this.direct = DIRECT_SETTING.get(settings);
 
-        final int maxBytePageCount = (int) (bytesWeight * maxPageCount / totalWeight);
+        final int maxDirectPageCount = direct ? (int) ((bytesWeight + intsWeight + longsWeight) * maxPageCount / totalWeight) : 0;
+        directPage = build(type, maxDirectPageCount, searchThreadPoolSize, availableProcessors, new AbstractRecyclerC<ByteBuffer>() {
+            @Override
+            public ByteBuffer newInstance(int sizing) {
+                return ByteBuffer.allocateDirect(BigArrays.PAGE_SIZE_IN_BYTES).order(ByteOrder.nativeOrder());
+            }
+            @Override
+            public void recycle(ByteBuffer value) {
+                // nothing to do
+            }
+        });
+
+        final int maxBytePageCount = direct ? 0 : (int) (bytesWeight * maxPageCount / totalWeight);
         bytePage = build(type, maxBytePageCount, searchThreadPoolSize, availableProcessors, new AbstractRecyclerC<byte[]>() {
             @Override
             public byte[] newInstance(int sizing) {
@@ -123,7 +149,7 @@ public class PageCacheRecycler extends AbstractComponent implements Releasable {
             }
         });
 
-        final int maxIntPageCount = (int) (intsWeight * maxPageCount / totalWeight);
+        final int maxIntPageCount = direct ? 0 : (int) (intsWeight * maxPageCount / totalWeight);
         intPage = build(type, maxIntPageCount, searchThreadPoolSize, availableProcessors, new AbstractRecyclerC<int[]>() {
             @Override
             public int[] newInstance(int sizing) {
@@ -135,7 +161,7 @@ public class PageCacheRecycler extends AbstractComponent implements Releasable {
             }
         });
 
-        final int maxLongPageCount = (int) (longsWeight * maxPageCount / totalWeight);
+        final int maxLongPageCount = direct ? 0 : (int) (longsWeight * maxPageCount / totalWeight);
         longPage = build(type, maxLongPageCount, searchThreadPoolSize, availableProcessors, new AbstractRecyclerC<long[]>() {
             @Override
             public long[] newInstance(int sizing) {
@@ -159,7 +185,15 @@ public class PageCacheRecycler extends AbstractComponent implements Releasable {
             }
         });
 
-        assert BigArrays.PAGE_SIZE_IN_BYTES * (maxBytePageCount + maxIntPageCount + maxLongPageCount + maxObjectPageCount) <= limit;
+        assert BigArrays.PAGE_SIZE_IN_BYTES * ((long) maxBytePageCount + maxIntPageCount + maxLongPageCount + maxObjectPageCount
+            + maxDirectPageCount) <= limit;
+    }
+
+    /**
+     * Whether byte, int, long and double arrays should use {@link #directPage(boolean)} rather than pages on the heap.
+     */
+    public boolean isDirect() {
+        return direct;
     }
 
     public Recycler.V<byte[]> bytePage(boolean clear) {
@@ -191,6 +225,20 @@ public class PageCacheRecycler extends AbstractComponent implements Releasable {
         return objectPage.obtain();
     }
 
+    /**
+     * Returns a page of {@link BigArrays#PAGE_SIZE_IN_BYTES} bytes outside of the heap, in the native byte order.
+     */
+    public Recycler.V<ByteBuffer> directPage(boolean clear) {
+        final Recycler.V<ByteBuffer> v = directPage.obtain();
+        if (v.isRecycled() && clear) {
+            final ByteBuffer page = v.v();
+            for (int i = 0; i < page.capacity(); i += Long.BYTES) {
+                page.putLong(i, 0L);
+            }
+        }
+        return v;
+    }
+
     private static <T> Recycler<T> build(Type type, int limit, int estimatedThreadPoolSize, int availableProcessors, Recycler.C<T> c) {
         final Recycler<T> recycler;
         if (limit == 0) {
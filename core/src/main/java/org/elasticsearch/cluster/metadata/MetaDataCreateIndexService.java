@@ -333,6 +333,12 @@ public class MetaDataCreateIndexService extends AbstractComponent {
                                     throw new MapperParsingException("Failed to parse mapping [{}]: {}", e, entry.getKey(), e.getMessage());
                                 }
                             }
+                            try {
+                                mapperService.checkIndexSortField();
+                            } catch (IllegalArgumentException e) {
+                                removalReason = "invalid index sort field on index creation";
+                                throw e;
+                            }
 
                             final QueryShardContext queryShardContext = indexService.newQueryShardContext();
                             for (Alias alias : request.aliases()) {
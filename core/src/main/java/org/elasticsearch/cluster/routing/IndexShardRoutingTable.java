@@ -28,11 +28,14 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -244,6 +247,35 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return new PlainShardIterator(shardId, ordered);
     }
 
+    /**
+     * Returns an iterator over active and initializing shards. The active shards are ordered by the rank of the node they are
+     * allocated on, best first, see {@link ResponseCollectorService#rank(String, long)}. Shards on nodes that don't have a rank
+     * yet come first, in random order, so that every node gets a chance to be measured. Initializing shards are the last to
+     * iterate through.
+     *
+     * @param pendingRequests the number of requests per node id that the caller is about to send, incremented for the node of the
+     *                        shard that the returned iterator starts with
+     */
+    public ShardIterator activeInitializingShardsRankedIt(ResponseCollectorService collector, Map<String, Long> pendingRequests) {
+        final List<ShardRouting> ordered = new ArrayList<>(activeShards.size() + allInitializingShards.size());
+        ordered.addAll(shuffler.shuffle(activeShards));
+        if (ordered.size() > 1) {
+            final Map<String, Double> ranks = new HashMap<>(ordered.size());
+            for (ShardRouting shard : ordered) {
+                final String nodeId = shard.currentNodeId();
+                final Double rank = collector.rank(nodeId, pendingRequests.getOrDefault(nodeId, 0L));
+                ranks.put(nodeId, rank == null ? Double.NEGATIVE_INFINITY : rank);
+            }
+            // the sort is stable, so shards with the same rank stay in random order
+            ordered.sort(Comparator.comparingDouble(shard -> ranks.get(shard.currentNodeId())));
+        }
+        if (ordered.isEmpty() == false) {
+            pendingRequests.merge(ordered.get(0).currentNodeId(), 1L, Long::sum);
+        }
+        ordered.addAll(allInitializingShards);
+        return new PlainShardIterator(shardId, ordered);
+    }
+
     /**
      * Returns true if no primaries are active or initializing for this shard
      */
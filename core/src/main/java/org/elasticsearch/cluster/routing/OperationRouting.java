@@ -27,13 +27,18 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardNotFoundException;
+import org.elasticsearch.node.ResponseCollectorService;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -43,13 +48,31 @@ import java.util.Set;
  */
 public class OperationRouting extends AbstractComponent {
 
+    /**
+     * Whether searches without a preference should rank shard copies by the load of the nodes they are allocated on, as
+     * tracked by the {@link ResponseCollectorService} of the coordinating node, instead of picking them at random.
+     */
+    public static final Setting<Boolean> USE_ADAPTIVE_REPLICA_SELECTION_SETTING =
+        Setting.boolSetting("cluster.routing.use_adaptive_replica_selection", false, Property.Dynamic, Property.NodeScope);
 
     private final AwarenessAllocationDecider awarenessAllocationDecider;
 
-    @Inject
+    private volatile boolean useAdaptiveReplicaSelection;
+
     public OperationRouting(Settings settings, AwarenessAllocationDecider awarenessAllocationDecider) {
+        this(settings, awarenessAllocationDecider, new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
+    @Inject
+    public OperationRouting(Settings settings, AwarenessAllocationDecider awarenessAllocationDecider, ClusterSettings clusterSettings) {
         super(settings);
         this.awarenessAllocationDecider = awarenessAllocationDecider;
+        this.useAdaptiveReplicaSelection = USE_ADAPTIVE_REPLICA_SELECTION_SETTING.get(settings);
+        clusterSettings.addSettingsUpdateConsumer(USE_ADAPTIVE_REPLICA_SELECTION_SETTING, this::setUseAdaptiveReplicaSelection);
+    }
+
+    private void setUseAdaptiveReplicaSelection(boolean useAdaptiveReplicaSelection) {
+        this.useAdaptiveReplicaSelection = useAdaptiveReplicaSelection;
     }
 
     public ShardIterator indexShards(ClusterState clusterState, String index, String type, String id, @Nullable String routing) {
@@ -57,12 +80,12 @@ public class OperationRouting extends AbstractComponent {
     }
 
     public ShardIterator getShards(ClusterState clusterState, String index, String type, String id, @Nullable String routing, @Nullable String preference) {
-        return preferenceActiveShardIterator(shards(clusterState, index, id, routing), clusterState.nodes().getLocalNodeId(), clusterState.nodes(), preference);
+        return preferenceActiveShardIterator(shards(clusterState, index, id, routing), clusterState.nodes().getLocalNodeId(), clusterState.nodes(), preference, null, null);
     }
 
     public ShardIterator getShards(ClusterState clusterState, String index, int shardId, @Nullable String preference) {
         final IndexShardRoutingTable indexShard = clusterState.getRoutingTable().shardRoutingTable(index, shardId);
-        return preferenceActiveShardIterator(indexShard, clusterState.nodes().getLocalNodeId(), clusterState.nodes(), preference);
+        return preferenceActiveShardIterator(indexShard, clusterState.nodes().getLocalNodeId(), clusterState.nodes(), preference, null, null);
     }
 
     public int searchShardsCount(ClusterState clusterState, String[] concreteIndices, @Nullable Map<String, Set<String>> routing) {
@@ -71,10 +94,22 @@ public class OperationRouting extends AbstractComponent {
     }
 
     public GroupShardsIterator searchShards(ClusterState clusterState, String[] concreteIndices, @Nullable Map<String, Set<String>> routing, @Nullable String preference) {
+        return searchShards(clusterState, concreteIndices, routing, preference, null);
+    }
+
+    /**
+     * Returns the shard iterators of a search. Unless a preference is given, shard copies are ordered by the load of the nodes
+     * they are allocated on when adaptive replica selection is enabled and a {@link ResponseCollectorService} is given.
+     */
+    public GroupShardsIterator searchShards(ClusterState clusterState, String[] concreteIndices, @Nullable Map<String, Set<String>> routing,
+                                            @Nullable String preference, @Nullable ResponseCollectorService collectorService) {
         final Set<IndexShardRoutingTable> shards = computeTargetedShards(clusterState, concreteIndices, routing);
         final Set<ShardIterator> set = new HashSet<>(shards.size());
+        // the number of shards of this search that were routed to each node so far
+        final Map<String, Long> pendingRequests = new HashMap<>();
         for (IndexShardRoutingTable shard : shards) {
-            ShardIterator iterator = preferenceActiveShardIterator(shard, clusterState.nodes().getLocalNodeId(), clusterState.nodes(), preference);
+            ShardIterator iterator = preferenceActiveShardIterator(shard, clusterState.nodes().getLocalNodeId(), clusterState.nodes(), preference,
+                collectorService, pendingRequests);
             if (iterator != null) {
                 set.add(iterator);
             }
@@ -111,14 +146,10 @@ public class OperationRouting extends AbstractComponent {
         return set;
     }
 
-    private ShardIterator preferenceActiveShardIterator(IndexShardRoutingTable indexShard, String localNodeId, DiscoveryNodes nodes, @Nullable String preference) {
+    private ShardIterator preferenceActiveShardIterator(IndexShardRoutingTable indexShard, String localNodeId, DiscoveryNodes nodes, @Nullable String preference,
+                                                        @Nullable ResponseCollectorService collectorService, @Nullable Map<String, Long> pendingRequests) {
         if (preference == null || preference.isEmpty()) {
-            String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
-            if (awarenessAttributes.length == 0) {
-                return indexShard.activeInitializingShardsRandomIt();
-            } else {
-                return indexShard.preferAttributesActiveInitializingShardsIt(awarenessAttributes, nodes);
-            }
+            return defaultShardIterator(indexShard, nodes, collectorService, pendingRequests);
         }
         if (preference.charAt(0) == '_') {
             Preference preferenceType = Preference.parse(preference);
@@ -145,12 +176,7 @@ public class OperationRouting extends AbstractComponent {
                 }
                 // no more preference
                 if (index == -1 || index == preference.length() - 1) {
-                    String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
-                    if (awarenessAttributes.length == 0) {
-                        return indexShard.activeInitializingShardsRandomIt();
-                    } else {
-                        return indexShard.preferAttributesActiveInitializingShardsIt(awarenessAttributes, nodes);
-                    }
+                    return defaultShardIterator(indexShard, nodes, collectorService, pendingRequests);
                 } else {
                     // update the preference and continue
                     preference = preference.substring(index + 1);
@@ -192,6 +218,19 @@ public class OperationRouting extends AbstractComponent {
         }
     }
 
+    private ShardIterator defaultShardIterator(IndexShardRoutingTable indexShard, DiscoveryNodes nodes,
+                                               @Nullable ResponseCollectorService collectorService, @Nullable Map<String, Long> pendingRequests) {
+        String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
+        if (awarenessAttributes.length == 0) {
+            if (useAdaptiveReplicaSelection && collectorService != null) {
+                return indexShard.activeInitializingShardsRankedIt(collectorService, pendingRequests);
+            }
+            return indexShard.activeInitializingShardsRandomIt();
+        } else {
+            return indexShard.preferAttributesActiveInitializingShardsIt(awarenessAttributes, nodes);
+        }
+    }
+
     protected IndexRoutingTable indexRoutingTable(ClusterState clusterState, String index) {
         IndexRoutingTable indexRouting = clusterState.routingTable().index(index);
         if (indexRouting == null) {
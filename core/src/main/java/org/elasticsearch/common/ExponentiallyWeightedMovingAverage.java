@@ -0,0 +1,63 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implements an exponentially weighted moving average of values that are added one at a time, as opposed to
+ * {@link org.elasticsearch.common.metrics.EWMA} which averages a rate over fixed ticks. Every added value moves the average by
+ * <code>alpha</code> times its distance to the current average. This class is thread-safe.
+ */
+public class ExponentiallyWeightedMovingAverage {
+
+    private final double alpha;
+    // the double bits of the current average
+    private final AtomicLong averageBits;
+
+    /**
+     * Creates a new average.
+     *
+     * @param alpha the weight of new values, in <code>[0, 1]</code>, larger values make the average follow changes faster
+     * @param initialAverage the average before any value is added
+     */
+    public ExponentiallyWeightedMovingAverage(double alpha, double initialAverage) {
+        if (alpha < 0 || alpha > 1) {
+            throw new IllegalArgumentException("alpha must be in [0, 1], got " + alpha);
+        }
+        this.alpha = alpha;
+        this.averageBits = new AtomicLong(Double.doubleToLongBits(initialAverage));
+    }
+
+    public double getAverage() {
+        return Double.longBitsToDouble(averageBits.get());
+    }
+
+    public void addValue(double newValue) {
+        boolean successful = false;
+        do {
+            final long currentBits = averageBits.get();
+            final double currentAvg = Double.longBitsToDouble(currentBits);
+            final double newAvg = (alpha * newValue) + ((1 - alpha) * currentAvg);
+            final long newBits = Double.doubleToLongBits(newAvg);
+            successful = averageBits.compareAndSet(currentBits, newBits);
+        } while (successful == false);
+    }
+}
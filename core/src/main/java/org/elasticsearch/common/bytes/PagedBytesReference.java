@@ -125,10 +125,9 @@ public class PagedBytesReference implements BytesReference {
         BytesRef ref = new BytesRef();
 
         while (currentLength > 0) {
-            // try to align to the underlying pages while writing, so no new arrays will be created.
+            // try to align to the underlying pages while writing, so no new arrays will be created unless the pages are off-heap.
             int fragmentSize = Math.min(currentLength, PAGE_SIZE - (currentOffset % PAGE_SIZE));
-            boolean newArray = bytearray.get(currentOffset, fragmentSize, ref);
-            assert !newArray : "PagedBytesReference failed to align with underlying bytearray. offset [" + currentOffset + "], size [" + fragmentSize + "]";
+            bytearray.get(currentOffset, fragmentSize, ref);
             Channels.writeToChannel(ref.bytes, ref.offset, ref.length, channel);
             currentLength -= ref.length;
             currentOffset += ref.length;
@@ -255,8 +254,12 @@ public class PagedBytesReference implements BytesReference {
     @Override
     public int arrayOffset() {
         if (hasArray()) {
+            if (length == 0) {
+                return 0;
+            }
+            // an empty slice is enough to locate the bytes, without copying them out of off-heap pages
             BytesRef ref = new BytesRef();
-            bytearray.get(offset, length, ref);
+            bytearray.get(offset, 0, ref);
             return ref.offset;
         }
 
@@ -414,8 +417,8 @@ public class PagedBytesReference implements BytesReference {
             while (copiedBytes < numBytesToCopy) {
                 long pageFragment = PAGE_SIZE - (byteArrayOffset % PAGE_SIZE); // how much can we read until hitting N*PAGE_SIZE?
                 int bulkSize = (int) Math.min(pageFragment, numBytesToCopy - copiedBytes); // we cannot copy more than a page fragment
-                boolean copied = bytearray.get(byteArrayOffset, bulkSize, ref); // get the fragment
-                assert (copied == false); // we should never ever get back a materialized byte[]
+                // get the fragment, which is only ever materialized if the pages are off-heap
+                bytearray.get(byteArrayOffset, bulkSize, ref);
                 System.arraycopy(ref.bytes, ref.offset, b, bOffset + copiedBytes, bulkSize); // copy fragment contents
                 copiedBytes += bulkSize; // count how much we copied
                 byteArrayOffset += bulkSize; // advance ByteArray index
@@ -29,6 +29,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -50,17 +52,21 @@ import java.util.function.ToLongBiFunction;
  * if they are reading a segment that a writer is writing to).
  * <p>
  * The LRU functionality is backed by a single doubly-linked list chaining the entries in order of insertion. This
- * LRU list is protected by a lock that serializes all writes to it. There are opportunities for improvements
- * here if write throughput is a concern.
- * <ol>
- * <li>LRU list mutations could be inserted into a blocking queue that a single thread is reading from
- * and applying to the LRU list.</li>
- * <li>Promotions could be deferred for entries that were "recently" promoted.</li>
- * <li>Locks on the list could be taken per node being modified instead of globally.</li>
- * </ol>
+ * LRU list is protected by a lock that serializes all writes to it. Reads don't take this lock: the entries that were
+ * read are recorded in small lock-free buffers, one of which is picked per thread so that concurrent readers rarely
+ * contend on the same buffer, and the promotions are applied to the LRU list in batches. A buffer is drained by the
+ * reader that fills it if the lock is free, and all buffers are drained before any other change to the LRU list, so
+ * the LRU order is exact for a single thread. Under heavy contention, promotions are dropped while a buffer is full,
+ * which only affects the accuracy of the LRU order.
  * <p>
- * Evictions only occur after a mutation to the cache (meaning an entry promotion, a cache insertion, or a manual
- * invalidation) or an explicit call to {@link #refresh()}.
+ * Caches that are bounded by weight can use a frequency-based admission policy (see TinyLFU): a new entry that makes
+ * the cache exceed its maximum weight is evicted right away, unless it was used more frequently than the least
+ * recently used entry, which would otherwise be evicted. The frequencies of the recently used keys are estimated with
+ * a {@link FrequencySketch}. This prevents a scan over many keys that are used only once from flushing the entries
+ * that are used often.
+ * <p>
+ * Evictions only occur after a mutation to the cache (meaning a cache insertion, a manual invalidation or the
+ * promotion of a batch of entries) or an explicit call to {@link #refresh()}.
  *
  * @param <K> The type of the keys
  * @param <V> The type of the values
@@ -94,6 +100,9 @@ public class Cache<K, V> {
     private RemovalListener<K, V> removalListener = notification -> {
     };
 
+    // the frequencies of the keys, if new entries must be used more frequently than the entries they evict
+    private FrequencySketch frequencySketch;
+
     // use CacheBuilder to construct
     Cache() {
     }
@@ -131,6 +140,10 @@ public class Cache<K, V> {
         this.removalListener = removalListener;
     }
 
+    void setFrequencyBasedAdmission(boolean frequencyBasedAdmission) {
+        this.frequencySketch = frequencyBasedAdmission ? new FrequencySketch() : null;
+    }
+
     /**
      * The relative time used to track time-based evictions.
      *
@@ -304,6 +317,53 @@ public class Cache<K, V> {
         }
     }
 
+    /**
+     * A bounded buffer of entries that were read and need to be promoted in the LRU list. Readers add entries without
+     * locking, and the buffer is drained while holding the lock protecting the LRU list. An entry is dropped if the
+     * buffer is full or if another reader is adding an entry at the same time.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     */
+    static final class ReadBuffer<K, V> {
+        static final int SIZE = 16;
+        static final int MASK = SIZE - 1;
+
+        final AtomicReferenceArray<Entry<K, V>> buffer = new AtomicReferenceArray<>(SIZE);
+        final AtomicLong writeCounter = new AtomicLong();
+        // only written while holding the LRU lock
+        volatile long readCounter;
+
+        /**
+         * add an entry to the buffer
+         *
+         * @param entry the entry that was read
+         * @return true if the buffer is full and should be drained
+         */
+        boolean offer(Entry<K, V> entry) {
+            final long written = writeCounter.get();
+            final long size = written - readCounter;
+            if (size >= SIZE) {
+                return true;
+            }
+            if (writeCounter.compareAndSet(written, written + 1)) {
+                buffer.lazySet((int) (written & MASK), entry);
+                return size + 1 >= SIZE;
+            }
+            return false;
+        }
+    }
+
+    static final int NUMBER_OF_READ_BUFFERS =
+        Math.min(64, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1));
+    @SuppressWarnings("unchecked") private final ReadBuffer<K, V>[] readBuffers = new ReadBuffer[NUMBER_OF_READ_BUFFERS];
+
+    {
+        for (int i = 0; i < readBuffers.length; i++) {
+            readBuffers[i] = new ReadBuffer<>();
+        }
+    }
+
     Entry<K, V> head;
     Entry<K, V> tail;
 
@@ -326,7 +386,7 @@ public class Cache<K, V> {
         if (entry == null || isExpired(entry, now)) {
             return null;
         } else {
-            promote(entry, now);
+            recordRead(entry, now);
             return entry.value;
         }
     }
@@ -362,7 +422,10 @@ public class Cache<K, V> {
             BiFunction<? super Entry<K, V>, Throwable, ? extends V> handler = (ok, ex) -> {
                 if (ok != null) {
                     try (ReleasableLock ignored = lruLock.acquire()) {
-                        promote(ok, now);
+                        drainReadBuffers();
+                        if (promote(ok, now)) {
+                            evict(now);
+                        }
                     }
                     return ok.value;
                 } else {
@@ -424,12 +487,15 @@ public class Cache<K, V> {
         Tuple<Entry<K, V>, Entry<K, V>> tuple = segment.put(key, value, now);
         boolean replaced = false;
         try (ReleasableLock ignored = lruLock.acquire()) {
+            drainReadBuffers();
             if (tuple.v2() != null && tuple.v2().state == State.EXISTING) {
                 if (unlink(tuple.v2())) {
                     replaced = true;
                 }
             }
-            promote(tuple.v1(), now);
+            if (promote(tuple.v1(), now)) {
+                evict(now);
+            }
         }
         if (replaced) {
             removalListener.onRemoval(new RemovalNotification<>(tuple.v2().key, tuple.v2().value, RemovalNotification.RemovalReason.REPLACED));
@@ -466,6 +532,8 @@ public class Cache<K, V> {
                 haveSegmentLock[i] = true;
             }
             try (ReleasableLock ignored = lruLock.acquire()) {
+                // release the references to the entries that were read
+                drainReadBuffers();
                 h = head;
                 Arrays.stream(segments).forEach(segment -> segment.map = new HashMap<>());
                 Entry<K, V> current = head;
@@ -496,6 +564,7 @@ public class Cache<K, V> {
     public void refresh() {
         long now = now();
         try (ReleasableLock ignored = lruLock.acquire()) {
+            drainReadBuffers();
             evict(now);
         }
     }
@@ -527,7 +596,7 @@ public class Cache<K, V> {
      */
     public Iterable<K> keys() {
         return () -> new Iterator<K>() {
-            private CacheIterator iterator = new CacheIterator(head);
+            private CacheIterator iterator = new CacheIterator(lruHead());
 
             @Override
             public boolean hasNext() {
@@ -554,7 +623,7 @@ public class Cache<K, V> {
      */
     public Iterable<V> values() {
         return () -> new Iterator<V>() {
-            private CacheIterator iterator = new CacheIterator(head);
+            private CacheIterator iterator = new CacheIterator(lruHead());
 
             @Override
             public boolean hasNext() {
@@ -568,6 +637,14 @@ public class Cache<K, V> {
         };
     }
 
+    // the head of the LRU list, after applying the outstanding promotions
+    private Entry<K, V> lruHead() {
+        try (ReleasableLock ignored = lruLock.acquire()) {
+            drainReadBuffers();
+            return head;
+        }
+    }
+
     private class CacheIterator implements Iterator<Entry<K, V>> {
         private Entry<K, V> current;
         private Entry<K, V> next;
@@ -645,25 +722,72 @@ public class Cache<K, V> {
         }
     }
 
-    private boolean promote(Entry<K, V> entry, long now) {
-        boolean promoted = true;
-        try (ReleasableLock ignored = lruLock.acquire()) {
-            switch (entry.state) {
-                case DELETED:
-                    promoted = false;
-                    break;
-                case EXISTING:
-                    relinkAtHead(entry);
-                    break;
-                case NEW:
-                    linkAtHead(entry);
-                    break;
+    private void recordRead(Entry<K, V> entry, long now) {
+        ReadBuffer<K, V> readBuffer = readBuffers[(int) Thread.currentThread().getId() & (readBuffers.length - 1)];
+        if (readBuffer.offer(entry)) {
+            // drain the buffers unless another thread is already changing the LRU list
+            try (ReleasableLock locked = lruLock.tryAcquire()) {
+                if (locked != null) {
+                    drainReadBuffers();
+                    evict(now);
+                }
             }
-            if (promoted) {
-                evict(now);
+        }
+    }
+
+    private void drainReadBuffers() {
+        assert lruLock.isHeldByCurrentThread();
+
+        for (ReadBuffer<K, V> readBuffer : readBuffers) {
+            long read = readBuffer.readCounter;
+            final long written = readBuffer.writeCounter.get();
+            for (; read < written; read++) {
+                final int index = (int) (read & ReadBuffer.MASK);
+                final Entry<K, V> entry = readBuffer.buffer.get(index);
+                if (entry == null) {
+                    // the reader that claimed this slot did not store its entry yet
+                    break;
+                }
+                readBuffer.buffer.lazySet(index, null);
+                promote(entry, entry.accessTime);
             }
+            readBuffer.readCounter = read;
+        }
+    }
+
+    private boolean promote(Entry<K, V> entry, long now) {
+        assert lruLock.isHeldByCurrentThread();
+
+        switch (entry.state) {
+            case DELETED:
+                return false;
+            case EXISTING:
+                relinkAtHead(entry);
+                if (frequencySketch != null) {
+                    frequencySketch.increment(entry.key.hashCode());
+                }
+                return true;
+            case NEW:
+                linkAtHead(entry);
+                if (frequencySketch != null) {
+                    frequencySketch.ensureCapacity(count);
+                    frequencySketch.increment(entry.key.hashCode());
+                    admit(entry, now);
+                }
+                return true;
+            default:
+                throw new AssertionError("unknown state " + entry.state);
+        }
+    }
+
+    private void admit(Entry<K, V> candidate, long now) {
+        assert lruLock.isHeldByCurrentThread();
+
+        if (exceedsWeight() && tail != candidate && isExpired(tail, now) == false
+                && frequencySketch.frequency(candidate.key.hashCode()) <= frequencySketch.frequency(tail.key.hashCode())) {
+            getCacheSegment(candidate.key).remove(candidate.key);
+            delete(candidate, RemovalNotification.RemovalReason.EVICTED);
         }
-        return promoted;
     }
 
     private void evict(long now) {
@@ -28,6 +28,7 @@ public class CacheBuilder<K, V> {
     private long expireAfterWrite = -1;
     private ToLongBiFunction<K, V> weigher;
     private RemovalListener<K, V> removalListener;
+    private boolean frequencyBasedAdmission = false;
 
     public static <K, V> CacheBuilder<K, V> builder() {
         return new CacheBuilder<>();
@@ -72,6 +73,15 @@ public class CacheBuilder<K, V> {
         return this;
     }
 
+    /**
+     * Only admit new entries that would cause evictions if they are used more frequently than the least recently used
+     * entry. This only applies to caches with a maximum weight.
+     */
+    public CacheBuilder<K, V> frequencyBasedAdmission(boolean frequencyBasedAdmission) {
+        this.frequencyBasedAdmission = frequencyBasedAdmission;
+        return this;
+    }
+
     public Cache<K, V> build() {
         Cache<K, V> cache = new Cache();
         if (maximumWeight != -1) {
@@ -89,6 +99,9 @@ public class CacheBuilder<K, V> {
         if (removalListener != null) {
             cache.setRemovalListener(removalListener);
         }
+        if (frequencyBasedAdmission) {
+            cache.setFrequencyBasedAdmission(true);
+        }
         return cache;
     }
 }
@@ -0,0 +1,127 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+/**
+ * A count-min sketch that estimates how often keys were used recently, for the frequency-based admission policy of
+ * {@link Cache}. Each key maps to four 4-bit counters, one in each of four longs of the table that are chosen by
+ * different hash functions, and the estimated frequency of the key is the minimum of its counters, which is at most 15.
+ * To favor the keys that were used recently, all counters are halved once the number of increments reaches ten times
+ * the size of the table.
+ * <p>
+ * This class is not thread-safe, {@link Cache} only uses it while holding the lock protecting the LRU list.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    // the mask that clears the highest bit of each counter, used to halve all counters at once
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MINIMUM_TABLE_SIZE = 16;
+    private static final int MAXIMUM_TABLE_SIZE = 1 << 30;
+
+    private long[] table = new long[MINIMUM_TABLE_SIZE];
+    private int sampleSize = 10 * MINIMUM_TABLE_SIZE;
+    private int size = 0;
+
+    /**
+     * Grows the table so that it can estimate the frequencies of the given number of keys accurately.
+     *
+     * @param numberOfKeys the number of keys that are tracked
+     */
+    void ensureCapacity(long numberOfKeys) {
+        if (numberOfKeys <= table.length || table.length == MAXIMUM_TABLE_SIZE) {
+            return;
+        }
+        final int tableSize = (int) Math.min(MAXIMUM_TABLE_SIZE, Long.highestOneBit(numberOfKeys - 1) << 1);
+        // the index of a key in the larger table has the same low bits as its index in the current table, so copying the
+        // current table into each part of the larger table keeps the frequencies that were recorded so far
+        final long[] newTable = new long[tableSize];
+        for (int i = 0; i < tableSize; i += table.length) {
+            System.arraycopy(table, 0, newTable, i, table.length);
+        }
+        table = newTable;
+        sampleSize = tableSize > Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : 10 * tableSize;
+    }
+
+    /**
+     * The estimated number of recent uses of a key.
+     *
+     * @param hashCode the hash code of the key
+     * @return the estimated frequency of the key, between 0 and 15
+     */
+    int frequency(int hashCode) {
+        final int hash = spread(hashCode);
+        // each of the four longs of a key holds one of its counters, at a position that depends on the key
+        final int start = (hash & 3) << 2;
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            final int offset = (start + i) << 2;
+            final int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Records a use of a key.
+     *
+     * @param hashCode the hash code of the key
+     */
+    void increment(int hashCode) {
+        final int hash = spread(hashCode);
+        final int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        final int offset = counter << 2;
+        final long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & (table.length - 1);
+    }
+
+    // mixes the bits of hash codes like Integer#hashCode whose low bits are poorly distributed
+    private static int spread(int hashCode) {
+        int h = ((hashCode >>> 16) ^ hashCode) * 0x45d9f3b;
+        h = ((h >>> 16) ^ h) * 0x45d9f3b;
+        return (h >>> 16) ^ h;
+    }
+}
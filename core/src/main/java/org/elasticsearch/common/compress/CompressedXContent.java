@@ -159,8 +159,19 @@ public final class CompressedXContent {
 
     public void writeTo(StreamOutput out) throws IOException {
         out.writeInt(crc32);
-        out.writeVInt(bytes.length);
-        out.writeBytes(bytes);
+        final Compressor compressor = CompressorFactory.compressor(new BytesArray(bytes));
+        final Compressor wireCompressor = CompressorFactory.compressor(compressor, out.getVersion());
+        if (wireCompressor != compressor) {
+            // the other node can't decompress these bytes
+            final BytesStreamOutput bStream = new BytesStreamOutput();
+            try (OutputStream compressedOutput = wireCompressor.streamOutput(bStream)) {
+                compressedOutput.write(uncompressed());
+            }
+            out.writeBytesReference(bStream.bytes());
+        } else {
+            out.writeVInt(bytes.length);
+            out.writeBytes(bytes);
+        }
     }
 
     @Override
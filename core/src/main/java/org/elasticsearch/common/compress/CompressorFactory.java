@@ -20,9 +20,11 @@
 package org.elasticsearch.common.compress;
 
 import org.apache.lucene.store.IndexInput;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.compress.deflate.DeflateCompressor;
+import org.elasticsearch.common.compress.lz4.LZ4Compressor;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -31,19 +33,49 @@ import org.elasticsearch.common.xcontent.XContentType;
 import org.jboss.netty.buffer.ChannelBuffer;
 
 import java.io.IOException;
+import java.util.Locale;
 
 /**
  */
 public class CompressorFactory {
 
+    public static final Compressor DEFLATE = new DeflateCompressor();
+    public static final Compressor LZ4 = new LZ4Compressor();
+
     private static final Compressor[] compressors;
     private static volatile Compressor defaultCompressor;
 
     static {
         compressors = new Compressor[] {
-                new DeflateCompressor()
+                DEFLATE,
+                LZ4
         };
-        defaultCompressor = new DeflateCompressor();
+        defaultCompressor = DEFLATE;
+    }
+
+    /**
+     * Returns the compressor with the given name, either <code>deflate</code> or <code>lz4</code>.
+     */
+    public static Compressor compressor(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "deflate":
+                return DEFLATE;
+            case "lz4":
+                return LZ4;
+            default:
+                throw new IllegalArgumentException("unknown compressor [" + name + "], must be one of [deflate, lz4]");
+        }
+    }
+
+    /**
+     * Returns the given compressor if a node of the given version can decompress its output, or the DEFLATE compressor
+     * otherwise, since nodes before 5.0.0 don't know about LZ4.
+     */
+    public static Compressor compressor(Compressor compressor, Version version) {
+        if (compressor instanceof LZ4Compressor && version.before(Version.V_5_0_0)) {
+            return DEFLATE;
+        }
+        return compressor;
     }
 
     public static void setDefaultCompressor(Compressor defaultCompressor) {
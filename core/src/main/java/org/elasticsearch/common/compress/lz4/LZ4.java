@@ -0,0 +1,225 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress.lz4;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compression and decompression of blocks in the LZ4 block format. The compressor uses a small hash table to find
+ * matches and favors speed over compression ratio, like the fast mode of the reference implementation. Blocks are
+ * independent, matches never refer to data of previous blocks.
+ */
+final class LZ4 {
+
+    private LZ4() {}
+
+    static final int MIN_MATCH = 4;
+    static final int MAX_DISTANCE = (1 << 16) - 1;
+    // the last match must start at least 12 bytes before the end of the block
+    static final int MF_LIMIT = 12;
+    // the last 5 bytes of a block are always literals
+    static final int LAST_LITERALS = 5;
+    static final int HASH_LOG = 12;
+    static final int HASH_TABLE_SIZE = 1 << HASH_LOG;
+    // the higher, the slower the search step increases on data that doesn't compress
+    private static final int SKIP_STRENGTH = 6;
+    private static final int RUN_MASK = 0x0F;
+    private static final int ML_MASK = 0x0F;
+
+    /** Returns the maximum length of the compressed representation of <code>length</code> bytes. */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    private static int readInt(byte[] buf, int i) {
+        return ((buf[i] & 0xFF) << 24) | ((buf[i + 1] & 0xFF) << 16) | ((buf[i + 2] & 0xFF) << 8) | (buf[i + 3] & 0xFF);
+    }
+
+    private static int hash(int i) {
+        return (i * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int commonBytes(byte[] buf, int ref, int off, int limit) {
+        int len = 0;
+        while (off + len < limit && buf[ref + len] == buf[off + len]) {
+            ++len;
+        }
+        return len;
+    }
+
+    private static int writeLength(int length, byte[] dest, int dOff) {
+        while (length >= 0xFF) {
+            dest[dOff++] = (byte) 0xFF;
+            length -= 0xFF;
+        }
+        dest[dOff++] = (byte) length;
+        return dOff;
+    }
+
+    private static int writeLiterals(int token, byte[] src, int literalsOff, int literalsLength, byte[] dest, int dOff) {
+        final int tokenOff = dOff++;
+        if (literalsLength >= RUN_MASK) {
+            dest[tokenOff] = (byte) (token | (RUN_MASK << 4));
+            dOff = writeLength(literalsLength - RUN_MASK, dest, dOff);
+        } else {
+            dest[tokenOff] = (byte) (token | (literalsLength << 4));
+        }
+        System.arraycopy(src, literalsOff, dest, dOff, literalsLength);
+        return dOff + literalsLength;
+    }
+
+    private static int writeSequence(byte[] src, int literalsOff, int literalsLength, int distance, int matchLength,
+                                     byte[] dest, int dOff) {
+        final int tokenOff = dOff;
+        dOff = writeLiterals(0, src, literalsOff, literalsLength, dest, dOff);
+        dest[dOff++] = (byte) distance;
+        dest[dOff++] = (byte) (distance >>> 8);
+        final int length = matchLength - MIN_MATCH;
+        if (length >= ML_MASK) {
+            dest[tokenOff] |= ML_MASK;
+            dOff = writeLength(length - ML_MASK, dest, dOff);
+        } else {
+            dest[tokenOff] |= length;
+        }
+        return dOff;
+    }
+
+    /**
+     * Compresses <code>src[srcOff:srcOff+srcLen]</code> into <code>dest</code>, which must have room for at least
+     * {@link #maxCompressedLength(int)} bytes, and returns the length of the compressed representation. The hash table
+     * must have {@link #HASH_TABLE_SIZE} entries, it is only used as a scratch space.
+     */
+    static int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int[] hashTable) {
+        assert hashTable.length == HASH_TABLE_SIZE;
+        final int srcEnd = srcOff + srcLen;
+        int dOff = destOff;
+        int anchor = srcOff;
+        if (srcLen > MF_LIMIT + MIN_MATCH) {
+            Arrays.fill(hashTable, -1);
+            final int mfLimit = srcEnd - MF_LIMIT;
+            final int matchLimit = srcEnd - LAST_LITERALS;
+            int off = srcOff;
+            while (off < mfLimit) {
+                final int sequence = readInt(src, off);
+                final int h = hash(sequence);
+                final int ref = hashTable[h];
+                hashTable[h] = off;
+                if (ref == -1 || off - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                    // search faster the longer we don't find any match
+                    off += 1 + ((off - anchor) >>> SKIP_STRENGTH);
+                    continue;
+                }
+                // extend the match backwards over the pending literals
+                int matchOff = off;
+                int matchRef = ref;
+                while (matchOff > anchor && matchRef > srcOff && src[matchOff - 1] == src[matchRef - 1]) {
+                    --matchOff;
+                    --matchRef;
+                }
+                final int matchLength = off - matchOff + MIN_MATCH + commonBytes(src, ref + MIN_MATCH, off + MIN_MATCH, matchLimit);
+                dOff = writeSequence(src, anchor, matchOff - anchor, matchOff - matchRef, matchLength, dest, dOff);
+                off = matchOff + matchLength;
+                anchor = off;
+            }
+        }
+        dOff = writeLiterals(0, src, anchor, srcEnd - anchor, dest, dOff);
+        return dOff - destOff;
+    }
+
+    private static int readLength(byte[] src, int sOff, int srcEnd) throws IOException {
+        int length = 0;
+        int b;
+        do {
+            if (sOff == srcEnd) {
+                throw new IOException("Corrupted LZ4 block: truncated length");
+            }
+            b = src[sOff++] & 0xFF;
+            length += b;
+        } while (b == 0xFF);
+        return length;
+    }
+
+    /**
+     * Decompresses <code>src[srcOff:srcOff+srcLen]</code> into <code>dest[destOff:destOff+destLen]</code>. Fails if the
+     * compressed bytes are corrupted or don't decompress to exactly <code>destLen</code> bytes.
+     */
+    static void decompress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int destLen) throws IOException {
+        final int srcEnd = srcOff + srcLen;
+        final int destEnd = destOff + destLen;
+        int sOff = srcOff;
+        int dOff = destOff;
+        while (true) {
+            if (sOff == srcEnd) {
+                throw new IOException("Corrupted LZ4 block: missing literals");
+            }
+            final int token = src[sOff++] & 0xFF;
+
+            int literalsLength = token >>> 4;
+            if (literalsLength == RUN_MASK) {
+                final int extra = readLength(src, sOff, srcEnd);
+                sOff += (extra / 0xFF) + 1;
+                literalsLength += extra;
+            }
+            if (literalsLength > srcEnd - sOff || literalsLength > destEnd - dOff) {
+                throw new IOException("Corrupted LZ4 block: literals out of bounds");
+            }
+            System.arraycopy(src, sOff, dest, dOff, literalsLength);
+            sOff += literalsLength;
+            dOff += literalsLength;
+            if (sOff == srcEnd) {
+                // the last sequence only has literals
+                break;
+            }
+
+            if (srcEnd - sOff < 2) {
+                throw new IOException("Corrupted LZ4 block: truncated match distance");
+            }
+            final int distance = (src[sOff] & 0xFF) | ((src[sOff + 1] & 0xFF) << 8);
+            sOff += 2;
+            if (distance == 0 || distance > dOff - destOff) {
+                throw new IOException("Corrupted LZ4 block: invalid match distance [" + distance + "]");
+            }
+            int matchLength = token & ML_MASK;
+            if (matchLength == ML_MASK) {
+                final int extra = readLength(src, sOff, srcEnd);
+                sOff += (extra / 0xFF) + 1;
+                matchLength += extra;
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > destEnd - dOff) {
+                throw new IOException("Corrupted LZ4 block: match out of bounds");
+            }
+            final int ref = dOff - distance;
+            if (distance >= matchLength) {
+                System.arraycopy(dest, ref, dest, dOff, matchLength);
+            } else {
+                // overlapping copy, which repeats the last bytes
+                for (int i = 0; i < matchLength; ++i) {
+                    dest[dOff + i] = dest[ref + i];
+                }
+            }
+            dOff += matchLength;
+        }
+        if (dOff != destEnd) {
+            throw new IOException("Corrupted LZ4 block: decompressed [" + (dOff - destOff) + "] bytes but expected [" + destLen + "]");
+        }
+    }
+}
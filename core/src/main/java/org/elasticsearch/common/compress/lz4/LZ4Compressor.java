@@ -0,0 +1,315 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress.lz4;
+
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressedIndexInput;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.jboss.netty.buffer.ChannelBuffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * {@link Compressor} implementation based on the LZ4 compression algorithm, which compresses less than DEFLATE but is
+ * several times faster to compress and decompress. Data is written as a sequence of independent LZ4 blocks, each
+ * preceded by its decompressed and compressed lengths, and terminated by an empty block. Blocks that don't compress are
+ * stored as-is.
+ * <p>
+ * Nodes before {@link org.elasticsearch.Version#V_5_0_0} can't read this format, see
+ * {@link org.elasticsearch.common.compress.CompressorFactory#compressor(Compressor, org.elasticsearch.Version)}.
+ */
+public class LZ4Compressor implements Compressor {
+
+    // An arbitrary header that we use to identify compressed streams
+    // It needs to be different from other compressors and to not be specific
+    // enough so that no stream starting with these bytes could be detected as
+    // a XContent
+    private static final byte[] HEADER = new byte[] { 'L', 'Z', '4', '\0' };
+    // the maximum number of bytes that are compressed at once, the maximum distance of LZ4 matches
+    static final int BLOCK_SIZE = 1 << 16;
+
+    @Override
+    public boolean isCompressed(BytesReference bytes) {
+        if (bytes.length() < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; ++i) {
+            if (bytes.get(i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCompressed(ChannelBuffer buffer) {
+        if (buffer.readableBytes() < HEADER.length) {
+            return false;
+        }
+        final int offset = buffer.readerIndex();
+        for (int i = 0; i < HEADER.length; ++i) {
+            if (buffer.getByte(offset + i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public StreamInput streamInput(StreamInput in) throws IOException {
+        final byte[] headerBytes = new byte[HEADER.length];
+        int len = 0;
+        while (len < headerBytes.length) {
+            final int read = in.read(headerBytes, len, headerBytes.length - len);
+            if (read == -1) {
+                break;
+            }
+            len += read;
+        }
+        if (len != HEADER.length || Arrays.equals(headerBytes, HEADER) == false) {
+            throw new IllegalArgumentException("Input stream is not compressed with LZ4!");
+        }
+        return new LZ4StreamInput(in);
+    }
+
+    @Override
+    public StreamOutput streamOutput(StreamOutput out) throws IOException {
+        out.writeBytes(HEADER);
+        return new LZ4StreamOutput(out);
+    }
+
+    @Override
+    public boolean isCompressed(IndexInput in) throws IOException {
+        return false;
+    }
+
+    @Override
+    public CompressedIndexInput indexInput(IndexInput in) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    private static final class LZ4StreamOutput extends StreamOutput {
+
+        private final StreamOutput out;
+        // buffers grow up to the block size, so that small messages don't allocate full blocks
+        private byte[] buffer = BytesRef.EMPTY_BYTES;
+        private int length;
+        private byte[] compressed = BytesRef.EMPTY_BYTES;
+        private int[] hashTable;
+        private boolean closed = false;
+
+        LZ4StreamOutput(StreamOutput out) {
+            this.out = out;
+        }
+
+        private void ensureCapacity(int minLength) {
+            if (buffer.length < minLength) {
+                buffer = Arrays.copyOf(buffer, Math.min(BLOCK_SIZE, ArrayUtil.oversize(minLength, 1)));
+            }
+        }
+
+        @Override
+        public void writeByte(byte b) throws IOException {
+            if (length == BLOCK_SIZE) {
+                writeBlock();
+            }
+            ensureCapacity(length + 1);
+            buffer[length++] = b;
+        }
+
+        @Override
+        public void writeBytes(byte[] b, int offset, int len) throws IOException {
+            while (len > 0) {
+                if (length == BLOCK_SIZE) {
+                    writeBlock();
+                }
+                ensureCapacity(length + len);
+                final int toCopy = Math.min(len, buffer.length - length);
+                System.arraycopy(b, offset, buffer, length, toCopy);
+                length += toCopy;
+                offset += toCopy;
+                len -= toCopy;
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            if (length == 0) {
+                return;
+            }
+            final int maxCompressedLength = LZ4.maxCompressedLength(length);
+            if (compressed.length < maxCompressedLength) {
+                compressed = new byte[ArrayUtil.oversize(maxCompressedLength, 1)];
+            }
+            if (hashTable == null) {
+                hashTable = new int[LZ4.HASH_TABLE_SIZE];
+            }
+            final int compressedLength = LZ4.compress(buffer, 0, length, compressed, 0, hashTable);
+            out.writeVInt(length);
+            if (compressedLength < length) {
+                out.writeVInt(compressedLength);
+                out.writeBytes(compressed, 0, compressedLength);
+            } else {
+                out.writeVInt(length);
+                out.writeBytes(buffer, 0, length);
+            }
+            length = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writeBlock();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed == false) {
+                closed = true;
+                writeBlock();
+                // an empty block marks the end of the stream
+                out.writeVInt(0);
+                out.close();
+            }
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class LZ4StreamInput extends StreamInput {
+
+        private final StreamInput in;
+        private byte[] buffer = BytesRef.EMPTY_BYTES;
+        private int offset;
+        private int length;
+        private byte[] compressed = BytesRef.EMPTY_BYTES;
+        private boolean eof = false;
+
+        LZ4StreamInput(StreamInput in) {
+            this.in = in;
+        }
+
+        /**
+         * Decompresses the next block if the current one was fully read, returns <code>false</code> at the end of the
+         * stream.
+         */
+        private boolean fill() throws IOException {
+            while (offset == length) {
+                if (eof) {
+                    return false;
+                }
+                final int decompressedLength = in.readVInt();
+                if (decompressedLength == 0) {
+                    eof = true;
+                    return false;
+                }
+                final int compressedLength = in.readVInt();
+                if (decompressedLength < 0 || decompressedLength > BLOCK_SIZE
+                    || compressedLength <= 0 || compressedLength > decompressedLength) {
+                    throw new IOException("Corrupted LZ4 stream: invalid block lengths [" + decompressedLength + "], ["
+                        + compressedLength + "]");
+                }
+                if (buffer.length < decompressedLength) {
+                    buffer = new byte[Math.min(BLOCK_SIZE, ArrayUtil.oversize(decompressedLength, 1))];
+                }
+                if (compressedLength == decompressedLength) {
+                    in.readBytes(buffer, 0, decompressedLength);
+                } else {
+                    if (compressed.length < compressedLength) {
+                        compressed = new byte[ArrayUtil.oversize(compressedLength, 1)];
+                    }
+                    in.readBytes(compressed, 0, compressedLength);
+                    LZ4.decompress(compressed, 0, compressedLength, buffer, 0, decompressedLength);
+                }
+                offset = 0;
+                length = decompressedLength;
+            }
+            return true;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            if (fill() == false) {
+                throw new EOFException();
+            }
+            return buffer[offset++];
+        }
+
+        @Override
+        public void readBytes(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (fill() == false) {
+                    throw new EOFException();
+                }
+                final int toCopy = Math.min(len, length - offset);
+                System.arraycopy(buffer, offset, b, off, toCopy);
+                offset += toCopy;
+                off += toCopy;
+                len -= toCopy;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (fill() == false) {
+                return -1;
+            }
+            return buffer[offset++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (fill() == false) {
+                return -1;
+            }
+            final int toCopy = Math.min(len, length - offset);
+            System.arraycopy(buffer, offset, b, off, toCopy);
+            offset += toCopy;
+            return toCopy;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        @Override
+        public int available() throws IOException {
+            return length - offset;
+        }
+    }
+}
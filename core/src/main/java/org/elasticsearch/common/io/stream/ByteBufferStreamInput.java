@@ -48,6 +48,45 @@ public class ByteBufferStreamInput extends StreamInput {
         return buffer.get();
     }
 
+    @Override
+    public short readShort() throws IOException {
+        if (buffer.remaining() < Short.BYTES) {
+            throw new EOFException();
+        }
+        return buffer.getShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            throw new EOFException();
+        }
+        return buffer.getInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        if (buffer.remaining() < Long.BYTES) {
+            throw new EOFException();
+        }
+        return buffer.getLong();
+    }
+
+    @Override
+    public int readVInt() throws IOException {
+        if (buffer.remaining() < 5) {
+            // the vint may end with the buffer, which readByte checks
+            return super.readVInt();
+        }
+        byte b = buffer.get();
+        int i = b & 0x7F;
+        for (int shift = 7; (b & 0x80) != 0 && shift <= 28; shift += 7) {
+            b = buffer.get();
+            i |= (b & 0x7F) << shift;
+        }
+        return i;
+    }
+
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
         if (!buffer.hasRemaining()) {
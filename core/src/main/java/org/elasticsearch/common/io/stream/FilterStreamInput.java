@@ -20,6 +20,7 @@
 package org.elasticsearch.common.io.stream;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesReference;
 
 import java.io.IOException;
 
@@ -44,6 +45,42 @@ public abstract class FilterStreamInput extends StreamInput {
         delegate.readBytes(b, offset, len);
     }
 
+    @Override
+    public BytesReference readBytesReference(int length) throws IOException {
+        // don't lose the ability of the delegate to return a slice of its bytes rather than a copy
+        return delegate.readBytesReference(length);
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        return delegate.readShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return delegate.readInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return delegate.readLong();
+    }
+
+    @Override
+    public int readVInt() throws IOException {
+        return delegate.readVInt();
+    }
+
+    @Override
+    public long readVLong() throws IOException {
+        return delegate.readVLong();
+    }
+
+    @Override
+    public String readString() throws IOException {
+        return delegate.readString();
+    }
+
     @Override
     public void reset() throws IOException {
         delegate.reset();
@@ -24,9 +24,9 @@ import org.apache.lucene.index.IndexFormatTooNewException;
 import org.apache.lucene.index.IndexFormatTooOldException;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BitUtil;
 import org.apache.lucene.util.BytesRef;
-import org.apache.lucene.util.CharsRefBuilder;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.routing.allocation.command.AllocationCommand;
 import org.elasticsearch.common.Nullable;
@@ -316,36 +316,67 @@ public abstract class StreamInput extends InputStream {
         return null;
     }
 
-    private final CharsRefBuilder spare = new CharsRefBuilder();
+    // the maximum size of the buffer that strings and arrays of primitives are read into in bulk before being decoded
+    private static final int BULK_BUFFER_SIZE = 1024;
+
+    private char[] stringChars = new char[0];
+    private byte[] bulkBuffer = BytesRef.EMPTY_BYTES;
+
+    /**
+     * Returns a buffer of at least <code>min(expectedSize, BULK_BUFFER_SIZE)</code> bytes to read values into before
+     * decoding them. Its content is undefined.
+     */
+    private byte[] bulkBuffer(long expectedSize) {
+        final int size = (int) Math.min(expectedSize, BULK_BUFFER_SIZE);
+        if (bulkBuffer.length < size) {
+            // no need to copy the content, unlike ArrayUtil#grow
+            bulkBuffer = new byte[ArrayUtil.oversize(size, Byte.BYTES)];
+        }
+        return bulkBuffer;
+    }
 
     public String readString() throws IOException {
         final int charCount = readVInt();
-        spare.clear();
-        spare.grow(charCount);
-        int c;
-        while (spare.length() < charCount) {
-            c = readByte() & 0xff;
-            switch (c >> 4) {
-                case 0:
-                case 1:
-                case 2:
-                case 3:
-                case 4:
-                case 5:
-                case 6:
-                case 7:
-                    spare.append((char) c);
-                    break;
-                case 12:
-                case 13:
-                    spare.append((char) ((c & 0x1F) << 6 | readByte() & 0x3F));
-                    break;
-                case 14:
-                    spare.append((char) ((c & 0x0F) << 12 | (readByte() & 0x3F) << 6 | (readByte() & 0x3F) << 0));
-                    break;
+        if (stringChars.length < charCount) {
+            stringChars = new char[ArrayUtil.oversize(charCount, Character.BYTES)];
+        }
+        final char[] chars = stringChars;
+        final byte[] buffer = bulkBuffer(charCount);
+        int charsOffset = 0;
+        while (charsOffset < charCount) {
+            // every char takes at least one byte, so this never reads beyond the end of the string, and the bytes of
+            // a char that is only partially buffered are read one by one
+            final int bufferLength = Math.min(charCount - charsOffset, buffer.length);
+            readBytes(buffer, 0, bufferLength);
+            for (int offset = 0; offset < bufferLength; ++offset) {
+                final int c = buffer[offset] & 0xff;
+                switch (c >> 4) {
+                    case 0:
+                    case 1:
+                    case 2:
+                    case 3:
+                    case 4:
+                    case 5:
+                    case 6:
+                    case 7:
+                        chars[charsOffset++] = (char) c;
+                        break;
+                    case 12:
+                    case 13: {
+                        final int b2 = ++offset < bufferLength ? buffer[offset] : readByte();
+                        chars[charsOffset++] = (char) ((c & 0x1F) << 6 | b2 & 0x3F);
+                        break;
+                    }
+                    case 14: {
+                        final int b2 = ++offset < bufferLength ? buffer[offset] : readByte();
+                        final int b3 = ++offset < bufferLength ? buffer[offset] : readByte();
+                        chars[charsOffset++] = (char) ((c & 0x0F) << 12 | (b2 & 0x3F) << 6 | (b3 & 0x3F) << 0);
+                        break;
+                    }
+                }
             }
         }
-        return spare.toString();
+        return new String(chars, 0, charCount);
     }
 
 
@@ -529,11 +560,27 @@ public abstract class StreamInput extends InputStream {
         return null;
     }
 
+    // arrays of fixed size primitives are read into the bulk buffer in chunks before being decoded
+
+    private static int getInt(byte[] buffer, int offset) {
+        return ((buffer[offset] & 0xFF) << 24) | ((buffer[offset + 1] & 0xFF) << 16)
+                | ((buffer[offset + 2] & 0xFF) << 8) | (buffer[offset + 3] & 0xFF);
+    }
+
+    private static long getLong(byte[] buffer, int offset) {
+        return (((long) getInt(buffer, offset)) << 32) | (getInt(buffer, offset + 4) & 0xFFFFFFFFL);
+    }
+
     public int[] readIntArray() throws IOException {
         int length = readVInt();
         int[] values = new int[length];
-        for (int i = 0; i < length; i++) {
-            values[i] = readInt();
+        final byte[] buffer = bulkBuffer((long) Integer.BYTES * length);
+        for (int i = 0; i < length; ) {
+            final int chunk = Math.min(length - i, buffer.length / Integer.BYTES);
+            readBytes(buffer, 0, chunk * Integer.BYTES);
+            for (int offset = 0; offset < chunk * Integer.BYTES; offset += Integer.BYTES) {
+                values[i++] = getInt(buffer, offset);
+            }
         }
         return values;
     }
@@ -550,8 +597,13 @@ public abstract class StreamInput extends InputStream {
     public long[] readLongArray() throws IOException {
         int length = readVInt();
         long[] values = new long[length];
-        for (int i = 0; i < length; i++) {
-            values[i] = readLong();
+        final byte[] buffer = bulkBuffer((long) Long.BYTES * length);
+        for (int i = 0; i < length; ) {
+            final int chunk = Math.min(length - i, buffer.length / Long.BYTES);
+            readBytes(buffer, 0, chunk * Long.BYTES);
+            for (int offset = 0; offset < chunk * Long.BYTES; offset += Long.BYTES) {
+                values[i++] = getLong(buffer, offset);
+            }
         }
         return values;
     }
@@ -568,8 +620,13 @@ public abstract class StreamInput extends InputStream {
     public float[] readFloatArray() throws IOException {
         int length = readVInt();
         float[] values = new float[length];
-        for (int i = 0; i < length; i++) {
-            values[i] = readFloat();
+        final byte[] buffer = bulkBuffer((long) Integer.BYTES * length);
+        for (int i = 0; i < length; ) {
+            final int chunk = Math.min(length - i, buffer.length / Integer.BYTES);
+            readBytes(buffer, 0, chunk * Integer.BYTES);
+            for (int offset = 0; offset < chunk * Integer.BYTES; offset += Integer.BYTES) {
+                values[i++] = Float.intBitsToFloat(getInt(buffer, offset));
+            }
         }
         return values;
     }
@@ -577,8 +634,13 @@ public abstract class StreamInput extends InputStream {
     public double[] readDoubleArray() throws IOException {
         int length = readVInt();
         double[] values = new double[length];
-        for (int i = 0; i < length; i++) {
-            values[i] = readDouble();
+        final byte[] buffer = bulkBuffer((long) Long.BYTES * length);
+        for (int i = 0; i < length; ) {
+            final int chunk = Math.min(length - i, buffer.length / Long.BYTES);
+            readBytes(buffer, 0, chunk * Long.BYTES);
+            for (int offset = 0; offset < chunk * Long.BYTES; offset += Long.BYTES) {
+                values[i++] = Double.longBitsToDouble(getLong(buffer, offset));
+            }
         }
         return values;
     }
@@ -586,9 +648,7 @@ public abstract class StreamInput extends InputStream {
     public byte[] readByteArray() throws IOException {
         int length = readVInt();
         byte[] values = new byte[length];
-        for (int i = 0; i < length; i++) {
-            values[i] = readByte();
-        }
+        readBytes(values, 0, length);
         return values;
     }
 
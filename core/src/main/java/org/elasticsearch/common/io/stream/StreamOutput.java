@@ -24,6 +24,7 @@ import org.apache.lucene.index.IndexFormatTooNewException;
 import org.apache.lucene.index.IndexFormatTooOldException;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BitUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
@@ -70,8 +71,15 @@ import java.util.Map;
  */
 public abstract class StreamOutput extends OutputStream {
 
+    // the maximum size of the buffer that strings and arrays of primitives are encoded into before being written in bulk
+    private static final int BULK_BUFFER_SIZE = 1024;
+
     private Version version = Version.CURRENT;
 
+    // numbers are encoded into this buffer so that they only cost a single call to writeBytes, which is large enough for zlongs
+    private final byte[] scratch = new byte[10];
+    private byte[] bulkBuffer = BytesRef.EMPTY_BYTES;
+
     /**
      * The version of the node on the other side of this stream.
      */
@@ -172,18 +180,16 @@ public abstract class StreamOutput extends OutputStream {
     }
 
     public final void writeShort(short v) throws IOException {
-        writeByte((byte) (v >> 8));
-        writeByte((byte) v);
+        scratch[0] = (byte) (v >> 8);
+        scratch[1] = (byte) v;
+        writeBytes(scratch, 0, 2);
     }
 
     /**
      * Writes an int as four bytes.
      */
     public void writeInt(int i) throws IOException {
-        writeByte((byte) (i >> 24));
-        writeByte((byte) (i >> 16));
-        writeByte((byte) (i >> 8));
-        writeByte((byte) i);
+        writeBytes(scratch, 0, putInt(scratch, 0, i));
     }
 
     /**
@@ -193,19 +199,19 @@ public abstract class StreamOutput extends OutputStream {
      * using {@link #writeInt}
      */
     public void writeVInt(int i) throws IOException {
-        while ((i & ~0x7F) != 0) {
-            writeByte((byte) ((i & 0x7f) | 0x80));
-            i >>>= 7;
+        if ((i & ~0x7F) == 0) {
+            // most vints are small, like lengths and enum ordinals
+            writeByte((byte) i);
+        } else {
+            writeBytes(scratch, 0, putVInt(scratch, 0, i));
         }
-        writeByte((byte) i);
     }
 
     /**
      * Writes a long as eight bytes.
      */
     public void writeLong(long i) throws IOException {
-        writeInt((int) (i >> 32));
-        writeInt((int) i);
+        writeBytes(scratch, 0, putLong(scratch, 0, i));
     }
 
     /**
@@ -215,11 +221,7 @@ public abstract class StreamOutput extends OutputStream {
      */
     public void writeVLong(long i) throws IOException {
         assert i >= 0;
-        while ((i & ~0x7F) != 0) {
-            writeByte((byte) ((i & 0x7f) | 0x80));
-            i >>>= 7;
-        }
-        writeByte((byte) i);
+        writeBytes(scratch, 0, putVLong(scratch, 0, i));
     }
 
     /**
@@ -232,11 +234,56 @@ public abstract class StreamOutput extends OutputStream {
     public void writeZLong(long i) throws IOException {
         // zig-zag encoding cf. https://developers.google.com/protocol-buffers/docs/encoding?hl=en
         long value = BitUtil.zigZagEncode(i);
+        int offset = 0;
         while ((value & 0xFFFFFFFFFFFFFF80L) != 0L) {
-            writeByte((byte)((value & 0x7F) | 0x80));
+            scratch[offset++] = (byte) ((value & 0x7F) | 0x80);
             value >>>= 7;
         }
-        writeByte((byte) (value & 0x7F));
+        scratch[offset++] = (byte) (value & 0x7F);
+        writeBytes(scratch, 0, offset);
+    }
+
+    private static int putInt(byte[] buffer, int offset, int i) {
+        buffer[offset] = (byte) (i >> 24);
+        buffer[offset + 1] = (byte) (i >> 16);
+        buffer[offset + 2] = (byte) (i >> 8);
+        buffer[offset + 3] = (byte) i;
+        return offset + 4;
+    }
+
+    private static int putLong(byte[] buffer, int offset, long i) {
+        return putInt(buffer, putInt(buffer, offset, (int) (i >> 32)), (int) i);
+    }
+
+    private static int putVInt(byte[] buffer, int offset, int i) {
+        while ((i & ~0x7F) != 0) {
+            buffer[offset++] = (byte) ((i & 0x7f) | 0x80);
+            i >>>= 7;
+        }
+        buffer[offset++] = (byte) i;
+        return offset;
+    }
+
+    private static int putVLong(byte[] buffer, int offset, long i) {
+        while ((i & ~0x7F) != 0) {
+            buffer[offset++] = (byte) ((i & 0x7f) | 0x80);
+            i >>>= 7;
+        }
+        buffer[offset++] = (byte) i;
+        return offset;
+    }
+
+    /**
+     * Returns a buffer of at least <code>min(expectedSize, BULK_BUFFER_SIZE)</code> bytes to encode values into before
+     * writing them in bulk. Its content is undefined.
+     */
+    private byte[] bulkBuffer(long expectedSize) {
+        final int size = (int) Math.min(expectedSize, BULK_BUFFER_SIZE);
+        if (bulkBuffer.length < size) {
+            // no need to copy the content, unlike ArrayUtil#grow
+            bulkBuffer = new byte[ArrayUtil.oversize(size, Byte.BYTES)];
+        }
+        return bulkBuffer;
     }
 
     public void writeOptionalString(@Nullable String str) throws IOException {
@@ -290,22 +337,30 @@ public abstract class StreamOutput extends OutputStream {
     }
 
     public void writeString(String str) throws IOException {
-        int charCount = str.length();
+        final int charCount = str.length();
         writeVInt(charCount);
+        // chars take at most 3 bytes, they are encoded into a buffer that is written whenever it might not fit the next one
+        final byte[] buffer = bulkBuffer(3L * charCount);
+        int offset = 0;
         int c;
         for (int i = 0; i < charCount; i++) {
+            if (offset > buffer.length - 3) {
+                writeBytes(buffer, 0, offset);
+                offset = 0;
+            }
             c = str.charAt(i);
             if (c <= 0x007F) {
-                writeByte((byte) c);
+                buffer[offset++] = (byte) c;
             } else if (c > 0x07FF) {
-                writeByte((byte) (0xE0 | c >> 12 & 0x0F));
-                writeByte((byte) (0x80 | c >> 6 & 0x3F));
-                writeByte((byte) (0x80 | c >> 0 & 0x3F));
+                buffer[offset++] = (byte) (0xE0 | c >> 12 & 0x0F);
+                buffer[offset++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[offset++] = (byte) (0x80 | c >> 0 & 0x3F);
             } else {
-                writeByte((byte) (0xC0 | c >> 6 & 0x1F));
-                writeByte((byte) (0x80 | c >> 0 & 0x3F));
+                buffer[offset++] = (byte) (0xC0 | c >> 6 & 0x1F);
+                buffer[offset++] = (byte) (0x80 | c >> 0 & 0x3F);
             }
         }
+        writeBytes(buffer, 0, offset);
     }
 
     public void writeFloat(float v) throws IOException {
@@ -502,46 +557,91 @@ public abstract class StreamOutput extends OutputStream {
         }
     }
 
+    // arrays of primitives are encoded into the bulk buffer, which is written whenever it might not fit the next value
+
     public void writeIntArray(int[] values) throws IOException {
         writeVInt(values.length);
+        final byte[] buffer = bulkBuffer((long) Integer.BYTES * values.length);
+        int offset = 0;
         for (int value : values) {
-            writeInt(value);
+            if (offset > buffer.length - Integer.BYTES) {
+                writeBytes(buffer, 0, offset);
+                offset = 0;
+            }
+            offset = putInt(buffer, offset, value);
         }
+        writeBytes(buffer, 0, offset);
     }
 
     public void writeVIntArray(int[] values) throws IOException {
         writeVInt(values.length);
+        final byte[] buffer = bulkBuffer(5L * values.length);
+        int offset = 0;
         for (int value : values) {
-            writeVInt(value);
+            if (offset > buffer.length - 5) {
+                writeBytes(buffer, 0, offset);
+                offset = 0;
+            }
+            offset = putVInt(buffer, offset, value);
         }
+        writeBytes(buffer, 0, offset);
     }
 
     public void writeLongArray(long[] values) throws IOException {
         writeVInt(values.length);
+        final byte[] buffer = bulkBuffer((long) Long.BYTES * values.length);
+        int offset = 0;
         for (long value : values) {
-            writeLong(value);
+            if (offset > buffer.length - Long.BYTES) {
+                writeBytes(buffer, 0, offset);
+                offset = 0;
+            }
+            offset = putLong(buffer, offset, value);
         }
+        writeBytes(buffer, 0, offset);
     }
 
     public void writeVLongArray(long[] values) throws IOException {
         writeVInt(values.length);
+        final byte[] buffer = bulkBuffer(9L * values.length);
+        int offset = 0;
         for (long value : values) {
-            writeVLong(value);
+            assert value >= 0;
+            if (offset > buffer.length - 9) {
+                writeBytes(buffer, 0, offset);
+                offset = 0;
+            }
+            offset = putVLong(buffer, offset, value);
         }
+        writeBytes(buffer, 0, offset);
     }
 
     public void writeFloatArray(float[] values) throws IOException {
         writeVInt(values.length);
+        final byte[] buffer = bulkBuffer((long) Integer.BYTES * values.length);
+        int offset = 0;
         for (float value : values) {
-            writeFloat(value);
+            if (offset > buffer.length - Integer.BYTES) {
+                writeBytes(buffer, 0, offset);
+                offset = 0;
+            }
+            offset = putInt(buffer, offset, Float.floatToIntBits(value));
         }
+        writeBytes(buffer, 0, offset);
     }
 
     public void writeDoubleArray(double[] values) throws IOException {
         writeVInt(values.length);
+        final byte[] buffer = bulkBuffer((long) Long.BYTES * values.length);
+        int offset = 0;
         for (double value : values) {
-            writeDouble(value);
+            if (offset > buffer.length - Long.BYTES) {
+                writeBytes(buffer, 0, offset);
+                offset = 0;
+            }
+            offset = putLong(buffer, offset, Double.doubleToLongBits(value));
         }
+        writeBytes(buffer, 0, offset);
     }
 
     /**
@@ -36,6 +36,24 @@ import java.util.concurrent.Callable;
  */
 public class DateMathParser {
 
+    /**
+     * The current time for date math that wants to tell apart expressions that use it as-is, like <code>now-15m</code>,
+     * from expressions that round it, like <code>now-15m/m</code>, which resolve to the same value until the current
+     * time moves to the next rounding unit.
+     */
+    public interface RoundingAwareNow extends Callable<Long> {
+
+        /**
+         * Returns the current time for an expression that rounds it, {@link #call()} is used for all other expressions.
+         */
+        long nowToRound();
+
+        /**
+         * Called with the value that an expression that rounds the current time resolved to.
+         */
+        void onRoundedNow(long value);
+    }
+
     private final FormatDateTimeFormatter dateTimeFormatter;
 
     public DateMathParser(FormatDateTimeFormatter dateTimeFormatter) {
@@ -49,17 +67,23 @@ public class DateMathParser {
 
     // Note: we take a callable here for the timestamp in order to be able to figure out
     // if it has been used. For instance, the request cache does not cache requests that make
-    // use of `now`.
+    // use of `now`, unless it is rounded and the callable is a RoundingAwareNow.
     public long parse(String text, Callable<Long> now, boolean roundUp, DateTimeZone timeZone) {
         long time;
         String mathString;
         if (text.startsWith("now")) {
+            mathString = text.substring("now".length());
+            final boolean rounded = now instanceof RoundingAwareNow && mathString.indexOf('/') >= 0;
             try {
-                time = now.call();
+                time = rounded ? ((RoundingAwareNow) now).nowToRound() : now.call();
             } catch (Exception e) {
                 throw new ElasticsearchParseException("could not read the current timestamp", e);
             }
-            mathString = text.substring("now".length());
+            if (rounded) {
+                final long value = parseMath(mathString, time, roundUp, timeZone);
+                ((RoundingAwareNow) now).onRoundedNow(value);
+                return value;
+            }
         } else {
             int index = text.indexOf("||");
             if (index == -1) {
@@ -26,6 +26,7 @@ import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.recycler.Recycler;
 
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /** Common implementation for array lists that slice data into fixed-size blocks. */
@@ -135,6 +136,16 @@ abstract class AbstractBigArray extends AbstractArray {
         }
     }
 
+    protected final ByteBuffer newDirectPage(int page) {
+        assert recycler != null && recycler.isDirect() : "direct pages are always recycled";
+        final Recycler.V<ByteBuffer> v = recycler.directPage(clearOnResize);
+        cache = grow(cache, page + 1);
+        assert cache[page] == null;
+        cache[page] = v;
+        assert v.v().capacity() == BigArrays.PAGE_SIZE_IN_BYTES;
+        return v.v();
+    }
+
     protected final Object[] newObjectPage(int page) {
         if (recycler != null) {
             final Recycler.V<Object[]> v = recycler.objectPage();
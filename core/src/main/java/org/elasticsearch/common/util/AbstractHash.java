@@ -19,45 +19,25 @@
 
 package org.elasticsearch.common.util;
 
-import org.elasticsearch.common.lease.Releasables;
-
 /**
  * Base implementation for {@link BytesRefHash} and {@link LongHash}, or any class that
- * needs to map values to dense ords. This class is not thread-safe.
+ * needs to map values to dense ords. Implementations store ids next to the keys, or a
+ * fingerprint of them, in their slots so that probing a slot only reads a single cache
+ * line. This class is not thread-safe.
  */
-// IDs are internally stored as id + 1 so that 0 encodes for an empty slot
 abstract class AbstractHash extends AbstractPagedHashMap {
 
-    LongArray ids;
-
     AbstractHash(long capacity, float maxLoadFactor, BigArrays bigArrays) {
         super(capacity, maxLoadFactor, bigArrays);
-        ids = bigArrays.newLongArray(capacity(), true);
     }
 
     /**
      * Get the id associated with key at <code>0 &lt;= index &lt;= capacity()</code> or -1 if this slot is unused.
      */
-    public long id(long index) {
-        return ids.get(index) - 1;
-    }
-
-    protected final long id(long index, long id) {
-        return ids.set(index, id + 1) - 1;
-    }
-
-    @Override
-    protected void resize(long capacity) {
-        ids = bigArrays.resize(ids, capacity);
-    }
+    public abstract long id(long index);
 
     @Override
     protected boolean used(long bucket) {
         return id(bucket) >= 0;
     }
-
-    @Override
-    public void close() {
-        Releasables.close(ids);
-    }
 }
@@ -0,0 +1,73 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.util;
+
+import java.nio.ByteBuffer;
+
+import static org.elasticsearch.common.util.BigArrays.LONG_PAGE_SIZE;
+
+/**
+ * Long array abstraction able to support more than 2B values. This implementation slices data into pages outside of the heap.
+ */
+final class BigDirectLongArray extends AbstractBigDirectArray implements LongArray {
+
+    /** Constructor. */
+    public BigDirectLongArray(long size, BigArrays bigArrays, boolean clearOnResize) {
+        super(LONG_PAGE_SIZE, size, bigArrays, clearOnResize);
+    }
+
+    @Override
+    public long get(long index) {
+        return pages[pageIndex(index)].getLong(indexInPage(index) << 3);
+    }
+
+    @Override
+    public long set(long index, long value) {
+        final ByteBuffer page = pages[pageIndex(index)];
+        final int offset = indexInPage(index) << 3;
+        final long ret = page.getLong(offset);
+        page.putLong(offset, value);
+        return ret;
+    }
+
+    @Override
+    public long increment(long index, long inc) {
+        final ByteBuffer page = pages[pageIndex(index)];
+        final int offset = indexInPage(index) << 3;
+        final long value = page.getLong(offset) + inc;
+        page.putLong(offset, value);
+        return value;
+    }
+
+    @Override
+    protected int numBytesPerElement() {
+        return Long.BYTES;
+    }
+
+    @Override
+    public void fill(long fromIndex, long toIndex, long value) {
+        if (fromIndex > toIndex) {
+            throw new IllegalArgumentException();
+        }
+        for (long i = fromIndex; i < toIndex; ++i) {
+            pages[pageIndex(i)].putLong(indexInPage(i) << 3, value);
+        }
+    }
+
+}
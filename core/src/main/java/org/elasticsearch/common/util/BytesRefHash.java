@@ -21,21 +21,26 @@ package org.elasticsearch.common.util;
 
 import com.carrotsearch.hppc.BitMixer;
 import org.apache.lucene.util.BytesRef;
-import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 
 /**
  *  Specialized hash table implementation similar to Lucene's BytesRefHash that maps
  *  BytesRef values to ids. Collisions are resolved with open addressing and linear
- *  probing, growth is smooth thanks to {@link BigArrays}, hashes are cached for faster
- *  re-hashing and capacity is always a multiple of 2 for faster identification of buckets.
+ *  probing, growth is smooth thanks to {@link BigArrays}, hashes are stored next to ids
+ *  so that keys are only compared when their hashes are equal and for faster re-hashing,
+ *  and capacity is always a multiple of 2 for faster identification of buckets.
  *  This class is not thread-safe.
  */
+// Slots store the hash in the upper 32 bits and the id + 1 in the lower 32 bits of a long, so that 0 encodes for an empty slot
 public final class BytesRefHash extends AbstractHash {
 
+    private static final long ID_MASK = 0xFFFFFFFFL;
+    // the maximum number of keys, so that ids + 1 fit in the lower 32 bits of slots
+    static final long MAX_SIZE = ID_MASK;
+
+    private LongArray table;
     private LongArray startOffsets;
     private ByteArray bytes;
-    private IntArray hashes; // we cache hashes for faster re-hashing
     private final BytesRef spare;
 
     // Constructor with configurable capacity and default maximum load factor.
@@ -46,10 +51,10 @@ public final class BytesRefHash extends AbstractHash {
     //Constructor with configurable capacity and load factor.
     public BytesRefHash(long capacity, float maxLoadFactor, BigArrays bigArrays) {
         super(capacity, maxLoadFactor, bigArrays);
+        table = bigArrays.newLongArray(capacity(), true);
         startOffsets = bigArrays.newLongArray(capacity + 1, false);
         startOffsets.set(0, 0);
         bytes = bigArrays.newByteArray(capacity * 3, false);
-        hashes = bigArrays.newIntArray(capacity, false);
         spare = new BytesRef();
     }
 
@@ -59,6 +64,23 @@ public final class BytesRefHash extends AbstractHash {
         return BitMixer.mix32(hash);
     }
 
+    private static long slotValue(int code, long id) {
+        return ((long) code << 32) | (id + 1);
+    }
+
+    private static long slotId(long slotValue) {
+        return (slotValue & ID_MASK) - 1;
+    }
+
+    private static int code(long slotValue) {
+        return (int) (slotValue >>> 32);
+    }
+
+    @Override
+    public long id(long index) {
+        return slotId(table.get(index));
+    }
+
     /**
      * Return the key at <code>0 &lt;= index &lt;= capacity()</code>. The result is undefined if the slot is unused.
      * <p>Beware that the content of the {@link BytesRef} may become invalid as soon as {@link #close()} is called</p>
@@ -74,10 +96,12 @@ public final class BytesRefHash extends AbstractHash {
      * Get the id associated with <code>key</code>
      */
     public long find(BytesRef key, int code) {
-        final long slot = slot(rehash(code), mask);
+        final int hash = rehash(code);
+        final long slot = slot(hash, mask);
         for (long index = slot; ; index = nextSlot(index, mask)) {
-            final long id = id(index);
-            if (id == -1L || key.bytesEquals(get(id, spare))) {
+            final long slotValue = table.get(index);
+            final long id = slotId(slotValue);
+            if (id == -1L || (code(slotValue) == hash && key.bytesEquals(get(id, spare)))) {
                 return id;
             }
         }
@@ -93,27 +117,26 @@ public final class BytesRefHash extends AbstractHash {
         assert size < maxSize;
         final long slot = slot(code, mask);
         for (long index = slot; ; index = nextSlot(index, mask)) {
-            final long curId = id(index);
+            final long slotValue = table.get(index);
+            final long curId = slotId(slotValue);
             if (curId == -1) { // means unset
-                id(index, id);
-                append(id, key, code);
+                table.set(index, slotValue(code, id));
+                append(id, key);
                 ++size;
                 return id;
-            } else if (key.bytesEquals(get(curId, spare))) {
+            } else if (code(slotValue) == code && key.bytesEquals(get(curId, spare))) {
                 return -1 - curId;
             }
         }
     }
 
-    private void append(long id, BytesRef key, int code) {
+    private void append(long id, BytesRef key) {
         assert size == id;
         final long startOffset = startOffsets.get(size);
         bytes = bigArrays.grow(bytes, startOffset + key.length);
         bytes.set(startOffset, key.bytes, key.offset, key.length);
         startOffsets = bigArrays.grow(startOffsets, size + 2);
         startOffsets.set(size + 1, startOffset + key.length);
-        hashes = bigArrays.grow(hashes, id + 1);
-        hashes.set(id, code);
     }
 
     private boolean assertConsistent(long id, int code) {
@@ -127,7 +150,7 @@ public final class BytesRefHash extends AbstractHash {
         for (long index = slot; ; index = nextSlot(index, mask)) {
             final long curId = id(index);
             if (curId == -1) { // means unset
-                id(index, id);
+                table.set(index, slotValue(code, id));
                 break;
             }
         }
@@ -138,6 +161,9 @@ public final class BytesRefHash extends AbstractHash {
      * if it was already present in the hash table.
      */
     public long add(BytesRef key, int code) {
+        if (size >= MAX_SIZE) {
+            throw new IllegalStateException("Can't add more than [" + MAX_SIZE + "] keys to a hash");
+        }
         if (size >= maxSize) {
             assert size == maxSize;
             grow();
@@ -151,19 +177,29 @@ public final class BytesRefHash extends AbstractHash {
         return add(key, key.hashCode());
     }
 
+    @Override
+    protected void resize(long capacity) {
+        table = bigArrays.resize(table, capacity);
+    }
+
     @Override
     protected void removeAndAdd(long index) {
-        final long id = id(index, -1);
+        final long slotValue = table.set(index, 0);
+        final long id = slotId(slotValue);
         assert id >= 0;
-        final int code = hashes.get(id);
-        reset(code, id);
+        reset(code(slotValue), id);
+    }
+
+    /**
+     * Returns the number of bytes used by the arrays backing this hash.
+     */
+    public long ramBytesUsed() {
+        return table.ramBytesUsed() + startOffsets.ramBytesUsed() + bytes.ramBytesUsed();
     }
 
     @Override
     public void close() {
-        try (Releasable releasable = Releasables.wrap(bytes, hashes, startOffsets)) {
-            super.close();
-        }
+        Releasables.close(table, bytes, startOffsets);
     }
 
 }
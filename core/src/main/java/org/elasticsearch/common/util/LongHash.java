@@ -19,7 +19,7 @@
 
 package org.elasticsearch.common.util;
 
-import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
 
 /**
  * Specialized hash table implementation similar to BytesRefHash that maps
@@ -28,9 +28,11 @@ import org.elasticsearch.common.lease.Releasable;
  * a multiple of 2 for faster identification of buckets.
  * This class is not thread-safe.
  */
-// IDs are internally stored as id + 1 so that 0 encodes for an empty slot
+// Slots are stored as pairs of longs in a single array, the id + 1 followed by the key, so that probing a slot only reads
+// one cache line, and 0 encodes for an empty slot. Keys are also stored by id to give access to them in id order.
 public final class LongHash extends AbstractHash {
 
+    private LongArray table;
     private LongArray keys;
 
     // Constructor with configurable capacity and default maximum load factor.
@@ -41,9 +43,24 @@ public final class LongHash extends AbstractHash {
     //Constructor with configurable capacity and load factor.
     public LongHash(long capacity, float maxLoadFactor, BigArrays bigArrays) {
         super(capacity, maxLoadFactor, bigArrays);
+        table = bigArrays.newLongArray(capacity() << 1, true);
         keys = bigArrays.newLongArray(capacity, false);
     }
 
+    @Override
+    public long id(long index) {
+        return table.get(index << 1) - 1;
+    }
+
+    private long key(long index) {
+        return table.get((index << 1) + 1);
+    }
+
+    private void setSlot(long index, long id, long key) {
+        table.set(index << 1, id + 1);
+        table.set((index << 1) + 1, key);
+    }
+
     /**
      * Return the key at <code>0 &lt;= index &lt;= capacity()</code>. The result is undefined if the slot is unused.
      */
@@ -58,7 +75,7 @@ public final class LongHash extends AbstractHash {
         final long slot = slot(hash(key), mask);
         for (long index = slot; ; index = nextSlot(index, mask)) {
             final long id = id(index);
-            if (id == -1 || keys.get(id) == key) {
+            if (id == -1 || key(index) == key) {
                 return id;
             }
         }
@@ -70,11 +87,11 @@ public final class LongHash extends AbstractHash {
         for (long index = slot; ; index = nextSlot(index, mask)) {
             final long curId = id(index);
             if (curId == -1) { // means unset
-                id(index, id);
+                setSlot(index, id, key);
                 append(id, key);
                 ++size;
                 return id;
-            } else if (keys.get(curId) == key) {
+            } else if (key(index) == key) {
                 return -1 - curId;
             }
         }
@@ -90,8 +107,7 @@ public final class LongHash extends AbstractHash {
         for (long index = slot; ; index = nextSlot(index, mask)) {
             final long curId = id(index);
             if (curId == -1) { // means unset
-                id(index, id);
-                append(id, key);
+                setSlot(index, id, key);
                 break;
             }
         }
@@ -110,19 +126,22 @@ public final class LongHash extends AbstractHash {
         return set(key, size);
     }
 
+    @Override
+    protected void resize(long capacity) {
+        table = bigArrays.resize(table, capacity << 1);
+    }
+
     @Override
     protected void removeAndAdd(long index) {
-        final long id = id(index, -1);
+        final long id = table.set(index << 1, 0) - 1;
         assert id >= 0;
-        final long key = keys.set(id, 0);
+        final long key = key(index);
         reset(key, id);
     }
 
     @Override
     public void close() {
-        try (Releasable releasable = keys) {
-            super.close();
-        }
+        Releasables.close(table, keys);
     }
 
 }
@@ -57,6 +57,19 @@ public class ReleasableLock implements Releasable {
         return this;
     }
 
+    /**
+     * Acquires the lock only if it is not held by another thread.
+     *
+     * @return this lock if it was acquired, otherwise null
+     */
+    public ReleasableLock tryAcquire() {
+        if (lock.tryLock()) {
+            assert addCurrentThread();
+            return this;
+        }
+        return null;
+    }
+
     private boolean addCurrentThread() {
         holdingThreads.set(true);
         return true;
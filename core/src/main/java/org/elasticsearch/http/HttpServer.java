@@ -41,6 +41,7 @@ import org.elasticsearch.rest.RestStatus;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.elasticsearch.rest.RestStatus.FORBIDDEN;
@@ -157,6 +158,11 @@ public class HttpServer extends AbstractLifecycleComponent<HttpServer> implement
             return delegate.newBuilder(autoDetectSource, useFiltering);
         }
 
+        @Override
+        public XContentBuilder newBuilder(OutputStream out) throws IOException {
+            return delegate.newBuilder(out);
+        }
+
         @Override
         public BytesStreamOutput bytesOutput() {
             return delegate.bytesOutput();
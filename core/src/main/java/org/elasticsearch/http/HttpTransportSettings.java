@@ -74,6 +74,12 @@ public final class HttpTransportSettings {
         Setting.byteSizeSetting("http.max_header_size", new ByteSizeValue(8, ByteSizeUnit.KB), Property.NodeScope);
     public static final Setting<ByteSizeValue> SETTING_HTTP_MAX_INITIAL_LINE_LENGTH =
         Setting.byteSizeSetting("http.max_initial_line_length", new ByteSizeValue(4, ByteSizeUnit.KB), Property.NodeScope);
+    public static final Setting<Boolean> SETTING_HTTP_BULK_STREAMING_ENABLED =
+        Setting.boolSetting("http.bulk.streaming.enabled", false, Property.NodeScope);
+    public static final Setting<ByteSizeValue> SETTING_HTTP_BULK_STREAMING_BATCH_SIZE =
+        Setting.byteSizeSetting("http.bulk.streaming.batch_size", new ByteSizeValue(5, ByteSizeUnit.MB), Property.NodeScope);
+    public static final Setting<Integer> SETTING_HTTP_BULK_STREAMING_MAX_IN_FLIGHT_BATCHES =
+        Setting.intSetting("http.bulk.streaming.max_in_flight_batches", 2, 1, Property.NodeScope);
     // don't reset cookies by default, since I don't think we really need to
     // note, parsing cookies was fixed in netty 3.5.1 regarding stack allocation, but still, currently, we don't need cookies
     public static final Setting<Boolean> SETTING_HTTP_RESET_COOKIES =
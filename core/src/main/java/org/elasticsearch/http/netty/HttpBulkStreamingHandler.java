@@ -0,0 +1,121 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.UpstreamMessageEvent;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.util.CharsetUtil;
+
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * Lets bulk requests whose content is received in chunks through the pipeline before their content was aggregated, so
+ * that their actions can be parsed and executed while the rest of the content is still being received, rather than
+ * buffering the whole content in memory first. The request is passed upstream as a request without content right away,
+ * and its chunks are passed to the {@link org.elasticsearch.rest.RestContentStream} of the request instead. This handler
+ * must come right before the chunk aggregator in the pipeline, it keeps state about the current request of a channel.
+ */
+public class HttpBulkStreamingHandler extends SimpleChannelUpstreamHandler {
+
+    private static final ChannelBuffer CONTINUE =
+        ChannelBuffers.copiedBuffer("HTTP/1.1 100 Continue\r\n\r\n", CharsetUtil.US_ASCII);
+
+    private final long maxBufferedBytes;
+    private NettyHttpContentStream currentStream;
+
+    public HttpBulkStreamingHandler(long maxBufferedBytes) {
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    static boolean isStreamable(HttpRequest request) {
+        if (request.isChunked() == false) {
+            return false;
+        }
+        if (request.getMethod() != HttpMethod.POST && request.getMethod() != HttpMethod.PUT) {
+            return false;
+        }
+        final String uri = request.getUri();
+        final int pathEndPos = uri.indexOf('?');
+        final String path = pathEndPos < 0 ? uri : uri.substring(0, pathEndPos);
+        return path.endsWith("/_bulk");
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        final Object message = e.getMessage();
+        if (message instanceof HttpRequest && isStreamable((HttpRequest) message)) {
+            final HttpRequest request = (HttpRequest) message;
+            if (HttpHeaders.is100ContinueExpected(request)) {
+                // the aggregator would have answered it, but it only sees a request without content
+                Channels.write(ctx, Channels.succeededFuture(ctx.getChannel()), CONTINUE.duplicate());
+            }
+            currentStream = new NettyHttpContentStream(ctx.getChannel(), maxBufferedBytes);
+            ctx.sendUpstream(new UpstreamMessageEvent(e.getChannel(), new StreamedHttpRequest(request, currentStream),
+                e.getRemoteAddress()));
+        } else if (message instanceof HttpChunk && currentStream != null) {
+            final HttpChunk chunk = (HttpChunk) message;
+            final NettyHttpContentStream stream = currentStream;
+            if (chunk.isLast()) {
+                currentStream = null;
+            }
+            stream.onChunk(chunk.getContent(), chunk.isLast());
+        } else {
+            ctx.sendUpstream(e);
+        }
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        if (currentStream != null) {
+            currentStream.onFailure(new ClosedChannelException());
+            currentStream = null;
+        }
+        super.channelClosed(ctx, e);
+    }
+
+    /**
+     * A request whose content is received through a {@link NettyHttpContentStream}.
+     */
+    static final class StreamedHttpRequest extends DefaultHttpRequest {
+
+        private final NettyHttpContentStream contentStream;
+
+        StreamedHttpRequest(HttpRequest request, NettyHttpContentStream contentStream) {
+            super(request.getProtocolVersion(), request.getMethod(), request.getUri());
+            headers().add(request.headers());
+            this.contentStream = contentStream;
+        }
+
+        NettyHttpContentStream contentStream() {
+            return contentStream;
+        }
+    }
+}
@@ -21,14 +21,18 @@ package org.elasticsearch.http.netty;
 
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.netty.ReleaseChannelFutureListener;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.http.netty.cors.CorsHandler;
 import org.elasticsearch.http.netty.pipelining.OrderedDownstreamChannelEvent;
 import org.elasticsearch.http.netty.pipelining.OrderedUpstreamMessageEvent;
 import org.elasticsearch.rest.AbstractRestChannel;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponse;
 import org.elasticsearch.rest.RestResponse;
 import org.elasticsearch.rest.RestStatus;
 import org.jboss.netty.buffer.ChannelBuffer;
@@ -38,12 +42,15 @@ import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.handler.codec.http.Cookie;
 import org.jboss.netty.handler.codec.http.CookieDecoder;
 import org.jboss.netty.handler.codec.http.CookieEncoder;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
 import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpChunk;
 import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpResponse;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.jboss.netty.handler.codec.http.HttpVersion;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
@@ -56,6 +63,9 @@ import static org.jboss.netty.handler.codec.http.HttpHeaders.Values.KEEP_ALIVE;
 
 public final class NettyHttpChannel extends AbstractRestChannel {
 
+    /** The size of the chunks of {@link ChunkedRestResponse}s, a single recycled page. */
+    private static final int CHUNK_SIZE = BigArrays.PAGE_SIZE_IN_BYTES;
+
     private final NettyHttpServerTransport transport;
     private final Channel channel;
     private final org.jboss.netty.handler.codec.http.HttpRequest nettyRequest;
@@ -86,6 +96,68 @@ public final class NettyHttpChannel extends AbstractRestChannel {
 
     @Override
     public void sendResponse(RestResponse response) {
+        // HTTP/1.0 doesn't support chunked responses
+        if (response instanceof ChunkedRestResponse && isHttp10() == false) {
+            final ChunkedRestResponse chunkedResponse = (ChunkedRestResponse) response;
+            final ReleasablePagedBytesReference firstChunk;
+            try {
+                firstChunk = chunkedResponse.nextChunk(transport.bigArrays, CHUNK_SIZE);
+            } catch (Exception e) {
+                sendErrorResponse(e);
+                return;
+            }
+            if (chunkedResponse.isDone()) {
+                // the whole content fits in a single chunk, so we can send it as usual
+                sendResponse(response, firstChunk);
+            } else {
+                new ChunkedResponseWriter(chunkedResponse).start(firstChunk);
+            }
+        } else {
+            sendResponse(response, response.content());
+        }
+    }
+
+    private void sendResponse(RestResponse response, BytesReference content) {
+        boolean addedReleaseListener = false;
+        try {
+            HttpResponse resp = newResponse(response);
+            ChannelBuffer buffer = content.toChannelBuffer();
+            resp.setContent(buffer);
+            // If our response has no content-length, calculate and set one
+            setHeaderField(resp, HttpHeaders.Names.CONTENT_LENGTH, String.valueOf(buffer.readableBytes()), false);
+
+            ChannelFuture future = write(resp, 0, true);
+
+            if (content instanceof Releasable) {
+                future.addListener(new ReleaseChannelFutureListener((Releasable) content));
+                addedReleaseListener = true;
+            }
+
+            if (isCloseConnection()) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+
+        } finally {
+            if (!addedReleaseListener && content instanceof Releasable) {
+                ((Releasable) content).close();
+            }
+        }
+    }
+
+    private void sendErrorResponse(Exception e) {
+        final RestResponse errorResponse;
+        try {
+            errorResponse = new BytesRestResponse(this, e);
+        } catch (IOException inner) {
+            // we can't tell the client what went wrong
+            channel.close();
+            return;
+        }
+        sendResponse(errorResponse, errorResponse.content());
+    }
+
+    // Create the http response with the status and headers of the rest response.
+    private HttpResponse newResponse(RestResponse response) {
         // if the response object was created upstream, then use it;
         // otherwise, create a new one
         HttpResponse resp = newResponse();
@@ -101,43 +173,99 @@ public final class NettyHttpChannel extends AbstractRestChannel {
         // Add all custom headers
         addCustomHeaders(response, resp);
 
-        BytesReference content = response.content();
-        ChannelBuffer buffer;
-        boolean addedReleaseListener = false;
-        try {
-            buffer = content.toChannelBuffer();
-            resp.setContent(buffer);
+        // If our response doesn't specify a content-type header, set one
+        setHeaderField(resp, HttpHeaders.Names.CONTENT_TYPE, response.contentType(), false);
 
-            // If our response doesn't specify a content-type header, set one
-            setHeaderField(resp, HttpHeaders.Names.CONTENT_TYPE, response.contentType(), false);
-            // If our response has no content-length, calculate and set one
-            setHeaderField(resp, HttpHeaders.Names.CONTENT_LENGTH, String.valueOf(buffer.readableBytes()), false);
+        addCookies(resp);
+        return resp;
+    }
 
-            addCookies(resp);
+    // Write a message of the response, respecting the order of responses if HTTP pipelining is enabled.
+    private ChannelFuture write(Object message, int subsequence, boolean last) {
+        if (orderedUpstreamMessageEvent != null) {
+            OrderedDownstreamChannelEvent downstreamChannelEvent =
+                new OrderedDownstreamChannelEvent(orderedUpstreamMessageEvent, subsequence, last, message);
+            channel.getPipeline().sendDownstream(downstreamChannelEvent);
+            return downstreamChannelEvent.getFuture();
+        } else {
+            return channel.write(message);
+        }
+    }
 
-            ChannelFuture future;
+    /**
+     * Writes the content of a chunked response one chunk at a time: the next chunk is only written once the previous one was
+     * written to the socket, so that a slow client doesn't make the whole content pile up in memory. The chunks after the
+     * first one are written by the I/O thread that completed the previous write.
+     */
+    private final class ChunkedResponseWriter implements ChannelFutureListener {
 
-            if (orderedUpstreamMessageEvent != null) {
-                OrderedDownstreamChannelEvent downstreamChannelEvent =
-                    new OrderedDownstreamChannelEvent(orderedUpstreamMessageEvent, 0, true, resp);
-                future = downstreamChannelEvent.getFuture();
-                channel.getPipeline().sendDownstream(downstreamChannelEvent);
-            } else {
-                future = channel.write(resp);
-            }
+        private final ChunkedRestResponse response;
+        private int subsequence = 0;
 
-            if (content instanceof Releasable) {
-                future.addListener(new ReleaseChannelFutureListener((Releasable) content));
-                addedReleaseListener = true;
+        ChunkedResponseWriter(ChunkedRestResponse response) {
+            this.response = response;
+        }
+
+        void start(ReleasablePagedBytesReference firstChunk) {
+            HttpResponse resp = newResponse(response);
+            resp.setChunked(true);
+            setHeaderField(resp, HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+            write(resp, subsequence++, false);
+            writeChunks(firstChunk);
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            if (future.isSuccess()) {
+                final ReleasablePagedBytesReference chunk = nextChunk();
+                if (chunk != null) {
+                    writeChunks(chunk);
+                }
             }
+            // otherwise the channel was closed, and there is no point in writing the rest of the content
+        }
 
-            if (isCloseConnection()) {
-                future.addListener(ChannelFutureListener.CLOSE);
+        private void writeChunks(ReleasablePagedBytesReference chunk) {
+            while (true) {
+                if (chunk.length() == 0) {
+                    // an empty chunk would be taken for the last one
+                    chunk.close();
+                } else {
+                    ChannelFuture future = write(new DefaultHttpChunk(chunk.toChannelBuffer()), subsequence++, false);
+                    future.addListener(new ReleaseChannelFutureListener(chunk));
+                    if (response.isDone() == false) {
+                        if (future.isDone() == false) {
+                            future.addListener(this);
+                            return;
+                        }
+                        if (future.isSuccess() == false) {
+                            return;
+                        }
+                    }
+                }
+                if (response.isDone()) {
+                    ChannelFuture future = write(HttpChunk.LAST_CHUNK, subsequence++, true);
+                    if (isCloseConnection()) {
+                        future.addListener(ChannelFutureListener.CLOSE);
+                    }
+                    return;
+                }
+                // the previous chunk was written already, no need to wait for a listener
+                chunk = nextChunk();
+                if (chunk == null) {
+                    return;
+                }
             }
+        }
 
-        } finally {
-            if (!addedReleaseListener && content instanceof Releasable) {
-                ((Releasable) content).close();
+        private ReleasablePagedBytesReference nextChunk() {
+            try {
+                return response.nextChunk(transport.bigArrays, CHUNK_SIZE);
+            } catch (Exception e) {
+                // the status was sent already, closing the connection before the last chunk tells the client that the
+                // response is incomplete
+                channel.close();
+                return null;
             }
         }
     }
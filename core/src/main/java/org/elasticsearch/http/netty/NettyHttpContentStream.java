@@ -0,0 +1,139 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
+import org.elasticsearch.rest.RestContentStream;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.Channel;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The {@link RestContentStream} of a request whose content is received as HTTP chunks, see {@link HttpBulkStreamingHandler}.
+ * Chunks that are received before the handler of the request starts listening are buffered up to the maximum content
+ * length.
+ */
+final class NettyHttpContentStream implements RestContentStream {
+
+    private final Channel channel;
+    private final long maxBufferedBytes;
+    private final Deque<BytesReference> buffered = new ArrayDeque<>();
+    private long bufferedBytes;
+    private boolean lastReceived = false;
+    private Listener listener;
+    private Throwable failure;
+
+    NettyHttpContentStream(Channel channel, long maxBufferedBytes) {
+        this.channel = channel;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    void onChunk(ChannelBuffer content, boolean last) {
+        // the netty HTTP handling always copies chunks into fresh buffers, so they can be retained
+        final BytesReference chunk = content.readable() ? new ChannelBufferBytesReference(content) : BytesArray.EMPTY;
+        final Listener listener;
+        synchronized (this) {
+            if (failure != null) {
+                return;
+            }
+            lastReceived = last;
+            if (this.listener == null) {
+                bufferedBytes += chunk.length();
+                if (bufferedBytes > maxBufferedBytes) {
+                    buffered.clear();
+                    failure = new IllegalStateException("content of streamed request exceeded [" + maxBufferedBytes
+                        + "] bytes before it was consumed");
+                    // no one reads this content, no need to receive more of it
+                    channel.close();
+                } else {
+                    buffered.add(chunk);
+                }
+                return;
+            }
+            listener = this.listener;
+        }
+        try {
+            listener.onChunk(chunk, last);
+        } catch (Throwable t) {
+            synchronized (this) {
+                failure = t;
+            }
+            listener.onFailure(t);
+        }
+    }
+
+    /**
+     * Fails the stream if it didn't receive its last chunk yet, for instance because the connection was closed.
+     */
+    void onFailure(Throwable t) {
+        final Listener listener;
+        synchronized (this) {
+            if (failure != null || lastReceived) {
+                return;
+            }
+            failure = t;
+            listener = this.listener;
+        }
+        if (listener != null) {
+            listener.onFailure(t);
+        }
+    }
+
+    @Override
+    public void listen(Listener listener) {
+        final Throwable failure;
+        synchronized (this) {
+            if (this.listener != null) {
+                throw new IllegalStateException("content stream already has a listener");
+            }
+            this.listener = listener;
+            failure = this.failure;
+            if (failure == null) {
+                // replay under the lock so that chunks that arrive concurrently are passed after the buffered ones
+                try {
+                    while (buffered.isEmpty() == false) {
+                        final BytesReference chunk = buffered.poll();
+                        listener.onChunk(chunk, lastReceived && buffered.isEmpty());
+                    }
+                } catch (Throwable t) {
+                    buffered.clear();
+                    this.failure = t;
+                    listener.onFailure(t);
+                }
+                return;
+            }
+        }
+        listener.onFailure(failure);
+    }
+
+    @Override
+    public void pause() {
+        channel.setReadable(false);
+    }
+
+    @Override
+    public void resume() {
+        channel.setReadable(true);
+    }
+}
@@ -22,6 +22,7 @@ package org.elasticsearch.http.netty;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
+import org.elasticsearch.rest.RestContentStream;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.support.RestUtils;
 import org.jboss.netty.channel.Channel;
@@ -41,11 +42,17 @@ public class NettyHttpRequest extends RestRequest {
     private final Map<String, String> params;
     private final String rawPath;
     private final BytesReference content;
+    private final RestContentStream contentStream;
 
     public NettyHttpRequest(org.jboss.netty.handler.codec.http.HttpRequest request, Channel channel) {
         this.request = request;
         this.channel = channel;
         this.params = new HashMap<>();
+        if (request instanceof HttpBulkStreamingHandler.StreamedHttpRequest) {
+            this.contentStream = ((HttpBulkStreamingHandler.StreamedHttpRequest) request).contentStream();
+        } else {
+            this.contentStream = null;
+        }
         if (request.getContent().readable()) {
             this.content = new ChannelBufferBytesReference(request.getContent());
         } else {
@@ -117,6 +124,11 @@ public class NettyHttpRequest extends RestRequest {
         return content;
     }
 
+    @Override
+    public RestContentStream contentStream() {
+        return contentStream;
+    }
+
     /**
      * Returns the remote address where this rest request channel is "connected to".  The
      * returned {@link SocketAddress} is supposed to be down-cast into more
@@ -94,6 +94,7 @@ import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ALLOW_OR
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ENABLED;
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_MAX_AGE;
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_BIND_HOST;
+import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_BULK_STREAMING_ENABLED;
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_COMPRESSION;
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_COMPRESSION_LEVEL;
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_DETAILED_ERRORS_ENABLED;
@@ -183,6 +184,8 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
 
     protected final boolean resetCookies;
 
+    protected final boolean bulkStreaming;
+
     protected final PortsRange port;
 
     protected final String bindHosts[];
@@ -228,6 +231,7 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
         this.maxHeaderSize = SETTING_HTTP_MAX_HEADER_SIZE.get(settings);
         this.maxInitialLineLength = SETTING_HTTP_MAX_INITIAL_LINE_LENGTH.get(settings);
         this.resetCookies = SETTING_HTTP_RESET_COOKIES.get(settings);
+        this.bulkStreaming = SETTING_HTTP_BULK_STREAMING_ENABLED.get(settings);
         this.maxCumulationBufferCapacity = SETTING_HTTP_NETTY_MAX_CUMULATION_BUFFER_CAPACITY.get(settings);
         this.maxCompositeBufferComponents = SETTING_HTTP_NETTY_MAX_COMPOSITE_BUFFER_COMPONENTS.get(settings);
         this.workerCount = SETTING_HTTP_WORKER_COUNT.get(settings);
@@ -545,6 +549,9 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
             }
             pipeline.addLast("decoder", requestDecoder);
             pipeline.addLast("decoder_compress", new ESHttpContentDecompressor(transport.compression));
+            if (transport.bulkStreaming) {
+                pipeline.addLast("bulk_streaming", new HttpBulkStreamingHandler(transport.maxContentLength.bytes()));
+            }
             HttpChunkAggregator httpChunkAggregator = new HttpChunkAggregator((int) transport.maxContentLength.bytes());
             if (transport.maxCompositeBufferComponents != -1) {
                 httpChunkAggregator.setMaxCumulationBufferComponents(transport.maxCompositeBufferComponents);
@@ -19,6 +19,10 @@
 package org.elasticsearch.index;
 
 import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSelector;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.ParseFieldMatcher;
@@ -32,8 +36,10 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.index.mapper.internal.AllFieldMapper;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.search.sort.SortOrder;
 
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
@@ -66,6 +72,14 @@ public final class IndexSettings {
     public static final Setting<Translog.Durability> INDEX_TRANSLOG_DURABILITY_SETTING =
         new Setting<>("index.translog.durability", Translog.Durability.REQUEST.name(),
             (value) -> Translog.Durability.valueOf(value.toUpperCase(Locale.ROOT)), Property.Dynamic, Property.IndexScope);
+    /**
+     * The number of threads that replay translog operations when a shard recovers from its local translog. Operations on
+     * the same document are always replayed by the same thread, in translog order.
+     */
+    public static final Setting<Integer> INDEX_TRANSLOG_RECOVERY_THREADS_SETTING =
+        new Setting<>("index.translog.recovery_threads",
+            (s) -> Integer.toString(Math.max(1, Math.min(4, EsExecutors.boundedNumberOfProcessors(s) / 2))),
+            (s) -> Setting.parseInt(s, 1, "index.translog.recovery_threads"), Property.IndexScope);
     public static final Setting<Boolean> INDEX_WARMER_ENABLED_SETTING =
         Setting.boolSetting("index.warmer.enabled", true, Property.Dynamic, Property.IndexScope);
     public static final Setting<Boolean> INDEX_TTL_DISABLE_PURGE_SETTING =
@@ -82,6 +96,15 @@ public final class IndexSettings {
         }
     }, Property.IndexScope);
 
+    /**
+     * The field that segments are sorted by when they are merged, or empty to not sort segments. This must be a field with numeric
+     * doc values such as a date. Searches that sort by this field in the same order can stop collecting a sorted segment early.
+     */
+    public static final Setting<String> INDEX_SORT_FIELD_SETTING =
+        Setting.simpleString("index.sort.field", Property.IndexScope);
+    public static final Setting<SortOrder> INDEX_SORT_ORDER_SETTING =
+        new Setting<>("index.sort.order", SortOrder.ASC.toString(), SortOrder::fromString, Property.IndexScope);
+
     /**
      * Index setting describing the maximum value of from + size on a query.
      * The Default maximum value of from + size on a query is 10,000. This was chosen as
@@ -128,6 +151,8 @@ public final class IndexSettings {
     private final boolean defaultAllowUnmappedFields;
     private final Predicate<String> indexNameMatcher;
     private volatile Translog.Durability durability;
+    private final int translogRecoveryThreads;
+    private final Sort indexSort;
     private final TimeValue syncInterval;
     private volatile TimeValue refreshInterval;
     private volatile ByteSizeValue flushThresholdSize;
@@ -214,6 +239,8 @@ public final class IndexSettings {
         this.indexNameMatcher = indexNameMatcher;
         this.durability = scopedSettings.get(INDEX_TRANSLOG_DURABILITY_SETTING);
         syncInterval = INDEX_TRANSLOG_SYNC_INTERVAL_SETTING.get(settings);
+        translogRecoveryThreads = scopedSettings.get(INDEX_TRANSLOG_RECOVERY_THREADS_SETTING);
+        indexSort = buildIndexSort(scopedSettings.get(INDEX_SORT_FIELD_SETTING), scopedSettings.get(INDEX_SORT_ORDER_SETTING));
         refreshInterval = scopedSettings.get(INDEX_REFRESH_INTERVAL_SETTING);
         flushThresholdSize = scopedSettings.get(INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTING);
         mergeSchedulerConfig = new MergeSchedulerConfig(this);
@@ -413,6 +440,33 @@ public final class IndexSettings {
         this.warmerEnabled = enableWarmer;
     }
 
+    /**
+     * Returns the number of threads used to replay the local translog during recovery.
+     */
+    public int getTranslogRecoveryThreads() {
+        return translogRecoveryThreads;
+    }
+
+    /**
+     * Returns the sort that segments of this index are sorted by when they are merged, or <code>null</code> if segments aren't sorted.
+     */
+    public Sort getIndexSort() {
+        return indexSort;
+    }
+
+    private static Sort buildIndexSort(String field, SortOrder order) {
+        if (field.isEmpty()) {
+            return null;
+        }
+        final boolean reverse = order == SortOrder.DESC;
+        // sort like a search on this field does by default: the min value of multi-valued fields in ascending order and the max
+        // value in descending order, documents without a value last
+        final SortedNumericSortField sortField = new SortedNumericSortField(field, SortField.Type.LONG, reverse,
+            reverse ? SortedNumericSelector.Type.MAX : SortedNumericSelector.Type.MIN);
+        sortField.setMissingValue(reverse ? Long.MIN_VALUE : Long.MAX_VALUE);
+        return new Sort(sortField);
+    }
+
     /**
      * Returns the translog sync interval. This is the interval in which the transaction log is asynchronously fsynced unless
      * the transaction log is fsyncing on every operations
@@ -0,0 +1,197 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts for the bytes of the write operations that are in flight on this node, at each of their stages: on the node that
+ * coordinates a bulk request, on the primaries and on the replicas of its shards. The bytes of a bulk request count from the
+ * moment it is received until its response is sent, so unlike the size of the queue of the bulk thread pool, this reflects
+ * how much memory the requests actually hold on to. Coordinating and primary operations are rejected once they would push the
+ * bytes of these two stages above the limit, replica operations are never rejected since that would fail the replica.
+ */
+public class IndexingPressure extends AbstractComponent {
+
+    public static final Setting<ByteSizeValue> MAX_INDEXING_BYTES =
+        Setting.byteSizeSetting("indexing_pressure.memory.limit", "10%", Property.NodeScope);
+
+    private static final Releasable NOOP = () -> {};
+
+    private final long primaryAndCoordinatingLimit;
+
+    private final AtomicLong currentCombinedCoordinatingAndPrimaryBytes = new AtomicLong();
+    private final AtomicLong currentCoordinatingBytes = new AtomicLong();
+    private final AtomicLong currentPrimaryBytes = new AtomicLong();
+    private final AtomicLong currentReplicaBytes = new AtomicLong();
+
+    private final AtomicLong totalCombinedCoordinatingAndPrimaryBytes = new AtomicLong();
+    private final AtomicLong totalCoordinatingBytes = new AtomicLong();
+    private final AtomicLong totalPrimaryBytes = new AtomicLong();
+    private final AtomicLong totalReplicaBytes = new AtomicLong();
+
+    private final AtomicLong coordinatingRejections = new AtomicLong();
+    private final AtomicLong primaryRejections = new AtomicLong();
+
+    private final ConcurrentMap<ShardId, ShardBytes> shards = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public IndexingPressure(Settings settings) {
+        super(settings);
+        this.primaryAndCoordinatingLimit = MAX_INDEXING_BYTES.get(settings).bytes();
+    }
+
+    /**
+     * Marks the given bytes of a bulk request as in flight on the coordinating node. The returned releasable must be closed
+     * once the response was sent.
+     *
+     * @throws EsRejectedExecutionException if the bytes would exceed the limit
+     */
+    public Releasable markCoordinatingOperationStarted(long bytes) {
+        if (bytes == 0) {
+            return NOOP;
+        }
+        final long combinedBytes = currentCombinedCoordinatingAndPrimaryBytes.addAndGet(bytes);
+        if (combinedBytes > primaryAndCoordinatingLimit) {
+            currentCombinedCoordinatingAndPrimaryBytes.getAndAdd(-bytes);
+            coordinatingRejections.getAndIncrement();
+            throw new EsRejectedExecutionException("rejected execution of coordinating operation [" + describe(combinedBytes, bytes)
+                + "]");
+        }
+        currentCoordinatingBytes.getAndAdd(bytes);
+        totalCombinedCoordinatingAndPrimaryBytes.getAndAdd(bytes);
+        totalCoordinatingBytes.getAndAdd(bytes);
+        return once(() -> {
+            currentCombinedCoordinatingAndPrimaryBytes.getAndAdd(-bytes);
+            currentCoordinatingBytes.getAndAdd(-bytes);
+        });
+    }
+
+    /**
+     * Marks the given bytes of a shard level request as in flight on the primary. The returned releasable must be closed once
+     * the request was replicated and the response was sent.
+     *
+     * @param localToCoordinatingNode whether this node also coordinates the request, in which case its bytes are accounted
+     *                                for already and the request isn't rejected again
+     * @throws EsRejectedExecutionException if the bytes would exceed the limit
+     */
+    public Releasable markPrimaryOperationStarted(ShardId shardId, long bytes, boolean localToCoordinatingNode) {
+        if (bytes == 0) {
+            return NOOP;
+        }
+        if (localToCoordinatingNode == false) {
+            final long combinedBytes = currentCombinedCoordinatingAndPrimaryBytes.addAndGet(bytes);
+            if (combinedBytes > primaryAndCoordinatingLimit) {
+                currentCombinedCoordinatingAndPrimaryBytes.getAndAdd(-bytes);
+                primaryRejections.getAndIncrement();
+                throw new EsRejectedExecutionException("rejected execution of primary operation on " + shardId + " ["
+                    + describe(combinedBytes, bytes) + "]");
+            }
+            totalCombinedCoordinatingAndPrimaryBytes.getAndAdd(bytes);
+        }
+        currentPrimaryBytes.getAndAdd(bytes);
+        totalPrimaryBytes.getAndAdd(bytes);
+        addShardBytes(shardId, bytes, 0);
+        return once(() -> {
+            if (localToCoordinatingNode == false) {
+                currentCombinedCoordinatingAndPrimaryBytes.getAndAdd(-bytes);
+            }
+            currentPrimaryBytes.getAndAdd(-bytes);
+            addShardBytes(shardId, -bytes, 0);
+        });
+    }
+
+    /**
+     * Marks the given bytes of a shard level request as in flight on a replica. The returned releasable must be closed once the
+     * response was sent.
+     */
+    public Releasable markReplicaOperationStarted(ShardId shardId, long bytes) {
+        if (bytes == 0) {
+            return NOOP;
+        }
+        currentReplicaBytes.getAndAdd(bytes);
+        totalReplicaBytes.getAndAdd(bytes);
+        addShardBytes(shardId, 0, bytes);
+        return once(() -> {
+            currentReplicaBytes.getAndAdd(-bytes);
+            addShardBytes(shardId, 0, -bytes);
+        });
+    }
+
+    private void addShardBytes(ShardId shardId, long primaryBytes, long replicaBytes) {
+        shards.compute(shardId, (k, current) -> {
+            final ShardBytes shardBytes = current == null ? new ShardBytes() : current;
+            shardBytes.primaryBytes += primaryBytes;
+            shardBytes.replicaBytes += replicaBytes;
+            // only the shards with operations in flight are tracked
+            return shardBytes.primaryBytes == 0 && shardBytes.replicaBytes == 0 ? null : shardBytes;
+        });
+    }
+
+    private String describe(long combinedBytes, long operationBytes) {
+        return "coordinating_and_primary_bytes=" + (combinedBytes - operationBytes)
+            + ", replica_bytes=" + currentReplicaBytes.get()
+            + ", operation_bytes=" + operationBytes
+            + ", max_coordinating_and_primary_bytes=" + primaryAndCoordinatingLimit;
+    }
+
+    private static Releasable once(Releasable releasable) {
+        final AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (closed.compareAndSet(false, true)) {
+                releasable.close();
+            }
+        };
+    }
+
+    public IndexingPressureStats stats() {
+        final Map<ShardId, IndexingPressureStats.ShardStats> shardStats = new HashMap<>();
+        for (Map.Entry<ShardId, ShardBytes> entry : shards.entrySet()) {
+            final ShardBytes shardBytes = entry.getValue();
+            // the bytes are updated under the lock of the entry, reading them racily is fine for stats
+            shardStats.put(entry.getKey(), new IndexingPressureStats.ShardStats(shardBytes.primaryBytes, shardBytes.replicaBytes));
+        }
+        return new IndexingPressureStats(
+            currentCombinedCoordinatingAndPrimaryBytes.get(), currentCoordinatingBytes.get(), currentPrimaryBytes.get(),
+            currentReplicaBytes.get(),
+            totalCombinedCoordinatingAndPrimaryBytes.get(), totalCoordinatingBytes.get(), totalPrimaryBytes.get(),
+            totalReplicaBytes.get(),
+            coordinatingRejections.get(), primaryRejections.get(), primaryAndCoordinatingLimit, shardStats);
+    }
+
+    private static final class ShardBytes {
+        private long primaryBytes;
+        private long replicaBytes;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.index.shard.ShardId;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The bytes of the write operations that are or were in flight on a node, see {@link IndexingPressure}.
+ */
+public class IndexingPressureStats implements Writeable<IndexingPressureStats>, ToXContent {
+
+    private final long currentCombinedCoordinatingAndPrimaryBytes;
+    private final long currentCoordinatingBytes;
+    private final long currentPrimaryBytes;
+    private final long currentReplicaBytes;
+    private final long totalCombinedCoordinatingAndPrimaryBytes;
+    private final long totalCoordinatingBytes;
+    private final long totalPrimaryBytes;
+    private final long totalReplicaBytes;
+    private final long coordinatingRejections;
+    private final long primaryRejections;
+    private final long limit;
+    private final Map<ShardId, ShardStats> shardStats;
+
+    public IndexingPressureStats(StreamInput in) throws IOException {
+        currentCombinedCoordinatingAndPrimaryBytes = in.readVLong();
+        currentCoordinatingBytes = in.readVLong();
+        currentPrimaryBytes = in.readVLong();
+        currentReplicaBytes = in.readVLong();
+        totalCombinedCoordinatingAndPrimaryBytes = in.readVLong();
+        totalCoordinatingBytes = in.readVLong();
+        totalPrimaryBytes = in.readVLong();
+        totalReplicaBytes = in.readVLong();
+        coordinatingRejections = in.readVLong();
+        primaryRejections = in.readVLong();
+        limit = in.readVLong();
+        int size = in.readVInt();
+        shardStats = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            shardStats.put(ShardId.readShardId(in), new ShardStats(in));
+        }
+    }
+
+    public IndexingPressureStats(long currentCombinedCoordinatingAndPrimaryBytes, long currentCoordinatingBytes, long currentPrimaryBytes,
+                                 long currentReplicaBytes, long totalCombinedCoordinatingAndPrimaryBytes, long totalCoordinatingBytes,
+                                 long totalPrimaryBytes, long totalReplicaBytes, long coordinatingRejections, long primaryRejections,
+                                 long limit, Map<ShardId, ShardStats> shardStats) {
+        this.currentCombinedCoordinatingAndPrimaryBytes = currentCombinedCoordinatingAndPrimaryBytes;
+        this.currentCoordinatingBytes = currentCoordinatingBytes;
+        this.currentPrimaryBytes = currentPrimaryBytes;
+        this.currentReplicaBytes = currentReplicaBytes;
+        this.totalCombinedCoordinatingAndPrimaryBytes = totalCombinedCoordinatingAndPrimaryBytes;
+        this.totalCoordinatingBytes = totalCoordinatingBytes;
+        this.totalPrimaryBytes = totalPrimaryBytes;
+        this.totalReplicaBytes = totalReplicaBytes;
+        this.coordinatingRejections = coordinatingRejections;
+        this.primaryRejections = primaryRejections;
+        this.limit = limit;
+        this.shardStats = shardStats;
+    }
+
+    /**
+     * @return The bytes of coordinating and primary operations that are currently in flight, which the limit applies to.
+     */
+    public long getCurrentCombinedCoordinatingAndPrimaryBytes() {
+        return currentCombinedCoordinatingAndPrimaryBytes;
+    }
+
+    public long getCurrentCoordinatingBytes() {
+        return currentCoordinatingBytes;
+    }
+
+    public long getCurrentPrimaryBytes() {
+        return currentPrimaryBytes;
+    }
+
+    public long getCurrentReplicaBytes() {
+        return currentReplicaBytes;
+    }
+
+    public long getTotalCombinedCoordinatingAndPrimaryBytes() {
+        return totalCombinedCoordinatingAndPrimaryBytes;
+    }
+
+    public long getTotalCoordinatingBytes() {
+        return totalCoordinatingBytes;
+    }
+
+    public long getTotalPrimaryBytes() {
+        return totalPrimaryBytes;
+    }
+
+    public long getTotalReplicaBytes() {
+        return totalReplicaBytes;
+    }
+
+    /**
+     * @return The number of bulk requests that were rejected on this node as a coordinating node.
+     */
+    public long getCoordinatingRejections() {
+        return coordinatingRejections;
+    }
+
+    /**
+     * @return The number of shard level requests that were rejected on this node as a primary.
+     */
+    public long getPrimaryRejections() {
+        return primaryRejections;
+    }
+
+    /**
+     * @return The limit of the bytes of coordinating and primary operations in flight.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return The bytes in flight per shard, only contains the shards that currently have operations in flight.
+     */
+    public Map<ShardId, ShardStats> getShardStats() {
+        return shardStats;
+    }
+
+    @Override
+    public IndexingPressureStats readFrom(StreamInput in) throws IOException {
+        return new IndexingPressureStats(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(currentCombinedCoordinatingAndPrimaryBytes);
+        out.writeVLong(currentCoordinatingBytes);
+        out.writeVLong(currentPrimaryBytes);
+        out.writeVLong(currentReplicaBytes);
+        out.writeVLong(totalCombinedCoordinatingAndPrimaryBytes);
+        out.writeVLong(totalCoordinatingBytes);
+        out.writeVLong(totalPrimaryBytes);
+        out.writeVLong(totalReplicaBytes);
+        out.writeVLong(coordinatingRejections);
+        out.writeVLong(primaryRejections);
+        out.writeVLong(limit);
+        out.writeVInt(shardStats.size());
+        for (Map.Entry<ShardId, ShardStats> entry : shardStats.entrySet()) {
+            entry.getKey().writeTo(out);
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.INDEXING_PRESSURE);
+        builder.startObject(Fields.MEMORY);
+        builder.startObject(Fields.CURRENT);
+        builder.byteSizeField(Fields.COMBINED_COORDINATING_AND_PRIMARY_IN_BYTES, Fields.COMBINED_COORDINATING_AND_PRIMARY,
+            currentCombinedCoordinatingAndPrimaryBytes);
+        builder.byteSizeField(Fields.COORDINATING_IN_BYTES, Fields.COORDINATING, currentCoordinatingBytes);
+        builder.byteSizeField(Fields.PRIMARY_IN_BYTES, Fields.PRIMARY, currentPrimaryBytes);
+        builder.byteSizeField(Fields.REPLICA_IN_BYTES, Fields.REPLICA, currentReplicaBytes);
+        builder.byteSizeField(Fields.ALL_IN_BYTES, Fields.ALL, currentCombinedCoordinatingAndPrimaryBytes + currentReplicaBytes);
+        builder.endObject();
+        builder.startObject(Fields.TOTAL);
+        builder.byteSizeField(Fields.COMBINED_COORDINATING_AND_PRIMARY_IN_BYTES, Fields.COMBINED_COORDINATING_AND_PRIMARY,
+            totalCombinedCoordinatingAndPrimaryBytes);
+        builder.byteSizeField(Fields.COORDINATING_IN_BYTES, Fields.COORDINATING, totalCoordinatingBytes);
+        builder.byteSizeField(Fields.PRIMARY_IN_BYTES, Fields.PRIMARY, totalPrimaryBytes);
+        builder.byteSizeField(Fields.REPLICA_IN_BYTES, Fields.REPLICA, totalReplicaBytes);
+        builder.byteSizeField(Fields.ALL_IN_BYTES, Fields.ALL, totalCombinedCoordinatingAndPrimaryBytes + totalReplicaBytes);
+        builder.field(Fields.COORDINATING_REJECTIONS, coordinatingRejections);
+        builder.field(Fields.PRIMARY_REJECTIONS, primaryRejections);
+        builder.endObject();
+        builder.byteSizeField(Fields.LIMIT_IN_BYTES, Fields.LIMIT, limit);
+        builder.endObject();
+        builder.startObject(Fields.SHARDS);
+        for (Map.Entry<ShardId, ShardStats> entry : shardStats.entrySet()) {
+            builder.startObject(entry.getKey().toString());
+            entry.getValue().toXContent(builder, params);
+            builder.endObject();
+        }
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+
+    public static class ShardStats implements Writeable<ShardStats>, ToXContent {
+
+        private final long currentPrimaryBytes;
+        private final long currentReplicaBytes;
+
+        public ShardStats(StreamInput in) throws IOException {
+            currentPrimaryBytes = in.readVLong();
+            currentReplicaBytes = in.readVLong();
+        }
+
+        public ShardStats(long currentPrimaryBytes, long currentReplicaBytes) {
+            this.currentPrimaryBytes = currentPrimaryBytes;
+            this.currentReplicaBytes = currentReplicaBytes;
+        }
+
+        public long getCurrentPrimaryBytes() {
+            return currentPrimaryBytes;
+        }
+
+        public long getCurrentReplicaBytes() {
+            return currentReplicaBytes;
+        }
+
+        @Override
+        public ShardStats readFrom(StreamInput in) throws IOException {
+            return new ShardStats(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(currentPrimaryBytes);
+            out.writeVLong(currentReplicaBytes);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject(Fields.CURRENT);
+            builder.byteSizeField(Fields.PRIMARY_IN_BYTES, Fields.PRIMARY, currentPrimaryBytes);
+            builder.byteSizeField(Fields.REPLICA_IN_BYTES, Fields.REPLICA, currentReplicaBytes);
+            builder.endObject();
+            return builder;
+        }
+    }
+
+    static final class Fields {
+        static final XContentBuilderString INDEXING_PRESSURE = new XContentBuilderString("indexing_pressure");
+        static final XContentBuilderString MEMORY = new XContentBuilderString("memory");
+        static final XContentBuilderString CURRENT = new XContentBuilderString("current");
+        static final XContentBuilderString TOTAL = new XContentBuilderString("total");
+        static final XContentBuilderString SHARDS = new XContentBuilderString("shards");
+        static final XContentBuilderString COMBINED_COORDINATING_AND_PRIMARY =
+            new XContentBuilderString("combined_coordinating_and_primary");
+        static final XContentBuilderString COMBINED_COORDINATING_AND_PRIMARY_IN_BYTES =
+            new XContentBuilderString("combined_coordinating_and_primary_in_bytes");
+        static final XContentBuilderString COORDINATING = new XContentBuilderString("coordinating");
+        static final XContentBuilderString COORDINATING_IN_BYTES = new XContentBuilderString("coordinating_in_bytes");
+        static final XContentBuilderString PRIMARY = new XContentBuilderString("primary");
+        static final XContentBuilderString PRIMARY_IN_BYTES = new XContentBuilderString("primary_in_bytes");
+        static final XContentBuilderString REPLICA = new XContentBuilderString("replica");
+        static final XContentBuilderString REPLICA_IN_BYTES = new XContentBuilderString("replica_in_bytes");
+        static final XContentBuilderString ALL = new XContentBuilderString("all");
+        static final XContentBuilderString ALL_IN_BYTES = new XContentBuilderString("all_in_bytes");
+        static final XContentBuilderString COORDINATING_REJECTIONS = new XContentBuilderString("coordinating_rejections");
+        static final XContentBuilderString PRIMARY_REJECTIONS = new XContentBuilderString("primary_rejections");
+        static final XContentBuilderString LIMIT = new XContentBuilderString("limit");
+        static final XContentBuilderString LIMIT_IN_BYTES = new XContentBuilderString("limit_in_bytes");
+    }
+}
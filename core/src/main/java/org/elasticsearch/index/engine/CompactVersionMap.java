@@ -0,0 +1,239 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.translog.Translog;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maps _uid bytes to version information without allocating objects per entry. Uids are stored in a {@link BytesRefHash} and
+ * versions, delete times and translog locations in parallel arrays indexed by the uid's id, all backed by {@link BigArrays}.
+ * <p>
+ * The map is split into stripes by uid hash, each guarded by its own lock, so that concurrent indexing threads rarely contend.
+ * Entries are never physically removed: {@link #remove(BytesRef)} only marks an entry as removed and its space is reclaimed once
+ * the whole map is closed, which is how {@link LiveVersionMap} drops maps on refresh and when tombstones expire.
+ * Once closed, lookups return <code>null</code> and updates are ignored.
+ */
+final class CompactVersionMap implements Releasable, Accountable {
+
+    // stripes are picked by the high bits of the uid hash
+    private static final int STRIPE_BITS = 4;
+    private static final int NUM_STRIPES = 1 << STRIPE_BITS;
+    private static final int INITIAL_CAPACITY = 8;
+
+    // marks the version of an entry that has been removed
+    private static final long REMOVED = Versions.NOT_FOUND;
+    // marks the time of entries that aren't deletes, and the translog generation of entries without a translog location
+    private static final long UNSET = -1;
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(CompactVersionMap.class)
+        + RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + NUM_STRIPES * RamUsageEstimator.NUM_BYTES_OBJECT_REF)
+        + NUM_STRIPES * RamUsageEstimator.shallowSizeOfInstance(Stripe.class);
+
+    private final BigArrays bigArrays;
+    private final Stripe[] stripes;
+    private final AtomicLong ramBytesUsed = new AtomicLong();
+    private final AtomicLong size = new AtomicLong();
+
+    CompactVersionMap(BigArrays bigArrays) {
+        this.bigArrays = bigArrays;
+        this.stripes = new Stripe[NUM_STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private Stripe stripe(int hash) {
+        // BytesRefHash picks slots by the low bits of the mixed hash, so we use the high bits here to keep slots within a stripe spread
+        return stripes[BitMixer.mix32(hash) >>> (Integer.SIZE - STRIPE_BITS)];
+    }
+
+    /** Returns the version information for this uid, or <code>null</code> if there is none. */
+    VersionValue get(BytesRef uid) {
+        final int hash = uid.hashCode();
+        return stripe(hash).get(uid, hash);
+    }
+
+    /** Associates the given version information with this uid and returns the previous one, if any. */
+    VersionValue put(BytesRef uid, VersionValue value) {
+        final int hash = uid.hashCode();
+        return stripe(hash).put(uid, hash, value);
+    }
+
+    /** Removes the version information for this uid and returns it, if any. */
+    VersionValue remove(BytesRef uid) {
+        final int hash = uid.hashCode();
+        return stripe(hash).remove(uid, hash);
+    }
+
+    /** Returns the number of uids that have version information in this map. */
+    long size() {
+        return size.get();
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + ramBytesUsed.get();
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void close() {
+        for (Stripe stripe : stripes) {
+            stripe.close();
+        }
+    }
+
+    private final class Stripe {
+
+        // all arrays are allocated on the first put, and released on close
+        private BytesRefHash uids;
+        private LongArray versions;
+        private LongArray times;
+        private LongArray translogGenerations;
+        private LongArray translogLocations;
+        private IntArray translogSizes;
+        private long arraysBytesUsed;
+        private long liveEntries;
+        private boolean closed;
+
+        synchronized VersionValue get(BytesRef uid, int hash) {
+            if (uids == null) {
+                return null;
+            }
+            final long id = uids.find(uid, hash);
+            return id < 0 ? null : valueAt(id);
+        }
+
+        synchronized VersionValue put(BytesRef uid, int hash, VersionValue value) {
+            if (closed) {
+                return null;
+            }
+            if (uids == null) {
+                uids = new BytesRefHash(INITIAL_CAPACITY, bigArrays);
+                versions = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                times = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                translogGenerations = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                translogLocations = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                translogSizes = bigArrays.newIntArray(INITIAL_CAPACITY, false);
+            }
+            long id = uids.add(uid, hash);
+            final VersionValue prev;
+            if (id < 0) {
+                id = -1 - id;
+                prev = valueAt(id);
+            } else {
+                prev = null;
+                versions = bigArrays.grow(versions, id + 1);
+                times = bigArrays.grow(times, id + 1);
+                translogGenerations = bigArrays.grow(translogGenerations, id + 1);
+                translogLocations = bigArrays.grow(translogLocations, id + 1);
+                translogSizes = bigArrays.grow(translogSizes, id + 1);
+            }
+            versions.set(id, value.version());
+            times.set(id, value.delete() ? value.time() : UNSET);
+            final Translog.Location location = value.translogLocation();
+            if (location == null) {
+                translogGenerations.set(id, UNSET);
+            } else {
+                translogGenerations.set(id, location.generation);
+                translogLocations.set(id, location.translogLocation);
+                translogSizes.set(id, location.size);
+            }
+            if (prev == null) {
+                liveEntries++;
+                size.incrementAndGet();
+            }
+            updateRamBytesUsed();
+            return prev;
+        }
+
+        synchronized VersionValue remove(BytesRef uid, int hash) {
+            if (uids == null) {
+                return null;
+            }
+            final long id = uids.find(uid, hash);
+            if (id < 0) {
+                return null;
+            }
+            final VersionValue prev = valueAt(id);
+            if (prev != null) {
+                versions.set(id, REMOVED);
+                liveEntries--;
+                size.decrementAndGet();
+            }
+            return prev;
+        }
+
+        private VersionValue valueAt(long id) {
+            final long version = versions.get(id);
+            if (version == REMOVED) {
+                return null;
+            }
+            final long generation = translogGenerations.get(id);
+            final Translog.Location location = generation == UNSET ? null
+                : new Translog.Location(generation, translogLocations.get(id), translogSizes.get(id));
+            final long time = times.get(id);
+            return time == UNSET ? new VersionValue(version, location) : new DeleteVersionValue(version, time, location);
+        }
+
+        private void updateRamBytesUsed() {
+            final long bytes = uids.ramBytesUsed() + versions.ramBytesUsed() + times.ramBytesUsed()
+                + translogGenerations.ramBytesUsed() + translogLocations.ramBytesUsed() + translogSizes.ramBytesUsed();
+            ramBytesUsed.addAndGet(bytes - arraysBytesUsed);
+            arraysBytesUsed = bytes;
+        }
+
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (uids != null) {
+                size.addAndGet(-liveEntries);
+                liveEntries = 0;
+                Releasables.close(uids, versions, times, translogGenerations, translogLocations, translogSizes);
+                uids = null;
+                versions = times = translogGenerations = translogLocations = null;
+                translogSizes = null;
+                ramBytesUsed.addAndGet(-arraysBytesUsed);
+                arraysBytesUsed = 0;
+            }
+        }
+    }
+}
@@ -66,6 +66,7 @@ public final class EngineConfig {
     private final Engine.EventListener eventListener;
     private final QueryCache queryCache;
     private final QueryCachingPolicy queryCachingPolicy;
+    private final boolean optimizeAutoGeneratedIds;
 
     /**
      * Index setting to change the low level lucene codec used for writing new segments.
@@ -88,6 +89,13 @@ public final class EngineConfig {
         }
     }, Property.IndexScope, Property.NodeScope);
 
+    /**
+     * Configures an index to optimize documents with auto generated ids for append only.
+     * This setting is <b>not</b> realtime updateable.
+     */
+    public static final Setting<Boolean> INDEX_OPTIMIZE_AUTO_GENERATED_IDS = Setting.boolSetting("index.optimize_auto_generated_id", true,
+        Property.IndexScope);
+
     private TranslogConfig translogConfig;
     private final OpenMode openMode;
 
@@ -115,6 +123,7 @@ public final class EngineConfig {
         this.codecService = codecService;
         this.eventListener = eventListener;
         codecName = indexSettings.getValue(INDEX_CODEC_SETTING);
+        optimizeAutoGeneratedIds = indexSettings.getValue(INDEX_OPTIMIZE_AUTO_GENERATED_IDS);
         // We give IndexWriter a "huge" (256 MB) buffer, so it won't flush on its own unless the ES indexing buffer is also huge and/or
         // there are not too many shards allocated to this node.  Instead, IndexingMemoryController periodically checks
         // and refreshes the most heap-consuming shards when total indexing heap usage across all shards is too high:
@@ -158,6 +167,17 @@ public final class EngineConfig {
         return enableGcDeletes;
     }
 
+    /**
+     * Returns <code>true</code> iff documents with auto-generated IDs are optimized for append only. The engine then skips the
+     * version lookup and the version map for these documents, and adds them to the index directly.
+     * <p>
+     *     Note: this settings is only read on startup.
+     * </p>
+     */
+    public boolean isAutoGeneratedIDsOptimizationEnabled() {
+        return optimizeAutoGeneratedIds;
+    }
+
     /**
      * Returns the {@link Codec} used in the engines {@link org.apache.lucene.index.IndexWriter}
      * <p>
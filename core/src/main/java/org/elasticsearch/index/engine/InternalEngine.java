@@ -30,10 +30,12 @@ import org.apache.lucene.index.LiveIndexWriterConfig;
 import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.SegmentCommitInfo;
 import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SortingMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.LockObtainFailedException;
@@ -41,6 +43,7 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InfoStream;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.cluster.routing.Murmur3HashFunction;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasable;
@@ -50,6 +53,7 @@ import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
 import org.elasticsearch.index.IndexSettings;
@@ -72,6 +76,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
@@ -80,6 +85,8 @@ import java.util.function.Function;
  *
  */
 public class InternalEngine extends Engine {
+    static final String MAX_UNSAFE_AUTO_ID_TIMESTAMP_COMMIT_ID = "max_unsafe_auto_id_timestamp";
+
     /**
      * When we last pruned expired tombstones from versionMap.deletes:
      */
@@ -101,6 +108,7 @@ public class InternalEngine extends Engine {
     private final LiveVersionMap versionMap;
 
     private final Object[] dirtyLocks;
+    private final Object unsafeRefreshMutex = new Object();
 
     private final AtomicBoolean versionMapRefreshPending = new AtomicBoolean();
 
@@ -114,11 +122,16 @@ public class InternalEngine extends Engine {
     private final AtomicInteger throttleRequestCount = new AtomicInteger();
     private final EngineConfig.OpenMode openMode;
     private final AtomicBoolean allowCommits = new AtomicBoolean(true);
+    // the highest auto-generated ID timestamp of all retried append-only operations; an append-only operation with a timestamp
+    // less than or equal to this value might have already been indexed and must not be added blindly
+    private final AtomicLong maxUnsafeAutoIdTimestamp = new AtomicLong(-1);
+    private final boolean optimizeAutoGeneratedIds;
 
     public InternalEngine(EngineConfig engineConfig) throws EngineException {
         super(engineConfig);
         openMode = engineConfig.getOpenMode();
-        this.versionMap = new LiveVersionMap();
+        optimizeAutoGeneratedIds = engineConfig.isAutoGeneratedIDsOptimizationEnabled();
+        this.versionMap = new LiveVersionMap(BigArrays.NON_RECYCLING_INSTANCE);
         store.incRef();
         IndexWriter writer = null;
         Translog translog = null;
@@ -137,6 +150,7 @@ public class InternalEngine extends Engine {
             try {
                 writer = createWriter(openMode == EngineConfig.OpenMode.CREATE_INDEX_AND_TRANSLOG);
                 indexWriter = writer;
+                updateMaxUnsafeAutoIdTimestampFromWriter(writer);
                 translog = openTranslog(engineConfig, writer);
                 assert translog.getGeneration() != null;
             } catch (IOException | TranslogCorruptedException e) {
@@ -174,14 +188,18 @@ public class InternalEngine extends Engine {
     @Override
     public InternalEngine recoverFromTranslog() throws IOException {
         flushLock.lock();
-        try (ReleasableLock lock = readLock.acquire()) {
-            ensureOpen();
-            if (openMode != EngineConfig.OpenMode.OPEN_INDEX_AND_TRANSLOG) {
-                throw new IllegalStateException("Can't recover from translog with open mode: " + openMode);
-            }
-            if (allowCommits.get()) {
-                throw new IllegalStateException("Engine has already been recovered");
+        try {
+            try (ReleasableLock lock = readLock.acquire()) {
+                ensureOpen();
+                if (openMode != EngineConfig.OpenMode.OPEN_INDEX_AND_TRANSLOG) {
+                    throw new IllegalStateException("Can't recover from translog with open mode: " + openMode);
+                }
+                if (allowCommits.get()) {
+                    throw new IllegalStateException("Engine has already been recovered");
+                }
             }
+            // the read lock is not held while replaying: every operation acquires it on its own, possibly on one of several
+            // replay threads, which would otherwise deadlock with a concurrent close waiting for the write lock
             try {
                 recoverFromTranslog(engineConfig.getTranslogRecoveryPerformer());
             } catch (Throwable t) {
@@ -213,10 +231,24 @@ public class InternalEngine extends Engine {
                 opsRecovered, translogGeneration == null ? null : translogGeneration.translogFileGeneration, translog.currentFileGeneration());
             flush(true, true);
         } else if (translog.isCurrent(translogGeneration) == false) {
-            commitIndexWriter(indexWriter, translog, lastCommittedSegmentInfos.getUserData().get(Engine.SYNC_COMMIT_ID));
+            try (ReleasableLock lock = readLock.acquire()) {
+                ensureOpen();
+                commitIndexWriter(indexWriter, translog, lastCommittedSegmentInfos.getUserData().get(Engine.SYNC_COMMIT_ID));
+            }
         }
     }
 
+    private void updateMaxUnsafeAutoIdTimestampFromWriter(IndexWriter writer) {
+        long commitMaxUnsafeAutoIdTimestamp = Long.MIN_VALUE;
+        for (Map.Entry<String, String> entry : writer.getCommitData().entrySet()) {
+            if (entry.getKey().equals(MAX_UNSAFE_AUTO_ID_TIMESTAMP_COMMIT_ID)) {
+                commitMaxUnsafeAutoIdTimestamp = Long.parseLong(entry.getValue());
+                break;
+            }
+        }
+        updateMaxUnsafeAutoIdTimestamp(commitMaxUnsafeAutoIdTimestamp);
+    }
+
     private Translog openTranslog(EngineConfig engineConfig, IndexWriter writer) throws IOException {
         final TranslogConfig translogConfig = engineConfig.getTranslogConfig();
         Translog.TranslogGeneration generation = null;
@@ -313,7 +345,12 @@ public class InternalEngine extends Engine {
         try (ReleasableLock lock = readLock.acquire()) {
             ensureOpen();
             if (get.realtime()) {
+                versionMap.enforceSafeAccess();
                 VersionValue versionValue = versionMap.getUnderLock(get.uid().bytes());
+                if (versionValue == null && versionMap.isUnsafe()) {
+                    // the document might have been added via the append-only path, make it visible to the searcher
+                    refresh("realtime_get");
+                }
                 if (versionValue != null) {
                     if (versionValue.delete()) {
                         return GetResult.NOT_EXISTS;
@@ -355,12 +392,46 @@ public class InternalEngine extends Engine {
         return created;
     }
 
+    /**
+     * Returns <code>true</code> iff the given index operation carries an auto-generated ID and can therefore skip the version lookup
+     * and the version map. Operations replayed from a translog are always marked as retries and so never blindly added.
+     */
+    private boolean canOptimizeAddDocument(Index index) {
+        if (optimizeAutoGeneratedIds && index.getAutoGeneratedIdTimestamp() != IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP) {
+            assert index.getAutoGeneratedIdTimestamp() >= 0 : "autoGeneratedIdTimestamp must be positive but was: "
+                + index.getAutoGeneratedIdTimestamp();
+            assert index.origin() != Operation.Origin.RECOVERY || index.isRetry() : "recovery operations must be marked as retry";
+            return true;
+        }
+        return false;
+    }
+
     private boolean innerIndex(Index index) throws IOException {
+        if (canOptimizeAddDocument(index)) {
+            final boolean forceUpdateDocument;
+            if (index.isRetry()) {
+                // this request might have been indexed before, make sure all subsequent non-retried operations with a lower or
+                // equal timestamp take the safe path as well since they might race with us
+                updateMaxUnsafeAutoIdTimestamp(index.getAutoGeneratedIdTimestamp());
+                forceUpdateDocument = true;
+            } else {
+                // a retry of this document might have been processed already, in that case we must not add a duplicate
+                forceUpdateDocument = maxUnsafeAutoIdTimestamp.get() >= index.getAutoGeneratedIdTimestamp();
+            }
+            // other operations look up versions, so the document has to go to the version map under its lock as well
+            final boolean addToVersionMap = versionMap.isSafeAccessRequired();
+            if (forceUpdateDocument || addToVersionMap) {
+                synchronized (dirtyLock(index.uid())) {
+                    return innerAppendOnly(index, forceUpdateDocument, addToVersionMap);
+                }
+            }
+            return innerAppendOnly(index, false, false);
+        }
         synchronized (dirtyLock(index.uid())) {
             lastWriteNanos = index.startTime();
             final long currentVersion;
             final boolean deleted;
-            VersionValue versionValue = versionMap.getUnderLock(index.uid().bytes());
+            VersionValue versionValue = getVersionFromMap(index.uid().bytes());
             if (versionValue == null) {
                 currentVersion = loadCurrentVersionFromIndex(index.uid());
                 deleted = currentVersion == Versions.NOT_FOUND;
@@ -401,6 +472,65 @@ public class InternalEngine extends Engine {
         }
     }
 
+    /**
+     * Indexes a document with an auto-generated ID without looking up its current version. Since nobody can know the ID before we
+     * return, the document can't exist unless this operation was delivered more than once, in which case
+     * <code>forceUpdateDocument</code> must be set to replace any previous copy. The document is only added to the version map if
+     * <code>addToVersionMap</code> is set, in which case the caller must hold the uid's dirty lock.
+     */
+    private boolean innerAppendOnly(Index index, boolean forceUpdateDocument, boolean addToVersionMap) throws IOException {
+        lastWriteNanos = index.startTime();
+        index.updateVersion(index.versionType().updateVersion(Versions.NOT_FOUND, index.version()));
+        if (forceUpdateDocument) {
+            update(index, null, indexWriter);
+        } else {
+            index(index, indexWriter);
+        }
+        if (addToVersionMap == false) {
+            // the document is not in the version map, lookups must not trust the current searcher until the next refresh
+            versionMap.markUnsafe();
+        }
+        Translog.Location translogLocation = translog.add(new Translog.Index(index));
+        if (addToVersionMap) {
+            versionMap.putUnderLock(index.uid().bytes(), new VersionValue(index.version(), translogLocation));
+        }
+        index.setTranslogLocation(translogLocation);
+        return true;
+    }
+
+    private void updateMaxUnsafeAutoIdTimestamp(long newTimestamp) {
+        long current;
+        do {
+            current = maxUnsafeAutoIdTimestamp.get();
+            if (current >= newTimestamp) {
+                break;
+            }
+        } while (maxUnsafeAutoIdTimestamp.compareAndSet(current, newTimestamp) == false);
+        assert maxUnsafeAutoIdTimestamp.get() >= newTimestamp;
+    }
+
+    /**
+     * Returns the live version of the given uid from the version map. If documents were added without a version map entry since the
+     * last refresh, a miss forces a refresh such that a subsequent lookup in the index sees these documents. This switches the version
+     * map to safe access, so that documents with auto-generated IDs are added to it from then on and later misses don't have to
+     * refresh again. Caller must hold the uid's dirty lock.
+     */
+    private VersionValue getVersionFromMap(BytesRef uid) throws IOException {
+        versionMap.enforceSafeAccess();
+        final VersionValue versionValue = versionMap.getUnderLock(uid);
+        if (versionValue == null && versionMap.isUnsafe()) {
+            // only the first of concurrent misses needs to refresh, the others see the map as safe once it is done.  This must not
+            // synchronize on the version map since its refresh listener does.
+            synchronized (unsafeRefreshMutex) {
+                if (versionMap.isUnsafe()) {
+                    // we don't go through refresh(String) here since it might prune tombstones which acquires other dirty locks
+                    searcherManager.maybeRefreshBlocking();
+                }
+            }
+        }
+        return versionValue;
+    }
+
     private static boolean update(Index index, VersionValue versionValue, IndexWriter indexWriter) throws IOException {
         boolean created;
         if (versionValue != null) {
@@ -443,8 +573,8 @@ public class InternalEngine extends Engine {
     }
 
     private void maybePruneDeletedTombstones() {
-        // It's expensive to prune because we walk the deletes map acquiring dirtyLock for each uid so we only do it
-        // every 1/4 of gcDeletesInMillis:
+        // Tombstones are pruned a whole time bucket at a time, and buckets are a 1/4 of gcDeletesInMillis wide, so there is no point
+        // in pruning more often than that:
         if (engineConfig.isEnableGcDeletes() && engineConfig.getThreadPool().estimatedTimeInMillis() - lastDeleteVersionPruneTimeMSec > getGcDeletesInMillis() * 0.25) {
             pruneDeletedTombstones();
         }
@@ -455,7 +585,7 @@ public class InternalEngine extends Engine {
             lastWriteNanos = delete.startTime();
             final long currentVersion;
             final boolean deleted;
-            VersionValue versionValue = versionMap.getUnderLock(delete.uid().bytes());
+            VersionValue versionValue = getVersionFromMap(delete.uid().bytes());
             if (versionValue == null) {
                 currentVersion = loadCurrentVersionFromIndex(delete.uid());
                 deleted = currentVersion == Versions.NOT_FOUND;
@@ -702,24 +832,8 @@ public class InternalEngine extends Engine {
 
     private void pruneDeletedTombstones() {
         long timeMSec = engineConfig.getThreadPool().estimatedTimeInMillis();
-
-        // TODO: not good that we reach into LiveVersionMap here; can we move this inside VersionMap instead?  problem is the dirtyLock...
-
         // we only need to prune the deletes map; the current/old version maps are cleared on refresh:
-        for (Map.Entry<BytesRef, VersionValue> entry : versionMap.getAllTombstones()) {
-            BytesRef uid = entry.getKey();
-            synchronized (dirtyLock(uid)) { // can we do it without this lock on each value? maybe batch to a set and get the lock once per set?
-
-                // Must re-get it here, vs using entry.getValue(), in case the uid was indexed/deleted since we pulled the iterator:
-                VersionValue versionValue = versionMap.getTombstoneUnderLock(uid);
-                if (versionValue != null) {
-                    if (timeMSec - versionValue.time() > getGcDeletesInMillis()) {
-                        versionMap.removeTombstoneUnderLock(uid);
-                    }
-                }
-            }
-        }
-
+        versionMap.pruneTombstones(timeMSec, getGcDeletesInMillis());
         lastDeleteVersionPruneTimeMSec = timeMSec;
     }
 
@@ -835,6 +949,7 @@ public class InternalEngine extends Engine {
     @Override
     protected final void writerSegmentStats(SegmentsStats stats) {
         stats.addVersionMapMemoryInBytes(versionMap.ramBytesUsed());
+        stats.addVersionMapEntries(versionMap.size());
         stats.addIndexWriterMemoryInBytes(indexWriter.ramBytesUsed());
         stats.addIndexWriterMaxMemoryInBytes((long) (indexWriter.getConfig().getRAMBufferSizeMB() * 1024 * 1024));
     }
@@ -938,6 +1053,11 @@ public class InternalEngine extends Engine {
             iwc.setInfoStream(verbose ? InfoStream.getDefault() : new LoggerInfoStream(logger));
             iwc.setMergeScheduler(mergeScheduler);
             MergePolicy mergePolicy = config().getMergePolicy();
+            final Sort indexSort = engineConfig.getIndexSettings().getIndexSort();
+            if (indexSort != null) {
+                // keep merged segments sorted so that searches sorting the same way can terminate early
+                mergePolicy = new SortingMergePolicy(mergePolicy, indexSort);
+            }
             // Give us the opportunity to upgrade old segments while performing
             // background merges
             mergePolicy = new ElasticsearchMergePolicy(mergePolicy);
@@ -1104,6 +1224,7 @@ public class InternalEngine extends Engine {
             if (syncId != null) {
                 commitData.put(Engine.SYNC_COMMIT_ID, syncId);
             }
+            commitData.put(MAX_UNSAFE_AUTO_ID_TIMESTAMP_COMMIT_ID, Long.toString(maxUnsafeAutoIdTimestamp.get()));
             indexWriter.setCommitData(commitData);
             writer.commit();
         } catch (Throwable ex) {
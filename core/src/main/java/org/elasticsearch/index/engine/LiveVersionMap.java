@@ -22,69 +22,105 @@ package org.elasticsearch.index.engine;
 import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.BytesRef;
-import org.apache.lucene.util.RamUsageEstimator;
-import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.ReleasableLock;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /** Maps _uid value to its version information. */
 class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
-    private static class Maps {
+    private class Maps {
 
         // All writes (adds and deletes) go into here:
-        final Map<BytesRef,VersionValue> current;
+        final CompactVersionMap current;
 
         // Used while refresh is running, and to hold adds/deletes until refresh finishes.  We read from both current and old on lookup:
-        final Map<BytesRef,VersionValue> old;
-      
-        public Maps(Map<BytesRef,VersionValue> current, Map<BytesRef,VersionValue> old) {
+        final CompactVersionMap old;
+
+        public Maps(CompactVersionMap current, CompactVersionMap old) {
            this.current = current;
            this.old = old;
         }
 
         public Maps() {
-            this(ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency(),
-                 ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency());
+            this(new CompactVersionMap(bigArrays), new CompactVersionMap(bigArrays));
         }
     }
 
-    // All deletes also go here, and delete "tombstones" are retained after refresh:
-    private final Map<BytesRef,VersionValue> tombstones = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+    /** Holds the tombstones of deletes that happened within a time slot. A bucket is dropped as a whole once all its tombstones
+     *  have expired, so we never have to walk individual tombstones to prune them. */
+    private static class TombstoneBucket {
+
+        final CompactVersionMap tombstones;
+
+        // the time slot of this bucket, in units of the bucket interval it was created with
+        final long slot;
+
+        final AtomicLong maxTimeMSec;
+
+        TombstoneBucket(CompactVersionMap tombstones, long slot, long timeMSec) {
+            this.tombstones = tombstones;
+            this.slot = slot;
+            this.maxTimeMSec = new AtomicLong(timeMSec);
+        }
+    }
+
+    /** Number of buckets tombstones are spread across within one index.gc_deletes window. */
+    static final int TOMBSTONE_BUCKETS_PER_GC_DELETES = 4;
+
+    /** Number of time slots in the ring of tombstone buckets. A bucket is only expired once all its deletes are older than
+     *  index.gc_deletes, which takes {@link #TOMBSTONE_BUCKETS_PER_GC_DELETES} + 1 slots, plus the slot that is being filled. */
+    static final int TOMBSTONE_SLOTS = TOMBSTONE_BUCKETS_PER_GC_DELETES + 2;
 
-    private volatile Maps maps = new Maps();
+    /** Width of a tombstone bucket until the first prune tells us the actual index.gc_deletes: a quarter of its default of 60s */
+    private static final long DEFAULT_TOMBSTONE_BUCKET_INTERVAL_MSEC = 15000;
+
+    private final BigArrays bigArrays;
+
+    // All deletes also go here, and delete "tombstones" are retained after refresh.  The bucket of a delete is at the index of its
+    // time slot in this ring, so finding it never depends on the number of buckets.  Buckets that had to make room in the ring, or
+    // that were created with another bucket interval, are retired until they expire.  Adding to the buckets holds the read lock,
+    // adding a bucket also holds the mutex, pruning holds the write lock, and lookups read the arrays without locking:
+    private volatile TombstoneBucket[] tombstoneRing = new TombstoneBucket[TOMBSTONE_SLOTS];
+    private volatile TombstoneBucket[] retiredTombstones = new TombstoneBucket[0];
+    private final Object tombstoneBucketsMutex = new Object();
+    private final ReentrantReadWriteLock tombstonesLock = new ReentrantReadWriteLock();
+    private final ReleasableLock tombstonesReadLock = new ReleasableLock(tombstonesLock.readLock());
+    private final ReleasableLock tombstonesWriteLock = new ReleasableLock(tombstonesLock.writeLock());
+    private volatile long tombstoneBucketIntervalMSec = DEFAULT_TOMBSTONE_BUCKET_INTERVAL_MSEC;
+
+    private volatile Maps maps;
 
     private ReferenceManager mgr;
 
-    /** Bytes consumed for each BytesRef UID:
-     *
-     *  NUM_BYTES_OBJECT_HEADER + 2*NUM_BYTES_INT + NUM_BYTES_OBJECT_REF + NUM_BYTES_ARRAY_HEADER [ + bytes.length] */
-    private static final int BASE_BYTES_PER_BYTESREF = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER +
-        2*Integer.BYTES +
-        RamUsageEstimator.NUM_BYTES_OBJECT_REF + 
-        RamUsageEstimator.NUM_BYTES_ARRAY_HEADER;
-
-    /** Bytes used by having CHM point to a key/value:
-     *
-     *  CHM.Entry:
-     *     + NUM_BYTES_OBJECT_HEADER + 3*NUM_BYTES_OBJECT_REF + NUM_BYTES_INT
-     *
-     *  CHM's pointer to CHM.Entry, double for approx load factor:
-     *     + 2*NUM_BYTES_OBJECT_REF */
-    private static final int BASE_BYTES_PER_CHM_ENTRY = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER +
-        Integer.BYTES +
-        5*RamUsageEstimator.NUM_BYTES_OBJECT_REF;
-
-    /** Tracks bytes used by current map, i.e. what is freed on refresh. For deletes, which are also added to tombstones, we only account
-     *  for the CHM entry here, and account for BytesRef/VersionValue against the tombstones, since refresh would not clear this RAM. */
-    final AtomicLong ramBytesUsedCurrent = new AtomicLong();
-
-    /** Tracks bytes used by tombstones (deletes) */
-    final AtomicLong ramBytesUsedTombstones = new AtomicLong();
+    // Set once this map is cleared on close, after which it must not allocate new maps or buckets:
+    private volatile boolean closed;
+
+    // true if documents were added without going through this map, i.e. append-only documents with auto-generated IDs.  A lookup that
+    // misses this map can't rely on the current searcher until these documents are visible.  Like the maps above we keep the flag of the
+    // ongoing refresh around until the refresh finishes:
+    private volatile boolean unsafe;
+    private volatile boolean oldUnsafe;
+
+    // true while documents with auto-generated IDs must be added to this map as well, because other operations look up versions.  It
+    // stays on until a whole refresh cycle went by without such a lookup, so that mixed workloads don't refresh on every lookup:
+    private volatile boolean safeAccess;
+    private volatile boolean safeAccessRequested;
+
+    LiveVersionMap(BigArrays bigArrays) {
+        this.bigArrays = bigArrays;
+        this.maps = new Maps();
+    }
 
     /** Sync'd because we replace old mgr. */
     synchronized void setManager(ReferenceManager newMgr) {
@@ -95,34 +131,79 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
         // In case InternalEngine closes & opens a new IndexWriter/SearcherManager, all deletes are made visible, so we clear old and
         // current here.  This is safe because caller holds writeLock here (so no concurrent adds/deletes can be happeninge):
+        final Maps prevMaps = maps;
         maps = new Maps();
+        Releasables.close(prevMaps.current, prevMaps.old);
 
         // So we are notified when reopen starts and finishes
         mgr.addListener(this);
     }
 
     @Override
-    public void beforeRefresh() throws IOException {
+    public synchronized void beforeRefresh() throws IOException {
+        if (closed) {
+            return;
+        }
         // Start sending all updates after this point to the new
         // map.  While reopen is running, any lookup will first
         // try this new map, then fallback to old, then to the
         // current searcher:
-        maps = new Maps(ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency(), maps.current);
-
-        // This is not 100% correct, since concurrent indexing ops can change these counters in between our execution of the previous
-        // line and this one, but that should be minor, and the error won't accumulate over time:
-        ramBytesUsedCurrent.set(0);
+        final Maps prevMaps = maps;
+        maps = new Maps(new CompactVersionMap(bigArrays), prevMaps.current);
+        prevMaps.old.close();
+
+        // The reader we are about to open contains all documents that were added without an entry in this map so far.  Documents that are
+        // marked concurrently will set the flag again after their addition, which keeps us on the safe side:
+        oldUnsafe = unsafe;
+        unsafe = false;
+        safeAccess = safeAccessRequested;
+        safeAccessRequested = false;
     }
 
     @Override
-    public void afterRefresh(boolean didRefresh) throws IOException {
+    public synchronized void afterRefresh(boolean didRefresh) throws IOException {
+        if (closed) {
+            return;
+        }
         // We can now drop old because these operations are now visible via the newly opened searcher.  Even if didRefresh is false, which
         // means Lucene did not actually open a new reader because it detected no changes, it's possible old has some entries in it, which
         // is fine: it means they were actually already included in the previously opened reader, so we can still safely drop them in that
         // case.  This is because we assign new maps (in beforeRefresh) slightly before Lucene actually flushes any segments for the
         // reopen, and so any concurrent indexing requests can still sneak in a few additions to that current map that are in fact reflected
-        // in the previous reader.   We don't touch tombstones here: they expire on their own index.gc_deletes timeframe:
-        maps = new Maps(maps.current, ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency());
+        // in the previous reader.   We don't touch tombstones here: they expire on their own index.gc_deletes timeframe.  Closing old
+        // releases its pages; a concurrent lookup that still holds on to it just misses and falls back to the new searcher:
+        final Maps prevMaps = maps;
+        maps = new Maps(prevMaps.current, new CompactVersionMap(bigArrays));
+        prevMaps.old.close();
+        oldUnsafe = false;
+    }
+
+    /** Marks this map as not containing all documents added since the last refresh. Must be called after the document was added
+     *  to the {@link org.apache.lucene.index.IndexWriter}. */
+    void markUnsafe() {
+        unsafe = true;
+    }
+
+    /** Returns <code>true</code> if documents were added since the last refresh that are not tracked by this map. */
+    boolean isUnsafe() {
+        return unsafe || oldUnsafe;
+    }
+
+    /** Requires documents with auto-generated IDs to be added to this map until a refresh cycle goes by without this being called
+     *  again. Must be called before looking up a version. */
+    void enforceSafeAccess() {
+        if (safeAccessRequested == false) {
+            // sync'd with beforeRefresh, which must not reset the flags concurrently
+            synchronized (this) {
+                safeAccessRequested = true;
+                safeAccess = true;
+            }
+        }
+    }
+
+    /** Returns <code>true</code> if documents with auto-generated IDs must be added to this map rather than marking it unsafe. */
+    boolean isSafeAccessRequired() {
+        return safeAccess;
     }
 
     /** Returns the live version (add or delete) for this uid. */
@@ -140,98 +221,177 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
             return value;
         }
 
-        return tombstones.get(uid);
+        return getTombstoneUnderLock(uid);
     }
 
     /** Adds this uid/version to the pending adds map. */
     void putUnderLock(BytesRef uid, VersionValue version) {
-
-        long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
-
-        final VersionValue prev = maps.current.put(uid, version);
-        if (prev != null) {
-            // Deduct RAM for the version we just replaced:
-            long prevBytes = BASE_BYTES_PER_CHM_ENTRY;
-            if (prev.delete() == false) {
-                prevBytes += prev.ramBytesUsed() + uidRAMBytesUsed;
+        final Maps currentMaps = maps;
+        VersionValue previous = currentMaps.current.put(uid, version);
+        if (previous == null) {
+            previous = currentMaps.old.get(uid);
+        }
+        try (ReleasableLock lock = tombstonesReadLock.acquire()) {
+            if (closed) {
+                return;
+            }
+            // Whether the uid was deleted again or came back to life, its previous tombstone is stale now.  If the uid is still live,
+            // its last delete tells which bucket has that tombstone, and if it was last added, it has no tombstone:
+            if (previous == null) {
+                removeTombstone(uid);
+            } else if (previous.delete()) {
+                removeTombstone(uid, previous.time());
+            }
+            if (version.delete()) {
+                // Also enroll the delete into tombstones:
+                final TombstoneBucket bucket = tombstoneBucketFor(version.time());
+                bucket.maxTimeMSec.accumulateAndGet(version.time(), Math::max);
+                bucket.tombstones.put(uid, version);
             }
-            ramBytesUsedCurrent.addAndGet(-prevBytes);
         }
+    }
+
+    private static int ringIndex(long slot) {
+        return (int) Math.floorMod(slot, (long) TOMBSTONE_SLOTS);
+    }
 
-        // Add RAM for the new version:
-        long newBytes = BASE_BYTES_PER_CHM_ENTRY;
-        if (version.delete() == false) {
-            newBytes += version.ramBytesUsed() + uidRAMBytesUsed;
+    /** Returns the bucket of the time slot of the given time, or a newer bucket that took its place in the ring, or adds a new
+     *  bucket for this slot.  Caller must hold the read lock. */
+    private TombstoneBucket tombstoneBucketFor(long timeMSec) {
+        final long slot = Math.floorDiv(timeMSec, tombstoneBucketIntervalMSec);
+        final int index = ringIndex(slot);
+        TombstoneBucket bucket = tombstoneRing[index];
+        // deletes don't always come in time order, a late one may be kept a bit longer than needed in the bucket of a newer slot:
+        if (bucket != null && bucket.slot >= slot) {
+            return bucket;
         }
-        ramBytesUsedCurrent.addAndGet(newBytes);
-
-        final VersionValue prevTombstone;
-        if (version.delete()) {
-            // Also enroll the delete into tombstones, and account for its RAM too:
-            prevTombstone = tombstones.put(uid, version);
-
-            // We initially account for BytesRef/VersionValue RAM for a delete against the tombstones, because this RAM will not be freed up
-            // on refresh. Later, in removeTombstoneUnderLock, if we clear the tombstone entry but the delete remains in current, we shift
-            // the accounting to current:
-            ramBytesUsedTombstones.addAndGet(BASE_BYTES_PER_CHM_ENTRY + version.ramBytesUsed() + uidRAMBytesUsed);
-
-            if (prevTombstone == null && prev != null && prev.delete()) {
-                // If prev was a delete that had already been removed from tombstones, then current was already accounting for the
-                // BytesRef/VersionValue RAM, so we now deduct that as well:
-                ramBytesUsedCurrent.addAndGet(-(prev.ramBytesUsed() + uidRAMBytesUsed));
+        synchronized (tombstoneBucketsMutex) {
+            // re-check, another thread might have added a bucket in the meantime:
+            final TombstoneBucket[] ring = tombstoneRing;
+            bucket = ring[index];
+            if (bucket != null && bucket.slot >= slot) {
+                return bucket;
             }
-        } else {
-            // UID came back to life so we remove the tombstone:
-            prevTombstone = tombstones.remove(uid);
+            if (bucket != null) {
+                // the bucket of this index is a full ring older, so it normally expired already, otherwise pruning drops it later:
+                final TombstoneBucket[] retired = Arrays.copyOf(retiredTombstones, retiredTombstones.length + 1);
+                retired[retired.length - 1] = bucket;
+                retiredTombstones = retired;
+            }
+            final TombstoneBucket[] newRing = ring.clone();
+            newRing[index] = new TombstoneBucket(new CompactVersionMap(bigArrays), slot, timeMSec);
+            tombstoneRing = newRing;
+            return newRing[index];
         }
+    }
 
-        // Deduct tombstones bytes used for the version we just removed or replaced:
-        if (prevTombstone != null) {
-            long v = ramBytesUsedTombstones.addAndGet(-(BASE_BYTES_PER_CHM_ENTRY + prevTombstone.ramBytesUsed() + uidRAMBytesUsed));
-            assert v >= 0: "bytes=" + v;
+    /** Removes the tombstone of the given uid, which was deleted at the given time.  Caller must hold the read lock. */
+    private void removeTombstone(BytesRef uid, long deleteTimeMSec) {
+        final TombstoneBucket bucket = tombstoneRing[ringIndex(Math.floorDiv(deleteTimeMSec, tombstoneBucketIntervalMSec))];
+        if (bucket != null && bucket.tombstones.remove(uid) != null) {
+            return;
+        }
+        // the bucket was retired in the meantime, or the tombstone expired already:
+        for (TombstoneBucket retired : retiredTombstones) {
+            if (retired.tombstones.remove(uid) != null) {
+                return;
+            }
         }
     }
 
-    /** Removes this uid from the pending deletes map. */
-    void removeTombstoneUnderLock(BytesRef uid) {
-
-        long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
-
-        final VersionValue prev = tombstones.remove(uid);
-        if (prev != null) {
-            assert prev.delete();
-            long v = ramBytesUsedTombstones.addAndGet(-(BASE_BYTES_PER_CHM_ENTRY + prev.ramBytesUsed() + uidRAMBytesUsed));
-            assert v >= 0: "bytes=" + v;
+    /** Removes the tombstone of the given uid, if any.  Caller must hold the read lock. */
+    private void removeTombstone(BytesRef uid) {
+        for (TombstoneBucket bucket : tombstoneRing) {
+            if (bucket != null && bucket.tombstones.remove(uid) != null) {
+                return;
+            }
         }
-        final VersionValue curVersion = maps.current.get(uid);
-        if (curVersion != null && curVersion.delete()) {
-            // We now shift accounting of the BytesRef from tombstones to current, because a refresh would clear this RAM.  This should be
-            // uncommon, because with the default refresh=1s and gc_deletes=60s, deletes should be cleared from current long before we drop
-            // them from tombstones:
-            ramBytesUsedCurrent.addAndGet(curVersion.ramBytesUsed() + uidRAMBytesUsed);
+        for (TombstoneBucket retired : retiredTombstones) {
+            if (retired.tombstones.remove(uid) != null) {
+                return;
+            }
         }
     }
 
     /** Caller has a lock, so that this uid will not be concurrently added/deleted by another thread. */
     VersionValue getTombstoneUnderLock(BytesRef uid) {
-        return tombstones.get(uid);
+        // A uid has at most one live tombstone, in one of a bounded number of buckets:
+        for (TombstoneBucket bucket : tombstoneRing) {
+            if (bucket != null) {
+                final VersionValue value = bucket.tombstones.get(uid);
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        for (TombstoneBucket bucket : retiredTombstones) {
+            final VersionValue value = bucket.tombstones.get(uid);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
     }
 
-    /** Iterates over all deleted versions, including new ones (not yet exposed via reader) and old ones (exposed via reader but not yet GC'd). */
-    Iterable<Map.Entry<BytesRef,VersionValue>> getAllTombstones() {
-        return tombstones.entrySet();
+    /** Drops all tombstone buckets whose deletes are all older than the given gc deletes interval. This doesn't need the per-uid lock
+     *  since a uid that is deleted again moves its tombstone to a bucket that isn't expired. */
+    void pruneTombstones(long currentTimeMSec, long gcDeletesMSec) {
+        final long intervalMSec = Math.max(1, gcDeletesMSec / TOMBSTONE_BUCKETS_PER_GC_DELETES);
+        final List<TombstoneBucket> expired = new ArrayList<>();
+        try (ReleasableLock lock = tombstonesWriteLock.acquire()) {
+            final List<TombstoneBucket> retired = new ArrayList<>(Arrays.asList(retiredTombstones));
+            final TombstoneBucket[] ring = tombstoneRing.clone();
+            final boolean newInterval = intervalMSec != tombstoneBucketIntervalMSec;
+            for (int i = 0; i < ring.length; i++) {
+                if (ring[i] == null) {
+                    continue;
+                }
+                if (currentTimeMSec - ring[i].maxTimeMSec.get() > gcDeletesMSec) {
+                    expired.add(ring[i]);
+                    ring[i] = null;
+                } else if (newInterval) {
+                    // the slots of these buckets don't match the ring's new interval anymore
+                    retired.add(ring[i]);
+                    ring[i] = null;
+                }
+            }
+            for (Iterator<TombstoneBucket> it = retired.iterator(); it.hasNext(); ) {
+                final TombstoneBucket bucket = it.next();
+                if (currentTimeMSec - bucket.maxTimeMSec.get() > gcDeletesMSec) {
+                    expired.add(bucket);
+                    it.remove();
+                }
+            }
+            if (expired.isEmpty() && newInterval == false) {
+                return;
+            }
+            tombstoneRing = ring;
+            retiredTombstones = retired.toArray(new TombstoneBucket[retired.size()]);
+            tombstoneBucketIntervalMSec = intervalMSec;
+        }
+        for (TombstoneBucket bucket : expired) {
+            bucket.tombstones.close();
+        }
     }
 
     /** Called when this index is closed. */
     synchronized void clear() {
-        maps = new Maps();
-        tombstones.clear();
-        ramBytesUsedCurrent.set(0);
-
-        // NOTE: we can't zero this here, because a refresh thread could be calling InternalEngine.pruneDeletedTombstones at the same time,
-        // and this will lead to an assert trip.  Presumably it's fine if our ramBytesUsedTombstones is non-zero after clear since the index
-        // is being closed:
-        //ramBytesUsedTombstones.set(0);
+        closed = true;
+        final Maps prevMaps = maps;
+        Releasables.close(prevMaps.current, prevMaps.old);
+        final List<TombstoneBucket> buckets;
+        try (ReleasableLock lock = tombstonesWriteLock.acquire()) {
+            buckets = tombstoneBuckets();
+            tombstoneRing = new TombstoneBucket[TOMBSTONE_SLOTS];
+            retiredTombstones = new TombstoneBucket[0];
+        }
+        for (TombstoneBucket bucket : buckets) {
+            bucket.tombstones.close();
+        }
+        unsafe = false;
+        oldUnsafe = false;
+        safeAccess = false;
+        safeAccessRequested = false;
 
         if (mgr != null) {
             mgr.removeListener(this);
@@ -241,13 +401,45 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
     @Override
     public long ramBytesUsed() {
-        return ramBytesUsedCurrent.get() + ramBytesUsedTombstones.get();
+        final Maps currentMaps = maps;
+        return currentMaps.current.ramBytesUsed() + currentMaps.old.ramBytesUsed() + ramBytesUsedTombstones();
     }
 
-    /** Returns how much RAM would be freed up by refreshing. This is {@link ramBytesUsed} except does not include tombstones because they
-     *  don't clear on refresh. */
+    /** Returns how much RAM would be freed up by refreshing. This is {@link #ramBytesUsed} except does not include tombstones because
+     *  they don't clear on refresh. */
     long ramBytesUsedForRefresh() {
-        return ramBytesUsedCurrent.get();
+        return maps.current.ramBytesUsed();
+    }
+
+    /** Returns how much RAM is used by tombstones (deletes), which are only freed once they expire. */
+    long ramBytesUsedTombstones() {
+        long bytes = 0;
+        for (TombstoneBucket bucket : tombstoneBuckets()) {
+            bytes += bucket.tombstones.ramBytesUsed();
+        }
+        return bytes;
+    }
+
+    /** Returns the number of entries in this map, counting a uid once for its live version and once more for its tombstone. */
+    long size() {
+        final Maps currentMaps = maps;
+        long size = currentMaps.current.size() + currentMaps.old.size();
+        for (TombstoneBucket bucket : tombstoneBuckets()) {
+            size += bucket.tombstones.size();
+        }
+        return size;
+    }
+
+    /** Returns all tombstone buckets, in the ring or retired. */
+    private List<TombstoneBucket> tombstoneBuckets() {
+        final List<TombstoneBucket> buckets = new ArrayList<>();
+        for (TombstoneBucket bucket : tombstoneRing) {
+            if (bucket != null) {
+                buckets.add(bucket);
+            }
+        }
+        Collections.addAll(buckets, retiredTombstones);
+        return buckets;
     }
 
     @Override
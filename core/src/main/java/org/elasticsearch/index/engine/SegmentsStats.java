@@ -46,6 +46,7 @@ public class SegmentsStats implements Streamable, ToXContent {
     private long indexWriterMemoryInBytes;
     private long indexWriterMaxMemoryInBytes;
     private long versionMapMemoryInBytes;
+    private long versionMapEntries;
     private long bitsetMemoryInBytes;
     private ImmutableOpenMap<String, Long> fileSizes = ImmutableOpenMap.of();
 
@@ -120,6 +121,10 @@ public class SegmentsStats implements Streamable, ToXContent {
         this.versionMapMemoryInBytes += versionMapMemoryInBytes;
     }
 
+    public void addVersionMapEntries(long versionMapEntries) {
+        this.versionMapEntries += versionMapEntries;
+    }
+
     public void addBitsetMemoryInBytes(long bitsetMemoryInBytes) {
         this.bitsetMemoryInBytes += bitsetMemoryInBytes;
     }
@@ -154,6 +159,7 @@ public class SegmentsStats implements Streamable, ToXContent {
         addIndexWriterMemoryInBytes(mergeStats.indexWriterMemoryInBytes);
         addIndexWriterMaxMemoryInBytes(mergeStats.indexWriterMaxMemoryInBytes);
         addVersionMapMemoryInBytes(mergeStats.versionMapMemoryInBytes);
+        addVersionMapEntries(mergeStats.versionMapEntries);
         addBitsetMemoryInBytes(mergeStats.bitsetMemoryInBytes);
         addFileSizes(mergeStats.fileSizes);
     }
@@ -275,6 +281,13 @@ public class SegmentsStats implements Streamable, ToXContent {
         return new ByteSizeValue(versionMapMemoryInBytes);
     }
 
+    /**
+     * Number of entries in the version map, including delete tombstones
+     */
+    public long getVersionMapEntries() {
+        return this.versionMapEntries;
+    }
+
     /**
      * Estimation of how much the cached bit sets are taking. (which nested and p/c rely on)
      */
@@ -310,6 +323,7 @@ public class SegmentsStats implements Streamable, ToXContent {
         builder.byteSizeField(Fields.INDEX_WRITER_MEMORY_IN_BYTES, Fields.INDEX_WRITER_MEMORY, indexWriterMemoryInBytes);
         builder.byteSizeField(Fields.INDEX_WRITER_MAX_MEMORY_IN_BYTES, Fields.INDEX_WRITER_MAX_MEMORY, indexWriterMaxMemoryInBytes);
         builder.byteSizeField(Fields.VERSION_MAP_MEMORY_IN_BYTES, Fields.VERSION_MAP_MEMORY, versionMapMemoryInBytes);
+        builder.field(Fields.VERSION_MAP_ENTRIES, versionMapEntries);
         builder.byteSizeField(Fields.FIXED_BIT_SET_MEMORY_IN_BYTES, Fields.FIXED_BIT_SET, bitsetMemoryInBytes);
         builder.startObject(Fields.FILE_SIZES);
         for (Iterator<ObjectObjectCursor<String, Long>> it = fileSizes.iterator(); it.hasNext();) {
@@ -347,6 +361,7 @@ public class SegmentsStats implements Streamable, ToXContent {
         static final XContentBuilderString INDEX_WRITER_MAX_MEMORY_IN_BYTES = new XContentBuilderString("index_writer_max_memory_in_bytes");
         static final XContentBuilderString VERSION_MAP_MEMORY = new XContentBuilderString("version_map_memory");
         static final XContentBuilderString VERSION_MAP_MEMORY_IN_BYTES = new XContentBuilderString("version_map_memory_in_bytes");
+        static final XContentBuilderString VERSION_MAP_ENTRIES = new XContentBuilderString("version_map_entries");
         static final XContentBuilderString FIXED_BIT_SET = new XContentBuilderString("fixed_bit_set");
         static final XContentBuilderString FIXED_BIT_SET_MEMORY_IN_BYTES = new XContentBuilderString("fixed_bit_set_memory_in_bytes");
         static final XContentBuilderString FILE_SIZES = new XContentBuilderString("file_sizes");
@@ -367,6 +382,7 @@ public class SegmentsStats implements Streamable, ToXContent {
         docValuesMemoryInBytes = in.readLong();
         indexWriterMemoryInBytes = in.readLong();
         versionMapMemoryInBytes = in.readLong();
+        versionMapEntries = in.readVLong();
         indexWriterMaxMemoryInBytes = in.readLong();
         bitsetMemoryInBytes = in.readLong();
 
@@ -392,6 +408,7 @@ public class SegmentsStats implements Streamable, ToXContent {
         out.writeLong(docValuesMemoryInBytes);
         out.writeLong(indexWriterMemoryInBytes);
         out.writeLong(versionMapMemoryInBytes);
+        out.writeVLong(versionMapEntries);
         out.writeLong(indexWriterMaxMemoryInBytes);
         out.writeLong(bitsetMemoryInBytes);
 
@@ -49,6 +49,14 @@ public class LongValuesComparatorSource extends IndexFieldData.XFieldComparatorS
         this.nested = nested;
     }
 
+    /**
+     * Returns <code>true</code> if this source sorts with the default options for the given order: by the min value of multi-valued
+     * fields in ascending order and by the max value in descending order, with missing values last and without nested documents.
+     */
+    public boolean usesDefaultSortOptions(boolean reversed) {
+        return nested == null && sortMissingLast(missingValue) && sortMode == (reversed ? MultiValueMode.MAX : MultiValueMode.MIN);
+    }
+
     @Override
     public SortField.Type reducedType() {
         return SortField.Type.LONG;
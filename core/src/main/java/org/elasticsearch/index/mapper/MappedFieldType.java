@@ -43,6 +43,7 @@ import org.elasticsearch.common.lucene.BytesRefs;
 import org.elasticsearch.common.unit.Fuzziness;
 import org.elasticsearch.index.analysis.NamedAnalyzer;
 import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.query.QueryShardException;
 import org.elasticsearch.index.similarity.SimilarityProvider;
@@ -396,12 +397,13 @@ public abstract class MappedFieldType extends FieldType {
     /** Return whether all values of the given {@link IndexReader} are within the range,
      *  outside the range or cross the range. The default implementation returns
      *  {@link Relation#INTERSECTS}, which is always fine to return when there is
-     *  no way to check whether values are actually within bounds. */
+     *  no way to check whether values are actually within bounds. The context provides
+     *  the time that <code>now</code> resolves to in date math. */
     public Relation isFieldWithinQuery(
             IndexReader reader,
             Object from, Object to,
             boolean includeLower, boolean includeUpper,
-            DateTimeZone timeZone, DateMathParser dateMathParser) throws IOException {
+            DateTimeZone timeZone, DateMathParser dateMathParser, QueryRewriteContext context) throws IOException {
         return Relation.INTERSECTS;
     }
 
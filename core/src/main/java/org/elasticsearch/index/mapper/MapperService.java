@@ -32,6 +32,9 @@ import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.mapper.Mapper.BuilderContext;
+import org.elasticsearch.index.mapper.core.DateFieldMapper;
+import org.elasticsearch.index.mapper.core.LegacyNumberFieldMapper;
+import org.elasticsearch.index.mapper.core.NumberFieldMapper;
 import org.elasticsearch.index.mapper.object.ObjectMapper;
 import org.elasticsearch.index.percolator.PercolatorFieldMapper;
 import org.elasticsearch.index.query.QueryShardContext;
@@ -288,6 +291,7 @@ public class MapperService extends AbstractIndexComponent {
             checkNestedFieldsLimit(fullPathObjectMappers);
             checkTotalFieldsLimit(objectMappers.size() + fieldMappers.size());
             checkDepthLimit(fullPathObjectMappers.keySet());
+            checkIndexSortField(fieldTypes, false);
         }
 
         Set<String> parentTypes = this.parentTypes;
@@ -424,6 +428,37 @@ public class MapperService extends AbstractIndexComponent {
         }
     }
 
+    /**
+     * Checks that the field that segments of this index are sorted by, if any, is mapped as a numeric or date field with doc
+     * values, which is what the sort of the index writer reads. This is checked once all mappings of a new index were merged.
+     */
+    public void checkIndexSortField() {
+        checkIndexSortField(fieldTypes, true);
+    }
+
+    private void checkIndexSortField(FieldTypeLookup fieldTypes, boolean requireMapped) {
+        final String field = indexSettings.getValue(IndexSettings.INDEX_SORT_FIELD_SETTING);
+        if (field.isEmpty()) {
+            return;
+        }
+        final MappedFieldType fieldType = fieldTypes.get(field);
+        if (fieldType == null) {
+            if (requireMapped) {
+                throw new IllegalArgumentException("index sort field [" + field + "] of index [" + index().getName()
+                    + "] must be mapped when the index is created");
+            }
+            return;
+        }
+        final boolean numeric = fieldType instanceof NumberFieldMapper.NumberFieldType
+            || fieldType instanceof DateFieldMapper.DateFieldType
+            || fieldType instanceof LegacyNumberFieldMapper.NumberFieldType;
+        if (numeric == false || fieldType.hasDocValues() == false) {
+            throw new IllegalArgumentException("index sort field [" + field + "] of index [" + index().getName()
+                + "] must be a numeric or date field with doc values, got [" + fieldType.typeName() + "]"
+                + (fieldType.hasDocValues() ? "" : " without doc values"));
+        }
+    }
+
     private void checkDepthLimit(Collection<String> objectPaths) {
         final long maxDepth = indexSettings.getValue(INDEX_MAPPING_DEPTH_LIMIT_SETTING);
         for (String objectPath : objectPaths) {
@@ -51,6 +51,7 @@ import org.elasticsearch.index.mapper.MapperParsingException;
 import org.elasticsearch.index.mapper.ParseContext;
 import org.elasticsearch.index.mapper.core.LegacyNumberFieldMapper.Defaults;
 import org.elasticsearch.index.mapper.internal.AllFieldMapper;
+import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.internal.SearchContext;
@@ -368,6 +369,11 @@ public class DateFieldMapper extends FieldMapper implements AllFieldMapper.Inclu
 
         public long parseToMilliseconds(Object value, boolean roundUp,
                 @Nullable DateTimeZone zone, @Nullable DateMathParser forcedDateParser) {
+            return parseToMilliseconds(value, roundUp, zone, forcedDateParser, now());
+        }
+
+        public long parseToMilliseconds(Object value, boolean roundUp,
+                @Nullable DateTimeZone zone, @Nullable DateMathParser forcedDateParser, Callable<Long> now) {
             DateMathParser dateParser = dateMathParser();
             if (forcedDateParser != null) {
                 dateParser = forcedDateParser;
@@ -379,16 +385,14 @@ public class DateFieldMapper extends FieldMapper implements AllFieldMapper.Inclu
             } else {
                 strValue = value.toString();
             }
-            return dateParser.parse(strValue, now(), roundUp, zone);
+            return dateParser.parse(strValue, now, roundUp, zone);
         }
 
         private static Callable<Long> now() {
-            return () -> {
-                final SearchContext context = SearchContext.current();
-                return context != null
-                        ? context.nowInMillis()
-                        : System.currentTimeMillis();
-            };
+            final SearchContext context = SearchContext.current();
+            return context != null
+                    ? context.nowCallable()
+                    : System::currentTimeMillis;
         }
 
         @Override
@@ -411,7 +415,7 @@ public class DateFieldMapper extends FieldMapper implements AllFieldMapper.Inclu
         public Relation isFieldWithinQuery(IndexReader reader,
                 Object from, Object to,
                 boolean includeLower, boolean includeUpper,
-                DateTimeZone timeZone, DateMathParser dateParser) throws IOException {
+                DateTimeZone timeZone, DateMathParser dateParser, QueryRewriteContext context) throws IOException {
             if (dateParser == null) {
                 dateParser = this.dateMathParser;
             }
@@ -426,7 +430,7 @@ public class DateFieldMapper extends FieldMapper implements AllFieldMapper.Inclu
 
             long fromInclusive = Long.MIN_VALUE;
             if (from != null) {
-                fromInclusive = parseToMilliseconds(from, !includeLower, timeZone, dateParser);
+                fromInclusive = parseToMilliseconds(from, !includeLower, timeZone, dateParser, context.nowCallable());
                 if (includeLower == false) {
                     if (fromInclusive == Long.MAX_VALUE) {
                         return Relation.DISJOINT;
@@ -437,7 +441,7 @@ public class DateFieldMapper extends FieldMapper implements AllFieldMapper.Inclu
 
             long toInclusive = Long.MAX_VALUE;
             if (to != null) {
-                toInclusive = parseToMilliseconds(to, includeUpper, timeZone, dateParser);
+                toInclusive = parseToMilliseconds(to, includeUpper, timeZone, dateParser, context.nowCallable());
                 if (includeUpper == false) {
                     if (toInclusive == Long.MIN_VALUE) {
                         return Relation.DISJOINT;
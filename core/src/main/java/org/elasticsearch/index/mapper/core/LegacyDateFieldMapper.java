@@ -49,6 +49,7 @@ import org.elasticsearch.index.mapper.Mapper;
 import org.elasticsearch.index.mapper.MapperParsingException;
 import org.elasticsearch.index.mapper.ParseContext;
 import org.elasticsearch.index.mapper.core.LegacyLongFieldMapper.CustomLongNumericField;
+import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.internal.SearchContext;
 import org.joda.time.DateTimeZone;
@@ -404,7 +405,7 @@ public class LegacyDateFieldMapper extends LegacyNumberFieldMapper {
         public Relation isFieldWithinQuery(IndexReader reader,
                 Object from, Object to,
                 boolean includeLower, boolean includeUpper,
-                DateTimeZone timeZone, DateMathParser dateParser) throws IOException {
+                DateTimeZone timeZone, DateMathParser dateParser, QueryRewriteContext context) throws IOException {
             if (dateParser == null) {
                 dateParser = this.dateMathParser;
             }
@@ -420,7 +421,7 @@ public class LegacyDateFieldMapper extends LegacyNumberFieldMapper {
 
             long fromInclusive = Long.MIN_VALUE;
             if (from != null) {
-                fromInclusive = parseToMilliseconds(from, !includeLower, timeZone, dateParser);
+                fromInclusive = parseToMilliseconds(from, !includeLower, timeZone, dateParser, context.nowCallable());
                 if (includeLower == false) {
                     if (fromInclusive == Long.MAX_VALUE) {
                         return Relation.DISJOINT;
@@ -431,7 +432,7 @@ public class LegacyDateFieldMapper extends LegacyNumberFieldMapper {
 
             long toInclusive = Long.MAX_VALUE;
             if (to != null) {
-                toInclusive = parseToMilliseconds(to, includeUpper, timeZone, dateParser);
+                toInclusive = parseToMilliseconds(to, includeUpper, timeZone, dateParser, context.nowCallable());
                 if (includeUpper == false) {
                     if (toInclusive == Long.MIN_VALUE) {
                         return Relation.DISJOINT;
@@ -449,7 +450,13 @@ public class LegacyDateFieldMapper extends LegacyNumberFieldMapper {
             }
         }
 
-        public long parseToMilliseconds(Object value, boolean inclusive, @Nullable DateTimeZone zone, @Nullable DateMathParser forcedDateParser) {
+        public long parseToMilliseconds(Object value, boolean inclusive,
+                @Nullable DateTimeZone zone, @Nullable DateMathParser forcedDateParser) {
+            return parseToMilliseconds(value, inclusive, zone, forcedDateParser, now());
+        }
+
+        public long parseToMilliseconds(Object value, boolean inclusive,
+                @Nullable DateTimeZone zone, @Nullable DateMathParser forcedDateParser, Callable<Long> now) {
             if (value instanceof Long) {
                 return ((Long) value).longValue();
             }
@@ -465,7 +472,7 @@ public class LegacyDateFieldMapper extends LegacyNumberFieldMapper {
             } else {
                 strValue = value.toString();
             }
-            return dateParser.parse(strValue, now(), inclusive, zone);
+            return dateParser.parse(strValue, now, inclusive, zone);
         }
 
         @Override
@@ -498,15 +505,10 @@ public class LegacyDateFieldMapper extends LegacyNumberFieldMapper {
     }
 
     private static Callable<Long> now() {
-        return new Callable<Long>() {
-            @Override
-            public Long call() {
-                final SearchContext context = SearchContext.current();
-                return context != null
-                    ? context.nowInMillis()
-                    : System.currentTimeMillis();
-            }
-        };
+        final SearchContext context = SearchContext.current();
+        return context != null
+                ? context.nowCallable()
+                : System::currentTimeMillis;
     }
 
     @Override
@@ -27,6 +27,8 @@ import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.indices.query.IndicesQueriesRegistry;
 import org.elasticsearch.script.ScriptService;
 
+import java.util.concurrent.Callable;
+
 /**
  * Context object used to rewrite {@link QueryBuilder} instances into simplified version.
  */
@@ -82,6 +84,20 @@ public class QueryRewriteContext implements ParseFieldMatcherSupplier {
         return reader;
     }
 
+    /**
+     * Returns the time in milliseconds that <code>now</code> resolves to in date math.
+     */
+    public long nowInMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the current time for date math, see {@link #nowInMillis()}.
+     */
+    public Callable<Long> nowCallable() {
+        return this::nowInMillis;
+    }
+
     public void parseFieldMatcher(ParseFieldMatcher parseFieldMatcher) {
         this.parseContext.parseFieldMatcher(parseFieldMatcher);
     }
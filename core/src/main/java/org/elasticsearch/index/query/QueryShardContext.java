@@ -26,6 +26,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.IndexReader;
@@ -92,6 +93,7 @@ public class QueryShardContext extends QueryRewriteContext {
     private boolean allowUnmappedFields;
     private boolean mapUnmappedFieldAsString;
     private NestedScope nestedScope;
+    private Long nowInMillis;
     boolean isFilter; // pkg private for testing
 
     public QueryShardContext(IndexSettings indexSettings, BitsetFilterCache bitsetFilterCache, IndexFieldDataService indexFieldDataService, MapperService mapperService, SimilarityService similarityService, ScriptService scriptService,
@@ -111,6 +113,7 @@ public class QueryShardContext extends QueryRewriteContext {
     public QueryShardContext(QueryShardContext source) {
         this(source.indexSettings, source.bitsetFilterCache, source.indexFieldDataService, source.mapperService, source.similarityService, source.scriptService, source.indicesQueriesRegistry, source.percolatorQueryCache, source.reader);
         this.types = source.getTypes();
+        this.nowInMillis = source.nowInMillis;
     }
 
     public void reset() {
@@ -276,12 +279,34 @@ public class QueryShardContext extends QueryRewriteContext {
         return lookup;
     }
 
+    /**
+     * Sets the time that <code>now</code> resolves to in date math when there is no current {@link SearchContext}, like when a
+     * request is only rewritten against a shard to check whether it can match any documents.
+     */
+    public void setNowInMillis(long nowInMillis) {
+        this.nowInMillis = nowInMillis;
+    }
+
+    @Override
     public long nowInMillis() {
         SearchContext current = SearchContext.current();
         if (current != null) {
             return current.nowInMillis();
         }
-        return System.currentTimeMillis();
+        if (nowInMillis != null) {
+            return nowInMillis;
+        }
+        return super.nowInMillis();
+    }
+
+    @Override
+    public Callable<Long> nowCallable() {
+        SearchContext current = SearchContext.current();
+        if (current != null) {
+            // tracks whether the request used the current time, which makes it uncacheable
+            return current.nowCallable();
+        }
+        return super.nowCallable();
     }
 
     public NestedScope nestedScope() {
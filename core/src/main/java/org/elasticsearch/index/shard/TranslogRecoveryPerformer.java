@@ -18,10 +18,14 @@
  */
 package org.elasticsearch.index.shard;
 
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.IgnoreOnRecoveryEngineException;
 import org.elasticsearch.index.mapper.DocumentMapperForType;
@@ -31,10 +35,19 @@ import org.elasticsearch.index.mapper.Mapping;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.elasticsearch.index.mapper.SourceToParse.source;
 
@@ -43,15 +56,40 @@ import static org.elasticsearch.index.mapper.SourceToParse.source;
  * indexing operation including source parsing and field creation from the source.
  */
 public class TranslogRecoveryPerformer {
+    private static final int RECOVERY_QUEUE_SIZE = 1024;
+    /** How often the reader checks whether a worker stopped while it waits for room in the worker's queue */
+    private static final long ENQUEUE_RECHECK_MILLIS = 100;
+    /** Tells recovery workers that the reader is done, compared by identity */
+    private static final Translog.Operation END_OF_SNAPSHOT = new Translog.Delete();
+
     private final MapperService mapperService;
     private final ESLogger logger;
     private final Map<String, Mapping> recoveredTypes = new HashMap<>();
     private final ShardId shardId;
+    private final ThreadPool threadPool;
+    private final int recoveryThreads;
 
     protected TranslogRecoveryPerformer(ShardId shardId, MapperService mapperService, ESLogger logger) {
+        this(shardId, mapperService, logger, null, 1);
+    }
+
+    /**
+     * @param threadPool the thread pool whose generic threads replay operations if there is more than one recovery thread
+     * @param recoveryThreads the number of threads used to replay operations in {@link #recoveryFromSnapshot(Engine, Translog.Snapshot)}
+     */
+    protected TranslogRecoveryPerformer(ShardId shardId, MapperService mapperService, ESLogger logger, ThreadPool threadPool,
+                                        int recoveryThreads) {
+        if (recoveryThreads < 1) {
+            throw new IllegalArgumentException("recoveryThreads must be at least 1 but was: " + recoveryThreads);
+        }
+        if (recoveryThreads > 1 && threadPool == null) {
+            throw new IllegalArgumentException("a thread pool is required to recover with [" + recoveryThreads + "] threads");
+        }
         this.shardId = shardId;
         this.mapperService = mapperService;
         this.logger = logger;
+        this.threadPool = threadPool;
+        this.recoveryThreads = recoveryThreads;
     }
 
     protected DocumentMapperForType docMapper(String type) {
@@ -78,25 +116,176 @@ public class TranslogRecoveryPerformer {
         return numOps;
     }
 
+    /**
+     * Replays all operations of the given snapshot and returns the number of recovered operations. If more than one recovery
+     * thread is configured, operations are partitioned by their <tt>_uid</tt> across the recovery threads such that all operations
+     * on the same document are still replayed in translog order.
+     */
     public int recoveryFromSnapshot(Engine engine, Translog.Snapshot snapshot) throws IOException {
+        final long startNanos = System.nanoTime();
+        final int opsRecovered;
+        if (recoveryThreads == 1) {
+            opsRecovered = recoverSequentially(engine, snapshot);
+        } else {
+            opsRecovered = recoverConcurrently(engine, snapshot);
+        }
+        if (logger.isDebugEnabled()) {
+            final long tookInMillis = TimeValue.nsecToMSec(System.nanoTime() - startNanos);
+            logger.debug("recovered [{}] translog operations with [{}] threads in [{}] ([{}] ops/s)", opsRecovered, recoveryThreads,
+                TimeValue.timeValueMillis(tookInMillis), tookInMillis == 0 ? opsRecovered : opsRecovered * 1000L / tookInMillis);
+        }
+        return opsRecovered;
+    }
+
+    private int recoverSequentially(Engine engine, Translog.Snapshot snapshot) throws IOException {
         Translog.Operation operation;
         int opsRecovered = 0;
         while ((operation = snapshot.next()) != null) {
-            try {
-                performRecoveryOperation(engine, operation, true);
+            if (recoverOperation(engine, operation)) {
                 opsRecovered++;
-            } catch (ElasticsearchException e) {
-                if (e.status() == RestStatus.BAD_REQUEST) {
-                    // mainly for MapperParsingException and Failure to detect xcontent
-                    logger.info("ignoring recovery of a corrupt translog entry", e);
-                } else {
-                    throw e;
-                }
             }
         }
         return opsRecovered;
     }
 
+    private int recoverConcurrently(Engine engine, Translog.Snapshot snapshot) throws IOException {
+        final AtomicInteger opsRecovered = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch workersDone = new CountDownLatch(recoveryThreads);
+        final List<RecoveryWorker> workers = new ArrayList<>(recoveryThreads);
+        for (int i = 0; i < recoveryThreads; i++) {
+            final RecoveryWorker worker = new RecoveryWorker(engine, opsRecovered, failure, workersDone);
+            workers.add(worker);
+            threadPool.generic().execute(worker);
+        }
+        try {
+            try {
+                Translog.Operation operation;
+                while (failure.get() == null && (operation = snapshot.next()) != null) {
+                    workers.get(partition(operation, recoveryThreads)).enqueue(operation);
+                }
+            } finally {
+                for (RecoveryWorker worker : workers) {
+                    worker.enqueue(END_OF_SNAPSHOT);
+                }
+                workersDone.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+        final Throwable t = failure.get();
+        if (t != null) {
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            throw ExceptionsHelper.convertToRuntime(t);
+        }
+        return opsRecovered.get();
+    }
+
+    /**
+     * Replays the operations of a single partition until it takes {@link #END_OF_SNAPSHOT} from its queue. Once any worker
+     * failed to apply an operation the remaining operations are drained without being applied. A worker that stops without
+     * seeing the end of the snapshot, for instance because its thread got interrupted, records the failure and is marked as
+     * stopped so that the reader never blocks on its queue again.
+     */
+    private final class RecoveryWorker extends AbstractRunnable {
+        private final BlockingQueue<Translog.Operation> queue = new ArrayBlockingQueue<>(RECOVERY_QUEUE_SIZE);
+        private final Engine engine;
+        private final AtomicInteger opsRecovered;
+        private final AtomicReference<Throwable> failure;
+        private final CountDownLatch workersDone;
+        private volatile boolean stopped = false;
+
+        RecoveryWorker(Engine engine, AtomicInteger opsRecovered, AtomicReference<Throwable> failure, CountDownLatch workersDone) {
+            this.engine = engine;
+            this.opsRecovered = opsRecovered;
+            this.failure = failure;
+            this.workersDone = workersDone;
+        }
+
+        /**
+         * Hands the operation to this worker, blocking while its queue is full. Returns without enqueueing the operation if
+         * the worker stopped since its queue would never be drained again.
+         */
+        void enqueue(Translog.Operation operation) throws InterruptedException {
+            while (queue.offer(operation, ENQUEUE_RECHECK_MILLIS, TimeUnit.MILLISECONDS) == false) {
+                if (stopped) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        protected void doRun() throws InterruptedException {
+            Translog.Operation operation;
+            while ((operation = queue.take()) != END_OF_SNAPSHOT) {
+                if (failure.get() == null) {
+                    try {
+                        if (recoverOperation(engine, operation)) {
+                            opsRecovered.incrementAndGet();
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+
+        @Override
+        public void onAfter() {
+            stopped = true;
+            queue.clear();
+            workersDone.countDown();
+        }
+    }
+
+    /**
+     * Returns the replay thread for the given operation, all operations on the same <tt>_uid</tt> must end up on the same thread
+     */
+    static int partition(Translog.Operation operation, int numPartitions) {
+        final BytesRef uid;
+        switch (operation.opType()) {
+            case INDEX:
+                Translog.Index index = (Translog.Index) operation;
+                uid = Uid.createUidAsBytes(index.type(), index.id());
+                break;
+            case DELETE:
+                uid = ((Translog.Delete) operation).uid().bytes();
+                break;
+            default:
+                // fails when it is applied
+                return 0;
+        }
+        return Math.floorMod(uid.hashCode(), numPartitions);
+    }
+
+    /**
+     * Applies a single operation from the translog and returns <code>true</code> iff it was recovered, corrupt entries are skipped.
+     */
+    private boolean recoverOperation(Engine engine, Translog.Operation operation) {
+        try {
+            performRecoveryOperation(engine, operation, true);
+            return true;
+        } catch (ElasticsearchException e) {
+            if (e.status() == RestStatus.BAD_REQUEST) {
+                // mainly for MapperParsingException and Failure to detect xcontent
+                logger.info("ignoring recovery of a corrupt translog entry", e);
+                return false;
+            } else {
+                throw e;
+            }
+        }
+    }
+
     public static class BatchOperationException extends ElasticsearchException {
 
         private final int completedOperations;
@@ -124,7 +313,7 @@ public class TranslogRecoveryPerformer {
         }
     }
 
-    private void maybeAddMappingUpdate(String type, Mapping update, String docId, boolean allowMappingUpdates) {
+    private synchronized void maybeAddMappingUpdate(String type, Mapping update, String docId, boolean allowMappingUpdates) {
         if (update == null) {
             return;
         }
@@ -153,7 +342,10 @@ public class TranslogRecoveryPerformer {
                     Translog.Index index = (Translog.Index) operation;
                     Engine.Index engineIndex = IndexShard.prepareIndex(docMapper(index.type()), source(index.source()).type(index.type()).id(index.id())
                                     .routing(index.routing()).parent(index.parent()).timestamp(index.timestamp()).ttl(index.ttl()),
-                            index.version(), index.versionType().versionTypeForReplicationAndRecovery(), Engine.Operation.Origin.RECOVERY);
+                            index.version(), index.versionType().versionTypeForReplicationAndRecovery(), Engine.Operation.Origin.RECOVERY,
+                            // we might replay an operation that is already in the index or that is concurrently replicated
+                            // to this shard so we have to mark it as a retry
+                            index.getAutoGeneratedIdTimestamp(), true);
                     maybeAddMappingUpdate(engineIndex.type(), engineIndex.parsedDoc().dynamicMappingsUpdate(), engineIndex.id(), allowMappingUpdates);
                     if (logger.isTraceEnabled()) {
                         logger.trace("[translog] recover [index] op of [{}][{}]", index.type(), index.id());
@@ -215,7 +407,7 @@ public class TranslogRecoveryPerformer {
     /**
      * Returns the recovered types modifying the mapping during the recovery
      */
-    public Map<String, Mapping> getRecoveredTypes() {
+    public synchronized Map<String, Mapping> getRecoveredTypes() {
         return recoveredTypes;
     }
 }
@@ -26,6 +26,7 @@ import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
@@ -36,6 +37,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.FutureUtils;
@@ -58,6 +60,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -129,6 +132,9 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     private final AtomicBoolean closed = new AtomicBoolean();
     private final TranslogConfig config;
     private final String translogUUID;
+    // the number of fsyncs executed by this translog and the number of operations they made durable
+    private final CounterMetric syncCount = new CounterMetric();
+    private final CounterMetric syncedOperations = new CounterMetric();
 
     /**
      * Creates a new Translog instance. This method will create a new transaction log unless the given {@link TranslogConfig} has
@@ -378,7 +384,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     TranslogWriter createWriter(long fileGeneration) throws IOException {
         TranslogWriter newFile;
         try {
-            newFile = TranslogWriter.create(shardId, translogUUID, fileGeneration, location.resolve(getFilename(fileGeneration)), getChannelFactory(), config.getBufferSize());
+            newFile = TranslogWriter.create(shardId, translogUUID, fileGeneration, location.resolve(getFilename(fileGeneration)), getChannelFactory(),
+                config.getBufferSize(), this::onSync);
         } catch (IOException e) {
             throw new TranslogException(shardId, "failed to create new translog file", e);
         }
@@ -516,7 +523,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
 
     /**
-     * Ensures that the given location has be synced / written to the underlying storage.
+     * Ensures that the given location has be synced / written to the underlying storage. Concurrent callers share
+     * a single fsync that covers all operations written before it started, see {@link TranslogWriter#syncUpTo(long)}.
      *
      * @return Returns <code>true</code> iff this call caused an actual sync operation otherwise <code>false</code>
      */
@@ -533,6 +541,24 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         return false;
     }
 
+    /**
+     * Ensures that all locations in the given stream have been synced / written to the underlying storage.
+     * This method allows for internal optimization to minimize the amount of fsync operations if multiple
+     * locations must be synced.
+     *
+     * @return Returns <code>true</code> iff this call caused an actual sync operation otherwise <code>false</code>
+     */
+    public boolean ensureSynced(Stream<Location> locations) throws IOException {
+        final Optional<Location> max = locations.max(Location::compareTo);
+        // we only need to sync the max location since it will sync all other
+        // locations implicitly
+        if (max.isPresent()) {
+            return ensureSynced(max.get());
+        } else {
+            return false;
+        }
+    }
+
     private void closeOnTragicEvent(Throwable ex) {
         if (current.getTragicException() != null) {
             try {
@@ -553,10 +579,15 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     public TranslogStats stats() {
         // acquire lock to make the two numbers roughly consistent (no file change half way)
         try (ReleasableLock lock = readLock.acquire()) {
-            return new TranslogStats(totalOperations(), sizeInBytes());
+            return new TranslogStats(totalOperations(), sizeInBytes(), syncCount.count(), syncedOperations.count());
         }
     }
 
+    private void onSync(long numOperations) {
+        syncCount.inc();
+        syncedOperations.inc(numOperations);
+    }
+
     private boolean isReferencedGeneration(long generation) { // used to make decisions if a file can be deleted
         return generation >= lastCommittedTranslogFileGeneration;
     }
@@ -632,7 +663,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         public final long translogLocation;
         public final int size;
 
-        Location(long generation, long translogLocation, int size) {
+        public Location(long generation, long translogLocation, int size) {
             this.generation = generation;
             this.translogLocation = translogLocation;
             this.size = size;
@@ -768,7 +799,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     }
 
     public static class Index implements Operation {
-        public static final int SERIALIZATION_FORMAT = 6;
+        public static final int SERIALIZATION_FORMAT = 7;
 
         private String id;
         private String type;
@@ -779,6 +810,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         private String parent;
         private long timestamp;
         private long ttl;
+        private long autoGeneratedIdTimestamp = IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP;
 
         public Index() {
         }
@@ -793,6 +825,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             this.timestamp = index.timestamp();
             this.ttl = index.ttl();
             this.versionType = index.versionType();
+            this.autoGeneratedIdTimestamp = index.getAutoGeneratedIdTimestamp();
         }
 
         public Index(String type, String id, byte[] source) {
@@ -847,6 +880,10 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             return versionType;
         }
 
+        public long getAutoGeneratedIdTimestamp() {
+            return autoGeneratedIdTimestamp;
+        }
+
         @Override
         public Source getSource() {
             return new Source(source, routing, parent, timestamp, ttl);
@@ -881,6 +918,9 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 if (version >= 6) {
                     this.versionType = VersionType.fromValue(in.readByte());
                 }
+                if (version >= 7) {
+                    this.autoGeneratedIdTimestamp = in.readLong();
+                }
             } catch (Exception e) {
                 throw new ElasticsearchException("failed to read [" + type + "][" + id + "]", e);
             }
@@ -910,6 +950,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             out.writeLong(timestamp);
             out.writeLong(ttl);
             out.writeByte(versionType.getValue());
+            out.writeLong(autoGeneratedIdTimestamp);
         }
 
         @Override
@@ -926,6 +967,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             if (version != index.version ||
                     timestamp != index.timestamp ||
                     ttl != index.ttl ||
+                    autoGeneratedIdTimestamp != index.autoGeneratedIdTimestamp ||
                     id.equals(index.id) == false ||
                     type.equals(index.type) == false ||
                     versionType != index.versionType ||
@@ -950,6 +992,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             result = 31 * result + (parent != null ? parent.hashCode() : 0);
             result = 31 * result + Long.hashCode(timestamp);
             result = 31 * result + Long.hashCode(ttl);
+            result = 31 * result + Long.hashCode(autoGeneratedIdTimestamp);
             return result;
         }
 
@@ -34,20 +34,34 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
 
     private long translogSizeInBytes;
     private int numberOfOperations;
+    private long syncCount;
+    private long syncedOperations;
 
     public TranslogStats() {
     }
 
     public TranslogStats(int numberOfOperations, long translogSizeInBytes) {
+        this(numberOfOperations, translogSizeInBytes, 0, 0);
+    }
+
+    public TranslogStats(int numberOfOperations, long translogSizeInBytes, long syncCount, long syncedOperations) {
         if (numberOfOperations < 0) {
             throw new IllegalArgumentException("numberOfOperations must be >= 0");
         }
         if (translogSizeInBytes < 0) {
             throw new IllegalArgumentException("translogSizeInBytes must be >= 0");
         }
+        if (syncCount < 0) {
+            throw new IllegalArgumentException("syncCount must be >= 0");
+        }
+        if (syncedOperations < 0) {
+            throw new IllegalArgumentException("syncedOperations must be >= 0");
+        }
         assert translogSizeInBytes >= 0 : "translogSizeInBytes must be >= 0, got [" + translogSizeInBytes + "]";
         this.numberOfOperations = numberOfOperations;
         this.translogSizeInBytes = translogSizeInBytes;
+        this.syncCount = syncCount;
+        this.syncedOperations = syncedOperations;
     }
 
     public void add(TranslogStats translogStats) {
@@ -57,6 +71,8 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
 
         this.numberOfOperations += translogStats.numberOfOperations;
         this.translogSizeInBytes += translogStats.translogSizeInBytes;
+        this.syncCount += translogStats.syncCount;
+        this.syncedOperations += translogStats.syncedOperations;
     }
 
     public long getTranslogSizeInBytes() {
@@ -67,11 +83,37 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
         return numberOfOperations;
     }
 
+    /**
+     * The total number of fsyncs executed on the translog.
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * The total number of operations that were made durable by fsyncs.
+     */
+    public long getSyncedOperations() {
+        return syncedOperations;
+    }
+
+    /**
+     * The average number of operations that were made durable by a single fsync. Higher values mean that
+     * concurrent writers shared their fsyncs.
+     */
+    public double getOperationsPerSync() {
+        return syncCount == 0 ? 0 : (double) syncedOperations / syncCount;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.TRANSLOG);
         builder.field(Fields.OPERATIONS, numberOfOperations);
         builder.byteSizeField(Fields.SIZE_IN_BYTES, Fields.SIZE, translogSizeInBytes);
+        builder.startObject(Fields.SYNC);
+        builder.field(Fields.TOTAL, syncCount);
+        builder.field(Fields.OPERATIONS, syncedOperations);
+        builder.endObject();
         builder.endObject();
         return builder;
     }
@@ -81,17 +123,23 @@ public class TranslogStats extends ToXContentToBytes implements Streamable {
         static final XContentBuilderString OPERATIONS = new XContentBuilderString("operations");
         static final XContentBuilderString SIZE = new XContentBuilderString("size");
         static final XContentBuilderString SIZE_IN_BYTES = new XContentBuilderString("size_in_bytes");
+        static final XContentBuilderString SYNC = new XContentBuilderString("sync");
+        static final XContentBuilderString TOTAL = new XContentBuilderString("total");
     }
 
     @Override
     public void readFrom(StreamInput in) throws IOException {
         numberOfOperations = in.readVInt();
         translogSizeInBytes = in.readVLong();
+        syncCount = in.readVLong();
+        syncedOperations = in.readVLong();
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVInt(numberOfOperations);
         out.writeVLong(translogSizeInBytes);
+        out.writeVLong(syncCount);
+        out.writeVLong(syncedOperations);
     }
 }
@@ -0,0 +1,216 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The segment aggregation cache caches the serialized results of the aggregations of a request on a single segment.
+ * Segments are immutable, so unlike entries of the {@link IndicesRequestCache}, which are keyed on the version of the
+ * reader of the whole shard and can't be reused once the shard was refreshed, these entries remain valid until the
+ * segment is merged away or gets new deletes. A shard that was refreshed only computes the aggregations on its new
+ * segments and reduces them with the cached results of the other ones.
+ * <p>
+ * Entries are keyed on the segment, the rewritten query and the cache key of the request. Like for the query cache,
+ * this relies on the fact that queries whose matches on a segment depend on the rest of the reader get rewritten into
+ * queries that are specific to the reader.
+ */
+public final class IndicesSegmentAggregationCache extends AbstractComponent implements Closeable {
+
+    /**
+     * A setting to enable or disable the segment aggregation cache on an index level. Requests only use it if they can
+     * also use the request cache.
+     */
+    public static final Setting<Boolean> INDEX_CACHE_SEGMENT_AGGREGATIONS_ENABLED_SETTING =
+        Setting.boolSetting("index.requests.cache.segment_aggregations.enable", false, Property.Dynamic, Property.IndexScope);
+    public static final Setting<ByteSizeValue> INDICES_CACHE_SEGMENT_AGGREGATIONS_SIZE =
+        Setting.byteSizeSetting("indices.requests.cache.segment_aggregations.size", "1%", Property.NodeScope);
+
+    /** Same default as Lucene's query cache for queries that don't know how much memory they use. */
+    private static final long QUERY_DEFAULT_RAM_BYTES_USED = 1024;
+
+    private final Set<Object> registeredCoreKeys = ConcurrentCollections.newConcurrentSet();
+    private final Set<Object> coreKeysToClean = ConcurrentCollections.newConcurrentSet();
+    private final Set<Object> identitiesToClean = ConcurrentCollections.newConcurrentSet();
+    private final ByteSizeValue size;
+    private final Cache<Key, BytesReference> cache;
+
+    IndicesSegmentAggregationCache(Settings settings) {
+        super(settings);
+        this.size = INDICES_CACHE_SEGMENT_AGGREGATIONS_SIZE.get(settings);
+        // one entry per segment and request, so a burst of distinct requests must not flush the results of repeated ones
+        cache = CacheBuilder.<Key, BytesReference>builder()
+            .setMaximumWeight(size.bytes()).weigher((k, v) -> k.ramBytesUsed() + v.length()).frequencyBasedAdmission(true).build();
+    }
+
+    @Override
+    public void close() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns the cached results of a request on a segment, or computes and caches them with the given loader.
+     *
+     * @param cacheIdentity the identity of the shard that the segment belongs to, used to clear its entries
+     * @param reader        the segment
+     * @param query         the rewritten query of the request
+     * @param requestKey    the cache key of the request, see {@link IndicesService#cacheKey}
+     */
+    BytesReference getOrCompute(Object cacheIdentity, LeafReader reader, Query query, BytesReference requestKey,
+                                Callable<BytesReference> loader) throws Exception {
+        final Object coreKey = reader.getCoreCacheKey();
+        // deleted documents never come back to life in a segment, so the number of deleted documents identifies its live docs
+        final Key key = new Key(cacheIdentity, coreKey, reader.numDeletedDocs(), query, requestKey);
+        final BytesReference value;
+        try {
+            value = cache.computeIfAbsent(key, k -> loader.call());
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw ExceptionsHelper.convertToRuntime(cause);
+        }
+        if (registeredCoreKeys.add(coreKey)) {
+            reader.addCoreClosedListener(ownerCoreCacheKey -> {
+                registeredCoreKeys.remove(ownerCoreCacheKey);
+                coreKeysToClean.add(ownerCoreCacheKey);
+            });
+        }
+        return value;
+    }
+
+    /**
+     * Clears the entries of the given shard on the next {@link #cleanCache()}.
+     */
+    void clear(Object cacheIdentity) {
+        identitiesToClean.add(cacheIdentity);
+        cleanCache();
+    }
+
+    /**
+     * Removes the entries of the segments that were closed and of the shards that were cleared.
+     */
+    synchronized void cleanCache() {
+        if (coreKeysToClean.isEmpty() == false || identitiesToClean.isEmpty() == false) {
+            final Set<Object> currentCoreKeysToClean = new HashSet<>();
+            final Set<Object> currentIdentitiesToClean = new HashSet<>();
+            drainTo(coreKeysToClean, currentCoreKeysToClean);
+            drainTo(identitiesToClean, currentIdentitiesToClean);
+            for (Iterator<Key> iterator = cache.keys().iterator(); iterator.hasNext(); ) {
+                final Key key = iterator.next();
+                if (currentCoreKeysToClean.contains(key.coreKey) || currentIdentitiesToClean.contains(key.cacheIdentity)) {
+                    iterator.remove();
+                }
+            }
+        }
+        cache.refresh();
+    }
+
+    private static void drainTo(Set<Object> from, Set<Object> to) {
+        for (Iterator<Object> iterator = from.iterator(); iterator.hasNext(); ) {
+            to.add(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Returns the current number of entries of the cache
+     */
+    int count() {
+        return cache.count();
+    }
+
+    /**
+     * Returns the hits, misses and evictions of the cache
+     */
+    Cache.CacheStats stats() {
+        return cache.stats();
+    }
+
+    static final class Key implements Accountable {
+        final Object cacheIdentity; // used as identity equality
+        final Object coreKey;
+        final int numDeletedDocs;
+        final Query query;
+        final BytesReference requestKey;
+
+        Key(Object cacheIdentity, Object coreKey, int numDeletedDocs, Query query, BytesReference requestKey) {
+            this.cacheIdentity = cacheIdentity;
+            this.coreKey = coreKey;
+            this.numDeletedDocs = numDeletedDocs;
+            this.query = query;
+            this.requestKey = requestKey;
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            final long queryRamBytesUsed = query instanceof Accountable
+                ? ((Accountable) query).ramBytesUsed() : QUERY_DEFAULT_RAM_BYTES_USED;
+            return 4 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + Integer.BYTES + queryRamBytesUsed + requestKey.length();
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return cacheIdentity == key.cacheIdentity
+                && coreKey == key.coreKey
+                && numDeletedDocs == key.numDeletedDocs
+                && query.equals(key.query)
+                && requestKey.equals(key.requestKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(cacheIdentity), System.identityHashCode(coreKey), numDeletedDocs, query,
+                requestKey);
+        }
+    }
+}
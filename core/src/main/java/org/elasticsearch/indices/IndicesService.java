@@ -21,6 +21,7 @@ package org.elasticsearch.indices;
 
 import com.carrotsearch.hppc.cursors.ObjectCursor;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.store.LockObtainFailedException;
 import org.apache.lucene.util.CollectionUtil;
 import org.apache.lucene.util.IOUtils;
@@ -89,6 +90,7 @@ import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
 import org.elasticsearch.indices.mapper.MapperRegistry;
 import org.elasticsearch.indices.query.IndicesQueriesRegistry;
 import org.elasticsearch.plugins.PluginsService;
+import org.elasticsearch.search.aggregations.SegmentAggregationPhase;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QueryPhase;
@@ -148,6 +150,7 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
     private final IndexingMemoryController indexingMemoryController;
     private final TimeValue cleanInterval;
     private final IndicesRequestCache indicesRequestCache;
+    private final IndicesSegmentAggregationCache indicesSegmentAggregationCache;
     private final IndicesQueryCache indicesQueryCache;
 
     @Override
@@ -173,6 +176,7 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
         this.clusterService = clusterService;
         this.indexNameExpressionResolver = indexNameExpressionResolver;
         this.indicesRequestCache = new IndicesRequestCache(settings);
+        this.indicesSegmentAggregationCache = new IndicesSegmentAggregationCache(settings);
         this.indicesQueryCache = new IndicesQueryCache(settings);
         this.mapperRegistry = mapperRegistry;
         this.namedWriteableRegistry = namedWriteableRegistry;
@@ -189,7 +193,8 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
             }
         });
         this.cleanInterval = INDICES_CACHE_CLEAN_INTERVAL_SETTING.get(settings);
-        this.cacheCleaner = new CacheCleaner(indicesFieldDataCache, indicesRequestCache,  logger, threadPool, this.cleanInterval);
+        this.cacheCleaner = new CacheCleaner(indicesFieldDataCache, indicesRequestCache, indicesSegmentAggregationCache, logger, threadPool,
+            this.cleanInterval);
     }
 
     @Override
@@ -223,7 +228,8 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
 
     @Override
     protected void doClose() {
-        IOUtils.closeWhileHandlingException(analysisRegistry, indexingMemoryController, indicesFieldDataCache, cacheCleaner, indicesRequestCache, indicesQueryCache);
+        IOUtils.closeWhileHandlingException(analysisRegistry, indexingMemoryController, indicesFieldDataCache, cacheCleaner, indicesRequestCache,
+            indicesSegmentAggregationCache, indicesQueryCache);
     }
 
     /**
@@ -888,10 +894,14 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
         private final TimeValue interval;
         private final AtomicBoolean closed = new AtomicBoolean(false);
         private final IndicesRequestCache requestCache;
+        private final IndicesSegmentAggregationCache segmentAggregationCache;
 
-        public CacheCleaner(IndicesFieldDataCache cache, IndicesRequestCache requestCache, ESLogger logger, ThreadPool threadPool, TimeValue interval) {
+        public CacheCleaner(IndicesFieldDataCache cache, IndicesRequestCache requestCache,
+                            IndicesSegmentAggregationCache segmentAggregationCache, ESLogger logger, ThreadPool threadPool,
+                            TimeValue interval) {
             this.cache = cache;
             this.requestCache = requestCache;
+            this.segmentAggregationCache = segmentAggregationCache;
             this.logger = logger;
             this.threadPool = threadPool;
             this.interval = interval;
@@ -917,6 +927,11 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
             } catch (Exception e) {
                 logger.warn("Exception during periodic request cache cleanup:", e);
             }
+            try {
+                this.segmentAggregationCache.cleanCache();
+            } catch (Exception e) {
+                logger.warn("Exception during periodic segment aggregation cache cleanup:", e);
+            }
             // Reschedule itself to run again if not closed
             if (closed.get() == false) {
                 threadPool.schedule(interval, ThreadPool.Names.SAME, this);
@@ -940,8 +955,9 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
             return false;
         }
 
-        // for now, only enable it for requests with no hits
-        if (context.size() != 0) {
+        // only cache requests that return hits if they explicitly ask for it, and never scrolls since they keep state
+        // between requests
+        if (context.size() != 0 && (Boolean.TRUE.equals(request.requestCache()) == false || request.scroll() != null)) {
             return false;
         }
 
@@ -966,7 +982,8 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
             return false;
         }
         // if now in millis is used (or in the future, a more generic "isDeterministic" flag
-        // then we can't cache based on "now" key within the search request, as it is not deterministic
+        // then we can't cache based on "now" key within the search request, as it is not deterministic.
+        // Date math that rounds now is fine since the values it resolved to are part of the cache key
         if (context.nowInMillisUsed()) {
             return false;
         }
@@ -979,6 +996,7 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
             return;
         }
         indicesRequestCache.clear(new IndexShardCacheEntity(shard));
+        indicesSegmentAggregationCache.clear(shard);
         logger.trace("{} explicit cache clear", shard.shardId());
     }
     /**
@@ -989,9 +1007,19 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
      */
     public void loadIntoContext(ShardSearchRequest request, SearchContext context, QueryPhase queryPhase) throws Exception {
         assert canCache(request, context);
-        final IndexShardCacheEntity entity = new IndexShardCacheEntity(context.indexShard(), queryPhase, context);
+        final BytesReference cacheKey = cacheKey(request, context);
+        SegmentAggregationPhase.SegmentResults segmentResults = null;
+        if (context.indexShard().indexSettings().getValue(IndicesSegmentAggregationCache.INDEX_CACHE_SEGMENT_AGGREGATIONS_ENABLED_SETTING)
+                && SegmentAggregationPhase.canExecute(context)) {
+            final IndexShard indexShard = context.indexShard();
+            final Query query = context.query();
+            segmentResults = (leaf, loader) -> indicesSegmentAggregationCache.getOrCompute(indexShard, leaf.reader(), query, cacheKey,
+                loader);
+        }
+        final IndexShardCacheEntity entity = new IndexShardCacheEntity(context.indexShard(), queryPhase, context, segmentResults,
+            namedWriteableRegistry);
         final DirectoryReader directoryReader = context.searcher().getDirectoryReader();
-        final BytesReference bytesReference = indicesRequestCache.getOrCompute(entity, directoryReader, request.cacheKey());
+        final BytesReference bytesReference = indicesRequestCache.getOrCompute(entity, directoryReader, cacheKey);
         if (entity.loaded == false) { // if we have loaded this we don't need to do anything
             // restore the cached query result into the context
             final QuerySearchResult result = context.queryResult();
@@ -1001,27 +1029,59 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
         }
     }
 
+    /**
+     * Returns the cache key of the request: its serialized form, followed by the values that date math which rounds
+     * <code>now</code> resolved to, since the results of the request depend on them.
+     */
+    static BytesReference cacheKey(ShardSearchRequest request, SearchContext context) throws IOException {
+        final BytesReference requestKey = request.cacheKey();
+        final List<Long> roundedNowValues = context.roundedNowValues();
+        if (roundedNowValues.isEmpty()) {
+            return requestKey;
+        }
+        try (BytesStreamOutput out = new BytesStreamOutput(requestKey.length() + 5 + 8 * roundedNowValues.size())) {
+            requestKey.writeTo(out);
+            out.writeVInt(roundedNowValues.size());
+            for (long value : roundedNowValues) {
+                out.writeLong(value);
+            }
+            return out.bytes().copyBytesArray();
+        }
+    }
+
     static final class IndexShardCacheEntity implements IndicesRequestCache.CacheEntity {
         private final QueryPhase queryPhase;
         private final SearchContext context;
         private final IndexShard indexShard;
         private final ShardRequestCache requestCache;
+        private final SegmentAggregationPhase.SegmentResults segmentResults;
+        private final NamedWriteableRegistry namedWriteableRegistry;
         private boolean loaded = false;
 
         IndexShardCacheEntity(IndexShard indexShard) {
-            this(indexShard, null, null);
+            this(indexShard, null, null, null, null);
         }
 
-        public IndexShardCacheEntity(IndexShard indexShard, QueryPhase queryPhase, SearchContext context) {
+        /**
+         * @param segmentResults if not <code>null</code>, the query phase is executed one segment at a time, and the results of
+         *                       each segment are loaded from it
+         */
+        public IndexShardCacheEntity(IndexShard indexShard, QueryPhase queryPhase, SearchContext context,
+                                     @Nullable SegmentAggregationPhase.SegmentResults segmentResults,
+                                     @Nullable NamedWriteableRegistry namedWriteableRegistry) {
             this.queryPhase = queryPhase;
             this.context = context;
             this.indexShard = indexShard;
             this.requestCache = indexShard.requestCache();
+            this.segmentResults = segmentResults;
+            this.namedWriteableRegistry = namedWriteableRegistry;
         }
 
         @Override
         public IndicesRequestCache.Value loadValue() throws IOException {
-            queryPhase.execute(context);
+            if (segmentResults == null || SegmentAggregationPhase.execute(context, segmentResults, namedWriteableRegistry) == false) {
+                queryPhase.execute(context);
+            }
             /* BytesStreamOutput allows to pass the expected size but by default uses
              * BigArrays.PAGE_SIZE_IN_BYTES which is 16k. A common cached result ie.
              * a date histogram with 3 buckets is ~100byte so 16k might be very wasteful
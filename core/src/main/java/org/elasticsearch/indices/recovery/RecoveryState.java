@@ -367,6 +367,7 @@ public class RecoveryState implements ToXContent, Streamable {
         static final XContentBuilderString INDEX = new XContentBuilderString("index");
         static final XContentBuilderString TRANSLOG = new XContentBuilderString("translog");
         static final XContentBuilderString TOTAL_ON_START = new XContentBuilderString("total_on_start");
+        static final XContentBuilderString OPERATIONS_PER_SECOND = new XContentBuilderString("operations_per_second");
         static final XContentBuilderString VERIFY_INDEX = new XContentBuilderString("verify_index");
         static final XContentBuilderString RECOVERED = new XContentBuilderString("recovered");
         static final XContentBuilderString RECOVERED_IN_BYTES = new XContentBuilderString("recovered_in_bytes");
@@ -564,6 +565,18 @@ public class RecoveryState implements ToXContent, Streamable {
             return recovered * 100.0f / total;
         }
 
+        /**
+         * returns the average number of translog operations recovered per second since the translog phase started or
+         * <code>0</code> if the phase hasn't started yet
+         */
+        public synchronized float recoveredOperationsPerSecond() {
+            final long timeInMillis = time();
+            if (timeInMillis == 0) {
+                return 0.f;
+            }
+            return recovered * 1000.0f / timeInMillis;
+        }
+
         @Override
         public void readFrom(StreamInput in) throws IOException {
             super.readFrom(in);
@@ -586,6 +599,7 @@ public class RecoveryState implements ToXContent, Streamable {
             builder.field(Fields.TOTAL, total);
             builder.field(Fields.PERCENT, String.format(Locale.ROOT, "%1.1f%%", recoveredPercent()));
             builder.field(Fields.TOTAL_ON_START, totalOnStart);
+            builder.field(Fields.OPERATIONS_PER_SECOND, recoveredOperationsPerSecond());
             builder.timeValueField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, time());
             return builder;
         }
@@ -31,6 +31,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.store.IndexOutputOutputStream;
 import org.elasticsearch.common.util.CancellableThreads;
 import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
@@ -378,10 +379,12 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
         } else {
             indexOutput = getOpenIndexOutput(name);
         }
-        if (content.hasArray() == false) {
-            content = content.toBytesArray();
+        if (content.hasArray()) {
+            indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
+        } else {
+            // content that was received in several network buffers is written without copying it into a single array first
+            content.writeTo(new IndexOutputOutputStream(indexOutput));
         }
-        indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
         indexState.addRecoveredBytesToFile(name, content.length());
         if (indexOutput.getFilePointer() >= fileMetaData.length() || lastChunk) {
             try {
@@ -187,7 +187,8 @@ public class PipelineStore extends AbstractComponent implements Closeable, Clust
             pipelines = new HashMap<>();
         }
 
-        pipelines.put(request.getId(), new PipelineConfiguration(request.getId(), request.getSource()));
+        // the source may be a slice of the network buffer that the request was received in, which the cluster state shouldn't retain
+        pipelines.put(request.getId(), new PipelineConfiguration(request.getId(), request.getSource().copyBytesArray()));
         ClusterState.Builder newState = ClusterState.builder(currentState);
         newState.metaData(MetaData.builder(currentState.getMetaData())
             .putCustom(IngestMetadata.TYPE, new IngestMetadata(pipelines))
@@ -22,6 +22,7 @@ package org.elasticsearch.node;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.common.inject.AbstractModule;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.IndexingPressure;
 import org.elasticsearch.ingest.ProcessorsRegistry;
 import org.elasticsearch.ingest.core.Processor;
 import org.elasticsearch.ingest.core.TemplateService;
@@ -94,6 +95,8 @@ public class NodeModule extends AbstractModule {
         bind(Node.class).toInstance(node);
         bind(MonitorService.class).toInstance(monitorService);
         bind(NodeService.class).asEagerSingleton();
+        bind(ResponseCollectorService.class).asEagerSingleton();
+        bind(IndexingPressure.class).asEagerSingleton();
         bind(ProcessorsRegistry.Builder.class).toInstance(processorsRegistryBuilder);
     }
 
@@ -0,0 +1,172 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.node;
+
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects statistics about the search requests that this node sent to other nodes: the number of requests that are still
+ * outstanding, and moving averages of the response time seen by this node as well as of the search queue size and of the
+ * service time that the target nodes piggyback on their responses. These are used to rank shard copies when adaptive replica
+ * selection is enabled, see {@link org.elasticsearch.cluster.routing.OperationRouting}.
+ */
+public final class ResponseCollectorService extends AbstractComponent implements ClusterStateListener {
+
+    /**
+     * The weight of a new response in the moving averages. Higher values make the ranking react faster to a node slowing down,
+     * but also to noise.
+     */
+    public static final double ALPHA = 0.3;
+
+    private final ConcurrentMap<String, AtomicLong> outstandingRequests = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, NodeStatistics> nodeStats = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public ResponseCollectorService(Settings settings, ClusterService clusterService) {
+        super(settings);
+        clusterService.add(this);
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (event.nodesRemoved()) {
+            for (DiscoveryNode removedNode : event.nodesDelta().removedNodes()) {
+                outstandingRequests.remove(removedNode.getId());
+                nodeStats.remove(removedNode.getId());
+            }
+        }
+    }
+
+    /**
+     * Must be called when a search request is sent to the given node, and followed by exactly one call to
+     * {@link #onRequestDone(String)} when it is done.
+     */
+    public void onRequestSent(String nodeId) {
+        outstandingRequests.computeIfAbsent(nodeId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Must be called when a search request sent to the given node got a response or failed.
+     */
+    public void onRequestDone(String nodeId) {
+        AtomicLong outstanding = outstandingRequests.get(nodeId);
+        if (outstanding != null) {
+            outstanding.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of search requests sent to the given node that haven't completed yet.
+     */
+    public long getOutstandingRequests(String nodeId) {
+        AtomicLong outstanding = outstandingRequests.get(nodeId);
+        return outstanding == null ? 0 : Math.max(0, outstanding.get());
+    }
+
+    /**
+     * Adds the statistics of a response that the given node sent.
+     *
+     * @param queueSize the size of the search queue of the node when it sent the response
+     * @param responseTimeNanos the time between sending the request and receiving the response, as seen by this node
+     * @param serviceTimeNanos the average time it takes the node to execute a search request
+     */
+    public void addNodeStatistics(String nodeId, int queueSize, long responseTimeNanos, long serviceTimeNanos) {
+        nodeStats.compute(nodeId, (id, stats) -> {
+            if (stats == null) {
+                return new NodeStatistics(queueSize, responseTimeNanos, serviceTimeNanos);
+            }
+            stats.add(queueSize, responseTimeNanos, serviceTimeNanos);
+            return stats;
+        });
+    }
+
+    /**
+     * Returns the statistics of the given node, or <code>null</code> if this node hasn't received any response from it yet.
+     */
+    @Nullable
+    public NodeStatistics getNodeStatistics(String nodeId) {
+        return nodeStats.get(nodeId);
+    }
+
+    /**
+     * Ranks the given node, lower is better, or returns <code>null</code> if this node hasn't received any response from it yet.
+     * This follows the C3 replica ranking function: the part of the response time that isn't spent executing the request, plus
+     * the service time weighted by the cube of the estimated queue size of the node. The estimated queue size accounts for the
+     * requests this node already sent to it, plus the given number of requests it is about to send, so that the shards of a
+     * single search don't all pick the same node.
+     */
+    @Nullable
+    public Double rank(String nodeId, long pendingRequests) {
+        NodeStatistics stats = nodeStats.get(nodeId);
+        if (stats == null) {
+            return null;
+        }
+        final double estimatedQueueSize = 1 + getOutstandingRequests(nodeId) + pendingRequests + stats.getQueueSize();
+        final double serviceTime = stats.getServiceTime();
+        return stats.getResponseTime() - serviceTime + Math.pow(estimatedQueueSize, 3) * serviceTime;
+    }
+
+    /**
+     * Moving averages of the responses of a single node.
+     */
+    public static final class NodeStatistics {
+
+        private final ExponentiallyWeightedMovingAverage queueSize;
+        private final ExponentiallyWeightedMovingAverage responseTime;
+        private final ExponentiallyWeightedMovingAverage serviceTime;
+
+        NodeStatistics(int queueSize, long responseTimeNanos, long serviceTimeNanos) {
+            // the averages start at the first response, so that a node doesn't look faster than it is until it sent a few
+            this.queueSize = new ExponentiallyWeightedMovingAverage(ALPHA, queueSize);
+            this.responseTime = new ExponentiallyWeightedMovingAverage(ALPHA, responseTimeNanos);
+            this.serviceTime = new ExponentiallyWeightedMovingAverage(ALPHA, serviceTimeNanos);
+        }
+
+        void add(int queueSize, long responseTimeNanos, long serviceTimeNanos) {
+            this.queueSize.addValue(queueSize);
+            this.responseTime.addValue(responseTimeNanos);
+            this.serviceTime.addValue(serviceTimeNanos);
+        }
+
+        public double getQueueSize() {
+            return queueSize.getAverage();
+        }
+
+        public double getResponseTime() {
+            return responseTime.getAverage();
+        }
+
+        public double getServiceTime() {
+            return serviceTime.getAverage();
+        }
+    }
+}
@@ -32,6 +32,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.settings.SettingsFilter;
 import org.elasticsearch.discovery.Discovery;
 import org.elasticsearch.http.HttpServer;
+import org.elasticsearch.index.IndexingPressure;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.ingest.IngestService;
@@ -61,6 +62,7 @@ public class NodeService extends AbstractComponent implements Closeable {
     private final PluginsService pluginService;
     private final CircuitBreakerService circuitBreakerService;
     private final IngestService ingestService;
+    private final IndexingPressure indexingPressure;
     private final SettingsFilter settingsFilter;
     private ScriptService scriptService;
 
@@ -77,7 +79,8 @@ public class NodeService extends AbstractComponent implements Closeable {
     public NodeService(Settings settings, ThreadPool threadPool, MonitorService monitorService,
                        Discovery discovery, TransportService transportService, IndicesService indicesService,
                        PluginsService pluginService, CircuitBreakerService circuitBreakerService, Version version,
-                       ProcessorsRegistry.Builder processorsRegistryBuilder, ClusterService clusterService, SettingsFilter settingsFilter) {
+                       ProcessorsRegistry.Builder processorsRegistryBuilder, ClusterService clusterService, SettingsFilter settingsFilter,
+                       IndexingPressure indexingPressure) {
         super(settings);
         this.threadPool = threadPool;
         this.monitorService = monitorService;
@@ -89,6 +92,7 @@ public class NodeService extends AbstractComponent implements Closeable {
         this.circuitBreakerService = circuitBreakerService;
         this.ingestService = new IngestService(settings, threadPool, processorsRegistryBuilder);
         this.settingsFilter = settingsFilter;
+        this.indexingPressure = indexingPressure;
         clusterService.add(ingestService.getPipelineStore());
         clusterService.add(ingestService.getPipelineExecutionService());
     }
@@ -167,13 +171,14 @@ public class NodeService extends AbstractComponent implements Closeable {
                 circuitBreakerService.stats(),
                 scriptService.stats(),
                 discovery.stats(),
-                ingestService.getPipelineExecutionService().stats()
+                ingestService.getPipelineExecutionService().stats(),
+                indexingPressure.stats()
         );
     }
 
     public NodeStats stats(CommonStatsFlags indices, boolean os, boolean process, boolean jvm, boolean threadPool,
                            boolean fs, boolean transport, boolean http, boolean circuitBreaker,
-                           boolean script, boolean discoveryStats, boolean ingest) {
+                           boolean script, boolean discoveryStats, boolean ingest, boolean indexingPressure) {
         // for indices stats we want to include previous allocated shards stats as well (it will
         // only be applied to the sensible ones to use, like refresh/merge/flush/indexing stats)
         return new NodeStats(discovery.localNode(), System.currentTimeMillis(),
@@ -188,7 +193,8 @@ public class NodeService extends AbstractComponent implements Closeable {
                 circuitBreaker ? circuitBreakerService.stats() : null,
                 script ? scriptService.stats() : null,
                 discoveryStats ? discovery.stats() : null,
-                ingest ? ingestService.getPipelineExecutionService().stats() : null
+                ingest ? ingestService.getPipelineExecutionService().stats() : null,
+                indexingPressure ? this.indexingPressure.stats() : null
         );
     }
 
@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.rest;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A response whose content is written one part at a time, like a single hit or row, so that channels that support it can
+ * send large responses in chunks of recycled pages instead of holding the whole content in memory. Other channels get the
+ * whole content from {@link #content()}.
+ */
+public abstract class ChunkedRestResponse extends RestResponse {
+
+    private final ChunkOutputStream output = new ChunkOutputStream();
+    private boolean done;
+    private BytesReference content;
+
+    /**
+     * The stream that the content must be written to. It is the same for every call to {@link #writeNext()}, so writers
+     * that wrap it, like an {@link XContentBuilder} created with {@link RestChannel#newBuilder(OutputStream)}, can be kept
+     * across calls.
+     */
+    protected final OutputStream output() {
+        return output;
+    }
+
+    /**
+     * Writes the next part of the content to the {@link #output()} and flushes the writer that wraps it. Returns
+     * <code>false</code> once the whole content was written.
+     */
+    protected abstract boolean writeNext() throws IOException;
+
+    /**
+     * Returns whether the whole content was written.
+     */
+    public final boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Writes the next chunk of the content into pages of the given big arrays. The chunk ends with the first part that makes
+     * it reach the given size, or with the end of the content. The returned bytes must be released once they were sent.
+     */
+    public final ReleasablePagedBytesReference nextChunk(BigArrays bigArrays, int chunkSize) throws IOException {
+        if (done) {
+            throw new IllegalStateException("the whole content was written already");
+        }
+        final ReleasableBytesStreamOutput out = new ReleasableBytesStreamOutput(bigArrays);
+        boolean success = false;
+        try {
+            writeTo(out, chunkSize);
+            success = true;
+            return out.bytes();
+        } finally {
+            if (success == false) {
+                Releasables.close(out.bytes());
+            }
+        }
+    }
+
+    /**
+     * Writes the whole content into a single buffer, for channels that don't send responses in chunks.
+     */
+    @Override
+    public BytesReference content() {
+        if (content == null) {
+            final BytesStreamOutput out = new BytesStreamOutput();
+            try {
+                writeTo(out, Integer.MAX_VALUE);
+            } catch (IOException e) {
+                throw new ElasticsearchException("failed to write the content of the response", e);
+            }
+            content = out.bytes();
+        }
+        return content;
+    }
+
+    private void writeTo(BytesStreamOutput out, int maxSize) throws IOException {
+        output.delegate = out;
+        try {
+            while (done == false && out.size() < maxSize) {
+                done = writeNext() == false;
+            }
+        } finally {
+            output.delegate = null;
+        }
+    }
+
+    private static final class ChunkOutputStream extends OutputStream {
+
+        private BytesStreamOutput delegate;
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate().writeByte((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate().writeBytes(b, off, len);
+        }
+
+        private BytesStreamOutput delegate() {
+            if (delegate == null) {
+                throw new IllegalStateException("the content of a chunked response must be written by writeNext");
+            }
+            return delegate;
+        }
+
+        @Override
+        public void close() {
+            // the chunks are owned by the channel
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+
+/**
+ * The content of a request that is still being received when the request is dispatched, see
+ * {@link RestRequest#contentStream()}. Chunks are passed to the listener in order as they arrive, and reading from the
+ * network can be paused while the chunks that were received so far are processed.
+ */
+public interface RestContentStream {
+
+    /**
+     * Receives the chunks of the content of a request.
+     */
+    interface Listener {
+
+        /**
+         * Called for every chunk of the content, in order, usually on a network thread. The last chunk may be empty.
+         */
+        void onChunk(BytesReference chunk, boolean last) throws Exception;
+
+        /**
+         * Called if the content can't be received entirely, for instance because the connection was closed. No more
+         * chunks are received after that.
+         */
+        void onFailure(Throwable t);
+    }
+
+    /**
+     * Sets the listener of this stream. The chunks that were received before are passed to the listener right away.
+     */
+    void listen(Listener listener);
+
+    /**
+     * Stops reading content from the network until {@link #resume()} is called. Chunks that were already received may
+     * still be passed to the listener.
+     */
+    void pause();
+
+    /**
+     * Resumes reading content from the network.
+     */
+    void resume();
+}
@@ -66,6 +66,16 @@ public abstract class RestRequest implements ToXContent.Params {
 
     public abstract BytesReference content();
 
+    /**
+     * Returns the content of this request if it is still being received in chunks, in which case {@link #content()} is
+     * empty, or <code>null</code> if the content was received entirely. Only handlers that support it get requests with
+     * streamed content.
+     */
+    @Nullable
+    public RestContentStream contentStream() {
+        return null;
+    }
+
     public abstract String header(String name);
 
     public abstract Iterable<Map.Entry<String, String>> headers();
@@ -82,6 +82,7 @@ public class RestNodesStatsAction extends BaseRestHandler {
             nodesStatsRequest.script(metrics.contains("script"));
             nodesStatsRequest.discovery(metrics.contains("discovery"));
             nodesStatsRequest.ingest(metrics.contains("ingest"));
+            nodesStatsRequest.indexingPressure(metrics.contains("indexing_pressure"));
 
             // check for index specific metrics
             if (metrics.contains("indices")) {
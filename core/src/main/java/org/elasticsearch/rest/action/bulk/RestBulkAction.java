@@ -31,9 +31,12 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.http.HttpTransportSettings;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.rest.BaseRestHandler;
 import org.elasticsearch.rest.BytesRestResponse;
 import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestContentStream;
 import org.elasticsearch.rest.RestController;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestResponse;
@@ -54,11 +57,16 @@ import static org.elasticsearch.rest.RestStatus.OK;
  */
 public class RestBulkAction extends BaseRestHandler {
 
+    private final CircuitBreakerService circuitBreakerService;
     private final boolean allowExplicitIndex;
+    private final long streamingBatchSizeInBytes;
+    private final int streamingMaxInFlightBatches;
+    private final long maxContentLengthInBytes;
 
     @Inject
-    public RestBulkAction(Settings settings, RestController controller, Client client) {
+    public RestBulkAction(Settings settings, RestController controller, Client client, CircuitBreakerService circuitBreakerService) {
         super(settings, client);
+        this.circuitBreakerService = circuitBreakerService;
 
         controller.registerHandler(POST, "/_bulk", this);
         controller.registerHandler(PUT, "/_bulk", this);
@@ -68,11 +76,13 @@ public class RestBulkAction extends BaseRestHandler {
         controller.registerHandler(PUT, "/{index}/{type}/_bulk", this);
 
         this.allowExplicitIndex = MULTI_ALLOW_EXPLICIT_INDEX.get(settings);
+        this.streamingBatchSizeInBytes = HttpTransportSettings.SETTING_HTTP_BULK_STREAMING_BATCH_SIZE.get(settings).bytes();
+        this.streamingMaxInFlightBatches = HttpTransportSettings.SETTING_HTTP_BULK_STREAMING_MAX_IN_FLIGHT_BATCHES.get(settings);
+        this.maxContentLengthInBytes = HttpTransportSettings.SETTING_HTTP_MAX_CONTENT_LENGTH.get(settings).bytes();
     }
 
     @Override
     public void handleRequest(final RestRequest request, final RestChannel channel, final Client client) throws Exception {
-        BulkRequest bulkRequest = Requests.bulkRequest();
         String defaultIndex = request.param("index");
         String defaultType = request.param("type");
         String defaultRouting = request.param("routing");
@@ -80,15 +90,35 @@ public class RestBulkAction extends BaseRestHandler {
         String defaultPipeline = request.param("pipeline");
         String[] defaultFields = fieldsParam != null ? Strings.commaDelimitedListToStringArray(fieldsParam) : null;
 
+        RestContentStream contentStream = request.contentStream();
+        if (contentStream != null) {
+            // the content is still being received, execute its actions in batches as they get parsed
+            contentStream.listen(new StreamingBulkRequestHandler(client, circuitBreakerService, contentStream,
+                newResponseListener(request, channel), () -> newBulkRequest(request), defaultIndex, defaultType, defaultRouting,
+                defaultFields, defaultPipeline, allowExplicitIndex, streamingBatchSizeInBytes, streamingMaxInFlightBatches,
+                maxContentLengthInBytes));
+            return;
+        }
+
+        BulkRequest bulkRequest = newBulkRequest(request);
+        bulkRequest.add(request.content(), defaultIndex, defaultType, defaultRouting, defaultFields, defaultPipeline, null, allowExplicitIndex);
+
+        client.bulk(bulkRequest, newResponseListener(request, channel));
+    }
+
+    private static BulkRequest newBulkRequest(RestRequest request) {
+        BulkRequest bulkRequest = Requests.bulkRequest();
         String consistencyLevel = request.param("consistency");
         if (consistencyLevel != null) {
             bulkRequest.consistencyLevel(WriteConsistencyLevel.fromString(consistencyLevel));
         }
         bulkRequest.timeout(request.paramAsTime("timeout", BulkShardRequest.DEFAULT_TIMEOUT));
         bulkRequest.refresh(request.paramAsBoolean("refresh", bulkRequest.refresh()));
-        bulkRequest.add(request.content(), defaultIndex, defaultType, defaultRouting, defaultFields, defaultPipeline, null, allowExplicitIndex);
+        return bulkRequest;
+    }
 
-        client.bulk(bulkRequest, new RestBuilderListener<BulkResponse>(channel) {
+    private static RestBuilderListener<BulkResponse> newResponseListener(RestRequest request, RestChannel channel) {
+        return new RestBuilderListener<BulkResponse>(channel) {
             @Override
             public RestResponse buildResponse(BulkResponse response, XContentBuilder builder) throws Exception {
                 builder.startObject();
@@ -108,7 +138,7 @@ public class RestBulkAction extends BaseRestHandler {
                 builder.endObject();
                 return new BytesRestResponse(OK, builder);
             }
-        });
+        };
     }
 
     static final class Fields {
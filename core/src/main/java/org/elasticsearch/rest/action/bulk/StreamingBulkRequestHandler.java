@@ -0,0 +1,304 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.bulk;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.rest.RestContentStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Executes a bulk request whose content is streamed: actions are parsed as the chunks of the content arrive, and are
+ * executed in batches of a configured size while the rest of the content is received. Reading from the network is
+ * paused while the maximum number of batches are executing, so that the memory used by a bulk request doesn't depend
+ * on its size. Once all batches completed, the responses of their items are merged into a single response, in the
+ * order of the items of the request. Batches that fail entirely are reported as failures of their items, since the
+ * batches before may already have been applied.
+ * <p>
+ * The content counts towards the in flight requests circuit breaker from when it is received until its actions are
+ * passed on for execution, which accounts for them from then on.
+ */
+final class StreamingBulkRequestHandler implements RestContentStream.Listener {
+
+    private final Client client;
+    private final CircuitBreakerService circuitBreakerService;
+    private final RestContentStream contentStream;
+    private final ActionListener<BulkResponse> listener;
+    private final Supplier<BulkRequest> batchSupplier;
+    private final String defaultIndex;
+    private final String defaultType;
+    private final String defaultRouting;
+    private final String[] defaultFields;
+    private final String defaultPipeline;
+    private final boolean allowExplicitIndex;
+    private final long batchSizeInBytes;
+    private final int maxInFlightBatches;
+    private final long maxActionSizeInBytes;
+    private final ThreadContext threadContext;
+    private final ThreadContext.StoredContext requestContext;
+    private final long startTimeNanos = System.nanoTime();
+
+    // the content that was received but not parsed yet, the start of an incomplete action
+    private BytesStreamOutput pending = new BytesStreamOutput();
+    // the number of pending bytes that were already searched for the separator of the actions
+    private int scanned = 0;
+    // the bytes that were added to the in flight requests circuit breaker and not released yet
+    private long reservedBytes = 0;
+    private BulkRequest batch;
+    private final List<BulkItemResponse[]> batchResponses = new ArrayList<>();
+    private long ingestTookInMillis = BulkResponse.NO_INGEST_TOOK;
+    private int inFlightBatches = 0;
+    private boolean lastReceived = false;
+    private Throwable failure;
+    private boolean responded = false;
+
+    StreamingBulkRequestHandler(Client client, CircuitBreakerService circuitBreakerService, RestContentStream contentStream,
+                                ActionListener<BulkResponse> listener, Supplier<BulkRequest> batchSupplier, String defaultIndex,
+                                String defaultType, String defaultRouting, String[] defaultFields, String defaultPipeline,
+                                boolean allowExplicitIndex, long batchSizeInBytes, int maxInFlightBatches, long maxActionSizeInBytes) {
+        this.client = client;
+        this.circuitBreakerService = circuitBreakerService;
+        this.contentStream = contentStream;
+        this.listener = listener;
+        this.batchSupplier = batchSupplier;
+        this.defaultIndex = defaultIndex;
+        this.defaultType = defaultType;
+        this.defaultRouting = defaultRouting;
+        this.defaultFields = defaultFields;
+        this.defaultPipeline = defaultPipeline;
+        this.allowExplicitIndex = allowExplicitIndex;
+        this.batchSizeInBytes = batchSizeInBytes;
+        this.maxInFlightBatches = maxInFlightBatches;
+        this.maxActionSizeInBytes = maxActionSizeInBytes;
+        this.batch = batchSupplier.get();
+        this.threadContext = client.threadPool().getThreadContext();
+        // chunks are received on network threads, batches must be executed with the headers of the request
+        this.requestContext = threadContext.newStoredContext();
+    }
+
+    @Override
+    public void onChunk(BytesReference chunk, boolean last) throws Exception {
+        BulkRequest toExecute = null;
+        int batchIndex = -1;
+        long handedOffBytes = 0;
+        synchronized (this) {
+            if (failure != null) {
+                return;
+            }
+            // the request was dispatched before its content was received, so it is accounted for as it arrives
+            inFlightRequestsBreaker().addEstimateBytesAndMaybeBreak(chunk.length(), "<http_request>");
+            reservedBytes += chunk.length();
+            chunk.writeTo(pending);
+            final BytesReference bytes = pending.bytes();
+            // wait for the first bytes of the next action if its content type can't be detected yet
+            final XContentType xContentType = bytes.length() > 0 ? XContentFactory.xContentType(bytes) : null;
+            if (xContentType != null) {
+                // only a separator in the new bytes can complete an action, so the pending ones are not parsed again otherwise
+                if (indexOf(xContentType.xContent().streamSeparator(), bytes, scanned) != -1) {
+                    final int consumed = batch.addCompleteActions(bytes, defaultIndex, defaultType, defaultRouting, defaultFields,
+                        defaultPipeline, allowExplicitIndex);
+                    if (consumed > 0) {
+                        // parsed actions reference the bytes of the current buffer, the remaining ones need to be copied
+                        final BytesStreamOutput remaining = new BytesStreamOutput();
+                        bytes.slice(consumed, bytes.length() - consumed).writeTo(remaining);
+                        pending = remaining;
+                    }
+                }
+                scanned = pending.size();
+            }
+            if (pending.size() > maxActionSizeInBytes) {
+                throw new IllegalArgumentException("bulk action is larger than the maximum content length of [" + maxActionSizeInBytes
+                    + "] bytes");
+            }
+            lastReceived = last;
+            // the last batch is executed even if it is empty when there were no actions at all, to fail like other bulks
+            if (batch.estimatedSizeInBytes() >= batchSizeInBytes
+                || (last && (batch.numberOfActions() > 0 || batchResponses.isEmpty()))) {
+                toExecute = batch;
+                batchIndex = batchResponses.size();
+                batchResponses.add(null);
+                batch = batchSupplier.get();
+                // only the start of the next action is still held here
+                handedOffBytes = reservedBytes - pending.size();
+                reservedBytes = pending.size();
+                if (++inFlightBatches >= maxInFlightBatches) {
+                    contentStream.pause();
+                }
+            }
+        }
+        if (toExecute != null) {
+            try {
+                execute(toExecute, batchIndex);
+            } finally {
+                inFlightRequestsBreaker().addWithoutBreaking(-handedOffBytes);
+            }
+        }
+    }
+
+    private static int indexOf(byte marker, BytesReference bytes, int from) {
+        for (int i = from; i < bytes.length(); i++) {
+            if (bytes.get(i) == marker) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private CircuitBreaker inFlightRequestsBreaker() {
+        // We always obtain a fresh breaker to reflect changes to the breaker configuration.
+        return circuitBreakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+    }
+
+    @Override
+    public void onFailure(Throwable t) {
+        synchronized (this) {
+            if (failure != null) {
+                return;
+            }
+            failure = t;
+        }
+        // the rest of the content is ignored, but must still be read
+        contentStream.resume();
+        maybeRespond();
+    }
+
+    private void execute(BulkRequest bulkRequest, int batchIndex) {
+        try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+            requestContext.restore();
+            client.bulk(bulkRequest, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    onBatchResponse(batchIndex, response.getItems(), response.getIngestTookInMillis());
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    if (bulkRequest.numberOfActions() == 0) {
+                        // there were no actions at all
+                        StreamingBulkRequestHandler.this.onFailure(t);
+                        onBatchResponse(batchIndex, new BulkItemResponse[0], BulkResponse.NO_INGEST_TOOK);
+                    } else {
+                        onBatchResponse(batchIndex, failures(bulkRequest, t), BulkResponse.NO_INGEST_TOOK);
+                    }
+                }
+            });
+        }
+    }
+
+    private static BulkItemResponse[] failures(BulkRequest bulkRequest, Throwable t) {
+        final BulkItemResponse[] items = new BulkItemResponse[bulkRequest.numberOfActions()];
+        for (int i = 0; i < items.length; ++i) {
+            final ActionRequest<?> request = bulkRequest.requests().get(i);
+            if (request instanceof IndexRequest) {
+                final IndexRequest indexRequest = (IndexRequest) request;
+                items[i] = new BulkItemResponse(i, "index",
+                    new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), t));
+            } else if (request instanceof DeleteRequest) {
+                final DeleteRequest deleteRequest = (DeleteRequest) request;
+                items[i] = new BulkItemResponse(i, "delete",
+                    new BulkItemResponse.Failure(deleteRequest.index(), deleteRequest.type(), deleteRequest.id(), t));
+            } else if (request instanceof UpdateRequest) {
+                final UpdateRequest updateRequest = (UpdateRequest) request;
+                items[i] = new BulkItemResponse(i, "update",
+                    new BulkItemResponse.Failure(updateRequest.index(), updateRequest.type(), updateRequest.id(), t));
+            } else {
+                throw new IllegalStateException("unexpected bulk action [" + request + "]");
+            }
+        }
+        return items;
+    }
+
+    private void onBatchResponse(int batchIndex, BulkItemResponse[] items, long ingestTookInMillis) {
+        final boolean resume;
+        synchronized (this) {
+            batchResponses.set(batchIndex, items);
+            if (ingestTookInMillis != BulkResponse.NO_INGEST_TOOK) {
+                this.ingestTookInMillis = this.ingestTookInMillis == BulkResponse.NO_INGEST_TOOK
+                    ? ingestTookInMillis : this.ingestTookInMillis + ingestTookInMillis;
+            }
+            resume = inFlightBatches-- == maxInFlightBatches;
+        }
+        if (resume) {
+            contentStream.resume();
+        }
+        maybeRespond();
+    }
+
+    private void maybeRespond() {
+        final BulkResponse response;
+        final Throwable failure;
+        final long releasedBytes;
+        synchronized (this) {
+            if (responded || inFlightBatches > 0 || (lastReceived == false && this.failure == null)) {
+                return;
+            }
+            responded = true;
+            // no more content is parsed, release what is left of it
+            releasedBytes = reservedBytes;
+            reservedBytes = 0;
+            failure = this.failure;
+            if (failure == null) {
+                int numberOfItems = 0;
+                for (BulkItemResponse[] items : batchResponses) {
+                    numberOfItems += items.length;
+                }
+                final BulkItemResponse[] allItems = new BulkItemResponse[numberOfItems];
+                int itemId = 0;
+                for (BulkItemResponse[] items : batchResponses) {
+                    for (BulkItemResponse item : items) {
+                        // renumber the items of the batch to their position in the request
+                        allItems[itemId] = item.isFailed()
+                            ? new BulkItemResponse(itemId, item.getOpType(), item.getFailure())
+                            : new BulkItemResponse(itemId, item.getOpType(), item.getResponse());
+                        ++itemId;
+                    }
+                }
+                final long tookInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNanos);
+                response = new BulkResponse(allItems, tookInMillis, ingestTookInMillis);
+            } else {
+                response = null;
+            }
+        }
+        inFlightRequestsBreaker().addWithoutBreaking(-releasedBytes);
+        if (failure != null) {
+            listener.onFailure(failure);
+        } else {
+            listener.onResponse(response);
+        }
+    }
+}
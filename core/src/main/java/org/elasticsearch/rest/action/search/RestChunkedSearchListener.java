@@ -0,0 +1,91 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.rest.action.search;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.rest.ChunkedRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.rest.action.support.RestResponseListener;
+import org.elasticsearch.search.SearchHit;
+
+import java.io.IOException;
+
+/**
+ * Sends search responses as {@link ChunkedRestResponse}s that write one hit at a time, so that large pages of hits, like
+ * the ones of scrolls, don't need to be serialized at once.
+ */
+public class RestChunkedSearchListener extends RestResponseListener<SearchResponse> {
+
+    public RestChunkedSearchListener(RestChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    public RestResponse buildResponse(SearchResponse response) throws Exception {
+        return new ChunkedSearchResponse(response, channel);
+    }
+
+    private static final class ChunkedSearchResponse extends ChunkedRestResponse {
+
+        private final SearchResponse response;
+        private final ToXContent.Params params;
+        private final XContentBuilder builder;
+        private final SearchHit[] hits;
+        private int nextHit = -1; // -1 until the start of the response was written
+
+        ChunkedSearchResponse(SearchResponse response, RestChannel channel) throws IOException {
+            this.response = response;
+            this.params = channel.request();
+            this.builder = channel.newBuilder(output());
+            this.hits = response.getHits().getHits();
+        }
+
+        @Override
+        public String contentType() {
+            return builder.contentType().mediaType();
+        }
+
+        @Override
+        public RestStatus status() {
+            return response.status();
+        }
+
+        @Override
+        protected boolean writeNext() throws IOException {
+            if (nextHit < 0) {
+                builder.startObject();
+                response.toXContentBeforeHits(builder, params);
+            } else if (nextHit < hits.length) {
+                hits[nextHit].toXContent(builder, params);
+            } else {
+                response.toXContentAfterHits(builder, params);
+                builder.endObject();
+                builder.close();
+                return false;
+            }
+            nextHit++;
+            builder.flush();
+            return true;
+        }
+    }
+}
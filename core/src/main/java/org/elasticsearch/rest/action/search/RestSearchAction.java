@@ -39,7 +39,6 @@ import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestController;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.action.support.RestActions;
-import org.elasticsearch.rest.action.support.RestStatusToXContentListener;
 import org.elasticsearch.script.Template;
 import org.elasticsearch.search.Scroll;
 import org.elasticsearch.search.aggregations.AggregatorParsers;
@@ -93,7 +92,7 @@ public class RestSearchAction extends BaseRestHandler {
     public void handleRequest(final RestRequest request, final RestChannel channel, final Client client) throws IOException {
         SearchRequest searchRequest = new SearchRequest();
         parseSearchRequest(searchRequest, queryRegistry, request, parseFieldMatcher, aggParsers, suggesters, null);
-        client.search(searchRequest, new RestStatusToXContentListener<>(channel));
+        client.search(searchRequest, new RestChunkedSearchListener(channel));
     }
 
     /**
@@ -147,6 +146,8 @@ public class RestSearchAction extends BaseRestHandler {
         }
         parseSearchSource(searchRequest.source(), request);
         searchRequest.requestCache(request.paramAsBoolean("request_cache", null));
+        searchRequest.preFilterShardSize(request.paramAsInt("pre_filter_shard_size", searchRequest.preFilterShardSize()));
+        searchRequest.batchedReduceSize(request.paramAsInt("batched_reduce_size", searchRequest.batchedReduceSize()));
 
         String scroll = request.param("scroll");
         if (scroll != null) {
@@ -230,6 +231,10 @@ public class RestSearchAction extends BaseRestHandler {
             searchSourceBuilder.trackScores(request.paramAsBoolean("track_scores", false));
         }
 
+        if (request.hasParam("track_total_hits")) {
+            searchSourceBuilder.trackTotalHits(request.paramAsBoolean("track_total_hits", true));
+        }
+
         String sSorts = request.param("sort");
         if (sSorts != null) {
             String[] sorts = Strings.splitStringByCommaToArray(sSorts);
@@ -23,7 +23,6 @@ import org.elasticsearch.common.Booleans;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.Table;
 import org.elasticsearch.common.io.UTF8StreamWriter;
-import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.SizeValue;
@@ -31,6 +30,7 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponse;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestResponse;
@@ -57,20 +57,8 @@ public class RestTable {
 
     public static RestResponse buildXContentBuilder(Table table, RestChannel channel) throws Exception {
         RestRequest request = channel.request();
-        XContentBuilder builder = channel.newBuilder();
         List<DisplayHeader> displayHeaders = buildDisplayHeaders(table, request);
-
-        builder.startArray();
-        for (int row = 0; row < table.getRows().size(); row++) {
-            builder.startObject();
-            for (DisplayHeader header : displayHeaders) {
-                builder.field(header.display, renderValue(request, table.getAsMap().get(header.name).get(row).value));
-            }
-            builder.endObject();
-
-        }
-        builder.endArray();
-        return new BytesRestResponse(RestStatus.OK, builder);
+        return new XContentTableResponse(table, channel, displayHeaders);
     }
 
     public static RestResponse buildTextPlainResponse(Table table, RestChannel channel) throws IOException {
@@ -79,34 +67,7 @@ public class RestTable {
 
         List<DisplayHeader> headers = buildDisplayHeaders(table, request);
         int[] width = buildWidths(table, request, verbose, headers);
-
-        BytesStreamOutput bytesOut = channel.bytesOutput();
-        UTF8StreamWriter out = new UTF8StreamWriter().setOutput(bytesOut);
-        int lastHeader = headers.size() - 1;
-        if (verbose) {
-            for (int col = 0; col < headers.size(); col++) {
-                DisplayHeader header = headers.get(col);
-                boolean isLastColumn = col == lastHeader;
-                pad(new Table.Cell(header.display, table.findHeaderByName(header.name)), width[col], request, out, isLastColumn);
-                if (!isLastColumn) {
-                    out.append(" ");
-                }
-            }
-            out.append("\n");
-        }
-        for (int row = 0; row < table.getRows().size(); row++) {
-            for (int col = 0; col < headers.size(); col++) {
-                DisplayHeader header = headers.get(col);
-                boolean isLastColumn = col == lastHeader;
-                pad(table.getAsMap().get(header.name).get(row), width[col], request, out, isLastColumn);
-                if (!isLastColumn) {
-                    out.append(" ");
-                }
-            }
-            out.append("\n");
-        }
-        out.close();
-        return new BytesRestResponse(RestStatus.OK, BytesRestResponse.TEXT_CONTENT_TYPE, bytesOut.bytes());
+        return new TextTableResponse(table, request, verbose, headers, width);
     }
 
     static List<DisplayHeader> buildDisplayHeaders(Table table, RestRequest request) {
@@ -355,6 +316,122 @@ public class RestTable {
         return value.toString();
     }
 
+    /**
+     * Writes the rows of a table as an array of objects, one row at a time.
+     */
+    private static final class XContentTableResponse extends ChunkedRestResponse {
+
+        private final Table table;
+        private final RestRequest request;
+        private final List<DisplayHeader> displayHeaders;
+        private final XContentBuilder builder;
+        private int nextRow = -1; // -1 until the start of the array was written
+
+        XContentTableResponse(Table table, RestChannel channel, List<DisplayHeader> displayHeaders) throws IOException {
+            this.table = table;
+            this.request = channel.request();
+            this.displayHeaders = displayHeaders;
+            this.builder = channel.newBuilder(output());
+        }
+
+        @Override
+        public String contentType() {
+            return builder.contentType().mediaType();
+        }
+
+        @Override
+        public RestStatus status() {
+            return RestStatus.OK;
+        }
+
+        @Override
+        protected boolean writeNext() throws IOException {
+            if (nextRow < 0) {
+                builder.startArray();
+            } else if (nextRow < table.getRows().size()) {
+                builder.startObject();
+                for (DisplayHeader header : displayHeaders) {
+                    builder.field(header.display, renderValue(request, table.getAsMap().get(header.name).get(nextRow).value));
+                }
+                builder.endObject();
+            } else {
+                builder.endArray();
+                builder.close();
+                return false;
+            }
+            nextRow++;
+            builder.flush();
+            return true;
+        }
+    }
+
+    /**
+     * Writes a table as aligned columns of plain text, one row at a time.
+     */
+    private static final class TextTableResponse extends ChunkedRestResponse {
+
+        private final Table table;
+        private final RestRequest request;
+        private final boolean verbose;
+        private final List<DisplayHeader> headers;
+        private final int[] width;
+        private final UTF8StreamWriter out;
+        private int nextRow = -1; // -1 until the header line was written
+
+        TextTableResponse(Table table, RestRequest request, boolean verbose, List<DisplayHeader> headers, int[] width) {
+            this.table = table;
+            this.request = request;
+            this.verbose = verbose;
+            this.headers = headers;
+            this.width = width;
+            this.out = new UTF8StreamWriter().setOutput(output());
+        }
+
+        @Override
+        public String contentType() {
+            return BytesRestResponse.TEXT_CONTENT_TYPE;
+        }
+
+        @Override
+        public RestStatus status() {
+            return RestStatus.OK;
+        }
+
+        @Override
+        protected boolean writeNext() throws IOException {
+            int lastHeader = headers.size() - 1;
+            if (nextRow < 0) {
+                if (verbose) {
+                    for (int col = 0; col < headers.size(); col++) {
+                        DisplayHeader header = headers.get(col);
+                        boolean isLastColumn = col == lastHeader;
+                        pad(new Table.Cell(header.display, table.findHeaderByName(header.name)), width[col], request, out, isLastColumn);
+                        if (!isLastColumn) {
+                            out.append(" ");
+                        }
+                    }
+                    out.append("\n");
+                }
+            } else if (nextRow < table.getRows().size()) {
+                for (int col = 0; col < headers.size(); col++) {
+                    DisplayHeader header = headers.get(col);
+                    boolean isLastColumn = col == lastHeader;
+                    pad(table.getAsMap().get(header.name).get(nextRow), width[col], request, out, isLastColumn);
+                    if (!isLastColumn) {
+                        out.append(" ");
+                    }
+                }
+                out.append("\n");
+            } else {
+                out.close();
+                return false;
+            }
+            nextRow++;
+            out.flush();
+            return true;
+        }
+    }
+
     static class DisplayHeader {
         public final String name;
         public final String display;
@@ -25,9 +25,11 @@ import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TopDocs;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseFieldMatcher;
 import org.elasticsearch.common.bytes.BytesReference;
@@ -49,6 +51,10 @@ import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.MatchNoneQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryParseContext;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.query.support.InnerHitBuilder;
@@ -57,6 +63,7 @@ import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.SearchOperationListener;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.script.ExecutableScript;
 import org.elasticsearch.script.ScriptContext;
 import org.elasticsearch.script.ScriptService;
@@ -104,7 +111,9 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.Collections.unmodifiableMap;
@@ -125,6 +134,12 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
     public static final TimeValue NO_TIMEOUT = timeValueMillis(-1);
     public static final Setting<TimeValue> DEFAULT_SEARCH_TIMEOUT_SETTING =
         Setting.timeSetting("search.default_search_timeout", NO_TIMEOUT, Property.Dynamic, Property.NodeScope);
+    /**
+     * Whether the query phase may search the segments of a shard concurrently on the
+     * {@link ThreadPool.Names#SEARCH_WORKER} thread pool.
+     */
+    public static final Setting<Boolean> CONCURRENT_SEGMENT_SEARCH_SETTING =
+        Setting.boolSetting("search.concurrent_segment_search", false, Property.Dynamic, Property.NodeScope);
 
 
     private final ThreadPool threadPool;
@@ -149,10 +164,16 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
 
     private volatile TimeValue defaultSearchTimeout;
 
+    private volatile boolean concurrentSegmentSearch;
+
     private final ScheduledFuture<?> keepAliveReaper;
 
     private final AtomicLong idGenerator = new AtomicLong();
 
+    // the moving average of the time it takes to execute the query phase, piggybacked on query results for adaptive replica selection
+    private final ExponentiallyWeightedMovingAverage queryPhaseTimeEWMA =
+        new ExponentiallyWeightedMovingAverage(ResponseCollectorService.ALPHA, 0);
+
     private final ConcurrentMapLong<SearchContext> activeContexts = ConcurrentCollections.newConcurrentMapLongWithAggressiveConcurrency();
 
     private final Map<String, SearchParseElement> elementParsers;
@@ -193,12 +214,18 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
 
         defaultSearchTimeout = DEFAULT_SEARCH_TIMEOUT_SETTING.get(settings);
         clusterSettings.addSettingsUpdateConsumer(DEFAULT_SEARCH_TIMEOUT_SETTING, this::setDefaultSearchTimeout);
+        concurrentSegmentSearch = CONCURRENT_SEGMENT_SEARCH_SETTING.get(settings);
+        clusterSettings.addSettingsUpdateConsumer(CONCURRENT_SEGMENT_SEARCH_SETTING, this::setConcurrentSegmentSearch);
     }
 
     private void setDefaultSearchTimeout(TimeValue defaultSearchTimeout) {
         this.defaultSearchTimeout = defaultSearchTimeout;
     }
 
+    private void setConcurrentSegmentSearch(boolean concurrentSegmentSearch) {
+        this.concurrentSegmentSearch = concurrentSegmentSearch;
+    }
+
     @Override
     public void afterIndexClosed(Index index, Settings indexSettings) {
         // once an index is closed we can just clean up all the pending search context information
@@ -245,8 +272,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         FutureUtils.cancel(keepAliveReaper);
     }
 
-    public DfsSearchResult executeDfsPhase(ShardSearchRequest request) throws IOException {
+    public DfsSearchResult executeDfsPhase(ShardSearchRequest request, SearchTask task) throws IOException {
         final SearchContext context = createAndPutContext(request);
+        context.setTask(task);
         try {
             contextProcessing(context);
             dfsPhase.execute(context);
@@ -274,8 +302,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
-    public QuerySearchResultProvider executeQueryPhase(ShardSearchRequest request) throws IOException {
+    public QuerySearchResultProvider executeQueryPhase(ShardSearchRequest request, SearchTask task) throws IOException {
         final SearchContext context = createAndPutContext(request);
+        context.setTask(task);
         final SearchOperationListener operationListener = context.indexShard().getSearchOperationListener();
         try {
             operationListener.onPreQueryPhase(context);
@@ -289,7 +318,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             } else {
                 contextProcessedSuccessfully(context);
             }
-            operationListener.onQueryPhase(context, System.nanoTime() - time);
+            final long took = System.nanoTime() - time;
+            operationListener.onQueryPhase(context, took);
+            onQueryPhaseExecuted(context.queryResult(), took);
 
             return context.queryResult();
         } catch (Throwable e) {
@@ -306,8 +337,27 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
-    public ScrollQuerySearchResult executeQueryPhase(InternalScrollSearchRequest request) {
+    /**
+     * Records the time it took to execute a query phase, and sets the current load of this node on the query result so that the
+     * coordinating node can rank shard copies by it.
+     */
+    private void onQueryPhaseExecuted(QuerySearchResult result, long tookInNanos) {
+        queryPhaseTimeEWMA.addValue(tookInNanos);
+        result.serviceTimeEWMA((long) queryPhaseTimeEWMA.getAverage());
+        result.nodeQueueSize(searchQueueSize());
+    }
+
+    private int searchQueueSize() {
+        Executor executor = threadPool.executor(ThreadPool.Names.SEARCH);
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+        return -1;
+    }
+
+    public ScrollQuerySearchResult executeQueryPhase(InternalScrollSearchRequest request, SearchTask task) {
         final SearchContext context = findContext(request.id());
+        context.setTask(task);
         SearchOperationListener operationListener = context.indexShard().getSearchOperationListener();
         try {
             operationListener.onPreQueryPhase(context);
@@ -328,8 +378,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
-    public QuerySearchResult executeQueryPhase(QuerySearchRequest request) {
+    public QuerySearchResult executeQueryPhase(QuerySearchRequest request, SearchTask task) {
         final SearchContext context = findContext(request.id());
+        context.setTask(task);
         contextProcessing(context);
         context.searcher().setAggregatedDfs(request.dfs());
         IndexShard indexShard = context.indexShard();
@@ -366,8 +417,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
-    public QueryFetchSearchResult executeFetchPhase(ShardSearchRequest request) throws IOException {
+    public QueryFetchSearchResult executeFetchPhase(ShardSearchRequest request, SearchTask task) throws IOException {
         final SearchContext context = createAndPutContext(request);
+        context.setTask(task);
         contextProcessing(context);
         try {
             SearchOperationListener operationListener = context.indexShard().getSearchOperationListener();
@@ -381,6 +433,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             }
             long time2 = System.nanoTime();
             operationListener.onQueryPhase(context, time2 - time);
+            onQueryPhaseExecuted(context.queryResult(), time2 - time);
             operationListener.onPreFetchPhase(context);
             try {
                 shortcutDocIdsToLoad(context);
@@ -405,8 +458,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
-    public QueryFetchSearchResult executeFetchPhase(QuerySearchRequest request) {
+    public QueryFetchSearchResult executeFetchPhase(QuerySearchRequest request, SearchTask task) {
         final SearchContext context = findContext(request.id());
+        context.setTask(task);
         contextProcessing(context);
         context.searcher().setAggregatedDfs(request.dfs());
         try {
@@ -445,8 +499,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
-    public ScrollQueryFetchSearchResult executeFetchPhase(InternalScrollSearchRequest request) {
+    public ScrollQueryFetchSearchResult executeFetchPhase(InternalScrollSearchRequest request, SearchTask task) {
         final SearchContext context = findContext(request.id());
+        context.setTask(task);
         contextProcessing(context);
         try {
             SearchOperationListener operationListener = context.indexShard().getSearchOperationListener();
@@ -485,8 +540,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
-    public FetchSearchResult executeFetchPhase(ShardFetchRequest request) {
+    public FetchSearchResult executeFetchPhase(ShardFetchRequest request, SearchTask task) {
         final SearchContext context = findContext(request.id());
+        context.setTask(task);
         contextProcessing(context);
         final SearchOperationListener operationListener = context.indexShard().getSearchOperationListener();
         try {
@@ -552,6 +608,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
                 indexService,
                 indexShard, scriptService, pageCacheRecycler, bigArrays, threadPool.estimatedTimeInMillisCounter(), parseFieldMatcher,
                 defaultSearchTimeout, fetchPhase);
+        if (concurrentSegmentSearch) {
+            context.searcher().setConcurrentSearchExecutor(threadPool.executor(ThreadPool.Names.SEARCH_WORKER));
+        }
         SearchContext.setCurrent(context);
         request.rewrite(context.getQueryShardContext());
         // reset that we have used nowInMillis from the context since it may
@@ -604,6 +663,62 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         return context;
     }
 
+    /**
+     * Returns <code>false</code> if the given request can't match any documents on its shard, which allows to skip that shard
+     * altogether. The query is only rewritten against the shard, which is cheap compared to executing it, and for instance turns
+     * range queries that are disjoint from the values that the shard holds into {@link MatchNoneQueryBuilder}s. This method may
+     * return <code>true</code> even if there are no matches.
+     */
+    public boolean canMatch(ShardSearchRequest request) throws IOException {
+        if (request.template() != null) {
+            return true;
+        }
+        IndexService indexService = indicesService.indexServiceSafe(request.shardId().getIndex());
+        IndexShard indexShard = indexService.getShard(request.shardId().getId());
+        try (Engine.Searcher searcher = indexShard.acquireSearcher("can_match")) {
+            QueryShardContext context = indexService.newQueryShardContext(searcher.reader());
+            // "now" must resolve to the time of the request, like it does in the query phase
+            context.setNowInMillis(request.nowInMillis());
+            request.rewrite(context);
+            return canRewriteToMatchNone(request.source()) == false;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the given (rewritten) source can't match any document. Sources that have aggregations which
+     * produce results even without matching documents, or suggestions, never qualify.
+     */
+    static boolean canRewriteToMatchNone(SearchSourceBuilder source) {
+        if (source == null || source.query() == null || source.suggest() != null) {
+            return false;
+        }
+        if (source.aggregations() != null && source.aggregations().mustVisitAllDocs()) {
+            return false;
+        }
+        return matchesNone(source.query());
+    }
+
+    private static boolean matchesNone(QueryBuilder<?> query) {
+        if (query instanceof MatchNoneQueryBuilder) {
+            return true;
+        } else if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder bool = (BoolQueryBuilder) query;
+            for (QueryBuilder<?> clause : bool.must()) {
+                if (matchesNone(clause)) {
+                    return true;
+                }
+            }
+            for (QueryBuilder<?> clause : bool.filter()) {
+                if (matchesNone(clause)) {
+                    return true;
+                }
+            }
+        } else if (query instanceof ConstantScoreQueryBuilder) {
+            return matchesNone(((ConstantScoreQueryBuilder) query).innerQuery());
+        }
+        return false;
+    }
+
     private void freeAllContextForIndex(Index index) {
         assert index != null;
         for (SearchContext ctx : activeContexts.values()) {
@@ -649,6 +764,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
 
     private void cleanContext(SearchContext context) {
         assert context == SearchContext.current();
+        // the task of a phase ends with the phase, the next phase of a scroll runs under another task
+        context.setTask(null);
         context.clearReleasables(Lifetime.PHASE);
         SearchContext.removeCurrent();
     }
@@ -696,6 +813,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             }
         }
         context.trackScores(source.trackScores());
+        context.trackTotalHits(source.trackTotalHits());
         if (source.minScore() != null) {
             context.minimumScore(source.minScore());
         }
@@ -830,6 +948,14 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             FieldDoc fieldDoc = SearchAfterBuilder.buildFieldDoc(context.sort(), source.searchAfter());
             context.searchAfter(fieldDoc);
         }
+
+        if (source.slice() != null) {
+            if (context.scrollContext() == null) {
+                throw new SearchContextException(context, "`slice` cannot be used outside of a scroll context");
+            }
+            context.sliceFilter(source.slice().toFilter(queryShardContext, context.indexShard().shardId().id(),
+                context.indexShard().indexSettings().getNumberOfShards()));
+        }
     }
 
     private static final int[] EMPTY_DOC_IDS = new int[0];
@@ -21,16 +21,22 @@ package org.elasticsearch.search.action;
 
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionListenerResponseHandler;
+import org.elasticsearch.action.CompositeIndicesRequest;
 import org.elasticsearch.action.IndicesRequest;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.action.support.ChildTaskRequest;
 import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.dfs.DfsSearchResult;
 import org.elasticsearch.search.fetch.FetchSearchResult;
@@ -44,14 +50,20 @@ import org.elasticsearch.search.query.QuerySearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.search.query.ScrollQuerySearchResult;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskManager;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportRequest;
 import org.elasticsearch.transport.TransportRequestHandler;
 import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportResponseHandler;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An encapsulation of {@link org.elasticsearch.search.SearchService} operations exposed through
@@ -62,8 +74,10 @@ public class SearchTransportService extends AbstractComponent {
     public static final String FREE_CONTEXT_SCROLL_ACTION_NAME = "indices:data/read/search[free_context/scroll]";
     public static final String FREE_CONTEXT_ACTION_NAME = "indices:data/read/search[free_context]";
     public static final String CLEAR_SCROLL_CONTEXTS_ACTION_NAME = "indices:data/read/search[clear_scroll_contexts]";
+    public static final String CAN_MATCH_ACTION_NAME = "indices:data/read/search[can_match]";
     public static final String DFS_ACTION_NAME = "indices:data/read/search[phase/dfs]";
     public static final String QUERY_ACTION_NAME = "indices:data/read/search[phase/query]";
+    public static final String QUERY_BATCH_ACTION_NAME = "indices:data/read/search[phase/query/batch]";
     public static final String QUERY_ID_ACTION_NAME = "indices:data/read/search[phase/query/id]";
     public static final String QUERY_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query/scroll]";
     public static final String QUERY_FETCH_ACTION_NAME = "indices:data/read/search[phase/query+fetch]";
@@ -72,24 +86,37 @@ public class SearchTransportService extends AbstractComponent {
     public static final String FETCH_ID_SCROLL_ACTION_NAME = "indices:data/read/search[phase/fetch/id/scroll]";
     public static final String FETCH_ID_ACTION_NAME = "indices:data/read/search[phase/fetch/id]";
 
+    private final ThreadPool threadPool;
+    private final ClusterService clusterService;
     private final TransportService transportService;
     private final SearchService searchService;
+    private final ResponseCollectorService responseCollectorService;
 
     @Inject
-    public SearchTransportService(Settings settings, TransportService transportService, SearchService searchService) {
+    public SearchTransportService(Settings settings, ThreadPool threadPool, ClusterService clusterService,
+                                  TransportService transportService, SearchService searchService,
+                                  ResponseCollectorService responseCollectorService) {
         super(settings);
+        this.threadPool = threadPool;
+        this.clusterService = clusterService;
         this.transportService = transportService;
         this.searchService = searchService;
+        this.responseCollectorService = responseCollectorService;
         transportService.registerRequestHandler(FREE_CONTEXT_SCROLL_ACTION_NAME, ScrollFreeContextRequest::new, ThreadPool.Names.SAME,
                 new FreeContextTransportHandler<>());
         transportService.registerRequestHandler(FREE_CONTEXT_ACTION_NAME, SearchFreeContextRequest::new, ThreadPool.Names.SAME,
                 new FreeContextTransportHandler<>());
         transportService.registerRequestHandler(CLEAR_SCROLL_CONTEXTS_ACTION_NAME, ClearScrollContextsRequest::new, ThreadPool.Names.SAME,
                 new ClearScrollContextsTransportHandler());
+        transportService.registerRequestHandler(CAN_MATCH_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH,
+                new CanMatchTransportHandler());
         transportService.registerRequestHandler(DFS_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH,
                 new SearchDfsTransportHandler());
         transportService.registerRequestHandler(QUERY_ACTION_NAME, ShardSearchTransportRequest::new, ThreadPool.Names.SEARCH,
                 new SearchQueryTransportHandler());
+        // the shard requests of a batch are dispatched to the search thread pool one by one
+        transportService.registerRequestHandler(QUERY_BATCH_ACTION_NAME, ShardSearchBatchRequest::new, ThreadPool.Names.SAME,
+                new SearchQueryBatchTransportHandler());
         transportService.registerRequestHandler(QUERY_ID_ACTION_NAME, QuerySearchRequest::new, ThreadPool.Names.SEARCH,
                 new SearchQueryByIdTransportHandler());
         transportService.registerRequestHandler(QUERY_SCROLL_ACTION_NAME, InternalScrollSearchRequest::new, ThreadPool.Names.SEARCH,
@@ -131,59 +158,151 @@ public class SearchTransportService extends AbstractComponent {
                 new ActionListenerResponseHandler<>(listener, () -> TransportResponse.Empty.INSTANCE));
     }
 
-    public void sendExecuteDfs(DiscoveryNode node, final ShardSearchTransportRequest request,
+    public void sendCanMatch(DiscoveryNode node, final ShardSearchTransportRequest request,
+                             final ActionListener<CanMatchResponse> listener) {
+        transportService.sendRequest(node, CAN_MATCH_ACTION_NAME, request,
+                new ActionListenerResponseHandler<>(listener, CanMatchResponse::new));
+    }
+
+    public void sendExecuteDfs(DiscoveryNode node, final ShardSearchTransportRequest request, SearchTask task,
                                final ActionListener<DfsSearchResult> listener) {
-        transportService.sendRequest(node, DFS_ACTION_NAME, request, new ActionListenerResponseHandler<>(listener, DfsSearchResult::new));
+        sendChildRequest(node, DFS_ACTION_NAME, request, task, new ActionListenerResponseHandler<>(listener, DfsSearchResult::new));
     }
 
-    public void sendExecuteQuery(DiscoveryNode node, final ShardSearchTransportRequest request,
+    public void sendExecuteQuery(DiscoveryNode node, final ShardSearchTransportRequest request, SearchTask task,
                                  final ActionListener<QuerySearchResultProvider> listener) {
-        transportService.sendRequest(node, QUERY_ACTION_NAME, request,
-                new ActionListenerResponseHandler<>(listener, QuerySearchResult::new));
+        sendChildRequest(node, QUERY_ACTION_NAME, request, task,
+                new ActionListenerResponseHandler<>(collectResponseStatistics(node, listener), QuerySearchResult::new));
+    }
+
+    /**
+     * Executes the query phase of several shards of the same search on the given node with a single request. Each shard succeeds
+     * or fails on its own, with the listener at the same position.
+     */
+    public void sendExecuteQuery(DiscoveryNode node, final List<ShardSearchTransportRequest> requests, SearchTask task,
+                                 final List<ActionListener<QuerySearchResultProvider>> listeners) {
+        assert requests.size() == listeners.size();
+        final List<ActionListener<QuerySearchResultProvider>> collectingListeners = new ArrayList<>(listeners.size());
+        for (ActionListener<QuerySearchResultProvider> listener : listeners) {
+            collectingListeners.add(collectResponseStatistics(node, listener));
+        }
+        // the receiving node registers a task per shard request, which must be children of the search task as well
+        final String localNodeId = clusterService.localNode().getId();
+        for (ShardSearchTransportRequest request : requests) {
+            request.setParentTask(localNodeId, task.getId());
+        }
+        sendChildRequest(node, QUERY_BATCH_ACTION_NAME, new ShardSearchBatchRequest(requests), task,
+                new ActionListenerResponseHandler<>(new ActionListener<ShardSearchBatchResponse>() {
+                    @Override
+                    public void onResponse(ShardSearchBatchResponse response) {
+                        for (int i = 0; i < collectingListeners.size(); i++) {
+                            if (response.failures[i] == null) {
+                                collectingListeners.get(i).onResponse(response.results[i]);
+                            } else {
+                                collectingListeners.get(i).onFailure(response.failures[i]);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable e) {
+                        for (ActionListener<QuerySearchResultProvider> listener : collectingListeners) {
+                            listener.onFailure(e);
+                        }
+                    }
+                }, ShardSearchBatchResponse::new));
     }
 
-    public void sendExecuteQuery(DiscoveryNode node, final QuerySearchRequest request, final ActionListener<QuerySearchResult> listener) {
-        transportService.sendRequest(node, QUERY_ID_ACTION_NAME, request,
+    public void sendExecuteQuery(DiscoveryNode node, final QuerySearchRequest request, SearchTask task,
+                                 final ActionListener<QuerySearchResult> listener) {
+        sendChildRequest(node, QUERY_ID_ACTION_NAME, request, task,
             new ActionListenerResponseHandler<>(listener, QuerySearchResult::new));
     }
 
-    public void sendExecuteQuery(DiscoveryNode node, final InternalScrollSearchRequest request,
+    public void sendExecuteQuery(DiscoveryNode node, final InternalScrollSearchRequest request, SearchTask task,
                                  final ActionListener<ScrollQuerySearchResult> listener) {
-        transportService.sendRequest(node, QUERY_SCROLL_ACTION_NAME, request,
+        sendChildRequest(node, QUERY_SCROLL_ACTION_NAME, request, task,
                 new ActionListenerResponseHandler<>(listener, ScrollQuerySearchResult::new));
     }
 
-    public void sendExecuteFetch(DiscoveryNode node, final ShardSearchTransportRequest request,
+    public void sendExecuteFetch(DiscoveryNode node, final ShardSearchTransportRequest request, SearchTask task,
                                  final ActionListener<QueryFetchSearchResult> listener) {
-        transportService.sendRequest(node, QUERY_FETCH_ACTION_NAME, request,
-                new ActionListenerResponseHandler<>(listener, QueryFetchSearchResult::new));
+        sendChildRequest(node, QUERY_FETCH_ACTION_NAME, request, task,
+                new ActionListenerResponseHandler<>(collectResponseStatistics(node, listener), QueryFetchSearchResult::new));
     }
 
-    public void sendExecuteFetch(DiscoveryNode node, final QuerySearchRequest request,
+    public void sendExecuteFetch(DiscoveryNode node, final QuerySearchRequest request, SearchTask task,
                                  final ActionListener<QueryFetchSearchResult> listener) {
-        transportService.sendRequest(node, QUERY_QUERY_FETCH_ACTION_NAME, request,
+        sendChildRequest(node, QUERY_QUERY_FETCH_ACTION_NAME, request, task,
                 new ActionListenerResponseHandler<>(listener, QueryFetchSearchResult::new));
     }
 
-    public void sendExecuteFetch(DiscoveryNode node, final InternalScrollSearchRequest request,
+    public void sendExecuteFetch(DiscoveryNode node, final InternalScrollSearchRequest request, SearchTask task,
                                  final ActionListener<ScrollQueryFetchSearchResult> listener) {
-        transportService.sendRequest(node, QUERY_FETCH_SCROLL_ACTION_NAME, request,
+        sendChildRequest(node, QUERY_FETCH_SCROLL_ACTION_NAME, request, task,
                 new ActionListenerResponseHandler<>(listener, ScrollQueryFetchSearchResult::new));
     }
 
-    public void sendExecuteFetch(DiscoveryNode node, final ShardFetchSearchRequest request,
+    public void sendExecuteFetch(DiscoveryNode node, final ShardFetchSearchRequest request, SearchTask task,
                                  final ActionListener<FetchSearchResult> listener) {
-        sendExecuteFetch(node, FETCH_ID_ACTION_NAME, request, listener);
+        sendExecuteFetch(node, FETCH_ID_ACTION_NAME, request, task, listener);
     }
 
-    public void sendExecuteFetchScroll(DiscoveryNode node, final ShardFetchRequest request,
+    public void sendExecuteFetchScroll(DiscoveryNode node, final ShardFetchRequest request, SearchTask task,
                                        final ActionListener<FetchSearchResult> listener) {
-        sendExecuteFetch(node, FETCH_ID_SCROLL_ACTION_NAME, request, listener);
+        sendExecuteFetch(node, FETCH_ID_SCROLL_ACTION_NAME, request, task, listener);
     }
 
-    private void sendExecuteFetch(DiscoveryNode node, String action, final ShardFetchRequest request,
+    private void sendExecuteFetch(DiscoveryNode node, String action, final ShardFetchRequest request, SearchTask task,
                                   final ActionListener<FetchSearchResult> listener) {
-        transportService.sendRequest(node, action, request, new ActionListenerResponseHandler<>(listener, FetchSearchResult::new));
+        sendChildRequest(node, action, request, task, new ActionListenerResponseHandler<>(listener, FetchSearchResult::new));
+    }
+
+    /**
+     * Sends a shard level request as a child of the task of the search that it belongs to, so that cancelling the search also
+     * cancels the request on the node that executes it.
+     */
+    private <T extends TransportResponse> void sendChildRequest(DiscoveryNode node, String action, ChildTaskRequest request,
+                                                                SearchTask task, TransportResponseHandler<T> handler) {
+        request.setParentTask(clusterService.localNode().getId(), task.getId());
+        transportService.getTaskManager().registerChildTask(task, node.getId());
+        transportService.sendRequest(node, action, request, handler);
+    }
+
+    /**
+     * Returns the service that tracks the load of the nodes that this node sends search requests to.
+     */
+    public ResponseCollectorService getResponseCollectorService() {
+        return responseCollectorService;
+    }
+
+    /**
+     * Wraps the listener of a request that executes the query phase on the given node, so that the node's load is tracked for
+     * adaptive replica selection.
+     */
+    private <T extends QuerySearchResultProvider> ActionListener<T> collectResponseStatistics(DiscoveryNode node,
+                                                                                              ActionListener<T> listener) {
+        final String nodeId = node.getId();
+        final long startNanos = System.nanoTime();
+        responseCollectorService.onRequestSent(nodeId);
+        return new ActionListener<T>() {
+            @Override
+            public void onResponse(T response) {
+                responseCollectorService.onRequestDone(nodeId);
+                QuerySearchResult queryResult = response.queryResult();
+                if (queryResult.nodeQueueSize() >= 0 && queryResult.serviceTimeEWMA() >= 0) {
+                    responseCollectorService.addNodeStatistics(nodeId, queryResult.nodeQueueSize(), System.nanoTime() - startNanos,
+                        queryResult.serviceTimeEWMA());
+                }
+                listener.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                responseCollectorService.onRequestDone(nodeId);
+                listener.onFailure(e);
+            }
+        };
     }
 
     static class ScrollFreeContextRequest extends TransportRequest {
@@ -281,6 +400,34 @@ public class SearchTransportService extends AbstractComponent {
         }
     }
 
+    public static class CanMatchResponse extends TransportResponse {
+
+        private boolean canMatch;
+
+        CanMatchResponse() {
+        }
+
+        CanMatchResponse(boolean canMatch) {
+            this.canMatch = canMatch;
+        }
+
+        public boolean canMatch() {
+            return canMatch;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            canMatch = in.readBoolean();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeBoolean(canMatch);
+        }
+    }
+
     class FreeContextTransportHandler<FreeContextRequest extends ScrollFreeContextRequest>
             implements TransportRequestHandler<FreeContextRequest> {
         @Override
@@ -290,6 +437,94 @@ public class SearchTransportService extends AbstractComponent {
         }
     }
 
+    static class ShardSearchBatchRequest extends ChildTaskRequest implements CompositeIndicesRequest {
+
+        private List<ShardSearchTransportRequest> requests;
+
+        ShardSearchBatchRequest() {
+        }
+
+        ShardSearchBatchRequest(List<ShardSearchTransportRequest> requests) {
+            this.requests = requests;
+        }
+
+        public List<ShardSearchTransportRequest> requests() {
+            return requests;
+        }
+
+        @Override
+        public List<? extends IndicesRequest> subRequests() {
+            return requests;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            int size = in.readVInt();
+            requests = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                ShardSearchTransportRequest request = new ShardSearchTransportRequest();
+                request.readFrom(in);
+                requests.add(request);
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(requests.size());
+            for (ShardSearchTransportRequest request : requests) {
+                request.writeTo(out);
+            }
+        }
+    }
+
+    static class ShardSearchBatchResponse extends TransportResponse {
+
+        private QuerySearchResultProvider[] results;
+        private Throwable[] failures;
+
+        ShardSearchBatchResponse() {
+        }
+
+        ShardSearchBatchResponse(QuerySearchResultProvider[] results, Throwable[] failures) {
+            this.results = results;
+            this.failures = failures;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            int size = in.readVInt();
+            results = new QuerySearchResultProvider[size];
+            failures = new Throwable[size];
+            for (int i = 0; i < size; i++) {
+                if (in.readBoolean()) {
+                    QuerySearchResult result = new QuerySearchResult();
+                    result.readFrom(in);
+                    results[i] = result;
+                } else {
+                    failures[i] = in.readThrowable();
+                }
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(results.length);
+            for (int i = 0; i < results.length; i++) {
+                if (failures[i] == null) {
+                    out.writeBoolean(true);
+                    results[i].writeTo(out);
+                } else {
+                    out.writeBoolean(false);
+                    out.writeThrowable(failures[i]);
+                }
+            }
+        }
+    }
+
     static class ClearScrollContextsRequest extends TransportRequest {
     }
 
@@ -301,67 +536,136 @@ public class SearchTransportService extends AbstractComponent {
         }
     }
 
-    class SearchDfsTransportHandler implements TransportRequestHandler<ShardSearchTransportRequest> {
+    class CanMatchTransportHandler implements TransportRequestHandler<ShardSearchTransportRequest> {
         @Override
         public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel) throws Exception {
-            DfsSearchResult result = searchService.executeDfsPhase(request);
+            boolean canMatch = searchService.canMatch(request);
+            channel.sendResponse(new CanMatchResponse(canMatch));
+        }
+    }
+
+    class SearchDfsTransportHandler extends SearchTaskTransportHandler<ShardSearchTransportRequest> {
+        @Override
+        public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel, Task task) throws Exception {
+            DfsSearchResult result = searchService.executeDfsPhase(request, (SearchTask) task);
             channel.sendResponse(result);
         }
     }
 
-    class SearchQueryTransportHandler implements TransportRequestHandler<ShardSearchTransportRequest> {
+    class SearchQueryTransportHandler extends SearchTaskTransportHandler<ShardSearchTransportRequest> {
         @Override
-        public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel) throws Exception {
-            QuerySearchResultProvider result = searchService.executeQueryPhase(request);
+        public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel, Task task) throws Exception {
+            QuerySearchResultProvider result = searchService.executeQueryPhase(request, (SearchTask) task);
             channel.sendResponse(result);
         }
     }
 
-    class SearchQueryByIdTransportHandler implements TransportRequestHandler<QuerySearchRequest> {
+    class SearchQueryBatchTransportHandler implements TransportRequestHandler<ShardSearchBatchRequest> {
+        @Override
+        public void messageReceived(ShardSearchBatchRequest request, TransportChannel channel) throws Exception {
+            final List<ShardSearchTransportRequest> requests = request.requests();
+            final QuerySearchResultProvider[] results = new QuerySearchResultProvider[requests.size()];
+            final Throwable[] failures = new Throwable[requests.size()];
+            final AtomicInteger counter = new AtomicInteger(requests.size());
+            final TaskManager taskManager = transportService.getTaskManager();
+            for (int i = 0; i < requests.size(); i++) {
+                final int index = i;
+                final ShardSearchTransportRequest shardRequest = requests.get(i);
+                // like single shard requests, every shard waits in the search queue and may be rejected on its own
+                threadPool.executor(ThreadPool.Names.SEARCH).execute(new AbstractRunnable() {
+                    @Override
+                    protected void doRun() throws Exception {
+                        // every shard runs under its own task, which is cancelled together with the search it belongs to
+                        final Task shardTask = taskManager.register(channel.getChannelType(), QUERY_ACTION_NAME, shardRequest);
+                        try {
+                            results[index] = searchService.executeQueryPhase(shardRequest, (SearchTask) shardTask);
+                        } finally {
+                            taskManager.unregister(shardTask);
+                        }
+                        onShardDone();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        failures[index] = t;
+                        onShardDone();
+                    }
+
+                    private void onShardDone() {
+                        if (counter.decrementAndGet() == 0) {
+                            try {
+                                channel.sendResponse(new ShardSearchBatchResponse(results, failures));
+                            } catch (Throwable e) {
+                                logger.warn("failed to send response for batched query phase", e);
+                                try {
+                                    channel.sendResponse(e);
+                                } catch (Throwable e1) {
+                                    logger.warn("failed to send failure for batched query phase", e1);
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    class SearchQueryByIdTransportHandler extends SearchTaskTransportHandler<QuerySearchRequest> {
         @Override
-        public void messageReceived(QuerySearchRequest request, TransportChannel channel) throws Exception {
-            QuerySearchResult result = searchService.executeQueryPhase(request);
+        public void messageReceived(QuerySearchRequest request, TransportChannel channel, Task task) throws Exception {
+            QuerySearchResult result = searchService.executeQueryPhase(request, (SearchTask) task);
             channel.sendResponse(result);
         }
     }
 
-    class SearchQueryScrollTransportHandler implements TransportRequestHandler<InternalScrollSearchRequest> {
+    class SearchQueryScrollTransportHandler extends SearchTaskTransportHandler<InternalScrollSearchRequest> {
         @Override
-        public void messageReceived(InternalScrollSearchRequest request, TransportChannel channel) throws Exception {
-            ScrollQuerySearchResult result = searchService.executeQueryPhase(request);
+        public void messageReceived(InternalScrollSearchRequest request, TransportChannel channel, Task task) throws Exception {
+            ScrollQuerySearchResult result = searchService.executeQueryPhase(request, (SearchTask) task);
             channel.sendResponse(result);
         }
     }
 
-    class SearchQueryFetchTransportHandler implements TransportRequestHandler<ShardSearchTransportRequest> {
+    class SearchQueryFetchTransportHandler extends SearchTaskTransportHandler<ShardSearchTransportRequest> {
         @Override
-        public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel) throws Exception {
-            QueryFetchSearchResult result = searchService.executeFetchPhase(request);
+        public void messageReceived(ShardSearchTransportRequest request, TransportChannel channel, Task task) throws Exception {
+            QueryFetchSearchResult result = searchService.executeFetchPhase(request, (SearchTask) task);
             channel.sendResponse(result);
         }
     }
 
-    class SearchQueryQueryFetchTransportHandler implements TransportRequestHandler<QuerySearchRequest> {
+    class SearchQueryQueryFetchTransportHandler extends SearchTaskTransportHandler<QuerySearchRequest> {
         @Override
-        public void messageReceived(QuerySearchRequest request, TransportChannel channel) throws Exception {
-            QueryFetchSearchResult result = searchService.executeFetchPhase(request);
+        public void messageReceived(QuerySearchRequest request, TransportChannel channel, Task task) throws Exception {
+            QueryFetchSearchResult result = searchService.executeFetchPhase(request, (SearchTask) task);
             channel.sendResponse(result);
         }
     }
 
-    class FetchByIdTransportHandler<Request extends ShardFetchRequest> implements TransportRequestHandler<Request> {
+    class FetchByIdTransportHandler<Request extends ShardFetchRequest> extends SearchTaskTransportHandler<Request> {
         @Override
-        public void messageReceived(Request request, TransportChannel channel) throws Exception {
-            FetchSearchResult result = searchService.executeFetchPhase(request);
+        public void messageReceived(Request request, TransportChannel channel, Task task) throws Exception {
+            FetchSearchResult result = searchService.executeFetchPhase(request, (SearchTask) task);
             channel.sendResponse(result);
         }
     }
 
-    class SearchQueryFetchScrollTransportHandler implements TransportRequestHandler<InternalScrollSearchRequest> {
+    class SearchQueryFetchScrollTransportHandler extends SearchTaskTransportHandler<InternalScrollSearchRequest> {
         @Override
-        public void messageReceived(InternalScrollSearchRequest request, TransportChannel channel) throws Exception {
-            ScrollQueryFetchSearchResult result = searchService.executeFetchPhase(request);
+        public void messageReceived(InternalScrollSearchRequest request, TransportChannel channel, Task task) throws Exception {
+            ScrollQueryFetchSearchResult result = searchService.executeFetchPhase(request, (SearchTask) task);
             channel.sendResponse(result);
         }
     }
+
+    /**
+     * Base class of the handlers of shard level search requests, which execute under the {@link SearchTask} of the request so
+     * that they can be cancelled.
+     */
+    abstract static class SearchTaskTransportHandler<Request extends TransportRequest> implements TransportRequestHandler<Request> {
+        @Override
+        public final void messageReceived(Request request, TransportChannel channel) throws Exception {
+            throw new UnsupportedOperationException("the task parameter is required for this operation");
+        }
+    }
 }
@@ -165,6 +165,17 @@ public class AggregationPhase implements SearchPhase {
             }
         }
         context.queryResult().aggregations(new InternalAggregations(aggregations));
+        context.queryResult().pipelineAggregators(createSiblingPipelineAggregators(context));
+
+        // disable aggregations so that they don't run on next pages in case of scrolling
+        context.aggregations(null);
+        context.queryCollectors().remove(AggregationPhase.class);
+    }
+
+    /**
+     * Creates the top level pipeline aggregators of the search, which must all be sibling pipeline aggregators.
+     */
+    static List<SiblingPipelineAggregator> createSiblingPipelineAggregators(SearchContext context) {
         try {
             List<PipelineAggregator> pipelineAggregators = context.aggregations().factories().createPipelineAggregators();
             List<SiblingPipelineAggregator> siblingPipelineAggregators = new ArrayList<>(pipelineAggregators.size());
@@ -177,14 +188,10 @@ public class AggregationPhase implements SearchPhase {
                             + "]. Only sibling pipeline aggregations are allowed at the top level");
                 }
             }
-            context.queryResult().pipelineAggregators(siblingPipelineAggregators);
+            return siblingPipelineAggregators;
         } catch (IOException e) {
             throw new AggregationExecutionException("Failed to build top level pipeline aggregators", e);
         }
-
-        // disable aggregations so that they don't run on next pages in case of scrolling
-        context.aggregations(null);
-        context.queryCollectors().remove(AggregationPhase.class);
     }
 
 }
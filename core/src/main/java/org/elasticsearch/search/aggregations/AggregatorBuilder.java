@@ -159,6 +159,16 @@ public abstract class AggregatorBuilder<AB extends AggregatorBuilder<AB>> extend
         return type.name();
     }
 
+    /**
+     * Returns <code>true</code> if this aggregation may produce results on shards where the query doesn't match any document,
+     * like global aggregations or terms aggregations that also return terms without hits. Shards can't be skipped based on
+     * the query alone for such aggregations. Aggregations that only ever look at matching documents override this to
+     * return <code>false</code>, the default is conservative.
+     */
+    protected boolean mustVisitAllDocs() {
+        return true;
+    }
+
     public final AggregatorFactory<?> build(AggregationContext context, AggregatorFactory<?> parent) throws IOException {
         AggregatorFactory<?> factory = doBuild(context, parent, factoriesBuilder);
         return factory;
@@ -23,11 +23,27 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.AbstractHistogramBuilder;
+import org.elasticsearch.search.aggregations.bucket.missing.MissingAggregatorBuilder;
+import org.elasticsearch.search.aggregations.bucket.nested.NestedAggregatorBuilder;
+import org.elasticsearch.search.aggregations.bucket.nested.ReverseNestedAggregatorBuilder;
+import org.elasticsearch.search.aggregations.bucket.range.AbstractRangeBuilder;
+import org.elasticsearch.search.aggregations.metrics.avg.AvgAggregatorBuilder;
+import org.elasticsearch.search.aggregations.metrics.cardinality.CardinalityAggregatorBuilder;
+import org.elasticsearch.search.aggregations.metrics.geobounds.GeoBoundsAggregatorBuilder;
+import org.elasticsearch.search.aggregations.metrics.geocentroid.GeoCentroidAggregatorBuilder;
+import org.elasticsearch.search.aggregations.metrics.max.MaxAggregatorBuilder;
+import org.elasticsearch.search.aggregations.metrics.min.MinAggregatorBuilder;
+import org.elasticsearch.search.aggregations.metrics.stats.StatsAggregatorBuilder;
+import org.elasticsearch.search.aggregations.metrics.stats.extended.ExtendedStatsAggregatorBuilder;
+import org.elasticsearch.search.aggregations.metrics.sum.SumAggregatorBuilder;
+import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCountAggregatorBuilder;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregatorBuilder;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.AggregationPath;
 import org.elasticsearch.search.aggregations.support.AggregationPath.PathElement;
+import org.elasticsearch.search.aggregations.support.ValuesSourceAggregatorBuilder;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -148,6 +164,53 @@ public class AggregatorFactories {
             return this;
         }
 
+        /**
+         * Returns <code>true</code> if any of these aggregations, or of their sub-aggregations, may produce results on shards
+         * where the query doesn't match any document. See {@link AggregatorBuilder#mustVisitAllDocs()}.
+         */
+        public boolean mustVisitAllDocs() {
+            for (AggregatorBuilder<?> builder : aggregatorBuilders) {
+                if (builder.mustVisitAllDocs() || builder.factoriesBuilder.mustVisitAllDocs()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns <code>true</code> if the shard level results of these aggregations can be computed by reducing their results
+         * on each segment of the shard, and if their results on a segment only depend on that segment. This excludes
+         * aggregations that trim their buckets, like terms aggregations, that use scores or shard level statistics, as well as
+         * scripts, which could use either.
+         */
+        public boolean isSegmentCacheable() {
+            for (AggregatorBuilder<?> builder : aggregatorBuilders) {
+                if ((builder instanceof MinAggregatorBuilder
+                        || builder instanceof MaxAggregatorBuilder
+                        || builder instanceof SumAggregatorBuilder
+                        || builder instanceof AvgAggregatorBuilder
+                        || builder instanceof ValueCountAggregatorBuilder
+                        || builder instanceof StatsAggregatorBuilder
+                        || builder instanceof ExtendedStatsAggregatorBuilder
+                        || builder instanceof CardinalityAggregatorBuilder
+                        || builder instanceof GeoBoundsAggregatorBuilder
+                        || builder instanceof GeoCentroidAggregatorBuilder
+                        || builder instanceof MissingAggregatorBuilder
+                        || builder instanceof NestedAggregatorBuilder
+                        || builder instanceof ReverseNestedAggregatorBuilder
+                        || builder instanceof AbstractHistogramBuilder
+                        || builder instanceof AbstractRangeBuilder) == false) {
+                    return false;
+                } else if (builder instanceof ValuesSourceAggregatorBuilder
+                        && ((ValuesSourceAggregatorBuilder<?, ?>) builder).script() != null) {
+                    return false;
+                } else if (builder.factoriesBuilder.isSegmentCacheable() == false) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         /**
          * FOR TESTING ONLY
          */
@@ -94,10 +94,25 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
 
         private final BigArrays bigArrays;
         private ScriptService scriptService;
+        private final boolean isFinalReduce;
 
         public ReduceContext(BigArrays bigArrays, ScriptService scriptService) {
+            this(bigArrays, scriptService, true);
+        }
+
+        public ReduceContext(BigArrays bigArrays, ScriptService scriptService, boolean isFinalReduce) {
             this.bigArrays = bigArrays;
             this.scriptService = scriptService;
+            this.isFinalReduce = isFinalReduce;
+        }
+
+        /**
+         * Returns <code>true</code> iff this is the final reduce, whose result is returned to the user. Partial reduces may be
+         * executed on batches of shard results before, and their results get reduced again: they must not lose information,
+         * so operations like trimming buckets or running pipeline aggregations only happen in the final reduce.
+         */
+        public boolean isFinalReduce() {
+            return isFinalReduce;
         }
 
         public BigArrays bigArrays() {
@@ -148,8 +163,10 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
      */
     public final InternalAggregation reduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
         InternalAggregation aggResult = doReduce(aggregations, reduceContext);
-        for (PipelineAggregator pipelineAggregator : pipelineAggregators) {
-            aggResult = pipelineAggregator.reduce(aggResult, reduceContext);
+        if (reduceContext.isFinalReduce()) {
+            for (PipelineAggregator pipelineAggregator : pipelineAggregators) {
+                aggResult = pipelineAggregator.reduce(aggResult, reduceContext);
+            }
         }
         return aggResult;
     }
@@ -0,0 +1,161 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.Weight;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.query.QueryPhaseExecutionException;
+import org.elasticsearch.search.query.QuerySearchResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Executes the query phase of a search that only returns the hit count and aggregations one segment at a time, so that
+ * the results of each segment can be cached: the hit count and aggregations of every segment are serialized, then the
+ * aggregations of all segments are reduced into the shard level result, like the coordinating node reduces the results of
+ * shards. This only works for aggregations whose results on a segment don't depend on other segments, see
+ * {@link AggregatorFactories.Builder#isSegmentCacheable()}.
+ */
+public final class SegmentAggregationPhase {
+
+    private SegmentAggregationPhase() {}
+
+    /**
+     * Returns the serialized results of a segment, possibly from a cache, or computes them with the given loader.
+     */
+    @FunctionalInterface
+    public interface SegmentResults {
+        BytesReference getOrCompute(LeafReaderContext leaf, Callable<BytesReference> loader) throws Exception;
+    }
+
+    /**
+     * Returns whether the query phase of the given search can be executed one segment at a time.
+     */
+    public static boolean canExecute(SearchContext context) {
+        final SearchSourceBuilder source = context.request().source();
+        return context.aggregations() != null
+            && source != null
+            && source.aggregations() != null
+            && source.aggregations().isSegmentCacheable()
+            && context.size() == 0
+            && context.scrollContext() == null
+            && context.suggest() == null
+            && context.getProfilers() == null
+            && context.parsedPostFilter() == null
+            && context.minimumScore() == null
+            && context.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER
+            && context.timeoutInMillis() == SearchService.NO_TIMEOUT.millis()
+            && context.searcher().getIndexReader().leaves().isEmpty() == false;
+    }
+
+    /**
+     * Executes the query phase one segment at a time. Returns <code>false</code> without setting any result if creating the
+     * aggregators used the current time, which then needs to be part of the cache key, in which case the query phase must be
+     * executed as usual.
+     */
+    public static boolean execute(SearchContext context, SegmentResults segmentResults, NamedWriteableRegistry namedWriteableRegistry) {
+        assert canExecute(context);
+        final boolean nowInMillisUsed = context.nowInMillisUsed();
+        final int roundedNowValues = context.roundedNowValues().size();
+        context.aggregations().aggregationContext(new AggregationContext(context));
+        try {
+            // aggregators resolve date math, like the bounds of date ranges, when they are created
+            context.aggregations().factories().createTopLevelAggregators();
+        } catch (IOException e) {
+            throw new AggregationInitializationException("Could not initialize aggregators", e);
+        }
+        if (context.nowInMillisUsed() != nowInMillisUsed || context.roundedNowValues().size() != roundedNowValues) {
+            return false;
+        }
+
+        final QuerySearchResult queryResult = context.queryResult();
+        try {
+            final ContextIndexSearcher searcher = context.searcher();
+            final Weight weight = searcher.createNormalizedWeight(context.query(), false);
+            final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+            final List<InternalAggregations> aggregations = new ArrayList<>(leaves.size());
+            long totalHits = 0;
+            for (LeafReaderContext leaf : leaves) {
+                final BytesReference bytes = segmentResults.getOrCompute(leaf, () -> executeOnSegment(context, searcher, weight, leaf));
+                try (StreamInput in = new NamedWriteableAwareStreamInput(bytes.streamInput(), namedWriteableRegistry)) {
+                    totalHits += in.readVLong();
+                    aggregations.add(InternalAggregations.readAggregations(in));
+                }
+            }
+            queryResult.searchTimedOut(false);
+            queryResult.from(context.from());
+            queryResult.size(context.size());
+            queryResult.topDocs(new TopDocs(Math.toIntExact(totalHits), Lucene.EMPTY_SCORE_DOCS, 0));
+            // a partial reduce, since the coordinating node still needs to reduce the results of shards
+            queryResult.aggregations(InternalAggregations.reduce(aggregations,
+                new ReduceContext(context.bigArrays(), context.scriptService(), false)));
+            queryResult.pipelineAggregators(AggregationPhase.createSiblingPipelineAggregators(context));
+        } catch (Exception e) {
+            throw new QueryPhaseExecutionException(context, "Failed to execute main query", e);
+        }
+        // disable aggregations so that they don't run again, like the aggregation phase does
+        context.aggregations(null);
+        return true;
+    }
+
+    private static BytesReference executeOnSegment(SearchContext context, ContextIndexSearcher searcher, Weight weight,
+                                                   LeafReaderContext leaf) throws IOException {
+        final Aggregator[] aggregators = context.aggregations().factories().createTopLevelAggregators();
+        final BucketCollector aggregationsCollector = BucketCollector.wrap(Arrays.asList(aggregators));
+        assert aggregationsCollector.needsScores() == false : "aggregations that need scores can't be cached per segment";
+        aggregationsCollector.preCollection();
+        final TotalHitCountCollector hitCountCollector = new TotalHitCountCollector();
+        try {
+            searcher.searchLeaf(leaf, weight, MultiCollector.wrap(hitCountCollector, aggregationsCollector));
+        } finally {
+            context.clearReleasables(SearchContext.Lifetime.COLLECTION);
+        }
+        aggregationsCollector.postCollection();
+        final List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
+        for (Aggregator aggregator : aggregators) {
+            aggregations.add(aggregator.buildAggregation(0));
+        }
+        // most results are small, see IndicesService.IndexShardCacheEntity#loadValue
+        try (BytesStreamOutput out = new BytesStreamOutput(512)) {
+            out.writeVLong(hitCountCollector.getTotalHits());
+            new InternalAggregations(aggregations).writeTo(out);
+            return out.bytes().copyBytesArray();
+        }
+    }
+}
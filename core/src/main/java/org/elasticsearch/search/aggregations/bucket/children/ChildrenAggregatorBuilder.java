@@ -85,6 +85,11 @@ public class ChildrenAggregatorBuilder extends ValuesSourceAggregatorBuilder<Par
         return true;
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        return false;
+    }
+
     @Override
     protected ValuesSourceAggregatorFactory<ParentChild, ?> innerBuild(AggregationContext context,
             ValuesSourceConfig<ParentChild> config, AggregatorFactory<?> parent, Builder subFactoriesBuilder) throws IOException {
@@ -81,6 +81,11 @@ public class FilterAggregatorBuilder extends AggregatorBuilder<FilterAggregatorB
         return true;
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        return false;
+    }
+
     @Override
     protected AggregatorFactory<?> doBuild(AggregationContext context, AggregatorFactory<?> parent,
             AggregatorFactories.Builder subFactoriesBuilder) throws IOException {
@@ -176,6 +176,11 @@ public class FiltersAggregatorBuilder extends AggregatorBuilder<FiltersAggregato
         return otherBucketKey;
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        return false;
+    }
+
     @Override
     protected AggregatorFactory<?> doBuild(AggregationContext context, AggregatorFactory<?> parent, Builder subFactoriesBuilder)
             throws IOException {
@@ -114,6 +114,11 @@ public class GeoGridAggregatorBuilder extends ValuesSourceAggregatorBuilder<Valu
         return shardSize;
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        return false;
+    }
+
     @Override
     protected ValuesSourceAggregatorFactory<ValuesSource.GeoPoint, ?> innerBuild(AggregationContext context,
             ValuesSourceConfig<ValuesSource.GeoPoint> config, AggregatorFactory<?> parent, Builder subFactoriesBuilder)
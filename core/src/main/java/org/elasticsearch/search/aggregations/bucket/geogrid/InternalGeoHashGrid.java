@@ -204,11 +204,13 @@ public class InternalGeoHashGrid extends InternalMultiBucketAggregation<Internal
     public InternalGeoHashGrid doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
 
         LongObjectPagedHashMap<List<Bucket>> buckets = null;
+        int maxShardCells = 0;
         for (InternalAggregation aggregation : aggregations) {
             InternalGeoHashGrid grid = (InternalGeoHashGrid) aggregation;
             if (buckets == null) {
                 buckets = new LongObjectPagedHashMap<>(grid.buckets.size(), reduceContext.bigArrays());
             }
+            maxShardCells = Math.max(maxShardCells, grid.buckets.size());
             for (Bucket bucket : grid.buckets) {
                 List<Bucket> existingBuckets = buckets.get(bucket.geohashAsLong);
                 if (existingBuckets == null) {
@@ -219,7 +221,10 @@ public class InternalGeoHashGrid extends InternalMultiBucketAggregation<Internal
             }
         }
 
-        final int size = (int) Math.min(requiredSize, buckets.size());
+        // partial reduces keep as many cells as a shard returned at most, which is the shard_size unless all cells fit, since they might
+        // make it to the top cells once the counts of other shards are added
+        final int maxCells = reduceContext.isFinalReduce() ? requiredSize : Math.max(requiredSize, maxShardCells);
+        final int size = (int) Math.min(maxCells, buckets.size());
         BucketPriorityQueue ordered = new BucketPriorityQueue(size);
         for (LongObjectPagedHashMap.Cursor<List<Bucket>> cursor : buckets) {
             List<Bucket> sameCellBuckets = cursor.value;
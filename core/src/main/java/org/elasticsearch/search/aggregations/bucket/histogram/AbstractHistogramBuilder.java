@@ -157,6 +157,12 @@ public abstract class AbstractHistogramBuilder<AB extends AbstractHistogramBuild
         return (AB) this;
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        // empty buckets are returned with a min_doc_count of 0
+        return minDocCount == 0;
+    }
+
     @Override
     protected XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
 
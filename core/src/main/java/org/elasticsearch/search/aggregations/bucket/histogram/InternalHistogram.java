@@ -366,7 +366,7 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
                 if (top.current.key != key) {
                     // the key changes, reduce what we already buffered and reset the buffer for current buckets
                     final B reduced = currentBuckets.get(0).reduce(currentBuckets, reduceContext);
-                    if (reduced.getDocCount() >= minDocCount) {
+                    if (reduced.getDocCount() >= minDocCount || reduceContext.isFinalReduce() == false) {
                         reducedBuckets.add(reduced);
                     }
                     currentBuckets.clear();
@@ -387,7 +387,7 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
 
             if (currentBuckets.isEmpty() == false) {
                 final B reduced = currentBuckets.get(0).reduce(currentBuckets, reduceContext);
-                if (reduced.getDocCount() >= minDocCount) {
+                if (reduced.getDocCount() >= minDocCount || reduceContext.isFinalReduce() == false) {
                     reducedBuckets.add(reduced);
                 }
             }
@@ -465,6 +465,11 @@ public class InternalHistogram<B extends InternalHistogram.Bucket> extends Inter
     @Override
     public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
         List<B> reducedBuckets = reduceBuckets(aggregations, reduceContext);
+        if (reduceContext.isFinalReduce() == false) {
+            // buckets must stay sorted by key so that they can be reduced again
+            return getFactory().create(getName(), reducedBuckets, order, minDocCount, emptyBucketInfo, format, keyed, pipelineAggregators(),
+                    getMetaData());
+        }
 
         // adding empty buckets if needed
         if (minDocCount == 0) {
@@ -80,6 +80,11 @@ public class NestedAggregatorBuilder extends AggregatorBuilder<NestedAggregatorB
         return path;
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        return false;
+    }
+
     @Override
     protected AggregatorFactory<?> doBuild(AggregationContext context, AggregatorFactory<?> parent, Builder subFactoriesBuilder)
             throws IOException {
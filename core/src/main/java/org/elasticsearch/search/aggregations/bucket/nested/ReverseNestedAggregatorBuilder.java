@@ -82,6 +82,11 @@ public class ReverseNestedAggregatorBuilder extends AggregatorBuilder<ReverseNes
         return path;
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        return false;
+    }
+
     @Override
     protected AggregatorFactory<?> doBuild(AggregationContext context, AggregatorFactory<?> parent, Builder subFactoriesBuilder)
             throws IOException {
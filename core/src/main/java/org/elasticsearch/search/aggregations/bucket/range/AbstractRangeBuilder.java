@@ -90,6 +90,11 @@ public abstract class AbstractRangeBuilder<AB extends AbstractRangeBuilder<AB, R
         return keyed;
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        return false;
+    }
+
     @Override
     protected XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
         builder.field(RangeAggregator.RANGES_FIELD.getPreferredName(), ranges);
@@ -79,6 +79,11 @@ public class SamplerAggregatorBuilder extends AggregatorBuilder<SamplerAggregato
         return shardSize;
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        return false;
+    }
+
     @Override
     protected SamplerAggregatorFactory doBuild(AggregationContext context, AggregatorFactory<?> parent, Builder subFactoriesBuilder)
             throws IOException {
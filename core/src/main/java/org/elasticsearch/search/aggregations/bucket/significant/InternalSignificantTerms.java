@@ -162,12 +162,14 @@ public abstract class InternalSignificantTerms<A extends InternalSignificantTerm
 
         long globalSubsetSize = 0;
         long globalSupersetSize = 0;
+        int maxShardTerms = 0;
         // Compute the overall result set size and the corpus size using the
         // top-level Aggregations from each shard
         for (InternalAggregation aggregation : aggregations) {
             InternalSignificantTerms<A, B> terms = (InternalSignificantTerms<A, B>) aggregation;
             globalSubsetSize += terms.subsetSize;
             globalSupersetSize += terms.supersetSize;
+            maxShardTerms = Math.max(maxShardTerms, terms.buckets.size());
         }
         Map<String, List<InternalSignificantTerms.Bucket>> buckets = new HashMap<>();
         for (InternalAggregation aggregation : aggregations) {
@@ -185,13 +187,17 @@ public abstract class InternalSignificantTerms<A extends InternalSignificantTerm
         }
 
         significanceHeuristic.initialize(reduceContext);
-        final int size = Math.min(requiredSize, buckets.size());
+        // partial reduces keep as many terms as a shard returned at most, which is the shard_size unless all terms fit. Like shards,
+        // they rank terms by their score within the shards that they reduced, the final reduce scores them again with the global sizes
+        final int maxTerms = reduceContext.isFinalReduce() ? requiredSize : Math.max(requiredSize, maxShardTerms);
+        final int size = Math.min(maxTerms, buckets.size());
         BucketSignificancePriorityQueue ordered = new BucketSignificancePriorityQueue(size);
         for (Map.Entry<String, List<Bucket>> entry : buckets.entrySet()) {
             List<Bucket> sameTermBuckets = entry.getValue();
             final Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
             b.updateScore(significanceHeuristic);
-            if ((b.score > 0) && (b.subsetDf >= minDocCount)) {
+            // the doc count of a term may still grow until the final reduce
+            if (reduceContext.isFinalReduce() == false || ((b.score > 0) && (b.subsetDf >= minDocCount))) {
                 ordered.insertWithOverflow(b);
             }
         }
@@ -232,6 +232,12 @@ public class SignificantTermsAggregatorBuilder extends ValuesSourceAggregatorBui
         return significanceHeuristic;
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        // a min_doc_count of 0 also returns the terms of documents that don't match
+        return bucketCountThresholds.getMinDocCount() == 0;
+    }
+
     @Override
     protected ValuesSourceAggregatorFactory<ValuesSource, ?> innerBuild(AggregationContext context, ValuesSourceConfig<ValuesSource> config,
             AggregatorFactory<?> parent, Builder subFactoriesBuilder) throws IOException {
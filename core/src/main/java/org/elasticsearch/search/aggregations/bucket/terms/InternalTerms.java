@@ -118,6 +118,9 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
     protected long docCountError;
     protected boolean showTermDocCountError;
     protected long otherDocCount;
+    // whether this is the result of a partial reduce, whose doc count errors are already summed up over several shards. Such results
+    // only live on the coordinating node and are never serialized
+    private boolean partiallyReduced;
 
     protected InternalTerms() {} // for serialization
 
@@ -170,6 +173,7 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
         long sumDocCountError = 0;
         long otherDocCount = 0;
         InternalTerms<A, B> referenceTerms = null;
+        boolean hasPartiallyReducedTerms = false;
         for (InternalAggregation aggregation : aggregations) {
             InternalTerms<A, B> terms = (InternalTerms<A, B>) aggregation;
             if (referenceTerms == null && !terms.getClass().equals(UnmappedTerms.class)) {
@@ -190,7 +194,10 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
             }
             otherDocCount += terms.getSumOfOtherDocCounts();
             final long thisAggDocCountError;
-            if (terms.buckets.size() < this.shardSize || InternalOrder.isTermOrder(order)) {
+            if (terms.partiallyReduced) {
+                hasPartiallyReducedTerms = true;
+                thisAggDocCountError = terms.docCountError;
+            } else if (terms.buckets.size() < this.shardSize || InternalOrder.isTermOrder(order)) {
                 thisAggDocCountError = 0;
             } else if (InternalOrder.isCountDesc(this.order)) {
                 thisAggDocCountError = terms.buckets.get(terms.buckets.size() - 1).docCount;
@@ -204,9 +211,15 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
                     sumDocCountError += thisAggDocCountError;
                 }
             }
-            terms.docCountError = thisAggDocCountError;
             for (Bucket bucket : terms.buckets) {
-                bucket.docCountError = thisAggDocCountError;
+                if (terms.partiallyReduced == false) {
+                    bucket.docCountError = thisAggDocCountError;
+                } else if (thisAggDocCountError == -1 || bucket.docCountError == -1) {
+                    bucket.docCountError = -1;
+                } else {
+                    // the bucket holds the error of the shards that didn't return this term, but we sum up the error of those that did
+                    bucket.docCountError = thisAggDocCountError - bucket.docCountError;
+                }
                 List<Bucket> bucketList = buckets.get(bucket.getKey());
                 if (bucketList == null) {
                     bucketList = new ArrayList<>();
@@ -214,9 +227,12 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
                 }
                 bucketList.add(bucket);
             }
+            terms.docCountError = thisAggDocCountError;
         }
 
-        final int size = Math.min(requiredSize, buckets.size());
+        // partial reduces keep the top shard_size terms, like shards do, since they might make it to the top terms once the counts of
+        // other shards are added. The final reduce only keeps the requested number of terms
+        final int size = Math.min(reduceContext.isFinalReduce() ? requiredSize : shardSize, buckets.size());
         BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(null));
         for (List<Bucket> sameTermBuckets : buckets.values()) {
             final Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
@@ -227,7 +243,8 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
                     b.docCountError = sumDocCountError - b.docCountError;
                 }
             }
-            if (b.docCount >= minDocCount) {
+            // the doc count of a term may still grow until the final reduce
+            if (b.docCount >= minDocCount || reduceContext.isFinalReduce() == false) {
                 Terms.Bucket removed = ordered.insertWithOverflow(b);
                 if (removed != null) {
                     otherDocCount += removed.getDocCount();
@@ -238,11 +255,22 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
         for (int i = ordered.size() - 1; i >= 0; i--) {
             list[i] = (Bucket) ordered.pop();
         }
+        if (reduceContext.isFinalReduce() == false) {
+            // the next reduce treats the partially reduced terms like one more shard result: terms that are not part of them have
+            // been missed by all shards, or were trimmed and have at most as many docs as the last term that we kept
+            long partialDocCountError = sumDocCountError;
+            if (sumDocCountError != -1 && list.length < buckets.size() && InternalOrder.isTermOrder(order) == false) {
+                partialDocCountError = InternalOrder.isCountDesc(order) ? sumDocCountError + list[list.length - 1].docCount : -1;
+            }
+            A reduced = create(name, Arrays.asList(list), partialDocCountError, otherDocCount, this);
+            ((InternalTerms<?, ?>) reduced).partiallyReduced = true;
+            return reduced;
+        }
         long docCountError;
         if (sumDocCountError == -1) {
             docCountError = -1;
         } else {
-            docCountError = aggregations.size() == 1 ? 0 : sumDocCountError;
+            docCountError = aggregations.size() == 1 && hasPartiallyReducedTerms == false ? 0 : sumDocCountError;
         }
         return create(name, Arrays.asList(list), docCountError, otherDocCount, this);
     }
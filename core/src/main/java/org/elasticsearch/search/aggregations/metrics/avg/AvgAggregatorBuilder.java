@@ -60,6 +60,11 @@ public class AvgAggregatorBuilder extends ValuesSourceAggregatorBuilder.LeafOnly
         return true;
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        return false;
+    }
+
     @Override
     protected AvgAggregatorFactory innerBuild(AggregationContext context, ValuesSourceConfig<Numeric> config,
             AggregatorFactory<?> parent, Builder subFactoriesBuilder) throws IOException {
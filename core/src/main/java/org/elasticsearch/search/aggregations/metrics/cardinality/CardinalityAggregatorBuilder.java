@@ -76,6 +76,11 @@ public final class CardinalityAggregatorBuilder extends ValuesSourceAggregatorBu
         // Deprecated all values are already rehashed so do nothing
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        return false;
+    }
+
     @Override
     protected CardinalityAggregatorFactory innerBuild(AggregationContext context, ValuesSourceConfig<ValuesSource> config,
             AggregatorFactory<?> parent, Builder subFactoriesBuilder) throws IOException {
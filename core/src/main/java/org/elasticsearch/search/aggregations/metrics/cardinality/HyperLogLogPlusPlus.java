@@ -527,9 +527,10 @@ public final class HyperLogLogPlusPlus implements Releasable {
             }
         } else {
             out.writeBoolean(HYPERLOGLOG);
-            for (long i = bucket << p, end = i + m; i < end; ++i) {
-                out.writeByte(runLens.get(i));
-            }
+            // write the registers in bulk, without copying them when they fit in a page
+            final BytesRef registers = new BytesRef();
+            runLens.get(bucket << p, m, registers);
+            out.writeBytes(registers.bytes, registers.offset, registers.length);
         }
     }
 
@@ -546,9 +547,9 @@ public final class HyperLogLogPlusPlus implements Releasable {
             }
         } else {
             counts.algorithm.set(0);
-            for (int i = 0; i < counts.m; ++i) {
-                counts.runLens.set(i, in.readByte());
-            }
+            final byte[] registers = new byte[counts.m];
+            in.readBytes(registers, 0, registers.length);
+            counts.runLens.set(0, registers, 0, registers.length);
         }
         return counts;
     }
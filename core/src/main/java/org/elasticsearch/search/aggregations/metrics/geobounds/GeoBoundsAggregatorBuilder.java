@@ -78,6 +78,11 @@ public class GeoBoundsAggregatorBuilder extends ValuesSourceAggregatorBuilder<Va
         return wrapLongitude;
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        return false;
+    }
+
     @Override
     protected GeoBoundsAggregatorFactory innerBuild(AggregationContext context, ValuesSourceConfig<ValuesSource.GeoPoint> config,
             AggregatorFactory<?> parent, Builder subFactoriesBuilder) throws IOException {
@@ -57,6 +57,8 @@ public class InternalScriptedMetric extends InternalMetricsAggregation implement
 
     private Script reduceScript;
     private Object aggregation;
+    // the results of partial reduces hold the list of the shard results that they combined, which the final reduce flattens
+    private boolean partiallyReduced;
 
     private InternalScriptedMetric() {
     }
@@ -81,9 +83,20 @@ public class InternalScriptedMetric extends InternalMetricsAggregation implement
         List<Object> aggregationObjects = new ArrayList<>();
         for (InternalAggregation aggregation : aggregations) {
             InternalScriptedMetric mapReduceAggregation = (InternalScriptedMetric) aggregation;
-            aggregationObjects.add(mapReduceAggregation.aggregation());
+            if (mapReduceAggregation.partiallyReduced) {
+                aggregationObjects.addAll((List<?>) mapReduceAggregation.aggregation());
+            } else {
+                aggregationObjects.add(mapReduceAggregation.aggregation());
+            }
         }
         InternalScriptedMetric firstAggregation = ((InternalScriptedMetric) aggregations.get(0));
+        if (reduceContext.isFinalReduce() == false) {
+            // the reduce script expects the results of all shards
+            InternalScriptedMetric reduced = new InternalScriptedMetric(firstAggregation.getName(), aggregationObjects,
+                    firstAggregation.reduceScript, pipelineAggregators(), getMetaData());
+            reduced.partiallyReduced = true;
+            return reduced;
+        }
         Object aggregation;
         if (firstAggregation.reduceScript != null) {
             Map<String, Object> vars = new HashMap<>();
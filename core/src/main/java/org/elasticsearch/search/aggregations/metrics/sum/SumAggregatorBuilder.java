@@ -42,6 +42,11 @@ public class SumAggregatorBuilder extends ValuesSourceAggregatorBuilder.LeafOnly
         super(name, InternalSum.TYPE, ValuesSourceType.NUMERIC, ValueType.NUMERIC);
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        return false;
+    }
+
     @Override
     protected SumAggregatorFactory innerBuild(AggregationContext context, ValuesSourceConfig<Numeric> config,
             AggregatorFactory<?> parent, Builder subFactoriesBuilder) throws IOException {
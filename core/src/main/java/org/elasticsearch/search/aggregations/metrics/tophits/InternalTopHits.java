@@ -91,6 +91,9 @@ public class InternalTopHits extends InternalMetricsAggregation implements TopHi
 
         final TopDocs reducedTopDocs;
         final TopDocs[] shardDocs;
+        // partial reduces must keep the hits before 'from', the final reduce skips them
+        final int start = reduceContext.isFinalReduce() ? from : 0;
+        final int numHits = reduceContext.isFinalReduce() ? size : from + size;
 
         try {
             if (topDocs instanceof TopFieldDocs) {
@@ -101,7 +104,7 @@ public class InternalTopHits extends InternalMetricsAggregation implements TopHi
                     shardDocs[i] = (TopFieldDocs) topHitsAgg.topDocs;
                     shardHits[i] = topHitsAgg.searchHits;
                 }
-                reducedTopDocs = TopDocs.merge(sort, from, size, (TopFieldDocs[]) shardDocs);
+                reducedTopDocs = TopDocs.merge(sort, start, numHits, (TopFieldDocs[]) shardDocs);
             } else {
                 shardDocs = new TopDocs[aggregations.size()];
                 for (int i = 0; i < shardDocs.length; i++) {
@@ -109,7 +112,7 @@ public class InternalTopHits extends InternalMetricsAggregation implements TopHi
                     shardDocs[i] = topHitsAgg.topDocs;
                     shardHits[i] = topHitsAgg.searchHits;
                 }
-                reducedTopDocs = TopDocs.merge(from, size, shardDocs);
+                reducedTopDocs = TopDocs.merge(start, numHits, shardDocs);
             }
 
             final int[] tracker = new int[shardHits.length];
@@ -42,6 +42,11 @@ public class ValueCountAggregatorBuilder
         super(name, InternalValueCount.TYPE, ValuesSourceType.ANY, targetValueType);
     }
 
+    @Override
+    protected boolean mustVisitAllDocs() {
+        return false;
+    }
+
     @Override
     protected ValueCountAggregatorFactory innerBuild(AggregationContext context, ValuesSourceConfig<ValuesSource> config,
             AggregatorFactory<?> parent, AggregatorFactories.Builder subFactoriesBuilder) throws IOException {
@@ -30,7 +30,9 @@ import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldDocs;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
@@ -290,6 +292,16 @@ public class SearchPhaseController extends AbstractComponent {
 
     public InternalSearchResponse merge(ScoreDoc[] sortedDocs, AtomicArray<? extends QuerySearchResultProvider> queryResultsArr,
                                         AtomicArray<? extends FetchSearchResultProvider> fetchResultsArr) {
+        return merge(sortedDocs, queryResultsArr, fetchResultsArr, null);
+    }
+
+    /**
+     * Merges the results of the query and fetch phases into the response. If a {@link BatchedAggregationsReducer} is given, the
+     * aggregations of the query results have been consumed by it and are reduced from what it buffered.
+     */
+    public InternalSearchResponse merge(ScoreDoc[] sortedDocs, AtomicArray<? extends QuerySearchResultProvider> queryResultsArr,
+                                        AtomicArray<? extends FetchSearchResultProvider> fetchResultsArr,
+                                        @Nullable BatchedAggregationsReducer aggsReducer) {
 
         List<? extends AtomicArray.Entry<? extends QuerySearchResultProvider>> queryResults = queryResultsArr.asList();
         List<? extends AtomicArray.Entry<? extends FetchSearchResultProvider>> fetchResults = fetchResultsArr.asList();
@@ -391,7 +403,9 @@ public class SearchPhaseController extends AbstractComponent {
 
         // merge addAggregation
         InternalAggregations aggregations = null;
-        if (!queryResults.isEmpty()) {
+        if (aggsReducer != null) {
+            aggregations = aggsReducer.reduce();
+        } else if (!queryResults.isEmpty()) {
             if (firstResult.aggregations() != null && firstResult.aggregations().asList() != null) {
                 List<InternalAggregations> aggregationsList = new ArrayList<>(queryResults.size());
                 for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults) {
@@ -432,4 +446,71 @@ public class SearchPhaseController extends AbstractComponent {
         return new InternalSearchResponse(searchHits, aggregations, suggest, shardResults, timedOut, terminatedEarly);
     }
 
+    /**
+     * Returns a reducer that partially reduces the aggregations of the query results of every <code>batchedReduceSize</code> shards,
+     * or <code>null</code> if all shard results fit in a single batch anyway.
+     */
+    @Nullable
+    public BatchedAggregationsReducer newBatchedAggregationsReducer(SearchRequest request, int numShards) {
+        if (request.source() == null || request.source().aggregations() == null || numShards <= request.batchedReduceSize()) {
+            return null;
+        }
+        return new BatchedAggregationsReducer(request.batchedReduceSize());
+    }
+
+    /**
+     * Takes the aggregations of query results as they come in and reduces them every time <code>batchedReduceSize</code> of them
+     * have been buffered, so that the coordinating node only holds the aggregations of one batch of shards, and one partially
+     * reduced result, instead of those of all shards.
+     */
+    public final class BatchedAggregationsReducer {
+
+        private final int batchedReduceSize;
+        private final List<InternalAggregations> buffer;
+        private Throwable failure;
+
+        private BatchedAggregationsReducer(int batchedReduceSize) {
+            if (batchedReduceSize < 2) {
+                throw new IllegalArgumentException("batchedReduceSize must be >= 2, got " + batchedReduceSize);
+            }
+            this.batchedReduceSize = batchedReduceSize;
+            this.buffer = new ArrayList<>(batchedReduceSize);
+        }
+
+        /**
+         * Takes the aggregations out of the given query result. They get reduced with the next batch.
+         */
+        public synchronized void consume(QuerySearchResult result) {
+            final InternalAggregations aggregations = (InternalAggregations) result.aggregations();
+            if (aggregations == null) {
+                return;
+            }
+            result.aggregations(null);
+            buffer.add(aggregations);
+            if (buffer.size() == batchedReduceSize && failure == null) {
+                try {
+                    InternalAggregations reduced = InternalAggregations.reduce(buffer,
+                        new ReduceContext(bigArrays, scriptService, false));
+                    buffer.clear();
+                    buffer.add(reduced);
+                } catch (Throwable t) {
+                    // the final reduce reports the failure, reducing the same aggregations again would most likely fail the same way
+                    failure = t;
+                }
+            }
+        }
+
+        /**
+         * Executes the final reduce of the buffered aggregations.
+         */
+        synchronized InternalAggregations reduce() {
+            if (failure != null) {
+                throw ExceptionsHelper.convertToRuntime(failure);
+            }
+            if (buffer.isEmpty()) {
+                return null;
+            }
+            return InternalAggregations.reduce(buffer, new ReduceContext(bigArrays, scriptService));
+        }
+    }
 }
@@ -20,30 +20,63 @@
 package org.elasticsearch.search.internal;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermContext;
+import org.apache.lucene.search.BulkScorer;
 import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.TermStatistics;
+import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.profile.ProfileBreakdown;
 import org.elasticsearch.search.profile.ProfileWeight;
 import org.elasticsearch.search.profile.Profiler;
+import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
  */
 public class ContextIndexSearcher extends IndexSearcher implements Releasable {
 
+    /** No more segments are added to a slice once it holds this many documents. */
+    public static final int MAX_DOCS_PER_SLICE = 250_000;
+
+    /** Slices hold at most this many segments, so that many small segments don't end up on a single thread. */
+    public static final int MAX_SEGMENTS_PER_SLICE = 5;
+
+    /**
+     * The number of doc ids that are scored between two checks of whether the task was cancelled. Scoring is resumed at the
+     * next window, so that a check costs about as much as scoring a single document.
+     */
+    static final int CHECK_CANCELLED_INTERVAL = 1 << 11;
+
     /** The wrapped {@link IndexSearcher}. The reason why we sometimes prefer delegating to this searcher instead of <tt>super</tt> is that
      *  this instance may have more assertions, for example if it comes from MockInternalEngine which wraps the IndexSearcher into an
      *  AssertingIndexSearcher. */
@@ -56,6 +89,14 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     // TODO revisit moving the profiler to inheritance or wrapping model in the future
     private Profiler profiler;
 
+    @Nullable
+    private Executor concurrentSearchExecutor;
+
+    private LeafSlice[] slices;
+
+    @Nullable
+    private SearchTask task;
+
     public ContextIndexSearcher(Engine.Searcher searcher,
             QueryCache queryCache, QueryCachingPolicy queryCachingPolicy) {
         super(searcher.reader());
@@ -78,6 +119,199 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         this.aggregatedDfs = aggregatedDfs;
     }
 
+    /**
+     * Sets the task that searches execute under, or <code>null</code> if searches can't be cancelled. Once the task is
+     * cancelled, searches throw a {@link TaskCancelledException} before their next segment or window of documents.
+     */
+    public void setTask(@Nullable SearchTask task) {
+        this.task = task;
+    }
+
+    /**
+     * Sets the executor that {@link #searchSlices(Query, SliceCollectorFactory)} runs slices on, or <code>null</code> to search
+     * slices sequentially.
+     */
+    public void setConcurrentSearchExecutor(@Nullable Executor executor) {
+        this.concurrentSearchExecutor = executor;
+    }
+
+    /**
+     * Returns whether {@link #searchSlices(Query, SliceCollectorFactory)} would search several slices concurrently.
+     */
+    public boolean canSearchConcurrently() {
+        return concurrentSearchExecutor != null && getSlices().length > 1;
+    }
+
+    /**
+     * Returns the groups of segments that are searched concurrently.
+     */
+    public LeafSlice[] getSlices() {
+        if (slices == null) {
+            slices = slices(getIndexReader().leaves());
+        }
+        return slices;
+    }
+
+    @Override
+    protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        return computeSlices(leaves, MAX_DOCS_PER_SLICE, MAX_SEGMENTS_PER_SLICE);
+    }
+
+    /**
+     * Groups segments into slices: the largest segments are visited first and added to the current slice until it holds
+     * <code>maxDocsPerSlice</code> documents or <code>maxSegmentsPerSlice</code> segments. Segments within a slice are in index
+     * order.
+     */
+    static LeafSlice[] computeSlices(List<LeafReaderContext> leaves, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+        List<LeafReaderContext> sortedLeaves = new ArrayList<>(leaves);
+        sortedLeaves.sort((a, b) -> Integer.compare(b.reader().maxDoc(), a.reader().maxDoc()));
+        List<LeafSlice> slices = new ArrayList<>();
+        List<LeafReaderContext> group = new ArrayList<>();
+        long docsInGroup = 0;
+        for (LeafReaderContext leaf : sortedLeaves) {
+            group.add(leaf);
+            docsInGroup += leaf.reader().maxDoc();
+            if (docsInGroup >= maxDocsPerSlice || group.size() >= maxSegmentsPerSlice) {
+                slices.add(newSlice(group));
+                group.clear();
+                docsInGroup = 0;
+            }
+        }
+        if (group.isEmpty() == false) {
+            slices.add(newSlice(group));
+        }
+        return slices.toArray(new LeafSlice[slices.size()]);
+    }
+
+    private static LeafSlice newSlice(List<LeafReaderContext> group) {
+        LeafReaderContext[] leaves = group.toArray(new LeafReaderContext[group.size()]);
+        Arrays.sort(leaves, (a, b) -> Integer.compare(a.ord, b.ord));
+        return new LeafSlice(leaves);
+    }
+
+    /**
+     * Searches each slice with its own collector, concurrently on the executor that was set with
+     * {@link #setConcurrentSearchExecutor(Executor)}, and waits for all of them to complete. The first slice is searched on the
+     * calling thread, and so are slices that the executor rejects. The weight is created once, on the calling thread, and shared by
+     * all slices.
+     *
+     * A slice whose collector throws a {@link TimeLimitingCollector.TimeExceededException} stops collecting, but keeps the hits
+     * it collected so far, like a sequential search that times out.
+     */
+    public <C extends Collector> List<SliceResult<C>> searchSlices(Query query, SliceCollectorFactory<C> collectorFactory)
+        throws IOException {
+        final LeafSlice[] slices = getSlices();
+        final List<C> collectors = new ArrayList<>(slices.length);
+        boolean needsScores = false;
+        for (int i = 0; i < slices.length; i++) {
+            C collector = collectorFactory.newCollector(slices[i]);
+            collectors.add(collector);
+            needsScores |= collector.needsScores();
+        }
+        final Weight weight = createNormalizedWeight(query, needsScores);
+        final List<FutureTask<SliceResult<C>>> tasks = new ArrayList<>(slices.length);
+        for (int i = 0; i < slices.length; i++) {
+            final LeafSlice slice = slices[i];
+            final C collector = collectors.get(i);
+            tasks.add(new FutureTask<>(() -> searchSlice(slice, weight, collector)));
+        }
+        for (int i = 1; i < tasks.size(); i++) {
+            if (concurrentSearchExecutor == null) {
+                tasks.get(i).run();
+            } else {
+                try {
+                    concurrentSearchExecutor.execute(tasks.get(i));
+                } catch (EsRejectedExecutionException e) {
+                    // the workers are saturated, search the slice on this thread rather than failing a search that is already running
+                    tasks.get(i).run();
+                }
+            }
+        }
+        if (tasks.isEmpty() == false) {
+            tasks.get(0).run();
+        }
+        // wait for all slices, even if one of them failed, since they all use the reader of this searcher
+        final List<SliceResult<C>> results = new ArrayList<>(tasks.size());
+        Throwable failure = null;
+        for (FutureTask<SliceResult<C>> task : tasks) {
+            try {
+                results.add(task.get());
+            } catch (ExecutionException e) {
+                failure = ExceptionsHelper.useOrSuppress(failure, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = ExceptionsHelper.useOrSuppress(failure, new ThreadInterruptedException(e));
+            }
+        }
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw ExceptionsHelper.convertToRuntime(failure);
+        }
+        return results;
+    }
+
+    private <C extends Collector> SliceResult<C> searchSlice(LeafSlice slice, Weight weight, C collector) throws IOException {
+        final long start = System.nanoTime();
+        boolean timedOut = false;
+        try {
+            search(Arrays.asList(slice.leaves), weight, collector);
+        } catch (TimeLimitingCollector.TimeExceededException e) {
+            timedOut = true;
+        }
+        return new SliceResult<>(slice, collector, timedOut, System.nanoTime() - start);
+    }
+
+    /**
+     * Collects the matches of the given weight, which must have been created by this searcher, on a single segment.
+     */
+    public void searchLeaf(LeafReaderContext leaf, Weight weight, Collector collector) throws IOException {
+        search(Collections.singletonList(leaf), weight, collector);
+    }
+
+    @Override
+    protected void search(List<LeafReaderContext> leaves, Weight weight, Collector collector) throws IOException {
+        final SearchTask task = this.task;
+        if (task == null) {
+            super.search(leaves, weight, collector);
+            return;
+        }
+        // like IndexSearcher#search, but documents are scored in windows so that cancellation is checked regularly
+        for (LeafReaderContext ctx : leaves) {
+            checkCancelled(task);
+            final LeafCollector leafCollector;
+            try {
+                leafCollector = collector.getLeafCollector(ctx);
+            } catch (CollectionTerminatedException e) {
+                // there is no doc of interest in this segment, continue with the next one
+                continue;
+            }
+            final BulkScorer scorer = weight.bulkScorer(ctx);
+            if (scorer != null) {
+                final Bits liveDocs = ctx.reader().getLiveDocs();
+                try {
+                    int min = 0;
+                    while (min != DocIdSetIterator.NO_MORE_DOCS) {
+                        checkCancelled(task);
+                        final int max = (int) Math.min((long) min + CHECK_CANCELLED_INTERVAL, DocIdSetIterator.NO_MORE_DOCS);
+                        min = scorer.score(leafCollector, liveDocs, min, max);
+                    }
+                } catch (CollectionTerminatedException e) {
+                    // collection of this segment was terminated early, continue with the next one
+                }
+            }
+        }
+    }
+
+    private static void checkCancelled(SearchTask task) {
+        if (task.isCancelled()) {
+            throw new TaskCancelledException("task cancelled [" + task.getReasonCancelled() + "]");
+        }
+    }
+
     @Override
     public Query rewrite(Query original) throws IOException {
         if (profiler != null) {
@@ -115,12 +349,12 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
             // each invocation so that it can build an internal representation of the query
             // tree
             ProfileBreakdown profile = profiler.getQueryBreakdown(query);
-            profile.startTime(ProfileBreakdown.TimingType.CREATE_WEIGHT);
+            final long start = profile.startTime();
             final Weight weight;
             try {
                 weight = super.createWeight(query, needsScores);
             } finally {
-                profile.stopAndRecordTime();
+                profile.stopAndRecordTime(ProfileBreakdown.TimingType.CREATE_WEIGHT, start);
                 profiler.pollLastQuery();
             }
             return new ProfileWeight(query, weight, profile);
@@ -166,4 +400,48 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     public DirectoryReader getDirectoryReader() {
         return engineSearcher.getDirectoryReader();
     }
+
+    /**
+     * Creates the collector of each slice searched by {@link #searchSlices(Query, SliceCollectorFactory)}.
+     */
+    @FunctionalInterface
+    public interface SliceCollectorFactory<C extends Collector> {
+        C newCollector(LeafSlice slice) throws IOException;
+    }
+
+    /**
+     * The outcome of searching a single slice with {@link #searchSlices(Query, SliceCollectorFactory)}.
+     */
+    public static final class SliceResult<C extends Collector> {
+
+        private final LeafSlice slice;
+        private final C collector;
+        private final boolean timedOut;
+        private final long timeInNanos;
+
+        SliceResult(LeafSlice slice, C collector, boolean timedOut, long timeInNanos) {
+            this.slice = slice;
+            this.collector = collector;
+            this.timedOut = timedOut;
+            this.timeInNanos = timeInNanos;
+        }
+
+        public LeafSlice getSlice() {
+            return slice;
+        }
+
+        public C getCollector() {
+            return collector;
+        }
+
+        /** Whether collection of this slice stopped because the search timed out. */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /** The time it took to search this slice, once it got a thread. */
+        public long getTimeInNanos() {
+            return timeInNanos;
+        }
+    }
 }
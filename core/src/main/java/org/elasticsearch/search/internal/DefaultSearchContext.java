@@ -29,6 +29,7 @@ import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.Counter;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.common.Nullable;
@@ -117,6 +118,7 @@ public class DefaultSearchContext extends SearchContext {
     private Sort sort;
     private Float minimumScore;
     private boolean trackScores = false; // when sorting, track scores as well...
+    private boolean trackTotalHits = true;
     private FieldDoc searchAfter;
     /**
      * The original query as sent by the user without the types and aliases
@@ -129,6 +131,10 @@ public class DefaultSearchContext extends SearchContext {
      * applied.
      */
     private ParsedQuery filteredQuery;
+    /**
+     * The filter of the slice this search is restricted to, if any.
+     */
+    private Query sliceFilter;
     /**
      * The query to actually execute.
      */
@@ -147,6 +153,7 @@ public class DefaultSearchContext extends SearchContext {
     private final long originNanoTime = System.nanoTime();
     private volatile long lastAccessTime = -1;
     private Profilers profilers;
+    private SearchTask task;
 
     private final Map<String, FetchSubPhaseContext> subPhaseContexts = new HashMap<>();
     private final Map<Class<?>, Collector> queryCollectors = new HashMap<>();
@@ -230,6 +237,16 @@ public class DefaultSearchContext extends SearchContext {
 
     private ParsedQuery buildFilteredQuery() {
         Query searchFilter = searchFilter(queryShardContext.getTypes());
+        if (sliceFilter != null) {
+            if (searchFilter == null) {
+                searchFilter = sliceFilter;
+            } else {
+                searchFilter = new BooleanQuery.Builder()
+                        .add(searchFilter, Occur.FILTER)
+                        .add(sliceFilter, Occur.FILTER)
+                        .build();
+            }
+        }
         if (searchFilter == null) {
             return originalQuery;
         }
@@ -549,6 +566,17 @@ public class DefaultSearchContext extends SearchContext {
         return this.trackScores;
     }
 
+    @Override
+    public SearchContext trackTotalHits(boolean trackTotalHits) {
+        this.trackTotalHits = trackTotalHits;
+        return this;
+    }
+
+    @Override
+    public boolean trackTotalHits() {
+        return this.trackTotalHits;
+    }
+
     @Override
     public SearchContext searchAfter(FieldDoc searchAfter) {
         this.searchAfter = searchAfter;
@@ -587,6 +615,14 @@ public class DefaultSearchContext extends SearchContext {
         return filteredQuery;
     }
 
+    /**
+     * Restricts the query of this search to the documents that match the given slice filter.
+     */
+    public DefaultSearchContext sliceFilter(Query filter) {
+        this.sliceFilter = filter;
+        return this;
+    }
+
     private void filteredQuery(ParsedQuery filteredQuery) {
         this.filteredQuery = filteredQuery;
         this.query = filteredQuery.query();
@@ -781,4 +817,20 @@ public class DefaultSearchContext extends SearchContext {
     public void setProfilers(Profilers profilers) {
         this.profilers = profilers;
     }
+
+    @Override
+    public void setTask(SearchTask task) {
+        this.task = task;
+        searcher.setTask(task);
+    }
+
+    @Override
+    public SearchTask getTask() {
+        return task;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return task != null && task.isCancelled();
+    }
 }
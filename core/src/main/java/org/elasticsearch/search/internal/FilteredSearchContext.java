@@ -24,6 +24,7 @@ import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.Counter;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.common.ParseFieldMatcher;
@@ -330,6 +331,16 @@ public abstract class FilteredSearchContext extends SearchContext {
         return in.trackScores();
     }
 
+    @Override
+    public SearchContext trackTotalHits(boolean trackTotalHits) {
+        return in.trackTotalHits(trackTotalHits);
+    }
+
+    @Override
+    public boolean trackTotalHits() {
+        return in.trackTotalHits();
+    }
+
     @Override
     public SearchContext searchAfter(FieldDoc searchAfter) {
         return in.searchAfter(searchAfter);
@@ -525,6 +536,21 @@ public abstract class FilteredSearchContext extends SearchContext {
         return in.getProfilers();
     }
 
+    @Override
+    public void setTask(SearchTask task) {
+        in.setTask(task);
+    }
+
+    @Override
+    public SearchTask getTask() {
+        return in.getTask();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return in.isCancelled();
+    }
+
     @Override
     public Map<Class<?>, Collector> queryCollectors() { return in.queryCollectors();}
 
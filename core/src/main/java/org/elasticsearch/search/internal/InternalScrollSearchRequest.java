@@ -20,10 +20,13 @@
 package org.elasticsearch.search.internal;
 
 import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.action.support.ChildTaskRequest;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.Scroll;
-import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
 
 import java.io.IOException;
 
@@ -32,7 +35,7 @@ import static org.elasticsearch.search.Scroll.readScroll;
 /**
  *
  */
-public class InternalScrollSearchRequest extends TransportRequest {
+public class InternalScrollSearchRequest extends ChildTaskRequest {
 
     private long id;
 
@@ -59,6 +62,11 @@ public class InternalScrollSearchRequest extends TransportRequest {
         return this;
     }
 
+    @Override
+    public Task createTask(long id, String type, String action, TaskId parentTaskId) {
+        return new SearchTask(id, type, action, getDescription(), parentTaskId);
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -170,6 +170,18 @@ public class InternalSearchHits implements SearchHits {
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        toXContentBeforeHits(builder);
+        for (SearchHit hit : hits) {
+            hit.toXContent(builder, params);
+        }
+        toXContentAfterHits(builder);
+        return builder;
+    }
+
+    /**
+     * Writes the start of the hits object, up to the opening of the array of hits.
+     */
+    void toXContentBeforeHits(XContentBuilder builder) throws IOException {
         builder.startObject(Fields.HITS);
         builder.field(Fields.TOTAL, totalHits);
         if (Float.isNaN(maxScore)) {
@@ -179,12 +191,14 @@ public class InternalSearchHits implements SearchHits {
         }
         builder.field(Fields.HITS);
         builder.startArray();
-        for (SearchHit hit : hits) {
-            hit.toXContent(builder, params);
-        }
+    }
+
+    /**
+     * Writes the end of the hits object, starting with the closing of the array of hits.
+     */
+    void toXContentAfterHits(XContentBuilder builder) throws IOException {
         builder.endArray();
         builder.endObject();
-        return builder;
     }
 
     public static InternalSearchHits readSearchHits(StreamInput in, StreamContext context) throws IOException {
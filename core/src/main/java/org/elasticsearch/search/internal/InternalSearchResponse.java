@@ -109,6 +109,26 @@ public class InternalSearchResponse implements Streamable, ToXContent {
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         hits.toXContent(builder, params);
+        return toXContentAfterHitsObject(builder, params);
+    }
+
+    /**
+     * Writes the response up to the opening of the array of hits, so that the hits can be written one at a time.
+     */
+    public XContentBuilder toXContentBeforeHits(XContentBuilder builder, Params params) throws IOException {
+        hits.toXContentBeforeHits(builder);
+        return builder;
+    }
+
+    /**
+     * Writes the rest of the response after the hits that were written one at a time.
+     */
+    public XContentBuilder toXContentAfterHits(XContentBuilder builder, Params params) throws IOException {
+        hits.toXContentAfterHits(builder);
+        return toXContentAfterHitsObject(builder, params);
+    }
+
+    private XContentBuilder toXContentAfterHitsObject(XContentBuilder builder, Params params) throws IOException {
         if (aggregations != null) {
             aggregations.toXContent(builder, params);
         }
@@ -24,10 +24,12 @@ import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.Counter;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseFieldMatcher;
+import org.elasticsearch.common.joda.DateMathParser;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
@@ -62,6 +64,7 @@ import org.elasticsearch.search.rescore.RescoreSearchContext;
 import org.elasticsearch.search.suggest.SuggestionSearchContext;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -111,6 +114,7 @@ public abstract class SearchContext implements Releasable {
     }
 
     private boolean nowInMillisUsed;
+    private final List<Long> roundedNowValues = new ArrayList<>();
 
     protected abstract void doClose();
 
@@ -146,21 +150,45 @@ public abstract class SearchContext implements Releasable {
         return nowInMillisImpl();
     }
 
+    /**
+     * Returns the current time for date math. Expressions that round it, like <code>now-15m/m</code>, don't mark it as
+     * {@link #nowInMillisUsed() used} but record the value they resolved to in {@link #roundedNowValues()} instead.
+     */
     public final Callable<Long> nowCallable() {
-        return new Callable<Long>() {
+        return new DateMathParser.RoundingAwareNow() {
             @Override
             public Long call() throws Exception {
                 return nowInMillis();
             }
+
+            @Override
+            public long nowToRound() {
+                return nowInMillisImpl();
+            }
+
+            @Override
+            public void onRoundedNow(long value) {
+                roundedNowValues.add(value);
+            }
         };
-    };
+    }
 
     public final boolean nowInMillisUsed() {
         return nowInMillisUsed;
     }
 
+    /**
+     * The values that date math expressions that round the current time resolved to, in the order they were parsed.
+     * Requests that only use rounded values of the current time can still be cached, as long as these values are part
+     * of the cache key.
+     */
+    public final List<Long> roundedNowValues() {
+        return Collections.unmodifiableList(roundedNowValues);
+    }
+
     public final void resetNowInMillisUsed() {
         this.nowInMillisUsed = false;
+        this.roundedNowValues.clear();
     }
 
     protected abstract long nowInMillisImpl();
@@ -254,6 +282,14 @@ public abstract class SearchContext implements Releasable {
 
     public abstract boolean trackScores();
 
+    public abstract SearchContext trackTotalHits(boolean trackTotalHits);
+
+    /**
+     * Indicates if the total number of hits should be counted exactly, otherwise it may be a lower bound if the collection of sorted
+     * segments stops early.
+     */
+    public abstract boolean trackTotalHits();
+
     public abstract SearchContext searchAfter(FieldDoc searchAfter);
 
     public abstract FieldDoc searchAfter();
@@ -331,6 +367,18 @@ public abstract class SearchContext implements Releasable {
      */
     public abstract Profilers getProfilers();
 
+    /**
+     * Sets the task that the current phase of this context executes under, or <code>null</code> when the phase is done.
+     */
+    public abstract void setTask(SearchTask task);
+
+    public abstract SearchTask getTask();
+
+    /**
+     * Returns whether the task of the current phase was cancelled, in which case the phase should stop as soon as possible.
+     */
+    public abstract boolean isCancelled();
+
     /**
      * Schedule the release of a resource. The time when {@link Releasable#close()} will be called on this object
      * is function of the provided {@link Lifetime}.
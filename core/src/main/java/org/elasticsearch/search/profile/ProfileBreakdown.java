@@ -23,11 +23,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * A record of timings for the various operations that may happen during query execution.
  * A node's time may be composed of several internal attributes (rewriting, weighting,
- * scoring, etc).
+ * scoring, etc). Timings may be recorded from several threads concurrently.
  */
 public final class ProfileBreakdown {
 
@@ -49,45 +50,34 @@ public final class ProfileBreakdown {
     /**
      * The accumulated timings for this query node
      */
-    private final long[] timings;
-
-    /** Scratch to store the current timing type. */
-    private TimingType currentTimingType;
-
-    /**
-     * The temporary scratch space for holding start-times
-     */
-    private long scratch;
+    private final AtomicLongArray timings;
 
     /** Sole constructor. */
     public ProfileBreakdown() {
-        timings = new long[TimingType.values().length];
+        timings = new AtomicLongArray(TimingType.values().length);
     }
 
     /**
-     * Begin timing a query for a specific Timing context
-     * @param timing    The timing context being profiled
+     * Begin timing a query. The returned start time must be passed to
+     * {@link #stopAndRecordTime(TimingType, long)}: callers hold on to it, since the slices of a search that runs concurrently
+     * over the segments of a shard time the same query node from several threads.
+     *
+     * @return          The start time
      */
-    public void startTime(TimingType timing) {
-        assert currentTimingType == null;
-        assert scratch == 0;
-        currentTimingType = timing;
-        scratch = System.nanoTime();
+    public long startTime() {
+        return System.nanoTime();
     }
 
     /**
      * Halt the timing process and save the elapsed time.
-     * startTime() must be called for a particular context prior to calling
-     * stopAndRecordTime(), otherwise the elapsed time will be negative and
-     * nonsensical
      *
+     * @param timing    The timing context being profiled
+     * @param startTime The start time returned by {@link #startTime()}
      * @return          The elapsed time
      */
-    public long stopAndRecordTime() {
-        long time = Math.max(1, System.nanoTime() - scratch);
-        timings[currentTimingType.ordinal()] += time;
-        currentTimingType = null;
-        scratch = 0L;
+    public long stopAndRecordTime(TimingType timing, long startTime) {
+        long time = Math.max(1, System.nanoTime() - startTime);
+        timings.addAndGet(timing.ordinal(), time);
         return time;
     }
 
@@ -95,7 +85,7 @@ public final class ProfileBreakdown {
     public Map<String, Long> toTimingMap() {
         Map<String, Long> map = new HashMap<>();
         for (TimingType timingType : TimingType.values()) {
-            map.put(timingType.toString(), timings[timingType.ordinal()]);
+            map.put(timingType.toString(), timings.get(timingType.ordinal()));
         }
         return Collections.unmodifiableMap(map);
     }
@@ -105,9 +95,9 @@ public final class ProfileBreakdown {
      * @param other Another Breakdown to merge with this one
      */
     public void merge(ProfileBreakdown other) {
-        assert(timings.length == other.timings.length);
-        for (int i = 0; i < timings.length; ++i) {
-            timings[i] += other.timings[i];
+        assert(timings.length() == other.timings.length());
+        for (int i = 0; i < timings.length(); ++i) {
+            timings.addAndGet(i, other.timings.get(i));
         }
     }
 }
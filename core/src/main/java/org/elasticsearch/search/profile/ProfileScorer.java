@@ -51,11 +51,11 @@ final class ProfileScorer extends Scorer {
 
     @Override
     public float score() throws IOException {
-        profile.startTime(ProfileBreakdown.TimingType.SCORE);
+        final long start = profile.startTime();
         try {
             return scorer.score();
         } finally {
-            profile.stopAndRecordTime();
+            profile.stopAndRecordTime(ProfileBreakdown.TimingType.SCORE, start);
         }
     }
 
@@ -81,21 +81,21 @@ final class ProfileScorer extends Scorer {
             
             @Override
             public int advance(int target) throws IOException {
-                profile.startTime(ProfileBreakdown.TimingType.ADVANCE);
+                final long start = profile.startTime();
                 try {
                     return in.advance(target);
                 } finally {
-                    profile.stopAndRecordTime();
+                    profile.stopAndRecordTime(ProfileBreakdown.TimingType.ADVANCE, start);
                 }
             }
 
             @Override
             public int nextDoc() throws IOException {
-                profile.startTime(ProfileBreakdown.TimingType.NEXT_DOC);
+                final long start = profile.startTime();
                 try {
                     return in.nextDoc();
                 } finally {
-                    profile.stopAndRecordTime();
+                    profile.stopAndRecordTime(ProfileBreakdown.TimingType.NEXT_DOC, start);
                 }
             }
 
@@ -122,21 +122,21 @@ final class ProfileScorer extends Scorer {
 
             @Override
             public int advance(int target) throws IOException {
-                profile.startTime(ProfileBreakdown.TimingType.ADVANCE);
+                final long start = profile.startTime();
                 try {
                     return inApproximation.advance(target);
                 } finally {
-                    profile.stopAndRecordTime();
+                    profile.stopAndRecordTime(ProfileBreakdown.TimingType.ADVANCE, start);
                 }
             }
 
             @Override
             public int nextDoc() throws IOException {
-                profile.startTime(ProfileBreakdown.TimingType.NEXT_DOC);
+                final long start = profile.startTime();
                 try {
                     return inApproximation.nextDoc();
                 } finally {
-                    profile.stopAndRecordTime();
+                    profile.stopAndRecordTime(ProfileBreakdown.TimingType.NEXT_DOC, start);
                 }
             }
 
@@ -153,11 +153,11 @@ final class ProfileScorer extends Scorer {
         return new TwoPhaseIterator(approximation) {
             @Override
             public boolean matches() throws IOException {
-                profile.startTime(ProfileBreakdown.TimingType.MATCH);
+                final long start = profile.startTime();
                 try {
                     return in.matches();
                 } finally {
-                    profile.stopAndRecordTime();
+                    profile.stopAndRecordTime(ProfileBreakdown.TimingType.MATCH, start);
                 }
             }
 
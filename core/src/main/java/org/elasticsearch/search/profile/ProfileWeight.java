@@ -48,12 +48,12 @@ public final class ProfileWeight extends Weight {
 
     @Override
     public Scorer scorer(LeafReaderContext context) throws IOException {
-        profile.startTime(ProfileBreakdown.TimingType.BUILD_SCORER);
+        final long start = profile.startTime();
         final Scorer subQueryScorer;
         try {
             subQueryScorer = subQueryWeight.scorer(context);
         } finally {
-            profile.stopAndRecordTime();
+            profile.stopAndRecordTime(ProfileBreakdown.TimingType.BUILD_SCORER, start);
         }
         if (subQueryScorer == null) {
             return null;
@@ -45,16 +45,32 @@ public final class Profiler {
      */
     private InternalProfileCollector collector;
 
+    /**
+     * The collector tree of a search that ran concurrently over the segments of a shard, which has no single root collector
+     */
+    private CollectorResult collectorResult;
+
     public Profiler() {}
 
     /** Set the collector that is associated with this profiler. */
     public void setCollector(InternalProfileCollector collector) {
-        if (this.collector != null) {
+        if (this.collector != null || this.collectorResult != null) {
             throw new IllegalStateException("The collector can only be set once.");
         }
         this.collector = Objects.requireNonNull(collector);
     }
 
+    /**
+     * Set the collector tree of a search that didn't use a single root collector, see
+     * {@link CollectorResult#REASON_SEARCH_CONCURRENT}.
+     */
+    public void setCollectorResult(CollectorResult collectorResult) {
+        if (this.collector != null || this.collectorResult != null) {
+            throw new IllegalStateException("The collector can only be set once.");
+        }
+        this.collectorResult = Objects.requireNonNull(collectorResult);
+    }
+
     /**
      * Get the {@link ProfileBreakdown} for the given query, potentially creating it if it did not exist.
      * This should only be used for queries that will be undergoing scoring. Do not use it to profile the
@@ -108,6 +124,9 @@ public final class Profiler {
      * Return the current root Collector for this search
      */
     public CollectorResult getCollector() {
+        if (collectorResult != null) {
+            return collectorResult;
+        }
         return collector.getCollectorTree();
     }
 
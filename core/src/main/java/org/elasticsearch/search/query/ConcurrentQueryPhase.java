@@ -0,0 +1,342 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FieldComparator;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher.LeafSlice;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopDocsCollector;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.Weight;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.MinimumScoreCollector;
+import org.elasticsearch.common.lucene.search.FilteredCollector;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.internal.ContextIndexSearcher.SliceResult;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.profile.CollectorResult;
+import org.elasticsearch.search.profile.InternalProfileCollector;
+import org.elasticsearch.search.profile.ProfileShardResult;
+import org.elasticsearch.search.profile.Profiler;
+import org.elasticsearch.search.rescore.RescoreSearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Executes the query phase over the slices of a {@link ContextIndexSearcher} concurrently: each slice collects its own top hits
+ * or hit count, which are merged once all slices are done. Requests that need a single collector to see all segments, such as
+ * <code>terminate_after</code> or scrolls, are executed sequentially by {@link QueryPhase}.
+ *
+ * Aggregations are not supported either: aggregators are created once per shard, are not thread-safe and have no way to merge
+ * the results of several instances on the shard, so requests with aggregations (or any other query collector) always fall back
+ * to the sequential {@link QueryPhase}. Supporting them requires one aggregator tree per slice that gets reduced before the
+ * shard result is built.
+ */
+final class ConcurrentQueryPhase {
+
+    private ConcurrentQueryPhase() {}
+
+    /**
+     * Returns whether the query phase of the given search can run concurrently over the slices of the given searcher.
+     */
+    static boolean canExecute(SearchContext searchContext, ContextIndexSearcher searcher) {
+        if (searcher.canSearchConcurrently() == false
+                || searchContext.queryCollectors().isEmpty() == false
+                || searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || searchContext.scrollContext() != null) {
+            return false;
+        }
+        if (searchContext.size() == 0 && searchContext.parsedPostFilter() == null && searchContext.minimumScore() == null) {
+            // QueryPhase counts these without collecting
+            Query query = searchContext.query();
+            while (query instanceof ConstantScoreQuery) {
+                query = ((ConstantScoreQuery) query).getQuery();
+            }
+            if (query.getClass() == MatchAllDocsQuery.class
+                    || (query.getClass() == TermQuery.class && searcher.getIndexReader().hasDeletions() == false)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the rescoring phase should be executed
+     */
+    static boolean execute(SearchContext searchContext, ContextIndexSearcher searcher, @Nullable Sort indexSort)
+        throws QueryPhaseExecutionException {
+        final QuerySearchResult queryResult = searchContext.queryResult();
+        queryResult.searchTimedOut(false);
+
+        final boolean doProfile = searchContext.getProfilers() != null;
+        boolean rescore = false;
+        try {
+            queryResult.from(searchContext.from());
+            queryResult.size(searchContext.size());
+
+            final Query query = searchContext.query();
+            assert query == searcher.rewrite(query); // already rewritten
+
+            final Sort sort = searchContext.sort();
+            final ScoreDoc after = searchContext.searchAfter();
+            final int totalNumDocs = searcher.getIndexReader().numDocs();
+            int numDocs = Math.min(searchContext.from() + searchContext.size(), totalNumDocs);
+            if (searchContext.size() > 0) {
+                if (totalNumDocs == 0) {
+                    // top collectors don't like a size of 0
+                    numDocs = 1;
+                }
+                if (sort == null) {
+                    rescore = !searchContext.rescore().isEmpty();
+                    for (RescoreSearchContext rescoreContext : searchContext.rescore()) {
+                        numDocs = Math.max(rescoreContext.window(), numDocs);
+                    }
+                }
+            }
+            final int topN = numDocs;
+            final Sort earlyTerminationSort =
+                searchContext.size() > 0 && after == null && QueryPhase.canEarlyTerminate(searchContext, indexSort) ? indexSort : null;
+            final Weight postFilterWeight = searchContext.parsedPostFilter() == null ? null
+                : searcher.createNormalizedWeight(searchContext.parsedPostFilter().query(), false);
+
+            final long start = System.nanoTime();
+            final List<SliceResult<SliceCollector>> sliceResults;
+            try {
+                sliceResults = searcher.searchSlices(query,
+                    slice -> new SliceCollector(searchContext, topN, after, earlyTerminationSort, postFilterWeight, doProfile));
+            } finally {
+                searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
+            }
+            final long took = System.nanoTime() - start;
+
+            for (SliceResult<SliceCollector> sliceResult : sliceResults) {
+                if (sliceResult.isTimedOut()) {
+                    queryResult.searchTimedOut(true);
+                }
+                if (sliceResult.getCollector().terminatedEarly()) {
+                    queryResult.terminatedEarly(true);
+                }
+            }
+            if (searchContext.size() == 0) {
+                int totalHits = 0;
+                for (SliceResult<SliceCollector> sliceResult : sliceResults) {
+                    totalHits += sliceResult.getCollector().totalHitCountCollector.getTotalHits();
+                }
+                queryResult.topDocs(new TopDocs(totalHits, Lucene.EMPTY_SCORE_DOCS, 0));
+            } else {
+                List<TopDocs> topDocs = new ArrayList<>(sliceResults.size());
+                for (SliceResult<SliceCollector> sliceResult : sliceResults) {
+                    topDocs.add(sliceResult.getCollector().topDocsCollector.topDocs());
+                }
+                queryResult.topDocs(mergeTopDocs(sort, topN, topDocs));
+            }
+
+            if (doProfile) {
+                List<CollectorResult> children = new ArrayList<>(sliceResults.size());
+                for (int i = 0; i < sliceResults.size(); i++) {
+                    SliceResult<SliceCollector> sliceResult = sliceResults.get(i);
+                    children.add(new CollectorResult(sliceName(i, sliceResult.getSlice()), CollectorResult.REASON_SEARCH_SLICE,
+                        sliceResult.getTimeInNanos(),
+                        Collections.singletonList(sliceResult.getCollector().profileCollector.getCollectorTree())));
+                }
+                searchContext.getProfilers().getCurrent().setCollectorResult(
+                    new CollectorResult("ConcurrentQueryPhase", CollectorResult.REASON_SEARCH_CONCURRENT, took, children));
+                List<ProfileShardResult> shardResults = Profiler.buildShardResults(searchContext.getProfilers().getProfilers());
+                searchContext.queryResult().profileResults(shardResults);
+            }
+
+            return rescore;
+
+        } catch (Throwable e) {
+            throw new QueryPhaseExecutionException(searchContext, "Failed to execute main query", e);
+        }
+    }
+
+    private static String sliceName(int index, LeafSlice slice) {
+        int maxDoc = 0;
+        for (int i = 0; i < slice.leaves.length; i++) {
+            maxDoc += slice.leaves[i].reader().maxDoc();
+        }
+        return "Slice[" + index + "] (segments=" + slice.leaves.length + ", max_doc=" + maxDoc + ")";
+    }
+
+    /**
+     * Merges the top docs of the slices into the top docs that a sequential search would have returned: hits that compare equal
+     * are sorted by doc id, like the top docs collectors do.
+     */
+    static TopDocs mergeTopDocs(@Nullable Sort sort, int topN, List<TopDocs> topDocs) throws IOException {
+        int totalHits = 0;
+        float maxScore = Float.NaN;
+        List<ScoreDoc> scoreDocs = new ArrayList<>();
+        for (TopDocs sliceTopDocs : topDocs) {
+            totalHits += sliceTopDocs.totalHits;
+            if (Float.isNaN(sliceTopDocs.getMaxScore()) == false) {
+                maxScore = Float.isNaN(maxScore) ? sliceTopDocs.getMaxScore() : Math.max(maxScore, sliceTopDocs.getMaxScore());
+            }
+            scoreDocs.addAll(Arrays.asList(sliceTopDocs.scoreDocs));
+        }
+        final Comparator<ScoreDoc> comparator;
+        if (sort == null) {
+            comparator = (a, b) -> {
+                int cmp = Float.compare(b.score, a.score);
+                return cmp != 0 ? cmp : Integer.compare(a.doc, b.doc);
+            };
+        } else {
+            comparator = fieldDocComparator(sort);
+        }
+        scoreDocs.sort(comparator);
+        ScoreDoc[] merged = scoreDocs.subList(0, Math.min(topN, scoreDocs.size())).toArray(new ScoreDoc[0]);
+        if (sort == null) {
+            return new TopDocs(totalHits, merged, maxScore);
+        }
+        return new TopFieldDocs(totalHits, merged, sort.getSort(), maxScore);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<ScoreDoc> fieldDocComparator(Sort sort) throws IOException {
+        final SortField[] sortFields = sort.getSort();
+        final FieldComparator[] comparators = new FieldComparator[sortFields.length];
+        final int[] reverseMul = new int[sortFields.length];
+        for (int i = 0; i < sortFields.length; i++) {
+            comparators[i] = sortFields[i].getComparator(1, i);
+            reverseMul[i] = sortFields[i].getReverse() ? -1 : 1;
+        }
+        return (a, b) -> {
+            final FieldDoc first = (FieldDoc) a;
+            final FieldDoc second = (FieldDoc) b;
+            for (int i = 0; i < comparators.length; i++) {
+                final int cmp = reverseMul[i] * comparators[i].compareValues(first.fields[i], second.fields[i]);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return Integer.compare(first.doc, second.doc);
+        };
+    }
+
+    /**
+     * The collectors of a single slice, chained like the sequential query phase chains them.
+     */
+    private static final class SliceCollector implements Collector {
+
+        private final TotalHitCountCollector totalHitCountCollector;
+        private final TopDocsCollector<?> topDocsCollector;
+        private final SortedSegmentsEarlyTerminatingCollector earlyTerminatingCollector;
+        private final InternalProfileCollector profileCollector;
+        private final Collector collector;
+
+        SliceCollector(SearchContext searchContext, int numDocs, @Nullable ScoreDoc after, @Nullable Sort earlyTerminationSort,
+                       @Nullable Weight postFilterWeight, boolean doProfile) throws IOException {
+            Collector collector;
+            if (searchContext.size() == 0) {
+                collector = totalHitCountCollector = new TotalHitCountCollector();
+                topDocsCollector = null;
+                earlyTerminatingCollector = null;
+                if (doProfile) {
+                    collector = new InternalProfileCollector(collector, CollectorResult.REASON_SEARCH_COUNT, Collections.emptyList());
+                }
+            } else {
+                totalHitCountCollector = null;
+                if (searchContext.sort() != null) {
+                    topDocsCollector = TopFieldCollector.create(searchContext.sort(), numDocs,
+                        (FieldDoc) after, true, searchContext.trackScores(), searchContext.trackScores());
+                } else {
+                    topDocsCollector = TopScoreDocCollector.create(numDocs, after);
+                }
+                collector = topDocsCollector;
+                if (earlyTerminationSort != null) {
+                    collector = earlyTerminatingCollector =
+                        new SortedSegmentsEarlyTerminatingCollector(collector, earlyTerminationSort, numDocs);
+                } else {
+                    earlyTerminatingCollector = null;
+                }
+                if (doProfile) {
+                    collector = new InternalProfileCollector(collector, CollectorResult.REASON_SEARCH_TOP_HITS, Collections.emptyList());
+                }
+            }
+
+            if (postFilterWeight != null) {
+                final Collector child = collector;
+                collector = new FilteredCollector(collector, postFilterWeight);
+                if (doProfile) {
+                    collector = new InternalProfileCollector(collector, CollectorResult.REASON_SEARCH_POST_FILTER,
+                        Collections.singletonList((InternalProfileCollector) child));
+                }
+            }
+
+            if (searchContext.minimumScore() != null) {
+                final Collector child = collector;
+                collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
+                if (doProfile) {
+                    collector = new InternalProfileCollector(collector, CollectorResult.REASON_SEARCH_MIN_SCORE,
+                        Collections.singletonList((InternalProfileCollector) child));
+                }
+            }
+
+            if (searchContext.timeoutInMillis() != SearchService.NO_TIMEOUT.millis()) {
+                final Collector child = collector;
+                // throws TimeLimitingCollector.TimeExceededException when timeout has reached, which stops this slice only
+                collector = Lucene.wrapTimeLimitingCollector(collector, searchContext.timeEstimateCounter(),
+                    searchContext.timeoutInMillis());
+                if (doProfile) {
+                    collector = new InternalProfileCollector(collector, CollectorResult.REASON_SEARCH_TIMEOUT,
+                        Collections.singletonList((InternalProfileCollector) child));
+                }
+            }
+            this.collector = collector;
+            this.profileCollector = doProfile ? (InternalProfileCollector) collector : null;
+        }
+
+        @Override
+        public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+            return collector.getLeafCollector(context);
+        }
+
+        @Override
+        public boolean needsScores() {
+            return collector.needsScores();
+        }
+
+        boolean terminatedEarly() {
+            return earlyTerminatingCollector != null && earlyTerminatingCollector.terminatedEarly();
+        }
+    }
+}
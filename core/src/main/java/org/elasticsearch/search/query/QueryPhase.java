@@ -33,6 +33,7 @@ import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.TopDocs;
@@ -42,14 +43,18 @@ import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
+import org.elasticsearch.index.fielddata.fieldcomparator.LongValuesComparatorSource;
+import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.CollectorResult;
@@ -153,12 +158,49 @@ public class QueryPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Returns whether a search sorted by <code>sort</code> can stop collecting segments that are sorted by <code>indexSort</code>
+     * early. This is the case if the search sorts by the index sort field only, in the same order, with default sort options.
+     */
+    static boolean canEarlyTerminate(@Nullable Sort indexSort, @Nullable Sort sort) {
+        if (indexSort == null || sort == null || sort.getSort().length != 1) {
+            return false;
+        }
+        final SortField indexSortField = indexSort.getSort()[0];
+        final SortField sortField = sort.getSort()[0];
+        return indexSortField.getField().equals(sortField.getField())
+            && indexSortField.getReverse() == sortField.getReverse()
+            && sortField.getComparatorSource() instanceof LongValuesComparatorSource
+            && ((LongValuesComparatorSource) sortField.getComparatorSource()).usesDefaultSortOptions(sortField.getReverse());
+    }
+
+    /**
+     * Returns whether the given search may stop collecting segments that are sorted by <code>indexSort</code> early. This makes the
+     * total number of hits a lower bound, so the request must opt out of tracking it, and the maximum score inaccurate, so the
+     * request must not track scores. Aggregations are not affected since they are collected separately.
+     */
+    static boolean canEarlyTerminate(SearchContext searchContext, @Nullable Sort indexSort) {
+        return searchContext.trackTotalHits() == false
+            && searchContext.trackScores() == false
+            && canEarlyTerminate(indexSort, searchContext.sort());
+    }
+
+    static boolean execute(SearchContext searchContext, final IndexSearcher searcher) throws QueryPhaseExecutionException {
+        final IndexShard indexShard = searchContext.indexShard();
+        return execute(searchContext, searcher, indexShard == null ? null : indexShard.indexSettings().getIndexSort());
+    }
+
     /**
      * In a package-private method so that it can be tested without having to
      * wire everything (mapperService, etc.)
      * @return whether the rescoring phase should be executed
      */
-    static boolean execute(SearchContext searchContext, final IndexSearcher searcher) throws QueryPhaseExecutionException {
+    static boolean execute(SearchContext searchContext, final IndexSearcher searcher, @Nullable Sort indexSort)
+        throws QueryPhaseExecutionException {
+        if (searcher instanceof ContextIndexSearcher
+                && ConcurrentQueryPhase.canExecute(searchContext, (ContextIndexSearcher) searcher)) {
+            return ConcurrentQueryPhase.execute(searchContext, (ContextIndexSearcher) searcher, indexSort);
+        }
         QuerySearchResult queryResult = searchContext.queryResult();
         queryResult.searchTimedOut(false);
 
@@ -176,6 +218,7 @@ public class QueryPhase implements SearchPhase {
 
             Collector collector;
             Callable<TopDocs> topDocsCallable;
+            SortedSegmentsEarlyTerminatingCollector earlyTerminatingCollector = null;
 
             assert query == searcher.rewrite(query); // already rewritten
 
@@ -239,6 +282,11 @@ public class QueryPhase implements SearchPhase {
                     topDocsCollector = TopScoreDocCollector.create(numDocs, after);
                 }
                 collector = topDocsCollector;
+                if (scrollContext == null && after == null && canEarlyTerminate(searchContext, indexSort)) {
+                    // once a segment that is sorted like the search collected enough hits, the remaining ones can't compete. We don't
+                    // do this for scrolls, which need the total number of hits, and search_after, which skips hits
+                    collector = earlyTerminatingCollector = new SortedSegmentsEarlyTerminatingCollector(collector, indexSort, numDocs);
+                }
                 if (doProfile) {
                     collector = new InternalProfileCollector(collector, CollectorResult.REASON_SEARCH_TOP_HITS, Collections.emptyList());
                 }
@@ -398,6 +446,9 @@ public class QueryPhase implements SearchPhase {
             } finally {
                 searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
             }
+            if (earlyTerminatingCollector != null && earlyTerminatingCollector.terminatedEarly()) {
+                queryResult.terminatedEarly(true);
+            }
             if (terminateAfterSet && queryResult.terminatedEarly() == null) {
                 queryResult.terminatedEarly(false);
             }
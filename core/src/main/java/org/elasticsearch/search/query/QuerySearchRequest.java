@@ -22,11 +22,14 @@ package org.elasticsearch.search.query;
 import org.elasticsearch.action.IndicesRequest;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.action.support.ChildTaskRequest;
 import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.dfs.AggregatedDfs;
-import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
 
 import java.io.IOException;
 
@@ -35,7 +38,7 @@ import static org.elasticsearch.search.dfs.AggregatedDfs.readAggregatedDfs;
 /**
  *
  */
-public class QuerySearchRequest extends TransportRequest implements IndicesRequest {
+public class QuerySearchRequest extends ChildTaskRequest implements IndicesRequest {
 
     private long id;
 
@@ -70,6 +73,11 @@ public class QuerySearchRequest extends TransportRequest implements IndicesReque
         return originalIndices.indicesOptions();
     }
 
+    @Override
+    public Task createTask(long id, String type, String action, TaskId parentTaskId) {
+        return new SearchTask(id, type, action, getDescription(), parentTaskId);
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
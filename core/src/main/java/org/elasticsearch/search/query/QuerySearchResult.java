@@ -57,6 +57,8 @@ public class QuerySearchResult extends QuerySearchResultProvider {
     private boolean searchTimedOut;
     private Boolean terminatedEarly = null;
     private List<ProfileShardResult> profileShardResults;
+    private int nodeQueueSize = -1;
+    private long serviceTimeEWMA = -1;
 
     public QuerySearchResult() {
 
@@ -174,6 +176,31 @@ public class QuerySearchResult extends QuerySearchResultProvider {
         return this;
     }
 
+    /**
+     * Returns the size of the search queue of the node that executed this request, or <code>-1</code> if unknown.
+     */
+    public int nodeQueueSize() {
+        return nodeQueueSize;
+    }
+
+    public QuerySearchResult nodeQueueSize(int nodeQueueSize) {
+        this.nodeQueueSize = nodeQueueSize;
+        return this;
+    }
+
+    /**
+     * Returns the moving average of the time, in nanoseconds, that the node that executed this request takes to execute the
+     * query phase, or <code>-1</code> if unknown.
+     */
+    public long serviceTimeEWMA() {
+        return serviceTimeEWMA;
+    }
+
+    public QuerySearchResult serviceTimeEWMA(long serviceTimeEWMA) {
+        this.serviceTimeEWMA = serviceTimeEWMA;
+        return this;
+    }
+
     public static QuerySearchResult readQuerySearchResult(StreamInput in) throws IOException {
         QuerySearchResult result = new QuerySearchResult();
         result.readFrom(in);
@@ -220,6 +247,8 @@ public class QuerySearchResult extends QuerySearchResultProvider {
                 profileShardResults.add(result);
             }
         }
+        nodeQueueSize = in.readInt();
+        serviceTimeEWMA = in.readLong();
     }
 
     @Override
@@ -270,5 +299,7 @@ public class QuerySearchResult extends QuerySearchResultProvider {
                 }
             }
         }
+        out.writeInt(nodeQueueSize);
+        out.writeLong(serviceTimeEWMA);
     }
 }
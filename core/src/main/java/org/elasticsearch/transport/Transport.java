@@ -21,6 +21,8 @@ package org.elasticsearch.transport;
 
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.component.LifecycleComponent;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.transport.BoundTransportAddress;
@@ -37,6 +39,8 @@ public interface Transport extends LifecycleComponent<Transport> {
 
 
     Setting<Boolean> TRANSPORT_TCP_COMPRESS = Setting.boolSetting("transport.tcp.compress", false, Property.NodeScope);
+    Setting<Compressor> TRANSPORT_TCP_COMPRESSION_SCHEME =
+        new Setting<>("transport.tcp.compression_scheme", "lz4", CompressorFactory::compressor, Property.NodeScope);
 
     void transportServiceAdapter(TransportServiceAdapter service);
 
@@ -20,6 +20,7 @@
 package org.elasticsearch.transport.netty;
 
 import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -51,8 +52,18 @@ public class ChannelBufferStreamInput extends StreamInput {
         buffer.markReaderIndex();
     }
 
+    /**
+     * Returns a slice of the buffer rather than a copy. This is safe since netty never reuses the bytes of the buffers
+     * that it passes to handlers, so the slice stays valid for as long as it is referenced.
+     */
     @Override
     public BytesReference readBytesReference(int length) throws IOException {
+        if (length == 0) {
+            return BytesArray.EMPTY;
+        }
+        if (length > available()) {
+            throw new EOFException("tried to read [" + length + "] bytes but only [" + available() + "] are available");
+        }
         ChannelBufferBytesReference ref = new ChannelBufferBytesReference(buffer.slice(buffer.readerIndex(), length));
         buffer.skipBytes(length);
         return ref;
@@ -132,6 +143,38 @@ public class ChannelBufferStreamInput extends StreamInput {
         return buffer.readByte();
     }
 
+    @Override
+    public short readShort() throws IOException {
+        return buffer.readShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return buffer.readInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return buffer.readLong();
+    }
+
+    @Override
+    public int readVInt() throws IOException {
+        if (available() < 5) {
+            return super.readVInt();
+        }
+        // absolute reads don't need to move the reader index after every byte
+        int index = buffer.readerIndex();
+        byte b = buffer.getByte(index++);
+        int i = b & 0x7F;
+        for (int shift = 7; (b & 0x80) != 0 && shift <= 28; shift += 7) {
+            b = buffer.getByte(index++);
+            i |= (b & 0x7F) << shift;
+        }
+        buffer.readerIndex(index);
+        return i;
+    }
+
     @Override
     public void readBytes(byte[] b, int offset, int len) throws IOException {
         int read = read(b, offset, len);
@@ -99,7 +99,8 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         boolean hasMessageBytesToRead = marker.messageSize() != 0;
 
         // netty always copies a buffer, either in NioWorker in its read handler, where it copies to a fresh
-        // buffer, or in the cumulation buffer, which is cleaned each time
+        // buffer, or in the cumulation buffer, which is cleaned each time, and never writes into it again, so
+        // requests can keep slices of it rather than copying their content, see ChannelBufferStreamInput#readBytesReference
         StreamInput streamIn = ChannelBufferStreamInputFactory.create(buffer, size);
         boolean success = false;
         try (ThreadContext.StoredContext tCtx = threadContext.stashContext()) {
@@ -29,6 +29,7 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
@@ -217,6 +218,7 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
     protected final ByteSizeValue maxCumulationBufferCapacity;
     protected final int maxCompositeBufferComponents;
     protected final boolean compress;
+    protected final Compressor compressor;
     protected final ReceiveBufferSizePredictorFactory receiveBufferSizePredictorFactory;
     protected final int workerCount;
     protected final ByteSizeValue receivePredictorMin;
@@ -268,6 +270,7 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         this.maxCumulationBufferCapacity = NETTY_MAX_CUMULATION_BUFFER_CAPACITY.get(settings);
         this.maxCompositeBufferComponents = NETTY_MAX_COMPOSITE_BUFFER_COMPONENTS.get(settings);
         this.compress = Transport.TRANSPORT_TCP_COMPRESS.get(settings);
+        this.compressor = Transport.TRANSPORT_TCP_COMPRESSION_SCHEME.get(settings);
 
         this.connectionsPerNodeRecovery = CONNECTIONS_PER_NODE_RECOVERY.get(settings);
         this.connectionsPerNodeBulk = CONNECTIONS_PER_NODE_BULK.get(settings);
@@ -884,18 +887,19 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         try {
             bStream.skip(NettyHeader.HEADER_SIZE);
             StreamOutput stream = bStream;
-            // only compress if asked, and, the request is not bytes, since then only
-            // the header part is compressed, and the "body" can't be extracted as compressed
-            if (options.compress() && (!(request instanceof BytesTransportRequest))) {
-                status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.defaultCompressor().streamOutput(stream);
-            }
 
             // we pick the smallest of the 2, to support both backward and forward compatibility
             // note, this is the only place we need to do this, since from here on, we use the serialized version
             // as the version to use also when the node receiving this request will send the response with
             Version version = Version.smallest(this.version, node.getVersion());
 
+            // only compress if asked, and, the request is not bytes, since then only
+            // the header part is compressed, and the "body" can't be extracted as compressed
+            if (options.compress() && (!(request instanceof BytesTransportRequest))) {
+                status = TransportStatus.setCompress(status);
+                stream = CompressorFactory.compressor(compressor, version).streamOutput(stream);
+            }
+
             stream.setVersion(version);
             threadPool.getThreadContext().writeTo(stream);
             stream.writeString(action);
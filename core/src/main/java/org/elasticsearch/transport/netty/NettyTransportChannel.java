@@ -101,7 +101,8 @@ public class NettyTransportChannel implements TransportChannel {
             StreamOutput stream = bStream;
             if (options.compress()) {
                 status = TransportStatus.setCompress(status);
-                stream = CompressorFactory.defaultCompressor().streamOutput(stream);
+                // the version of the request, which the other node can read
+                stream = CompressorFactory.compressor(transport.compressor, version).streamOutput(stream);
             }
             stream.setVersion(version);
             response.writeTo(stream);
@@ -210,4 +210,36 @@ public class BulkRequestTests extends ESTestCase {
                 "script or doc is missing",
                 "source is missing"));
     }
+
+    public void testAddCompleteActions() throws Exception {
+        String bulkAction = copyToStringFromClasspath("/org/elasticsearch/action/bulk/simple-bulk.json");
+        // translate Windows line endings (\r\n) to standard ones (\n)
+        if (Constants.WINDOWS) {
+            bulkAction = Strings.replace(bulkAction, "\r\n", "\n");
+        }
+        byte[] bytes = bulkAction.getBytes(StandardCharsets.UTF_8);
+        BulkRequest bulkRequest = new BulkRequest();
+        // receive the content in random chunks, like a streamed bulk request
+        int consumed = 0;
+        int received = 0;
+        while (received < bytes.length) {
+            received = randomIntBetween(received + 1, bytes.length);
+            consumed += bulkRequest.addCompleteActions(new BytesArray(bytes, consumed, received - consumed), null, null, null, null, null,
+                    true);
+            String parsed = bulkAction.substring(0, consumed);
+            int expectedActions = parsed.contains("value3") ? 3 : parsed.contains("delete") ? 2 : parsed.contains("value1") ? 1 : 0;
+            assertThat(bulkRequest.numberOfActions(), equalTo(expectedActions));
+        }
+        assertThat(consumed, equalTo(bytes.length));
+        assertThat(bulkRequest.numberOfActions(), equalTo(3));
+        assertThat(((IndexRequest) bulkRequest.requests().get(0)).source().toBytes(), equalTo(new BytesArray("{ \"field1\" : \"value1\" }").toBytes()));
+        assertThat(bulkRequest.requests().get(1), instanceOf(DeleteRequest.class));
+        assertThat(((IndexRequest) bulkRequest.requests().get(2)).source().toBytes(), equalTo(new BytesArray("{ \"field1\" : \"value3\" }").toBytes()));
+
+        // an action whose source wasn't received yet is not consumed
+        bulkRequest = new BulkRequest();
+        String incomplete = "{ \"index\":{\"_index\":\"test\",\"_type\":\"type1\",\"_id\":\"1\"} }\n{ \"field1\" : ";
+        assertThat(bulkRequest.addCompleteActions(new BytesArray(incomplete), null, null, null, null, null, true), equalTo(0));
+        assertThat(bulkRequest.numberOfActions(), equalTo(0));
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.IndexingPressure;
+import org.elasticsearch.index.IndexingPressureStats;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.test.ESIntegTestCase.ClusterScope;
+
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Checks that the bytes of bulk requests are released on every node, whether the requests succeed, fail or get rejected.
+ */
+@ClusterScope(scope = ESIntegTestCase.Scope.TEST, numDataNodes = 2, numClientNodes = 0)
+public class IndexingPressureIT extends ESIntegTestCase {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put(IndexingPressure.MAX_INDEXING_BYTES.getKey(), "64kb")
+                .put("threadpool.bulk.size", 1)
+                .put("threadpool.bulk.queue_size", 1)
+                .build();
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        assertAcked(prepareCreate("test")
+                .setSettings(Settings.builder().put("index.number_of_shards", 1).put("index.number_of_replicas", 1))
+                .addMapping("type", "number", "type=long"));
+        ensureGreen("test");
+    }
+
+    public void testBytesReleasedAfterSuccess() throws Exception {
+        BulkRequestBuilder bulk = client().prepareBulk();
+        for (int i = 0; i < 10; i++) {
+            bulk.add(client().prepareIndex("test", "type", Integer.toString(i)).setSource("number", i));
+        }
+        assertFalse(bulk.get().hasFailures());
+        assertBytesReleased();
+        long primaryBytes = 0;
+        long replicaBytes = 0;
+        for (NodeStats nodeStats : indexingPressureStats()) {
+            primaryBytes += nodeStats.getIndexingPressureStats().getTotalPrimaryBytes();
+            replicaBytes += nodeStats.getIndexingPressureStats().getTotalReplicaBytes();
+        }
+        assertThat(primaryBytes, greaterThan(0L));
+        assertThat(replicaBytes, greaterThan(0L));
+    }
+
+    public void testBytesReleasedAfterFailure() throws Exception {
+        BulkRequestBuilder bulk = client().prepareBulk();
+        for (int i = 0; i < 10; i++) {
+            bulk.add(client().prepareIndex("test", "type", Integer.toString(i)).setSource("number", "not a number"));
+        }
+        BulkResponse response = bulk.get();
+        for (BulkItemResponse item : response) {
+            assertTrue(item.isFailed());
+        }
+        assertBytesReleased();
+    }
+
+    public void testBytesReleasedAfterCoordinatingRejection() throws Exception {
+        final char[] chars = new char[128 * 1024];
+        Arrays.fill(chars, 'a');
+        Client client = internalCluster().dataNodeClient();
+        BulkRequestBuilder bulk = client.prepareBulk();
+        bulk.add(client.prepareIndex("test", "type", "1").setSource("text", new String(chars)));
+        expectThrows(EsRejectedExecutionException.class, bulk::get);
+        long coordinatingRejections = 0;
+        for (NodeStats nodeStats : indexingPressureStats()) {
+            coordinatingRejections += nodeStats.getIndexingPressureStats().getCoordinatingRejections();
+        }
+        assertThat(coordinatingRejections, equalTo(1L));
+        assertBytesReleased();
+    }
+
+    public void testBytesReleasedAfterThreadPoolRejection() throws Exception {
+        final int numberOfBulks = randomIntBetween(50, 200);
+        final CountDownLatch latch = new CountDownLatch(numberOfBulks);
+        final CopyOnWriteArrayList<Throwable> failures = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < numberOfBulks; i++) {
+            Client client = internalCluster().dataNodeClient();
+            BulkRequestBuilder bulk = client.prepareBulk().add(client.prepareIndex("test", "type").setSource("number", i));
+            bulk.execute(new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    for (BulkItemResponse item : response) {
+                        if (item.isFailed()) {
+                            failures.add(item.getFailure().getCause());
+                        }
+                    }
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    failures.add(e);
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        for (Throwable failure : failures) {
+            if ((ExceptionsHelper.unwrapCause(failure) instanceof EsRejectedExecutionException) == false) {
+                throw new AssertionError("unexpected failure", failure);
+            }
+        }
+        assertBytesReleased();
+    }
+
+    private NodeStats[] indexingPressureStats() {
+        return client().admin().cluster().prepareNodesStats().clear().setIndexingPressure(true).get().getNodes();
+    }
+
+    /**
+     * Replicas respond after the primaries, so their bytes may still be in flight for a little while.
+     */
+    private void assertBytesReleased() throws Exception {
+        assertBusy(() -> {
+            for (NodeStats nodeStats : indexingPressureStats()) {
+                IndexingPressureStats stats = nodeStats.getIndexingPressureStats();
+                assertThat(stats.getCurrentCombinedCoordinatingAndPrimaryBytes(), equalTo(0L));
+                assertThat(stats.getCurrentCoordinatingBytes(), equalTo(0L));
+                assertThat(stats.getCurrentPrimaryBytes(), equalTo(0L));
+                assertThat(stats.getCurrentReplicaBytes(), equalTo(0L));
+                assertTrue(stats.getShardStats().isEmpty());
+            }
+        });
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.transport.DummyTransportAddress;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Collections;
+import java.util.EnumSet;
+
+public class TransportMultiSearchActionTests extends ESTestCase {
+
+    public void testDefaultMaxConcurrentSearches() {
+        int numDataNodes = randomIntBetween(1, 10);
+        DiscoveryNodes.Builder nodes = DiscoveryNodes.builder();
+        for (int i = 0; i < numDataNodes; i++) {
+            nodes.put(new DiscoveryNode("data" + i, DummyTransportAddress.INSTANCE, Collections.emptyMap(),
+                EnumSet.of(DiscoveryNode.Role.DATA), Version.CURRENT));
+        }
+        int numMasterNodes = randomIntBetween(1, 5);
+        for (int i = 0; i < numMasterNodes; i++) {
+            nodes.put(new DiscoveryNode("master" + i, DummyTransportAddress.INSTANCE, Collections.emptyMap(),
+                EnumSet.of(DiscoveryNode.Role.MASTER), Version.CURRENT));
+        }
+        ClusterState state = ClusterState.builder(new ClusterName("test")).nodes(nodes).build();
+
+        int searchThreadPoolSize = randomIntBetween(1, 10);
+        assertEquals(numDataNodes * searchThreadPoolSize, TransportMultiSearchAction.defaultMaxConcurrentSearches(searchThreadPoolSize,
+            state));
+        // large search thread pools are capped
+        assertEquals(numDataNodes * 10, TransportMultiSearchAction.defaultMaxConcurrentSearches(randomIntBetween(11, 100), state));
+
+        // at least one search runs even if there are no data nodes
+        ClusterState noDataNodes = ClusterState.builder(new ClusterName("test")).build();
+        assertEquals(1, TransportMultiSearchAction.defaultMaxConcurrentSearches(searchThreadPoolSize, noDataNodes));
+    }
+}
@@ -45,7 +45,6 @@ import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Nullable;
-import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.Settings;
@@ -56,6 +55,7 @@ import org.elasticsearch.index.shard.IndexShardNotStartedException;
 import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardNotFoundException;
+import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.test.ESAllocationTestCase;
 import org.elasticsearch.test.ESTestCase;
@@ -78,6 +78,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -459,8 +460,8 @@ public class TransportReplicationActionTests extends ESTestCase {
 
         final Action actionWithAddedReplicaAfterPrimaryOp = new Action(Settings.EMPTY, "testAction", transportService, clusterService, threadPool) {
             @Override
-            protected Tuple<Response, Request> shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception {
-                final Tuple<Response, Request> operationOnPrimary = super.shardOperationOnPrimary(metaData, shardRequest);
+            protected PrimaryResult shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception {
+                final PrimaryResult operationOnPrimary = super.shardOperationOnPrimary(metaData, shardRequest);
                 // add replicas after primary operation
                 setState(clusterService, stateWithAddedReplicas);
                 logger.debug("--> state after primary operation:\n{}", clusterService.state().prettyPrint());
@@ -493,8 +494,8 @@ public class TransportReplicationActionTests extends ESTestCase {
 
         final Action actionWithRelocatingReplicasAfterPrimaryOp = new Action(Settings.EMPTY, "testAction", transportService, clusterService, threadPool) {
             @Override
-            protected Tuple<Response, Request> shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception {
-                final Tuple<Response, Request> operationOnPrimary = super.shardOperationOnPrimary(metaData, shardRequest);
+            protected PrimaryResult shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception {
+                final PrimaryResult operationOnPrimary = super.shardOperationOnPrimary(metaData, shardRequest);
                 // set replica to relocating
                 setState(clusterService, stateWithRelocatingReplica);
                 logger.debug("--> state after primary operation:\n{}", clusterService.state().prettyPrint());
@@ -529,8 +530,8 @@ public class TransportReplicationActionTests extends ESTestCase {
 
         final Action actionWithDeletedIndexAfterPrimaryOp = new Action(Settings.EMPTY, "testAction", transportService, clusterService, threadPool) {
             @Override
-            protected Tuple<Response, Request> shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception {
-                final Tuple<Response, Request> operationOnPrimary = super.shardOperationOnPrimary(metaData, shardRequest);
+            protected PrimaryResult shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception {
+                final PrimaryResult operationOnPrimary = super.shardOperationOnPrimary(metaData, shardRequest);
                 // delete index after primary op
                 setState(clusterService, stateWithDeletedIndex);
                 logger.debug("--> state after primary operation:\n{}", clusterService.state().prettyPrint());
@@ -947,6 +948,91 @@ public class TransportReplicationActionTests extends ESTestCase {
         assertIndexShardCounter(1);
     }
 
+    public void testReplicationPhaseWaitsForPrimaryDurability() throws ExecutionException, InterruptedException {
+        final String index = "test";
+        final ShardId shardId = new ShardId(index, "_na_", 0);
+        setState(clusterService, state(index, true, ShardRoutingState.STARTED, ShardRoutingState.STARTED));
+        indexShardRouting.set(clusterService.state().routingTable().shardRoutingTable(shardId).primaryShard());
+        Request request = new Request(shardId);
+        PlainActionFuture<Response> listener = new PlainActionFuture<>();
+        ReplicationTask task = maybeTask();
+
+        TransportReplicationAction.IndexShardReference reference = getOrCreateIndexShardOperationsCounter(0);
+        TransportReplicationAction<Request, Request, Response>.ReplicationPhase replicationPhase =
+            action.new ReplicationPhase(task, request, new Response(), shardId, createTransportChannel(listener), reference,
+                new Translog.Location(1, 0, 1));
+        // one replica and the sync of the primary
+        assertThat(replicationPhase.pending(), equalTo(2));
+        replicationPhase.run();
+        assertThat(pendingDurabilityListeners.size(), equalTo(1));
+        assertThat("the replica request must be sent before the primary is synced", requestsSentBeforeDurability.get(0), equalTo(1));
+        CapturingTransport.CapturedRequest[] replicationRequests = transport.getCapturedRequestsAndClear();
+        assertThat(replicationRequests.length, equalTo(1));
+
+        final boolean replicaRespondsFirst = randomBoolean();
+        if (replicaRespondsFirst) {
+            transport.handleResponse(replicationRequests[0].requestId, TransportResponse.Empty.INSTANCE);
+            assertThat("listener is done, but the primary is not durable yet", listener.isDone(), equalTo(false));
+        }
+        pendingDurabilityListeners.get(0).accept(null);
+        if (replicaRespondsFirst == false) {
+            assertThat("listener is done, but there are outstanding replicas", listener.isDone(), equalTo(false));
+            assertIndexShardCounter(2);
+            transport.handleResponse(replicationRequests[0].requestId, TransportResponse.Empty.INSTANCE);
+        }
+        assertThat(listener.isDone(), equalTo(true));
+        assertThat(listener.get().getShardInfo().getSuccessful(), equalTo(2));
+        assertIndexShardCounter(1);
+        assertPhase(task, "finished");
+    }
+
+    public void testReplicationPhaseFailsIfPrimaryCannotBeSynced() throws InterruptedException {
+        final String index = "test";
+        final ShardId shardId = new ShardId(index, "_na_", 0);
+        setState(clusterService, state(index, true, ShardRoutingState.STARTED));
+        indexShardRouting.set(clusterService.state().routingTable().shardRoutingTable(shardId).primaryShard());
+        Request request = new Request(shardId);
+        PlainActionFuture<Response> listener = new PlainActionFuture<>();
+        ReplicationTask task = maybeTask();
+
+        TransportReplicationAction.IndexShardReference reference = getOrCreateIndexShardOperationsCounter(0);
+        TransportReplicationAction<Request, Request, Response>.ReplicationPhase replicationPhase =
+            action.new ReplicationPhase(task, request, new Response(), shardId, createTransportChannel(listener), reference,
+                new Translog.Location(1, 0, 1));
+        replicationPhase.run();
+        assertThat(listener.isDone(), equalTo(false));
+        assertThat(pendingDurabilityListeners.size(), equalTo(1));
+        pendingDurabilityListeners.get(0).accept(new IOException("simulated"));
+        assertListenerThrows("sync failure should fail the operation", listener, IOException.class);
+        assertIndexShardCounter(1);
+        assertPhase(task, "failed");
+    }
+
+    public void testReplicaRespondsOnceDurable() throws Exception {
+        final ShardId shardId = new ShardId("test", "_na_", 0);
+        setState(clusterService, state(shardId.getIndexName(), true,
+            ShardRoutingState.STARTED, ShardRoutingState.STARTED));
+        action = new Action(Settings.EMPTY, "testAction", transportService, clusterService, threadPool) {
+            @Override
+            protected Translog.Location shardOperationOnReplica(Request request) {
+                super.shardOperationOnReplica(request);
+                return new Translog.Location(1, 0, 1);
+            }
+        };
+        final Action.ReplicaOperationTransportHandler replicaOperationTransportHandler = action.new ReplicaOperationTransportHandler();
+        final ReplicationTask task = maybeTask();
+        final Request request = new Request().setShardId(shardId);
+        replicaOperationTransportHandler.messageReceived(request, createTransportChannel(new PlainActionFuture<>()), task);
+        assertThat(request.processedOnReplicas.get(), equalTo(1));
+        // the operation is executed but the shard reference is held until the translog is synced
+        assertThat(pendingDurabilityListeners.size(), equalTo(1));
+        assertIndexShardCounter(2);
+        assertPhase(task, "replica");
+        pendingDurabilityListeners.get(0).accept(null);
+        assertIndexShardCounter(1);
+        assertPhase(task, "finished");
+    }
+
     public void testCounterDecrementedIfShardOperationThrowsException() throws InterruptedException, ExecutionException, IOException {
         action = new ActionWithExceptions(Settings.EMPTY, "testActionWithExceptions", transportService, clusterService, threadPool);
         final String index = "test";
@@ -1048,6 +1134,11 @@ public class TransportReplicationActionTests extends ESTestCase {
 
     private final AtomicReference<ShardRouting> indexShardRouting = new AtomicReference<>();
 
+    private final List<Consumer<Throwable>> pendingDurabilityListeners = new CopyOnWriteArrayList<>();
+
+    /** The number of requests that the transport had captured by the time each sync of the translog was requested. */
+    private final List<Integer> requestsSentBeforeDurability = new CopyOnWriteArrayList<>();
+
     /**
      * Returns testIndexShardOperationsCounter or initializes it if it was already created in this test run.
      */
@@ -1079,6 +1170,16 @@ public class TransportReplicationActionTests extends ESTestCase {
                 return primaryTerm;
             }
 
+            @Override
+            public void ensureDurable(@Nullable Translog.Location location, Consumer<Throwable> listener) {
+                if (location != null) {
+                    requestsSentBeforeDurability.add(transport.capturedRequests().length);
+                    pendingDurabilityListeners.add(listener);
+                } else {
+                    listener.accept(null);
+                }
+            }
+
             @Override
             public void close() {
                 count.decrementAndGet();
@@ -1153,15 +1254,16 @@ public class TransportReplicationActionTests extends ESTestCase {
         }
 
         @Override
-        protected Tuple<Response, Request> shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception {
+        protected PrimaryResult shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception {
             boolean executedBefore = shardRequest.processedOnPrimary.getAndSet(true);
             assert executedBefore == false : "request has already been executed on the primary";
-            return new Tuple<>(new Response(), shardRequest);
+            return new PrimaryResult(new Response(), shardRequest);
         }
 
         @Override
-        protected void shardOperationOnReplica(Request request) {
+        protected Translog.Location shardOperationOnReplica(Request request) {
             request.processedOnReplicas.incrementAndGet();
+            return null;
         }
 
         @Override
@@ -1208,11 +1310,11 @@ public class TransportReplicationActionTests extends ESTestCase {
         }
 
         @Override
-        protected Tuple<Response, Request> shardOperationOnPrimary(MetaData metaData, Request shardRequest) {
+        protected PrimaryResult shardOperationOnPrimary(MetaData metaData, Request shardRequest) {
             return throwException(shardRequest.shardId());
         }
 
-        private Tuple<Response, Request> throwException(ShardId shardId) {
+        private PrimaryResult throwException(ShardId shardId) {
             try {
                 if (randomBoolean()) {
                     // throw a generic exception
@@ -1230,8 +1332,9 @@ public class TransportReplicationActionTests extends ESTestCase {
         }
 
         @Override
-        protected void shardOperationOnReplica(Request shardRequest) {
+        protected Translog.Location shardOperationOnReplica(Request shardRequest) {
             throwException(shardRequest.shardId());
+            return null;
         }
     }
 
@@ -1246,9 +1349,9 @@ public class TransportReplicationActionTests extends ESTestCase {
         }
 
         @Override
-        protected Tuple<Response, Request> shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception {
+        protected PrimaryResult shardOperationOnPrimary(MetaData metaData, Request shardRequest) throws Exception {
             awaitLatch();
-            return new Tuple<>(new Response(), shardRequest);
+            return new PrimaryResult(new Response(), shardRequest);
         }
 
         private void awaitLatch() throws InterruptedException {
@@ -1257,11 +1360,12 @@ public class TransportReplicationActionTests extends ESTestCase {
         }
 
         @Override
-        protected void shardOperationOnReplica(Request shardRequest) {
+        protected Translog.Location shardOperationOnReplica(Request shardRequest) {
             try {
                 awaitLatch();
             } catch (InterruptedException e) {
             }
+            return null;
         }
 
     }
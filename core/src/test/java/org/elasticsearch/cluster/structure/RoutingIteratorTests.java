@@ -37,19 +37,27 @@ import org.elasticsearch.cluster.routing.ShardsIterator;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.routing.allocation.decider.AwarenessAllocationDecider;
 import org.elasticsearch.cluster.routing.allocation.decider.ClusterRebalanceAllocationDecider;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.cluster.service.ClusterServiceUtils;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.test.ESAllocationTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Collections.singletonMap;
 import static java.util.Collections.unmodifiableMap;
 import static org.elasticsearch.cluster.routing.ShardRoutingState.INITIALIZING;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
@@ -478,4 +486,125 @@ public class RoutingIteratorTests extends ESAllocationTestCase {
         assertTrue(routing.primary());
     }
 
+
+    public void testAdaptiveReplicaSelection() throws Exception {
+        AllocationService strategy = createAllocationService(Settings.builder()
+                .put("cluster.routing.allocation.node_concurrent_recoveries", 10)
+                .build());
+
+        OperationRouting operationRouting = new OperationRouting(Settings.builder()
+                .put(OperationRouting.USE_ADAPTIVE_REPLICA_SELECTION_SETTING.getKey(), true)
+                .build(), new AwarenessAllocationDecider());
+
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("test").settings(settings(Version.CURRENT)).numberOfShards(1).numberOfReplicas(2))
+                .build();
+        RoutingTable routingTable = RoutingTable.builder()
+                .addAsNew(metaData.index("test"))
+                .build();
+        ClusterState clusterState = ClusterState.builder(ClusterName.DEFAULT).metaData(metaData).routingTable(routingTable).build();
+        clusterState = ClusterState.builder(clusterState).nodes(DiscoveryNodes.builder()
+                        .put(newNode("node1"))
+                        .put(newNode("node2"))
+                        .put(newNode("node3"))
+                        .localNodeId("node1")
+        ).build();
+        routingTable = strategy.reroute(clusterState, "reroute").routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+        for (int i = 0; i < 2; i++) {
+            routingTable = strategy.applyStartedShards(clusterState, clusterState.getRoutingNodes().shardsWithState(INITIALIZING)).routingTable();
+            clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+        }
+
+        ThreadPool threadPool = new ThreadPool("testAdaptiveReplicaSelection");
+        ClusterService clusterService = ClusterServiceUtils.createClusterService(threadPool);
+        try {
+            ResponseCollectorService collector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+            collector.addNodeStatistics("node1", 10, 20000, 10000);
+            collector.addNodeStatistics("node2", 0, 2000, 1000);
+
+            // nodes without statistics come first, so that they get measured
+            GroupShardsIterator shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, null, null, collector);
+            assertThat(shardIterators.size(), equalTo(1));
+            ShardIterator iter = shardIterators.iterator().next();
+            assertThat(iter.size(), equalTo(3));
+            assertThat(iter.nextOrNull().currentNodeId(), equalTo("node3"));
+            assertThat(iter.nextOrNull().currentNodeId(), equalTo("node2"));
+            assertThat(iter.nextOrNull().currentNodeId(), equalTo("node1"));
+
+            collector.addNodeStatistics("node3", 20, 40000, 20000);
+            shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, null, null, collector);
+            iter = shardIterators.iterator().next();
+            assertThat(iter.nextOrNull().currentNodeId(), equalTo("node2"));
+            assertThat(iter.nextOrNull().currentNodeId(), equalTo("node1"));
+            assertThat(iter.nextOrNull().currentNodeId(), equalTo("node3"));
+
+            // a preference disables adaptive replica selection
+            shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, null, "_only_node:node3", collector);
+            iter = shardIterators.iterator().next();
+            assertThat(iter.size(), equalTo(1));
+            assertThat(iter.nextOrNull().currentNodeId(), equalTo("node3"));
+
+            // so does a disabled setting
+            operationRouting = new OperationRouting(Settings.EMPTY, new AwarenessAllocationDecider());
+            Set<String> firstNodes = new HashSet<>();
+            for (int i = 0; i < 100; i++) {
+                shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, null, null, collector);
+                firstNodes.add(shardIterators.iterator().next().nextOrNull().currentNodeId());
+            }
+            assertThat(firstNodes.size(), greaterThan(1));
+        } finally {
+            clusterService.close();
+            ThreadPool.terminate(threadPool, 30, TimeUnit.SECONDS);
+        }
+    }
+
+    public void testAdaptiveReplicaSelectionSpreadsShardsOfOneSearch() throws Exception {
+        AllocationService strategy = createAllocationService(Settings.builder()
+                .put("cluster.routing.allocation.node_concurrent_recoveries", 10)
+                .build());
+        OperationRouting operationRouting = new OperationRouting(Settings.builder()
+                .put(OperationRouting.USE_ADAPTIVE_REPLICA_SELECTION_SETTING.getKey(), true)
+                .build(), new AwarenessAllocationDecider());
+
+        final int numShards = 10;
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("test").settings(settings(Version.CURRENT)).numberOfShards(numShards).numberOfReplicas(1))
+                .build();
+        RoutingTable routingTable = RoutingTable.builder()
+                .addAsNew(metaData.index("test"))
+                .build();
+        ClusterState clusterState = ClusterState.builder(ClusterName.DEFAULT).metaData(metaData).routingTable(routingTable).build();
+        clusterState = ClusterState.builder(clusterState).nodes(DiscoveryNodes.builder()
+                        .put(newNode("node1"))
+                        .put(newNode("node2"))
+                        .localNodeId("node1")
+        ).build();
+        routingTable = strategy.reroute(clusterState, "reroute").routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+        for (int i = 0; i < 2; i++) {
+            routingTable = strategy.applyStartedShards(clusterState, clusterState.getRoutingNodes().shardsWithState(INITIALIZING)).routingTable();
+            clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+        }
+
+        ThreadPool threadPool = new ThreadPool("testAdaptiveReplicaSelectionSpreadsShardsOfOneSearch");
+        ClusterService clusterService = ClusterServiceUtils.createClusterService(threadPool);
+        try {
+            ResponseCollectorService collector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+            // both nodes are equally fast, the shards of a search should not all go to the same node
+            collector.addNodeStatistics("node1", 0, 2000, 1000);
+            collector.addNodeStatistics("node2", 0, 2000, 1000);
+            GroupShardsIterator shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, null, null, collector);
+            assertThat(shardIterators.size(), equalTo(numShards));
+            Map<String, Integer> firstNodes = new HashMap<>();
+            for (ShardIterator iter : shardIterators) {
+                firstNodes.merge(iter.nextOrNull().currentNodeId(), 1, Integer::sum);
+            }
+            assertThat(firstNodes.get("node1"), equalTo(numShards / 2));
+            assertThat(firstNodes.get("node2"), equalTo(numShards / 2));
+        } finally {
+            clusterService.close();
+            ThreadPool.terminate(threadPool, 30, TimeUnit.SECONDS);
+        }
+    }
 }
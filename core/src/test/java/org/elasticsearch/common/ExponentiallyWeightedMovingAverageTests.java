@@ -0,0 +1,86 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ExponentiallyWeightedMovingAverageTests extends ESTestCase {
+
+    public void testEWMA() {
+        final ExponentiallyWeightedMovingAverage ewma = new ExponentiallyWeightedMovingAverage(0.5, 10);
+        assertThat(ewma.getAverage(), equalTo(10.0));
+        ewma.addValue(12);
+        assertThat(ewma.getAverage(), closeTo(11.0, 0.001));
+        ewma.addValue(10);
+        ewma.addValue(15);
+        ewma.addValue(13);
+        assertThat(ewma.getAverage(), closeTo(12.875, 0.001));
+    }
+
+    public void testConvergingToValue() {
+        final ExponentiallyWeightedMovingAverage ewma = new ExponentiallyWeightedMovingAverage(randomDoubleBetween(0.1, 1, true), 0);
+        for (int i = 0; i < 1000; i++) {
+            ewma.addValue(42);
+        }
+        assertThat(ewma.getAverage(), closeTo(42, 0.001));
+    }
+
+    public void testInvalidAlpha() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> new ExponentiallyWeightedMovingAverage(-0.5, 10));
+        assertThat(e.getMessage(), containsString("alpha must be in [0, 1]"));
+        e = expectThrows(IllegalArgumentException.class, () -> new ExponentiallyWeightedMovingAverage(1.5, 10));
+        assertThat(e.getMessage(), containsString("alpha must be in [0, 1]"));
+    }
+
+    public void testConcurrentUpdates() throws InterruptedException {
+        // with alpha 1 the average is the last added value, which must be one of the values added concurrently
+        final ExponentiallyWeightedMovingAverage ewma = new ExponentiallyWeightedMovingAverage(1, 0);
+        final Thread[] threads = new Thread[randomIntBetween(2, 5)];
+        final CountDownLatch latch = new CountDownLatch(1);
+        for (int i = 0; i < threads.length; i++) {
+            final int value = i + 1;
+            threads[i] = new Thread(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                for (int j = 0; j < 1000; j++) {
+                    ewma.addValue(value);
+                }
+            });
+            threads[i].start();
+        }
+        latch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        final double average = ewma.getAverage();
+        assertEquals(Math.rint(average), average, 0d);
+        assertTrue(average >= 1 && average <= threads.length);
+    }
+}
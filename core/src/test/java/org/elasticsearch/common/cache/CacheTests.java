@@ -46,7 +46,10 @@ import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class CacheTests extends ESTestCase {
     private int numberOfEntries;
@@ -706,6 +709,110 @@ public class CacheTests extends ESTestCase {
         barrier.await();
     }
 
+    // cache some entries and use them frequently, then scan over many keys that are used once, then check that the
+    // frequently used entries were only evicted if the cache uses a frequency-based admission policy
+    public void testFrequencyBasedAdmission() {
+        int maximumWeight = randomIntBetween(10, 100);
+        for (boolean frequencyBasedAdmission : new boolean[] { false, true }) {
+            Cache<Integer, String> cache =
+                    CacheBuilder.<Integer, String>builder()
+                            .setMaximumWeight(maximumWeight)
+                            .frequencyBasedAdmission(frequencyBasedAdmission)
+                            .build();
+            for (int i = 0; i < maximumWeight; i++) {
+                cache.put(i, Integer.toString(i));
+            }
+            for (int j = 0; j < 5; j++) {
+                for (int i = 0; i < maximumWeight; i++) {
+                    assertEquals(Integer.toString(i), cache.get(i));
+                }
+            }
+            for (int i = maximumWeight; i < 6 * maximumWeight; i++) {
+                cache.put(i, Integer.toString(i));
+            }
+            assertEquals(maximumWeight, cache.count());
+            int remaining = 0;
+            for (int i = 0; i < maximumWeight; i++) {
+                if (cache.get(i) != null) {
+                    remaining++;
+                }
+            }
+            if (frequencyBasedAdmission) {
+                // the frequencies are estimates, so a key of the scan may rarely look as frequent as a frequently used key
+                assertThat(remaining, greaterThanOrEqualTo(maximumWeight / 2));
+            } else {
+                assertEquals(0, remaining);
+            }
+
+            if (frequencyBasedAdmission) {
+                // a new key that is used often enough is eventually admitted
+                int key = -1;
+                int attempts = 0;
+                while (cache.get(key) == null) {
+                    assertThat(attempts++, lessThan(16));
+                    cache.put(key, Integer.toString(key));
+                }
+                assertEquals(maximumWeight, cache.count());
+            }
+        }
+    }
+
+    // read entries from many threads while another thread replaces them, then check that the LRU list is consistent
+    public void testConcurrentPromotions() throws BrokenBarrierException, InterruptedException {
+        int numberOfThreads = randomIntBetween(2, 32);
+        int maximumWeight = randomIntBetween(1, numberOfEntries);
+        final Cache<Integer, String> cache =
+                CacheBuilder.<Integer, String>builder()
+                        .setMaximumWeight(maximumWeight)
+                        .frequencyBasedAdmission(randomBoolean())
+                        .build();
+        for (int i = 0; i < numberOfEntries; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+
+        CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            final boolean writer = i == 0;
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    Random random = new Random(random().nextLong());
+                    for (int j = 0; j < numberOfEntries; j++) {
+                        Integer key = random.nextInt(numberOfEntries);
+                        if (writer) {
+                            cache.put(key, Integer.toString(key));
+                        } else {
+                            String value = cache.get(key);
+                            if (value != null) {
+                                assertEquals(Integer.toString(key), value);
+                            }
+                        }
+                    }
+                    barrier.await();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            thread.start();
+        }
+
+        // wait for all threads to be ready
+        barrier.await();
+        // wait for all threads to finish
+        barrier.await();
+
+        cache.refresh();
+        assertThat(cache.weight(), lessThanOrEqualTo((long) maximumWeight));
+        Set<Integer> keys = new HashSet<>();
+        for (Integer key : cache.keys()) {
+            assertTrue("duplicate key " + key, keys.add(key));
+        }
+        assertEquals(cache.count(), keys.size());
+        for (Integer key : keys) {
+            assertEquals(Integer.toString(key), cache.get(key));
+        }
+    }
+
     // test that the cache is not corrupted under lots of concurrent modifications, even hitting the same key
     // here be dragons: this test did catch one subtle bug during development; do not remove lightly
     public void testTorture() throws BrokenBarrierException, InterruptedException {
@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+
+public class FrequencySketchTests extends ESTestCase {
+
+    public void testFrequency() {
+        FrequencySketch sketch = new FrequencySketch();
+        int key = randomInt();
+        assertEquals(0, sketch.frequency(key));
+        int increments = randomIntBetween(1, 15);
+        for (int i = 0; i < increments; i++) {
+            sketch.increment(key);
+        }
+        assertEquals(increments, sketch.frequency(key));
+    }
+
+    public void testFrequencySaturates() {
+        FrequencySketch sketch = new FrequencySketch();
+        int key = randomInt();
+        for (int i = 0; i < randomIntBetween(15, 100); i++) {
+            sketch.increment(key);
+        }
+        assertEquals(15, sketch.frequency(key));
+    }
+
+    // count-min sketches may overestimate frequencies because of collisions, but never underestimate them
+    public void testFrequencyIsNotUnderestimated() {
+        FrequencySketch sketch = new FrequencySketch();
+        int numberOfKeys = randomIntBetween(1, 1000);
+        sketch.ensureCapacity(numberOfKeys);
+        int[] increments = new int[numberOfKeys];
+        for (int i = 0; i < numberOfKeys; i++) {
+            increments[i] = randomIntBetween(0, 3);
+            for (int j = 0; j < increments[i]; j++) {
+                sketch.increment(i);
+            }
+        }
+        for (int i = 0; i < numberOfKeys; i++) {
+            assertThat(sketch.frequency(i), greaterThanOrEqualTo(increments[i]));
+        }
+    }
+
+    public void testEnsureCapacityKeepsFrequencies() {
+        FrequencySketch sketch = new FrequencySketch();
+        int numberOfKeys = randomIntBetween(1, 16);
+        for (int i = 0; i < numberOfKeys; i++) {
+            sketch.increment(i);
+            sketch.increment(i);
+        }
+        int[] frequencies = new int[numberOfKeys];
+        for (int i = 0; i < numberOfKeys; i++) {
+            frequencies[i] = sketch.frequency(i);
+        }
+        sketch.ensureCapacity(randomIntBetween(17, 100000));
+        for (int i = 0; i < numberOfKeys; i++) {
+            assertEquals(frequencies[i], sketch.frequency(i));
+        }
+    }
+
+    // the counters are halved once the number of increments reaches ten times the size of the table
+    public void testFrequenciesAge() {
+        FrequencySketch sketch = new FrequencySketch();
+        int key = -1;
+        for (int i = 0; i < 15; i++) {
+            sketch.increment(key);
+        }
+        for (int i = 0; i < 160; i++) {
+            sketch.increment(i);
+        }
+        assertThat(sketch.frequency(key), lessThan(15));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress.lz4;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class LZ4Tests extends ESTestCase {
+
+    private static byte[] randomData(int length) {
+        final byte[] data = new byte[length];
+        switch (between(0, 2)) {
+            case 0:
+                // incompressible
+                random().nextBytes(data);
+                break;
+            case 1:
+                // few distinct bytes
+                for (int i = 0; i < length; ++i) {
+                    data[i] = (byte) between(0, 3);
+                }
+                break;
+            default:
+                // repetitions of previous bytes
+                for (int i = 0; i < length; ++i) {
+                    data[i] = i > 16 && rarely() == false ? data[i - between(1, 16)] : randomByte();
+                }
+                break;
+        }
+        return data;
+    }
+
+    private static byte[] compress(byte[] data) {
+        final byte[] compressed = new byte[LZ4.maxCompressedLength(data.length)];
+        final int compressedLength = LZ4.compress(data, 0, data.length, compressed, 0, new int[LZ4.HASH_TABLE_SIZE]);
+        assertThat(compressedLength, lessThanOrEqualTo(compressed.length));
+        return Arrays.copyOf(compressed, compressedLength);
+    }
+
+    public void testRoundTrip() throws IOException {
+        for (int i = 0; i < 100; ++i) {
+            final byte[] data = randomData(randomBoolean() ? between(0, 100) : between(0, LZ4Compressor.BLOCK_SIZE));
+            final byte[] compressed = compress(data);
+            final int offset = between(0, 10);
+            final byte[] decompressed = new byte[offset + data.length + between(0, 10)];
+            LZ4.decompress(compressed, 0, compressed.length, decompressed, offset, data.length);
+            assertArrayEquals(data, Arrays.copyOfRange(decompressed, offset, offset + data.length));
+        }
+    }
+
+    public void testCompressesRepetitions() throws IOException {
+        final byte[] data = new byte[between(1000, 10000)];
+        Arrays.fill(data, (byte) 'a');
+        assertThat(compress(data).length, lessThan(data.length / 100));
+    }
+
+    public void testCorruption() throws IOException {
+        for (int i = 0; i < 100; ++i) {
+            final byte[] data = randomData(between(1, 1000));
+            final byte[] compressed = compress(data);
+            compressed[between(0, compressed.length - 1)] ^= 1 << between(0, 7);
+            final byte[] decompressed = new byte[data.length];
+            try {
+                LZ4.decompress(compressed, 0, compressed.length, decompressed, 0, data.length);
+            } catch (IOException e) {
+                // expected, unless the corruption only changed the literals
+            }
+        }
+        // a block must decompress to exactly the expected length
+        final byte[] data = randomData(between(1, 1000));
+        final byte[] compressed = compress(data);
+        expectThrows(IOException.class, () -> LZ4.decompress(compressed, 0, compressed.length, new byte[data.length + 1], 0,
+            data.length + 1));
+        expectThrows(IOException.class, () -> LZ4.decompress(compressed, 0, compressed.length - 1, new byte[data.length], 0,
+            data.length));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress.lz4;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.compress.AbstractCompressedXContentTestCase;
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.compress.deflate.DeflateCompressor;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.VersionUtils;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class LZ4XContentTests extends AbstractCompressedXContentTestCase {
+
+    public LZ4XContentTests() {
+        super(new LZ4Compressor());
+    }
+
+    public void testSerializationToOldNodes() throws Exception {
+        Compressor defaultCompressor = CompressorFactory.defaultCompressor();
+        try {
+            CompressorFactory.setDefaultCompressor(new LZ4Compressor());
+            String str = "---\nf:" + randomRealisticUnicodeOfLength(between(0, 1000));
+            CompressedXContent compressedXContent = new CompressedXContent(str);
+            assertThat(CompressorFactory.compressor(compressedXContent.compressedReference()), instanceOf(LZ4Compressor.class));
+
+            Version version = VersionUtils.randomVersion(random());
+            BytesStreamOutput out = new BytesStreamOutput();
+            out.setVersion(version);
+            compressedXContent.writeTo(out);
+            StreamInput in = out.bytes().streamInput();
+            in.setVersion(version);
+            CompressedXContent read = CompressedXContent.readCompressedString(in);
+            assertThat(read.string(), equalTo(str));
+            assertThat(read, equalTo(compressedXContent));
+            Compressor readCompressor = CompressorFactory.compressor(new BytesArray(read.compressed()));
+            if (version.before(Version.V_5_0_0)) {
+                assertThat(readCompressor, instanceOf(DeflateCompressor.class));
+            } else {
+                assertThat(readCompressor, instanceOf(LZ4Compressor.class));
+            }
+        } finally {
+            CompressorFactory.setDefaultCompressor(defaultCompressor);
+        }
+    }
+}
@@ -31,6 +31,7 @@ import org.elasticsearch.test.ESTestCase;
 import org.joda.time.DateTimeZone;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 import static org.hamcrest.Matchers.closeTo;
@@ -549,4 +550,75 @@ public class BytesStreamsTests extends ESTestCase {
             assertEquals(point, geoPoint);
         }
     }
+
+    public void testReadWriteStrings() throws IOException {
+        // strings longer than the buffers that they are encoded into and decoded from
+        final String[] strings = new String[randomIntBetween(1, 50)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = randomBoolean() ? randomUnicodeOfLengthBetween(0, 3000) : randomRealisticUnicodeOfLengthBetween(0, 3000);
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (String string : strings) {
+            out.writeString(string);
+        }
+        out.writeInt(42);
+        final byte[] bytes = out.bytes().toBytes();
+        for (StreamInput in : new StreamInput[] {
+                StreamInput.wrap(bytes),
+                new ByteBufferStreamInput(ByteBuffer.wrap(bytes)),
+                new NamedWriteableAwareStreamInput(StreamInput.wrap(bytes), new NamedWriteableRegistry())}) {
+            for (String string : strings) {
+                assertEquals(string, in.readString());
+            }
+            assertEquals(42, in.readInt());
+            assertEquals(0, in.available());
+        }
+    }
+
+    public void testReadWriteLargeArrays() throws IOException {
+        final int length = randomIntBetween(0, 2000);
+        final int[] ints = new int[length];
+        final int[] vInts = new int[length];
+        final long[] longs = new long[length];
+        final long[] vLongs = new long[length];
+        final float[] floats = new float[length];
+        final double[] doubles = new double[length];
+        for (int i = 0; i < length; i++) {
+            ints[i] = randomInt();
+            vInts[i] = randomBoolean() ? randomInt() : randomIntBetween(0, 1000);
+            longs[i] = randomLong();
+            vLongs[i] = randomBoolean() ? randomLong() & Long.MAX_VALUE : randomIntBetween(0, 1000);
+            floats[i] = randomFloat();
+            doubles[i] = randomDouble();
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeIntArray(ints);
+        out.writeVIntArray(vInts);
+        out.writeLongArray(longs);
+        out.writeVLongArray(vLongs);
+        out.writeFloatArray(floats);
+        out.writeDoubleArray(doubles);
+        final byte[] bytes = out.bytes().toBytes();
+        for (StreamInput in : new StreamInput[] {StreamInput.wrap(bytes), new ByteBufferStreamInput(ByteBuffer.wrap(bytes))}) {
+            assertArrayEquals(ints, in.readIntArray());
+            assertArrayEquals(vInts, in.readVIntArray());
+            assertArrayEquals(longs, in.readLongArray());
+            assertArrayEquals(vLongs, in.readVLongArray());
+            assertArrayEquals(floats, in.readFloatArray(), 0f);
+            assertArrayEquals(doubles, in.readDoubleArray(), 0d);
+            assertEquals(0, in.available());
+        }
+    }
+
+    public void testReadVIntAtEndOfByteBuffer() throws IOException {
+        // the fast path of ByteBufferStreamInput only applies when the vint can't reach the end of the buffer
+        final int value = randomBoolean() ? randomInt() : randomIntBetween(0, 1 << 14);
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeVInt(value);
+        out.writeVInt(value);
+        ByteBufferStreamInput in = new ByteBufferStreamInput(ByteBuffer.wrap(out.bytes().toBytes()));
+        assertEquals(value, in.readVInt());
+        assertEquals(value, in.readVInt());
+        assertEquals(0, in.available());
+    }
 }
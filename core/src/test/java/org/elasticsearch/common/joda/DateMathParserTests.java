@@ -24,6 +24,9 @@ import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.test.ESTestCase;
 import org.joda.time.DateTimeZone;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.TimeZone;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -250,6 +253,38 @@ public class DateMathParserTests extends ESTestCase {
         assertTrue(called.get());
     }
 
+    public void testRoundingAwareNow() {
+        final AtomicBoolean called = new AtomicBoolean();
+        final List<Long> roundedValues = new ArrayList<>();
+        final long nowMillis = parser.parse("2014-11-18T14:27:32", callable(0), false, null);
+        final Callable<Long> now = new DateMathParser.RoundingAwareNow() {
+            @Override
+            public Long call() throws Exception {
+                called.set(true);
+                return nowMillis;
+            }
+
+            @Override
+            public long nowToRound() {
+                return nowMillis;
+            }
+
+            @Override
+            public void onRoundedNow(long value) {
+                roundedValues.add(value);
+            }
+        };
+        assertDateEquals(parser.parse("now-15m/m", now, false, null), "now-15m/m", "2014-11-18T14:12");
+        assertDateEquals(parser.parse("now/d", now, true, null), "now/d", "2014-11-18T23:59:59.999");
+        assertFalse(called.get());
+        assertEquals(Arrays.asList(parser.parse("2014-11-18T14:12", callable(0)), parser.parse("2014-11-18T23:59:59.999", callable(0))),
+                roundedValues);
+
+        assertDateEquals(parser.parse("now-15m", now, false, null), "now-15m", "2014-11-18T14:12:32");
+        assertTrue(called.get());
+        assertEquals(2, roundedValues.size());
+    }
+
     public void testThatUnixTimestampMayNotHaveTimeZone() {
         DateMathParser parser = new DateMathParser(Joda.forPattern("epoch_millis"));
         try {
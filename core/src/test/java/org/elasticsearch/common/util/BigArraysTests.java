@@ -20,28 +20,50 @@
 package org.elasticsearch.common.util;
 
 import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.cache.recycler.MockPageCacheRecycler;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.junit.Before;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+
 public class BigArraysTests extends ESSingleNodeTestCase {
 
     private BigArrays randombigArrays() {
-        final PageCacheRecycler recycler = randomBoolean() ? null : getInstanceFromNode(PageCacheRecycler.class);
+        final PageCacheRecycler recycler;
+        switch (randomInt(2)) {
+            case 0:
+                recycler = null;
+                break;
+            case 1:
+                recycler = getInstanceFromNode(PageCacheRecycler.class);
+                break;
+            default:
+                recycler = directRecycler();
+                break;
+        }
         return new MockBigArrays(recycler, new NoneCircuitBreakerService());
     }
 
+    private PageCacheRecycler directRecycler() {
+        return new MockPageCacheRecycler(Settings.builder().put(PageCacheRecycler.DIRECT_SETTING.getKey(), true).build(),
+                getInstanceFromNode(ThreadPool.class));
+    }
+
     private BigArrays bigArrays;
 
     @Before
@@ -331,6 +353,30 @@ public class BigArraysTests extends ESSingleNodeTestCase {
         return bytearray;
     }
 
+    public void testDirectArraysAreAccounted() {
+        HierarchyCircuitBreakerService hcbs = new HierarchyCircuitBreakerService(Settings.EMPTY,
+                new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        BigArrays bigArrays = new BigArrays(directRecycler(), hcbs).withCircuitBreaking();
+        final CircuitBreaker breaker = hcbs.getBreaker(CircuitBreaker.REQUEST);
+
+        LongArray longs = bigArrays.newLongArray(BigArrays.LONG_PAGE_SIZE / 2);
+        assertThat(longs, instanceOf(BigDirectLongArray.class));
+        assertEquals(BigArrays.PAGE_SIZE_IN_BYTES, breaker.getUsed());
+        longs = bigArrays.grow(longs, 3 * BigArrays.LONG_PAGE_SIZE);
+        assertEquals(longs.ramBytesUsed(), breaker.getUsed());
+        ByteArray bytes = bigArrays.newByteArray(BigArrays.BYTE_PAGE_SIZE);
+        assertThat(bytes, instanceOf(BigDirectByteArray.class));
+        DoubleArray doubles = bigArrays.newDoubleArray(BigArrays.LONG_PAGE_SIZE);
+        assertThat(doubles, instanceOf(BigDirectDoubleArray.class));
+        // small arrays stay on the heap
+        IntArray ints = bigArrays.newIntArray(10);
+        assertThat(ints, not(instanceOf(BigDirectIntArray.class)));
+        ints = bigArrays.grow(ints, BigArrays.INT_PAGE_SIZE);
+        assertThat(ints, instanceOf(BigDirectIntArray.class));
+        Releasables.close(longs, bytes, doubles, ints);
+        assertEquals(0, breaker.getUsed());
+    }
+
     public void testMaxSizeExceededOnNew() throws Exception {
         final int size = scaledRandomIntBetween(5, 1 << 22);
         for (String type : Arrays.asList("Byte", "Int", "Long", "Float", "Double", "Object")) {
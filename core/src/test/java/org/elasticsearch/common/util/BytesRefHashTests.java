@@ -19,6 +19,7 @@
 
 package org.elasticsearch.common.util;
 
+import com.carrotsearch.hppc.BitMixer;
 import com.carrotsearch.hppc.ObjectLongHashMap;
 import com.carrotsearch.hppc.ObjectLongMap;
 import com.carrotsearch.hppc.cursors.ObjectLongCursor;
@@ -29,9 +30,11 @@ import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -97,6 +100,64 @@ public class BytesRefHashTests extends ESSingleNodeTestCase {
         hash.close();
     }
 
+    public void testCollidingHashCodes() {
+        // distinct keys that have the same hash code, so that their slots have the same hash and only their bytes differ
+        final Map<Integer, BytesRef> keysByHashCode = new HashMap<>();
+        BytesRef key;
+        BytesRef collidingKey;
+        do {
+            final byte[] bytes = new byte[8];
+            random().nextBytes(bytes);
+            key = new BytesRef(bytes);
+            collidingKey = keysByHashCode.put(key.hashCode(), key);
+        } while (collidingKey == null || collidingKey.bytesEquals(key));
+        assertEquals(key.hashCode(), collidingKey.hashCode());
+
+        hash.close();
+        hash = new BytesRefHash(1, 0.6f + randomFloat() * 0.39f, randombigArrays());
+        assertEquals(0, hash.add(key));
+        assertEquals(-1, hash.find(collidingKey));
+        assertEquals(1, hash.add(collidingKey));
+        assertEquals(-1, hash.add(key));
+        assertEquals(-2, hash.add(collidingKey));
+        assertEquals(0, hash.find(key));
+        assertEquals(1, hash.find(collidingKey));
+        // equal keys are found whatever their offset
+        final byte[] padded = new byte[collidingKey.length + 3];
+        System.arraycopy(collidingKey.bytes, collidingKey.offset, padded, 3, collidingKey.length);
+        assertEquals(1, hash.find(new BytesRef(padded, 3, collidingKey.length)));
+        hash.close();
+    }
+
+    public void testSharedProbeSequences() {
+        // keys whose hashes share their low bits start probing at the same slot for tables of up to 256 slots
+        final List<BytesRef> keys = new ArrayList<>();
+        final int lowBits = BitMixer.mix32(new BytesRef("0").hashCode()) & 0xFF;
+        for (int i = 0; keys.size() < 40; ++i) {
+            final BytesRef key = new BytesRef(Integer.toString(i));
+            if ((BitMixer.mix32(key.hashCode()) & 0xFF) == lowBits) {
+                keys.add(key);
+            }
+        }
+        hash.close();
+        hash = new BytesRefHash(1, 0.6f + randomFloat() * 0.39f, randombigArrays());
+        final int added = randomIntBetween(1, keys.size() - 1);
+        for (int i = 0; i < added; ++i) {
+            assertEquals(i, hash.add(keys.get(i)));
+        }
+        BytesRef spare = new BytesRef();
+        for (int i = 0; i < added; ++i) {
+            final BytesRef copy = BytesRef.deepCopyOf(keys.get(i));
+            assertEquals(-1 - i, hash.add(copy));
+            assertEquals(i, hash.find(copy));
+            assertEquals(keys.get(i), hash.get(i, spare));
+        }
+        for (int i = added; i < keys.size(); ++i) {
+            assertEquals(-1, hash.find(keys.get(i)));
+        }
+        hash.close();
+    }
+
     // START - tests borrowed from LUCENE
 
     /**
@@ -0,0 +1,126 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.http.netty;
+
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.network.NetworkModule;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.http.HttpServerTransport;
+import org.elasticsearch.http.HttpTransportSettings;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.test.ESIntegTestCase.ClusterScope;
+import org.elasticsearch.test.ESIntegTestCase.Scope;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+@ClusterScope(scope = Scope.TEST, numDataNodes = 1)
+public class NettyHttpBulkStreamingIT extends ESIntegTestCase {
+    private static final ByteSizeValue IN_FLIGHT_REQUESTS_LIMIT = new ByteSizeValue(4, ByteSizeUnit.KB);
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder()
+            .put(super.nodeSettings(nodeOrdinal))
+            .put(NetworkModule.HTTP_ENABLED.getKey(), true)
+            .put(HttpTransportSettings.SETTING_HTTP_BULK_STREAMING_ENABLED.getKey(), true)
+            // small chunks and batches, so that bulk requests get executed in many batches
+            .put(HttpTransportSettings.SETTING_HTTP_MAX_CHUNK_SIZE.getKey(), new ByteSizeValue(128, ByteSizeUnit.BYTES))
+            .put(HttpTransportSettings.SETTING_HTTP_BULK_STREAMING_BATCH_SIZE.getKey(), new ByteSizeValue(512, ByteSizeUnit.BYTES))
+            .put(HttpTransportSettings.SETTING_HTTP_BULK_STREAMING_MAX_IN_FLIGHT_BATCHES.getKey(), randomIntBetween(1, 3))
+            // larger than the content of a batch, but smaller than a whole bulk request
+            .put(HierarchyCircuitBreakerService.IN_FLIGHT_REQUESTS_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), IN_FLIGHT_REQUESTS_LIMIT)
+            .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testStreamedBulk() throws Exception {
+        createIndex("index");
+        ensureGreen();
+
+        final int numDocs = randomIntBetween(50, 200);
+        StringBuilder bulkRequest = new StringBuilder();
+        for (int i = 0; i < numDocs; i++) {
+            bulkRequest.append("{\"index\": {\"_id\": \"").append(i).append("\"}}\n");
+            bulkRequest.append("{ \"field\" : \"value").append(i).append("\" }\n");
+        }
+        // deletes have no source line
+        bulkRequest.append("{\"delete\": {\"_id\": \"0\"}}\n");
+
+        HttpServerTransport httpServerTransport = internalCluster().getInstance(HttpServerTransport.class);
+        InetSocketTransportAddress address = (InetSocketTransportAddress) randomFrom(httpServerTransport.boundAddress().boundAddresses());
+        try (NettyHttpClient nettyHttpClient = new NettyHttpClient()) {
+            Collection<HttpResponse> responses = nettyHttpClient.post(address.address(), Tuple.tuple("/index/type/_bulk", bulkRequest));
+            assertThat(responses, hasSize(1));
+            HttpResponse response = responses.iterator().next();
+            assertThat(response.getStatus(), equalTo(HttpResponseStatus.OK));
+            String responseBody = NettyHttpClient.returnHttpResponseBodies(responses).iterator().next();
+            Map<String, Object> body = XContentHelper.convertToMap(new BytesArray(responseBody), false).v2();
+            assertThat(body.get("errors"), equalTo(false));
+            List<Map<String, Object>> items = (List<Map<String, Object>>) body.get("items");
+            assertThat(items, hasSize(numDocs + 1));
+            for (int i = 0; i < numDocs; i++) {
+                assertThat(((Map<String, Object>) items.get(i).get("index")).get("_id"), equalTo(Integer.toString(i)));
+            }
+            assertThat(((Map<String, Object>) items.get(numDocs).get("delete")).get("_id"), equalTo("0"));
+        }
+
+        refresh("index");
+        assertHitCount(client().prepareSearch("index").setSize(0).get(), numDocs - 1);
+        assertInFlightRequestsReleased();
+    }
+
+    public void testStreamedActionLargerThanInFlightRequestsLimit() throws Exception {
+        createIndex("index");
+        ensureGreen();
+
+        StringBuilder bulkRequest = new StringBuilder();
+        bulkRequest.append("{\"index\": {\"_id\": \"1\"}}\n");
+        bulkRequest.append("{ \"field\" : \"").append(randomAsciiOfLength(2 * IN_FLIGHT_REQUESTS_LIMIT.bytesAsInt())).append("\" }\n");
+
+        HttpServerTransport httpServerTransport = internalCluster().getInstance(HttpServerTransport.class);
+        InetSocketTransportAddress address = (InetSocketTransportAddress) randomFrom(httpServerTransport.boundAddress().boundAddresses());
+        try (NettyHttpClient nettyHttpClient = new NettyHttpClient()) {
+            Collection<HttpResponse> responses = nettyHttpClient.post(address.address(), Tuple.tuple("/index/type/_bulk", bulkRequest));
+            assertThat(responses, hasSize(1));
+            assertThat(responses.iterator().next().getStatus(), equalTo(HttpResponseStatus.SERVICE_UNAVAILABLE));
+        }
+        assertInFlightRequestsReleased();
+    }
+
+    private void assertInFlightRequestsReleased() throws Exception {
+        CircuitBreakerService circuitBreakerService = internalCluster().getInstance(CircuitBreakerService.class);
+        assertBusy(() -> assertThat(circuitBreakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS).getUsed(), equalTo(0L)));
+    }
+}
@@ -22,12 +22,15 @@ package org.elasticsearch.http.netty;
 import org.elasticsearch.cache.recycler.MockPageCacheRecycler;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.http.HttpTransportSettings;
 import org.elasticsearch.http.netty.cors.CorsHandler;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.rest.ChunkedRestResponse;
 import org.elasticsearch.rest.RestResponse;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.test.ESTestCase;
@@ -39,7 +42,10 @@ import org.jboss.netty.channel.ChannelConfig;
 import org.jboss.netty.channel.ChannelFactory;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
 import org.jboss.netty.handler.codec.http.DefaultHttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpChunk;
 import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpMethod;
 import org.jboss.netty.handler.codec.http.HttpRequest;
@@ -48,6 +54,7 @@ import org.jboss.netty.handler.codec.http.HttpVersion;
 import org.junit.After;
 import org.junit.Before;
 
+import java.io.IOException;
 import java.net.SocketAddress;
 import java.util.ArrayList;
 import java.util.List;
@@ -57,6 +64,7 @@ import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ALLOW_ME
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ALLOW_ORIGIN;
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ENABLED;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
@@ -169,6 +177,51 @@ public class NettyHttpChannelTests extends ESTestCase {
         assertThat(response.headers().get(HttpHeaders.Names.CONTENT_TYPE), equalTo(resp.contentType()));
     }
 
+    public void testChunkedResponse() throws Exception {
+        httpServerTransport = new NettyHttpServerTransport(Settings.EMPTY, networkService, bigArrays, threadPool);
+        WriteCapturingChannel writeCapturingChannel = new WriteCapturingChannel();
+        NettyHttpRequest request = new NettyHttpRequest(new TestHttpRequest(), writeCapturingChannel);
+        NettyHttpChannel channel = new NettyHttpChannel(httpServerTransport, request, null, randomBoolean());
+        byte[] content = new byte[between(BigArrays.PAGE_SIZE_IN_BYTES + 1, 5 * BigArrays.PAGE_SIZE_IN_BYTES)];
+        random().nextBytes(content);
+        channel.sendResponse(new TestChunkedResponse(content, between(1, 4096)));
+
+        List<Object> writtenObjects = writeCapturingChannel.getWrittenObjects();
+        assertThat(writtenObjects.size(), greaterThanOrEqualTo(3));
+        HttpResponse response = (HttpResponse) writtenObjects.get(0);
+        assertTrue(response.isChunked());
+        assertThat(response.headers().get(HttpHeaders.Names.TRANSFER_ENCODING), equalTo(HttpHeaders.Values.CHUNKED));
+        assertThat(response.headers().get(HttpHeaders.Names.CONTENT_LENGTH), nullValue());
+        assertThat(response.headers().get(HttpHeaders.Names.CONTENT_TYPE), equalTo("text"));
+        BytesStreamOutput received = new BytesStreamOutput();
+        for (int i = 1; i < writtenObjects.size(); i++) {
+            HttpChunk chunk = (HttpChunk) writtenObjects.get(i);
+            assertThat(chunk.isLast(), equalTo(i == writtenObjects.size() - 1));
+            chunk.getContent().readBytes(received, chunk.getContent().readableBytes());
+        }
+        assertArrayEquals(content, received.bytes().toBytes());
+    }
+
+    public void testSmallChunkedResponse() throws Exception {
+        httpServerTransport = new NettyHttpServerTransport(Settings.EMPTY, networkService, bigArrays, threadPool);
+        WriteCapturingChannel writeCapturingChannel = new WriteCapturingChannel();
+        NettyHttpRequest request = new NettyHttpRequest(new TestHttpRequest(), writeCapturingChannel);
+        NettyHttpChannel channel = new NettyHttpChannel(httpServerTransport, request, null, randomBoolean());
+        byte[] content = new byte[between(0, BigArrays.PAGE_SIZE_IN_BYTES - 1)];
+        random().nextBytes(content);
+        channel.sendResponse(new TestChunkedResponse(content, between(1, 4096)));
+
+        // content that fits in a single chunk is sent as usual
+        List<Object> writtenObjects = writeCapturingChannel.getWrittenObjects();
+        assertThat(writtenObjects.size(), is(1));
+        HttpResponse response = (HttpResponse) writtenObjects.get(0);
+        assertFalse(response.isChunked());
+        assertThat(response.headers().get(HttpHeaders.Names.CONTENT_LENGTH), equalTo(Integer.toString(content.length)));
+        BytesStreamOutput received = new BytesStreamOutput();
+        response.getContent().readBytes(received, response.getContent().readableBytes());
+        assertArrayEquals(content, received.bytes().toBytes());
+    }
+
     private HttpResponse execRequestWithCors(final Settings settings, final String originValue) {
         // construct request and send it over the transport layer
         httpServerTransport = new NettyHttpServerTransport(settings, networkService, bigArrays, threadPool);
@@ -243,14 +296,20 @@ public class NettyHttpChannelTests extends ESTestCase {
 
         @Override
         public ChannelFuture write(Object message) {
+            // the content of responses is released once written
+            if (message instanceof HttpResponse) {
+                HttpResponse response = (HttpResponse) message;
+                response.setContent(ChannelBuffers.copiedBuffer(response.getContent()));
+            } else if (message instanceof HttpChunk) {
+                message = new DefaultHttpChunk(ChannelBuffers.copiedBuffer(((HttpChunk) message).getContent()));
+            }
             writtenObjects.add(message);
-            return null;
+            return Channels.succeededFuture(this);
         }
 
         @Override
         public ChannelFuture write(Object message, SocketAddress remoteAddress) {
-            writtenObjects.add(message);
-            return null;
+            return write(message);
         }
 
         @Override
@@ -400,6 +459,39 @@ public class NettyHttpChannelTests extends ESTestCase {
         }
     }
 
+    private static class TestChunkedResponse extends ChunkedRestResponse {
+
+        private final byte[] content;
+        private final int partSize;
+        private int offset = 0;
+
+        TestChunkedResponse(byte[] content, int partSize) {
+            this.content = content;
+            this.partSize = partSize;
+        }
+
+        @Override
+        public String contentType() {
+            return "text";
+        }
+
+        @Override
+        public RestStatus status() {
+            return RestStatus.OK;
+        }
+
+        @Override
+        protected boolean writeNext() throws IOException {
+            if (offset == content.length) {
+                return false;
+            }
+            int length = Math.min(partSize, content.length - offset);
+            output().write(content, offset, length);
+            offset += length;
+            return true;
+        }
+    }
+
     private static class TestReponse extends RestResponse {
 
         @Override
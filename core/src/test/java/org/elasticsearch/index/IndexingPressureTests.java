@@ -0,0 +1,110 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+
+public class IndexingPressureTests extends ESTestCase {
+
+    private final Settings settings = Settings.builder().put(IndexingPressure.MAX_INDEXING_BYTES.getKey(), "10kb").build();
+    private final ShardId shardId = new ShardId("index", "_na_", 0);
+
+    public void testMemoryBytesMarkedAndReleased() {
+        IndexingPressure indexingPressure = new IndexingPressure(settings);
+        Releasable coordinating = indexingPressure.markCoordinatingOperationStarted(10);
+        Releasable localPrimary = indexingPressure.markPrimaryOperationStarted(shardId, 10, true);
+        Releasable primary = indexingPressure.markPrimaryOperationStarted(shardId, 15, false);
+        Releasable replica = indexingPressure.markReplicaOperationStarted(shardId, 25);
+
+        IndexingPressureStats stats = indexingPressure.stats();
+        assertEquals(25, stats.getCurrentCombinedCoordinatingAndPrimaryBytes());
+        assertEquals(10, stats.getCurrentCoordinatingBytes());
+        assertEquals(25, stats.getCurrentPrimaryBytes());
+        assertEquals(25, stats.getCurrentReplicaBytes());
+        assertEquals(25, stats.getShardStats().get(shardId).getCurrentPrimaryBytes());
+        assertEquals(25, stats.getShardStats().get(shardId).getCurrentReplicaBytes());
+
+        coordinating.close();
+        localPrimary.close();
+        primary.close();
+        replica.close();
+        // releasing twice has no effect
+        primary.close();
+
+        stats = indexingPressure.stats();
+        assertEquals(0, stats.getCurrentCombinedCoordinatingAndPrimaryBytes());
+        assertEquals(0, stats.getCurrentCoordinatingBytes());
+        assertEquals(0, stats.getCurrentPrimaryBytes());
+        assertEquals(0, stats.getCurrentReplicaBytes());
+        assertTrue(stats.getShardStats().isEmpty());
+        assertEquals(25, stats.getTotalCombinedCoordinatingAndPrimaryBytes());
+        assertEquals(10, stats.getTotalCoordinatingBytes());
+        assertEquals(25, stats.getTotalPrimaryBytes());
+        assertEquals(25, stats.getTotalReplicaBytes());
+    }
+
+    public void testCoordinatingAndPrimaryRejections() {
+        IndexingPressure indexingPressure = new IndexingPressure(settings);
+        Releasable coordinating = indexingPressure.markCoordinatingOperationStarted(6 * 1024);
+        Releasable primary = indexingPressure.markPrimaryOperationStarted(shardId, 3 * 1024, false);
+        expectThrows(EsRejectedExecutionException.class, () -> indexingPressure.markCoordinatingOperationStarted(2 * 1024));
+        expectThrows(EsRejectedExecutionException.class, () -> indexingPressure.markPrimaryOperationStarted(shardId, 2 * 1024, false));
+
+        // operations that the coordinating node accounted for already and replica operations are never rejected
+        Releasable localPrimary = indexingPressure.markPrimaryOperationStarted(shardId, 6 * 1024, true);
+        Releasable replica = indexingPressure.markReplicaOperationStarted(shardId, 20 * 1024);
+
+        IndexingPressureStats stats = indexingPressure.stats();
+        assertEquals(1, stats.getCoordinatingRejections());
+        assertEquals(1, stats.getPrimaryRejections());
+        assertEquals(9 * 1024, stats.getCurrentCombinedCoordinatingAndPrimaryBytes());
+        assertEquals(10 * 1024, stats.getLimit());
+
+        coordinating.close();
+        localPrimary.close();
+        indexingPressure.markCoordinatingOperationStarted(2 * 1024).close();
+        primary.close();
+        replica.close();
+        assertEquals(0, indexingPressure.stats().getCurrentCombinedCoordinatingAndPrimaryBytes());
+    }
+
+    public void testSerialization() throws Exception {
+        IndexingPressure indexingPressure = new IndexingPressure(settings);
+        indexingPressure.markPrimaryOperationStarted(shardId, 15, false);
+        indexingPressure.markReplicaOperationStarted(new ShardId("index", "_na_", 1), 25);
+        IndexingPressureStats stats = indexingPressure.stats();
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        stats.writeTo(out);
+        IndexingPressureStats read = new IndexingPressureStats(out.bytes().streamInput());
+        assertEquals(stats.getCurrentCombinedCoordinatingAndPrimaryBytes(), read.getCurrentCombinedCoordinatingAndPrimaryBytes());
+        assertEquals(stats.getCurrentPrimaryBytes(), read.getCurrentPrimaryBytes());
+        assertEquals(stats.getCurrentReplicaBytes(), read.getCurrentReplicaBytes());
+        assertEquals(stats.getTotalPrimaryBytes(), read.getTotalPrimaryBytes());
+        assertEquals(stats.getLimit(), read.getLimit());
+        assertEquals(2, read.getShardStats().size());
+        assertEquals(15, read.getShardStats().get(shardId).getCurrentPrimaryBytes());
+        assertEquals(25, read.getShardStats().get(new ShardId("index", "_na_", 1)).getCurrentReplicaBytes());
+    }
+}
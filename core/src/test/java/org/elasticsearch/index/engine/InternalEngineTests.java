@@ -112,6 +112,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -129,6 +130,8 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
@@ -950,6 +953,105 @@ public class InternalEngineTests extends ESTestCase {
         assertNull("Sync ID must be gone since we have a document to replay", engine.getLastCommittedSegmentInfos().getUserData().get(Engine.SYNC_COMMIT_ID));
     }
 
+    public void testAppendOnlyWithAutoGeneratedId() throws IOException {
+        final long autoGeneratedIdTimestamp = randomIntBetween(0, Integer.MAX_VALUE);
+        ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), B_1, null);
+        Engine.Index index = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(),
+            autoGeneratedIdTimestamp, false);
+        assertTrue(engine.index(index));
+        assertThat(index.version(), equalTo(1L));
+        assertNotNull(index.getTranslogLocation());
+
+        index = new Engine.Index(newUid("1"), doc, index.version(), index.versionType().versionTypeForReplicationAndRecovery(), REPLICA,
+            System.nanoTime(), autoGeneratedIdTimestamp, false);
+        assertTrue(replicaEngine.index(index));
+        assertThat(index.version(), equalTo(1L));
+
+        engine.refresh("test");
+        replicaEngine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), 10);
+            assertEquals(1, topDocs.totalHits);
+        }
+        try (Engine.Searcher searcher = replicaEngine.acquireSearcher("test")) {
+            TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), 10);
+            assertEquals(1, topDocs.totalHits);
+        }
+    }
+
+    public void testRetryOfAppendOnlyDoesNotCreateDuplicates() throws IOException {
+        final long autoGeneratedIdTimestamp = randomIntBetween(0, Integer.MAX_VALUE);
+        ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), B_1, null);
+        final boolean retryFirst = randomBoolean();
+        Engine.Index original = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(),
+            autoGeneratedIdTimestamp, false);
+        Engine.Index retry = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(),
+            autoGeneratedIdTimestamp, true);
+        if (retryFirst) {
+            engine.index(retry);
+            // the original arrives late and must not be added blindly since the retry has already been processed
+            engine.index(original);
+        } else {
+            engine.index(original);
+            engine.index(retry);
+        }
+        assertThat(original.version(), equalTo(1L));
+        assertThat(retry.version(), equalTo(1L));
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), 10);
+            assertEquals(1, topDocs.totalHits);
+        }
+    }
+
+    public void testVersionMapLookupAfterAppendOnly() throws IOException {
+        ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), B_1, null);
+        engine.index(new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(),
+            randomIntBetween(0, Integer.MAX_VALUE), false));
+
+        // the document is not in the version map but realtime get must still find it
+        Engine.GetResult getResult = engine.get(new Engine.Get(true, newUid("1")));
+        assertTrue(getResult.exists());
+        getResult.release();
+
+        // an explicit update of the same id must replace the document and see its version
+        doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), B_2, null);
+        Engine.Index update = new Engine.Index(newUid("1"), doc);
+        assertFalse(engine.index(update));
+        assertThat(update.version(), equalTo(2L));
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), 10);
+            assertEquals(1, topDocs.totalHits);
+        }
+    }
+
+    public void testAppendOnlyAfterVersionLookupGoesToVersionMap() throws IOException {
+        // a lookup of an explicit ID switches the version map to safe access
+        ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), B_1, null);
+        engine.index(new Engine.Index(newUid("1"), doc));
+
+        doc = testParsedDocument("2", "2", "test", null, -1, -1, testDocument(), B_1, null);
+        engine.index(new Engine.Index(newUid("2"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(),
+            randomIntBetween(0, Integer.MAX_VALUE), false));
+
+        // the version of the append-only document comes from the version map
+        doc = testParsedDocument("2", "2", "test", null, -1, -1, testDocument(), B_2, null);
+        Engine.Index update = new Engine.Index(newUid("2"), doc);
+        assertFalse(engine.index(update));
+        assertThat(update.version(), equalTo(2L));
+        // so the lookups didn't refresh
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), 10);
+            assertEquals(0, topDocs.totalHits);
+        }
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), 10);
+            assertEquals(2, topDocs.totalHits);
+        }
+    }
+
     public void testVersioningNewCreate() {
         ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), B_1, null);
         Engine.Index create = new Engine.Index(newUid("1"), doc, Versions.MATCH_DELETED);
@@ -1936,7 +2038,11 @@ public class InternalEngineTests extends ESTestCase {
         public final AtomicInteger recoveredOps = new AtomicInteger(0);
 
         public TranslogHandler(String indexName, ESLogger logger) {
-            super(new ShardId("test", "_na_", 0), null, logger);
+            this(indexName, logger, null, 1);
+        }
+
+        public TranslogHandler(String indexName, ESLogger logger, ThreadPool threadPool, int recoveryThreads) {
+            super(new ShardId("test", "_na_", 0), null, logger, threadPool, recoveryThreads);
             Settings settings = Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT).build();
             RootObjectMapper.Builder rootBuilder = new RootObjectMapper.Builder("test");
             Index index = new Index(indexName, "_na_");
@@ -1960,6 +2066,96 @@ public class InternalEngineTests extends ESTestCase {
         }
     }
 
+    public void testConcurrentTranslogReplay() throws IOException {
+        final int numDocs = randomIntBetween(10, 100);
+        final Map<String, Long> liveDocVersions = new HashMap<>();
+        int numOps = 0;
+        for (int i = 0; i < numDocs; i++) {
+            final String id = Integer.toString(i);
+            final String uid = "test#" + id;
+            final int numIndexOps = randomIntBetween(1, 5);
+            for (int j = 0; j < numIndexOps; j++) {
+                ParsedDocument doc = testParsedDocument(uid, id, "test", null, -1, -1, testDocument(), new BytesArray("{}"), null);
+                Engine.Index index = new Engine.Index(newUid(uid), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime());
+                engine.index(index);
+                liveDocVersions.put(uid, index.version());
+                numOps++;
+            }
+            if (randomBoolean()) {
+                engine.delete(new Engine.Delete("test", id, newUid(uid)));
+                liveDocVersions.remove(uid);
+                numOps++;
+            }
+        }
+        final MockDirectoryWrapper directory = DirectoryUtils.getLeaf(store.directory(), MockDirectoryWrapper.class);
+        if (directory != null) {
+            // since we rollback the IW we are writing the same segment files again after starting IW but MDW prevents
+            // this so we have to disable the check explicitly
+            directory.setPreventDoubleWrite(false);
+        }
+        final EngineConfig config = engine.config();
+        engine.close();
+
+        final TranslogHandler handler = new TranslogHandler(shardId.getIndexName(), logger, threadPool, randomIntBetween(2, 4));
+        engine = new InternalEngine(new EngineConfig(EngineConfig.OpenMode.OPEN_INDEX_AND_TRANSLOG, config.getShardId(),
+            config.getThreadPool(), config.getIndexSettings(), config.getWarmer(), config.getStore(), config.getDeletionPolicy(),
+            config.getMergePolicy(), config.getAnalyzer(), config.getSimilarity(), new CodecService(null, logger),
+            config.getEventListener(), handler, config.getQueryCache(), config.getQueryCachingPolicy(), config.getTranslogConfig(),
+            config.getFlushMergesAfter()));
+        engine.recoverFromTranslog();
+        assertEquals(numOps, handler.recoveredOps.get());
+
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), numDocs);
+            assertThat(topDocs.totalHits, equalTo(liveDocVersions.size()));
+        }
+        // operations on the same document must have been replayed in order
+        for (Map.Entry<String, Long> entry : liveDocVersions.entrySet()) {
+            Engine.GetResult getResult = engine.get(new Engine.Get(true, newUid(entry.getKey())));
+            assertTrue(getResult.exists());
+            assertThat(getResult.version(), equalTo(entry.getValue()));
+            getResult.release();
+        }
+    }
+
+    public void testConcurrentTranslogReplayWorkerDies() throws IOException {
+        // more operations on a single document than fit in a recovery queue, so the reader blocks if the worker stops draining it
+        final int numOps = randomIntBetween(4096, 8192);
+        final Translog.Snapshot snapshot = new Translog.Snapshot() {
+            private int ops = 0;
+
+            @Override
+            public int totalOperations() {
+                return numOps;
+            }
+
+            @Override
+            public Translog.Operation next() throws IOException {
+                return ops++ < numOps ? new Translog.Index("test", "1", "{}".getBytes(Charset.forName("UTF-8"))) : null;
+            }
+        };
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final TranslogHandler handler = new TranslogHandler(shardId.getIndexName(), logger, threadPool, randomIntBetween(2, 4)) {
+            @Override
+            protected void operationProcessed() {
+                super.operationProcessed();
+                if (interrupted.compareAndSet(false, true)) {
+                    // the worker leaves its loop when it takes the next operation from its queue
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        try {
+            handler.recoveryFromSnapshot(engine, snapshot);
+            fail("expected the replay to fail since a worker got interrupted");
+        } catch (ElasticsearchException e) {
+            assertThat(e.getCause(), instanceOf(InterruptedException.class));
+        }
+        assertTrue(interrupted.get());
+        assertThat(handler.recoveredOps.get(), lessThan(numOps));
+    }
+
     public void testRecoverFromForeignTranslog() throws IOException {
         final int numDocs = randomIntBetween(1, 10);
         for (int i = 0; i < numDocs; i++) {
@@ -0,0 +1,272 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.nullValue;
+
+public class LiveVersionMapTests extends ESTestCase {
+
+    private BigArrays bigArrays;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        bigArrays = new MockBigArrays(null, new NoneCircuitBreakerService());
+    }
+
+    private static VersionValue randomVersionValue() {
+        final Translog.Location location = randomBoolean() ? null
+            : new Translog.Location(randomIntBetween(1, 10), randomIntBetween(0, 1 << 20), randomIntBetween(1, 1024));
+        if (randomBoolean()) {
+            return new DeleteVersionValue(randomIntBetween(1, 1000), randomIntBetween(1, Integer.MAX_VALUE), location);
+        }
+        return new VersionValue(randomIntBetween(1, 1000), location);
+    }
+
+    private static void assertVersionValue(VersionValue expected, VersionValue actual) {
+        if (expected == null) {
+            assertThat(actual, nullValue());
+            return;
+        }
+        assertThat(actual.version(), equalTo(expected.version()));
+        assertThat(actual.delete(), equalTo(expected.delete()));
+        if (expected.delete()) {
+            assertThat(actual.time(), equalTo(expected.time()));
+        }
+        assertThat(actual.translogLocation(), equalTo(expected.translogLocation()));
+    }
+
+    public void testCompactVersionMapDuel() {
+        final BytesRef[] uids = new BytesRef[randomIntBetween(1, 1000)];
+        for (int i = 0; i < uids.length; i++) {
+            uids[i] = new BytesRef("type#" + randomUnicodeOfLengthBetween(1, 20));
+        }
+        final Map<BytesRef, VersionValue> expected = new HashMap<>();
+        try (CompactVersionMap map = new CompactVersionMap(bigArrays)) {
+            final long emptyBytesUsed = map.ramBytesUsed();
+            final int iters = scaledRandomIntBetween(100, 10000);
+            for (int i = 0; i < iters; i++) {
+                final BytesRef uid = randomFrom(uids);
+                if (randomInt(4) == 0) {
+                    assertVersionValue(expected.remove(uid), map.remove(uid));
+                } else {
+                    final VersionValue value = randomVersionValue();
+                    assertVersionValue(expected.put(uid, value), map.put(uid, value));
+                }
+                assertThat(map.size(), equalTo((long) expected.size()));
+            }
+            for (BytesRef uid : uids) {
+                assertVersionValue(expected.get(uid), map.get(uid));
+            }
+            if (expected.isEmpty() == false) {
+                assertThat(map.ramBytesUsed(), greaterThan(emptyBytesUsed));
+            }
+
+            map.close();
+            assertThat(map.size(), equalTo(0L));
+            assertThat(map.ramBytesUsed(), equalTo(emptyBytesUsed));
+            for (BytesRef uid : uids) {
+                assertThat(map.get(uid), nullValue());
+            }
+            // updates after close are ignored
+            assertThat(map.put(uids[0], randomVersionValue()), nullValue());
+            assertThat(map.get(uids[0]), nullValue());
+        }
+    }
+
+    public void testRefreshClearsLiveVersions() throws IOException {
+        final LiveVersionMap map = new LiveVersionMap(bigArrays);
+        final BytesRef uid = new BytesRef("type#1");
+        final long emptyBytesUsed = map.ramBytesUsedForRefresh();
+        map.putUnderLock(uid, new VersionValue(1, new Translog.Location(1, 0, 10)));
+        assertThat(map.getUnderLock(uid).version(), equalTo(1L));
+        assertThat(map.ramBytesUsedForRefresh(), greaterThan(emptyBytesUsed));
+
+        map.beforeRefresh();
+        // still visible while the refresh is running
+        assertThat(map.getUnderLock(uid).version(), equalTo(1L));
+        assertThat(map.ramBytesUsedForRefresh(), equalTo(emptyBytesUsed));
+        map.afterRefresh(true);
+        assertThat(map.getUnderLock(uid), nullValue());
+        assertThat(map.size(), equalTo(0L));
+        map.clear();
+    }
+
+    public void testSafeAccessLastsForARefreshCycle() throws IOException {
+        final LiveVersionMap map = new LiveVersionMap(bigArrays);
+        assertFalse(map.isSafeAccessRequired());
+        map.markUnsafe();
+        assertTrue(map.isUnsafe());
+
+        map.enforceSafeAccess();
+        assertTrue(map.isSafeAccessRequired());
+        map.beforeRefresh();
+        // still unsafe until the documents marked so far are visible
+        assertTrue(map.isUnsafe());
+        map.afterRefresh(true);
+        assertFalse(map.isUnsafe());
+        // safe access was requested during the last refresh cycle, so it is kept for the next one
+        assertTrue(map.isSafeAccessRequired());
+
+        if (randomBoolean()) {
+            map.enforceSafeAccess();
+            map.beforeRefresh();
+            map.afterRefresh(randomBoolean());
+            assertTrue(map.isSafeAccessRequired());
+        }
+
+        // a whole refresh cycle without lookups goes back to the append-only path
+        map.beforeRefresh();
+        map.afterRefresh(randomBoolean());
+        assertFalse(map.isSafeAccessRequired());
+        map.clear();
+    }
+
+    public void testTombstonesArePrunedByTimeBucket() throws IOException {
+        final LiveVersionMap map = new LiveVersionMap(bigArrays);
+        final long gcDeletes = 1000;
+        // sets the bucket interval
+        map.pruneTombstones(0, gcDeletes);
+        final long bucketInterval = gcDeletes / LiveVersionMap.TOMBSTONE_BUCKETS_PER_GC_DELETES;
+
+        final BytesRef first = new BytesRef("type#1");
+        final BytesRef second = new BytesRef("type#2");
+        final BytesRef revived = new BytesRef("type#3");
+        map.putUnderLock(first, new DeleteVersionValue(2, 1000, new Translog.Location(1, 0, 10)));
+        map.putUnderLock(revived, new DeleteVersionValue(2, 1000, new Translog.Location(1, 10, 10)));
+        map.putUnderLock(second, new DeleteVersionValue(2, 1000 + bucketInterval, new Translog.Location(1, 20, 10)));
+        // deleting the same uid again moves its tombstone to the newest bucket
+        map.putUnderLock(first, new DeleteVersionValue(3, 1000 + bucketInterval, new Translog.Location(1, 30, 10)));
+        // indexing a deleted uid removes its tombstone
+        map.putUnderLock(revived, new VersionValue(3, new Translog.Location(1, 40, 10)));
+        map.beforeRefresh();
+        map.afterRefresh(true);
+
+        assertThat(map.getTombstoneUnderLock(first).version(), equalTo(3L));
+        assertThat(map.getTombstoneUnderLock(second).version(), equalTo(2L));
+        assertThat(map.getTombstoneUnderLock(revived), nullValue());
+        assertThat(map.size(), equalTo(2L));
+
+        // the first bucket expires, but only holds stale entries
+        map.pruneTombstones(1000 + gcDeletes + 1, gcDeletes);
+        assertThat(map.getTombstoneUnderLock(first).version(), equalTo(3L));
+        assertThat(map.getTombstoneUnderLock(second).version(), equalTo(2L));
+
+        map.pruneTombstones(1000 + bucketInterval + gcDeletes + 1, gcDeletes);
+        assertThat(map.getTombstoneUnderLock(first), nullValue());
+        assertThat(map.getTombstoneUnderLock(second), nullValue());
+        assertThat(map.size(), equalTo(0L));
+        assertThat(map.ramBytesUsedTombstones(), equalTo(0L));
+        map.clear();
+    }
+
+    public void testTombstonesAcrossTimeSlots() throws IOException {
+        final LiveVersionMap map = new LiveVersionMap(bigArrays);
+        long gcDeletes = randomIntBetween(1, 1000);
+        map.pruneTombstones(0, gcDeletes);
+        // uid -> {version, time} of the tombstones that must be found
+        final Map<BytesRef, long[]> tombstones = new HashMap<>();
+        long time = 0;
+        final int iters = scaledRandomIntBetween(100, 2000);
+        for (int i = 0; i < iters; i++) {
+            final BytesRef uid = new BytesRef("type#" + randomInt(50));
+            time += randomIntBetween(0, (int) gcDeletes / 2);
+            if (randomBoolean()) {
+                // deletes don't always come in time order
+                final long deleteTime = Math.max(0, time - randomIntBetween(0, 3));
+                map.putUnderLock(uid, new DeleteVersionValue(i, deleteTime, new Translog.Location(1, i, 10)));
+                tombstones.put(uid, new long[] {i, deleteTime});
+            } else {
+                map.putUnderLock(uid, new VersionValue(i, new Translog.Location(1, i, 10)));
+                tombstones.remove(uid);
+            }
+            if (rarely()) {
+                map.beforeRefresh();
+                map.afterRefresh(randomBoolean());
+            }
+            if (rarely()) {
+                if (randomBoolean()) {
+                    // changes the width of the time slots
+                    gcDeletes = randomIntBetween(1, 1000);
+                }
+                map.pruneTombstones(time, gcDeletes);
+                for (Iterator<Map.Entry<BytesRef, long[]>> it = tombstones.entrySet().iterator(); it.hasNext(); ) {
+                    final Map.Entry<BytesRef, long[]> entry = it.next();
+                    // whole buckets expire, so a tombstone may be kept a bit longer, but it is never dropped before it expired
+                    if (time - entry.getValue()[1] > gcDeletes && map.getTombstoneUnderLock(entry.getKey()) == null) {
+                        it.remove();
+                    }
+                }
+            }
+            for (int j = 0; j <= 50; j++) {
+                final BytesRef other = new BytesRef("type#" + j);
+                final long[] expected = tombstones.get(other);
+                if (expected == null) {
+                    assertThat(map.getTombstoneUnderLock(other), nullValue());
+                } else {
+                    assertThat(map.getTombstoneUnderLock(other).version(), equalTo(expected[0]));
+                }
+            }
+        }
+        map.pruneTombstones(time + gcDeletes + 10, gcDeletes);
+        assertThat(map.ramBytesUsedTombstones(), equalTo(0L));
+        map.clear();
+    }
+
+    public void testClearReleasesEverything() throws IOException {
+        final LiveVersionMap map = new LiveVersionMap(bigArrays);
+        final int numDocs = randomIntBetween(1, 100);
+        for (int i = 0; i < numDocs; i++) {
+            final BytesRef uid = new BytesRef("type#" + i);
+            if (randomBoolean()) {
+                map.putUnderLock(uid, new DeleteVersionValue(1, randomIntBetween(1, 1000), new Translog.Location(1, i, 10)));
+            } else {
+                map.putUnderLock(uid, new VersionValue(1, new Translog.Location(1, i, 10)));
+            }
+            if (rarely()) {
+                map.beforeRefresh();
+                map.afterRefresh(randomBoolean());
+            }
+        }
+        map.clear();
+        assertThat(map.size(), equalTo(0L));
+        assertThat(map.getUnderLock(new BytesRef("type#0")), nullValue());
+        // the map is closed, nothing gets allocated anymore
+        map.putUnderLock(new BytesRef("type#0"), new VersionValue(2, new Translog.Location(1, 0, 10)));
+        map.beforeRefresh();
+        map.afterRefresh(true);
+        assertThat(map.getUnderLock(new BytesRef("type#0")), nullValue());
+        // MockBigArrays makes sure that all pages have been released after the test
+    }
+}
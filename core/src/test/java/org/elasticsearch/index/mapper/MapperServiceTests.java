@@ -32,6 +32,7 @@ import org.elasticsearch.common.compress.CompressedXContent;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.mapper.MapperService.MergeReason;
 import org.elasticsearch.index.mapper.core.KeywordFieldMapper.KeywordFieldType;
 import org.elasticsearch.index.mapper.core.NumberFieldMapper.NumberFieldType;
@@ -158,6 +159,36 @@ public class MapperServiceTests extends ESSingleNodeTestCase {
         assertThat(e.getMessage(), containsString("Limit of mapping depth [1] in index [test1] has been exceeded"));
     }
 
+    public void testIndexSortFieldMustBeNumericWithDocValues() throws Throwable {
+        Settings sorted = Settings.builder().put(IndexSettings.INDEX_SORT_FIELD_SETTING.getKey(), "field").build();
+        client().admin().indices().prepareCreate("test1").setSettings(sorted).addMapping("type", "field", "type=long").get();
+        client().admin().indices().prepareCreate("test2").setSettings(sorted).addMapping("type", "field", "type=date").get();
+
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () ->
+            client().admin().indices().prepareCreate("test3").setSettings(sorted).addMapping("type", "field", "type=keyword").get());
+        assertThat(e.getMessage(), containsString("index sort field [field] of index [test3] must be a numeric or date field"));
+        e = expectThrows(IllegalArgumentException.class, () ->
+            client().admin().indices().prepareCreate("test4").setSettings(sorted)
+                .addMapping("type", "field", "type=long,doc_values=false").get());
+        assertThat(e.getMessage(), containsString("without doc values"));
+        e = expectThrows(IllegalArgumentException.class, () ->
+            client().admin().indices().prepareCreate("test5").setSettings(sorted).addMapping("type", "other", "type=long").get());
+        assertThat(e.getMessage(), containsString("index sort field [field] of index [test5] must be mapped when the index is created"));
+        assertFalse(client().admin().indices().prepareExists("test3", "test4", "test5").get().isExists());
+
+        CompressedXContent textMapping = new CompressedXContent(XContentFactory.jsonBuilder().startObject()
+                .startObject("properties")
+                    .startObject("field")
+                        .field("type", "text")
+                    .endObject()
+                .endObject().endObject().bytes());
+        MapperService mapperService = createIndex("test6", sorted).mapperService();
+        e = expectThrows(IllegalArgumentException.class,
+                () -> mapperService.merge("type", textMapping, MergeReason.MAPPING_UPDATE, false));
+        assertThat(e.getMessage(), containsString("index sort field [field] of index [test6] must be a numeric or date field"));
+        assertNull(mapperService.fullName("field"));
+    }
+
     public void testUnmappedFieldType() {
         MapperService mapperService = createIndex("index").mapperService();
         assertThat(mapperService.unmappedFieldType("keyword"), instanceOf(KeywordFieldType.class));
@@ -84,6 +84,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 /**
  *
@@ -319,8 +320,12 @@ public class TranslogTests extends ESTestCase {
         total.add(stats);
         assertThat(stats.estimatedNumberOfOperations(), equalTo(0L));
         assertThat(stats.getTranslogSizeInBytes(), equalTo(firstOperationPosition));
+        assertThat(stats.getSyncCount(), equalTo(3L));
+        assertThat(stats.getSyncedOperations(), equalTo(3L));
         assertEquals(6, total.estimatedNumberOfOperations());
-        assertEquals(431, total.getTranslogSizeInBytes());
+        assertEquals(455, total.getTranslogSizeInBytes());
+        assertEquals(9, total.getSyncCount());
+        assertEquals(9, total.getSyncedOperations());
 
         BytesStreamOutput out = new BytesStreamOutput();
         total.writeTo(out);
@@ -328,10 +333,17 @@ public class TranslogTests extends ESTestCase {
         copy.readFrom(StreamInput.wrap(out.bytes()));
 
         assertEquals(6, copy.estimatedNumberOfOperations());
-        assertEquals(431, copy.getTranslogSizeInBytes());
+        assertEquals(455, copy.getTranslogSizeInBytes());
+        assertEquals(9, copy.getSyncCount());
+        assertEquals(9, copy.getSyncedOperations());
+        assertEquals(1.0d, copy.getOperationsPerSync(), 0.0d);
         assertEquals("\"translog\"{\n" +
                 "  \"operations\" : 6,\n" +
-                "  \"size_in_bytes\" : 431\n" +
+                "  \"size_in_bytes\" : 455,\n" +
+                "  \"sync\" : {\n" +
+                "    \"total\" : 9,\n" +
+                "    \"operations\" : 9\n" +
+                "  }\n" +
                 "}", copy.toString().trim());
 
         try {
@@ -346,6 +358,18 @@ public class TranslogTests extends ESTestCase {
         } catch (IllegalArgumentException ex) {
             //all well
         }
+        try {
+            new TranslogStats(1, 1, -1, 1);
+            fail("must be positive");
+        } catch (IllegalArgumentException ex) {
+            //all well
+        }
+        try {
+            new TranslogStats(1, 1, 1, -1);
+            fail("must be positive");
+        } catch (IllegalArgumentException ex) {
+            //all well
+        }
     }
 
     public void testSnapshot() throws IOException {
@@ -780,6 +804,45 @@ public class TranslogTests extends ESTestCase {
         }
     }
 
+    public void testConcurrentSyncUpTo() throws Throwable {
+        final int threadCount = randomIntBetween(2, 8);
+        final int opsPerThread = randomIntBetween(10, 100);
+        final Thread[] threads = new Thread[threadCount];
+        final Throwable[] threadExceptions = new Throwable[threadCount];
+        final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            final int threadId = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    barrier.await();
+                    for (int op = 0; op < opsPerThread; op++) {
+                        final Translog.Location location = translog.add(new Translog.Index("test", threadId + "_" + op,
+                                Integer.toString(op).getBytes(Charset.forName("UTF-8"))));
+                        translog.ensureSynced(location);
+                        assertFalse("location must be synced", translog.ensureSynced(location));
+                    }
+                } catch (Throwable t) {
+                    threadExceptions[threadId] = t;
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Throwable t : threadExceptions) {
+            if (t != null) {
+                throw t;
+            }
+        }
+        assertFalse(translog.syncNeeded());
+        TranslogStats stats = translog.stats();
+        assertEquals(threadCount * opsPerThread, stats.getSyncedOperations());
+        assertThat(stats.getSyncCount(), greaterThan(0L));
+        assertThat(stats.getSyncCount(), lessThanOrEqualTo((long) threadCount * opsPerThread));
+        assertThat(stats.getOperationsPerSync(), greaterThanOrEqualTo(1.0d));
+    }
+
     public void testLocationComparison() throws IOException {
         List<Translog.Location> locations = new ArrayList<>();
         int translogOperations = randomIntBetween(10, 100);
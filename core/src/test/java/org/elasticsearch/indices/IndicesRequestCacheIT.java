@@ -23,6 +23,7 @@ import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram.Bucket;
@@ -354,4 +355,68 @@ public class IndicesRequestCacheIT extends ESIntegTestCase {
                 equalTo(0L));
     }
 
+    public void testCacheRoundedNow() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index").addMapping("type", "d", "type=date")
+                .setSettings(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true, IndexMetaData.SETTING_NUMBER_OF_SHARDS,
+                        1, IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                .get());
+        DateTime now = new DateTime(ISOChronology.getInstanceUTC());
+        indexRandom(true, client().prepareIndex("index", "type", "1").setSource("d", now.minusYears(2)),
+                client().prepareIndex("index", "type", "2").setSource("d", now.minusYears(3)),
+                client().prepareIndex("index", "type", "3").setSource("d", now.minusYears(4)));
+        ensureSearchable("index");
+
+        // the range intersects the values of the shard so it is not rewritten and still uses now, but only rounded
+        for (int i = 0; i < 3; ++i) {
+            final SearchResponse r = client().prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(0)
+                    .setQuery(QueryBuilders.rangeQuery("d").gte("now-3y/y").lte("now/y")).get();
+            assertSearchResponse(r);
+            assertThat(r.getHits().getTotalHits(), greaterThan(0L));
+        }
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getHitCount(),
+                equalTo(2L));
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getMissCount(),
+                equalTo(1L));
+
+        // unrounded now is still not cached
+        final SearchResponse r = client().prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(0)
+                .setQuery(QueryBuilders.rangeQuery("d").gte("now-3y/y").lte("now")).get();
+        assertSearchResponse(r);
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getHitCount(),
+                equalTo(2L));
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getMissCount(),
+                equalTo(1L));
+    }
+
+    public void testCacheHitsOnlyIfRequested() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index").addMapping("type", "s", "type=keyword")
+                .setSettings(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true, IndexMetaData.SETTING_NUMBER_OF_SHARDS,
+                        1, IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                .get());
+        indexRandom(true, client().prepareIndex("index", "type", "1").setSource("s", "a"),
+                client().prepareIndex("index", "type", "2").setSource("s", "b"),
+                client().prepareIndex("index", "type", "3").setSource("s", "a"));
+        ensureSearchable("index");
+
+        // the index setting doesn't enable caching requests that return hits
+        SearchResponse r = client().prepareSearch("index").setSize(10).setQuery(QueryBuilders.termQuery("s", "a")).get();
+        assertSearchResponse(r);
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getMissCount(),
+                equalTo(0L));
+
+        for (int i = 0; i < 3; ++i) {
+            r = client().prepareSearch("index").setSize(10).setRequestCache(true).setQuery(QueryBuilders.termQuery("s", "a")).get();
+            assertSearchResponse(r);
+            assertThat(r.getHits().getTotalHits(), equalTo(2L));
+            assertThat(r.getHits().getHits().length, equalTo(2));
+            for (SearchHit hit : r.getHits().getHits()) {
+                assertThat(hit.getSource().get("s"), equalTo("a"));
+            }
+        }
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getHitCount(),
+                equalTo(2L));
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getMissCount(),
+                equalTo(1L));
+    }
+
 }
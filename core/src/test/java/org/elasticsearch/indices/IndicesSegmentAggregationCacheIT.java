@@ -0,0 +1,112 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.range.Range;
+import org.elasticsearch.search.aggregations.metrics.cardinality.Cardinality;
+import org.elasticsearch.search.aggregations.metrics.stats.Stats;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.search.aggregations.AggregationBuilders.cardinality;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.histogram;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.range;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.stats;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+
+public class IndicesSegmentAggregationCacheIT extends ESIntegTestCase {
+
+    public void testSameResultsAcrossRefreshes() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index").addMapping("type", "value", "type=long", "tag", "type=keyword")
+                .setSettings(IndicesSegmentAggregationCache.INDEX_CACHE_SEGMENT_AGGREGATIONS_ENABLED_SETTING.getKey(), true,
+                        IndexMetaData.SETTING_NUMBER_OF_SHARDS, between(1, 3), IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0,
+                        "index.refresh_interval", -1)
+                .get());
+        ensureGreen("index");
+
+        int id = 0;
+        final int rounds = between(2, 5);
+        for (int round = 0; round < rounds; ++round) {
+            List<IndexRequestBuilder> docs = new ArrayList<>();
+            for (int i = between(1, 50); i > 0; --i) {
+                docs.add(client().prepareIndex("index", "type", Integer.toString(id++))
+                        .setSource("value", randomIntBetween(0, 100), "tag", randomFrom("a", "b", "c")));
+            }
+            indexRandom(false, false, docs);
+            if (randomBoolean() && id > 0) {
+                client().prepareDelete("index", "type", Integer.toString(randomInt(id - 1))).get();
+            }
+            refresh("index");
+
+            final SearchResponse expected = search(false);
+            for (int i = 0; i < 2; ++i) {
+                final SearchResponse actual = search(true);
+                assertThat(actual.getHits().getTotalHits(), equalTo(expected.getHits().getTotalHits()));
+
+                Histogram expectedHistogram = expected.getAggregations().get("histo");
+                Histogram actualHistogram = actual.getAggregations().get("histo");
+                assertThat(actualHistogram.getBuckets().size(), equalTo(expectedHistogram.getBuckets().size()));
+                for (int j = 0; j < expectedHistogram.getBuckets().size(); ++j) {
+                    Histogram.Bucket expectedBucket = expectedHistogram.getBuckets().get(j);
+                    Histogram.Bucket actualBucket = actualHistogram.getBuckets().get(j);
+                    assertThat(actualBucket.getKey(), equalTo(expectedBucket.getKey()));
+                    assertThat(actualBucket.getDocCount(), equalTo(expectedBucket.getDocCount()));
+                    Stats expectedStats = expectedBucket.getAggregations().get("stats");
+                    Stats actualStats = actualBucket.getAggregations().get("stats");
+                    assertThat(actualStats.getCount(), equalTo(expectedStats.getCount()));
+                    assertThat(actualStats.getMin(), equalTo(expectedStats.getMin()));
+                    assertThat(actualStats.getMax(), equalTo(expectedStats.getMax()));
+                    assertEquals(expectedStats.getSum(), actualStats.getSum(), 0d);
+                }
+
+                Range expectedRange = expected.getAggregations().get("range");
+                Range actualRange = actual.getAggregations().get("range");
+                for (int j = 0; j < expectedRange.getBuckets().size(); ++j) {
+                    assertThat(actualRange.getBuckets().get(j).getDocCount(), equalTo(expectedRange.getBuckets().get(j).getDocCount()));
+                }
+
+                Cardinality expectedCardinality = expected.getAggregations().get("tags");
+                Cardinality actualCardinality = actual.getAggregations().get("tags");
+                assertThat(actualCardinality.getValue(), equalTo(expectedCardinality.getValue()));
+            }
+        }
+    }
+
+    private SearchResponse search(boolean requestCache) {
+        SearchResponse response = client().prepareSearch("index").setSize(0).setRequestCache(requestCache)
+                .setQuery(QueryBuilders.rangeQuery("value").gte(10))
+                .addAggregation(histogram("histo").field("value").interval(10).minDocCount(0)
+                        .subAggregation(stats("stats").field("value")))
+                .addAggregation(range("range").field("value").addUnboundedTo(50).addUnboundedFrom(50))
+                .addAggregation(cardinality("tags").field("tag"))
+                .get();
+        assertSearchResponse(response);
+        return response;
+    }
+}
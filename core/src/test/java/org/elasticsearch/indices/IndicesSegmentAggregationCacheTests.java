@@ -0,0 +1,122 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IndicesSegmentAggregationCacheTests extends ESTestCase {
+
+    private static final Object SHARD = new Object();
+
+    public void testSegmentsAreReusedAcrossRefreshes() throws Exception {
+        IndicesSegmentAggregationCache cache = new IndicesSegmentAggregationCache(Settings.EMPTY);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+        BytesReference requestKey = new BytesArray("request");
+        Query query = new MatchAllDocsQuery();
+
+        writer.addDocument(newDoc(0));
+        DirectoryReader reader = DirectoryReader.open(writer);
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals(1, loadAll(cache, reader, query, requestKey, loads));
+        assertEquals(1, cache.count());
+        assertEquals(1, loadAll(cache, reader, query, requestKey, loads));
+        assertEquals(1, cache.count());
+
+        // a refresh that adds a segment only computes the new segment
+        writer.addDocument(newDoc(1));
+        DirectoryReader reader2 = DirectoryReader.openIfChanged(reader);
+        assertEquals(2, reader2.leaves().size());
+        assertEquals(2, loadAll(cache, reader2, query, requestKey, loads));
+        assertEquals(2, cache.count());
+
+        // other queries or requests don't share entries
+        assertEquals(4, loadAll(cache, reader2, new TermQuery(new Term("id", "0")), requestKey, loads));
+        assertEquals(6, loadAll(cache, reader2, query, new BytesArray("other_request"), loads));
+        assertEquals(6, cache.count());
+
+        // deletes invalidate the entries of the segment
+        writer.deleteDocuments(new Term("id", "0"));
+        DirectoryReader reader3 = DirectoryReader.openIfChanged(reader2);
+        assertEquals(7, loadAll(cache, reader3, query, requestKey, loads));
+        assertEquals(7, cache.count());
+
+        // entries of closed segments get removed
+        IOUtils.close(reader, reader2, reader3, writer, dir);
+        cache.cleanCache();
+        assertEquals(0, cache.count());
+        cache.close();
+    }
+
+    public void testClear() throws Exception {
+        IndicesSegmentAggregationCache cache = new IndicesSegmentAggregationCache(Settings.EMPTY);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+        writer.addDocument(newDoc(0));
+        DirectoryReader reader = DirectoryReader.open(writer);
+        AtomicInteger loads = new AtomicInteger();
+        loadAll(cache, reader, new MatchAllDocsQuery(), new BytesArray("request"), loads);
+        assertEquals(1, cache.count());
+
+        cache.clear(new Object());
+        assertEquals(1, cache.count());
+        cache.clear(SHARD);
+        assertEquals(0, cache.count());
+
+        IOUtils.close(reader, writer, dir, cache);
+    }
+
+    private static int loadAll(IndicesSegmentAggregationCache cache, DirectoryReader reader, Query query, BytesReference requestKey,
+                               AtomicInteger loads) throws Exception {
+        for (LeafReaderContext leaf : reader.leaves()) {
+            final int ord = leaf.ord;
+            BytesReference value = cache.getOrCompute(SHARD, leaf.reader(), query, requestKey, () -> {
+                loads.incrementAndGet();
+                return new BytesArray("segment" + ord);
+            });
+            assertEquals("segment" + ord, value.toUtf8());
+        }
+        return loads.get();
+    }
+
+    private static Document newDoc(int id) {
+        Document doc = new Document();
+        doc.add(new StringField("id", Integer.toString(id), Field.Store.NO));
+        return doc;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.node;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.DummyTransportAddress;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.cluster.service.ClusterServiceUtils.createClusterService;
+import static org.elasticsearch.cluster.service.ClusterServiceUtils.setState;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ResponseCollectorServiceTests extends ESTestCase {
+
+    private ThreadPool threadPool;
+    private ClusterService clusterService;
+    private ResponseCollectorService collector;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        threadPool = new ThreadPool("ResponseCollectorServiceTests");
+        clusterService = createClusterService(threadPool);
+        collector = new ResponseCollectorService(Settings.EMPTY, clusterService);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        clusterService.close();
+        ThreadPool.terminate(threadPool, 30, TimeUnit.SECONDS);
+        threadPool = null;
+    }
+
+    public void testNodeStats() {
+        assertThat(collector.getNodeStatistics("node1"), nullValue());
+        assertThat(collector.rank("node1", 0), nullValue());
+
+        collector.addNodeStatistics("node1", 4, 200, 100);
+        ResponseCollectorService.NodeStatistics stats = collector.getNodeStatistics("node1");
+        assertThat(stats, notNullValue());
+        // the averages start at the first response
+        assertThat(stats.getQueueSize(), equalTo(4.0));
+        assertThat(stats.getResponseTime(), equalTo(200.0));
+        assertThat(stats.getServiceTime(), equalTo(100.0));
+
+        collector.addNodeStatistics("node1", 14, 300, 200);
+        final double alpha = ResponseCollectorService.ALPHA;
+        assertThat(stats.getQueueSize(), closeTo(alpha * 14 + (1 - alpha) * 4, 0.001));
+        assertThat(stats.getResponseTime(), closeTo(alpha * 300 + (1 - alpha) * 200, 0.001));
+        assertThat(stats.getServiceTime(), closeTo(alpha * 200 + (1 - alpha) * 100, 0.001));
+        assertThat(collector.getNodeStatistics("node2"), nullValue());
+    }
+
+    public void testOutstandingRequests() {
+        assertThat(collector.getOutstandingRequests("node1"), equalTo(0L));
+        collector.onRequestSent("node1");
+        collector.onRequestSent("node1");
+        collector.onRequestSent("node2");
+        assertThat(collector.getOutstandingRequests("node1"), equalTo(2L));
+        assertThat(collector.getOutstandingRequests("node2"), equalTo(1L));
+        collector.onRequestDone("node1");
+        collector.onRequestDone("node2");
+        assertThat(collector.getOutstandingRequests("node1"), equalTo(1L));
+        assertThat(collector.getOutstandingRequests("node2"), equalTo(0L));
+        // done without sent, e.g. when the node was removed in-between, is ignored
+        collector.onRequestDone("node3");
+        assertThat(collector.getOutstandingRequests("node3"), equalTo(0L));
+    }
+
+    public void testRank() {
+        collector.addNodeStatistics("fast", 0, 1000, 800);
+        collector.addNodeStatistics("slow", 0, 10000, 8000);
+        collector.addNodeStatistics("busy", 20, 1000, 800);
+        assertThat(collector.rank("fast", 0), lessThan(collector.rank("slow", 0)));
+        assertThat(collector.rank("fast", 0), lessThan(collector.rank("busy", 0)));
+        // requests that are in flight or about to be sent make a node look busier
+        final double rank = collector.rank("fast", 0);
+        assertThat(collector.rank("fast", 1), greaterThan(rank));
+        collector.onRequestSent("fast");
+        assertThat(collector.rank("fast", 0), greaterThan(rank));
+        collector.onRequestDone("fast");
+        assertThat(collector.rank("fast", 0), equalTo(rank));
+    }
+
+    public void testRemovesStatsOfRemovedNodes() {
+        final DiscoveryNode node = new DiscoveryNode("node1", DummyTransportAddress.INSTANCE, Collections.emptyMap(),
+            Collections.singleton(DiscoveryNode.Role.DATA), Version.CURRENT);
+        setState(clusterService, ClusterState.builder(clusterService.state())
+            .nodes(DiscoveryNodes.builder(clusterService.state().nodes()).put(node)));
+        collector.addNodeStatistics("node1", 1, 100, 50);
+        collector.onRequestSent("node1");
+        collector.addNodeStatistics(clusterService.localNode().getId(), 1, 100, 50);
+
+        setState(clusterService, ClusterState.builder(clusterService.state())
+            .nodes(DiscoveryNodes.builder(clusterService.state().nodes()).remove("node1")));
+        assertThat(collector.getNodeStatistics("node1"), nullValue());
+        assertThat(collector.getOutstandingRequests("node1"), equalTo(0L));
+        assertThat(collector.getNodeStatistics(clusterService.localNode().getId()), notNullValue());
+    }
+}
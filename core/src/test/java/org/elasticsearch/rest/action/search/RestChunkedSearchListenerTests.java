@@ -0,0 +1,70 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.rest.action.search;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.elasticsearch.search.internal.InternalSearchHits;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.rest.FakeRestChannel;
+import org.elasticsearch.test.rest.FakeRestRequest;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RestChunkedSearchListenerTests extends ESTestCase {
+
+    public void testSameContentAsToXContent() throws Exception {
+        final int numHits = between(0, 20);
+        InternalSearchHit[] hits = new InternalSearchHit[numHits];
+        for (int i = 0; i < numHits; i++) {
+            hits[i] = new InternalSearchHit(i, Integer.toString(i), new Text("type"), Collections.emptyMap());
+            hits[i].score(randomFloat());
+        }
+        InternalSearchResponse internalResponse = new InternalSearchResponse(new InternalSearchHits(hits, numHits, 1f), null, null,
+            null, false, randomBoolean() ? null : randomBoolean());
+        SearchResponse response = new SearchResponse(internalResponse, randomBoolean() ? null : "scroll_id", 5, 5, randomInt(100),
+            ShardSearchFailure.EMPTY_ARRAY);
+
+        Map<String, String> params = new HashMap<>();
+        if (randomBoolean()) {
+            params.put("pretty", "true");
+        }
+        if (randomBoolean()) {
+            params.put("format", randomFrom("json", "yaml", "smile", "cbor"));
+        }
+        FakeRestRequest request = new FakeRestRequest(Collections.emptyMap(), params);
+        FakeRestChannel channel = new FakeRestChannel(request, randomBoolean(), 1);
+
+        RestResponse chunkedResponse = new RestChunkedSearchListener(channel).buildResponse(response);
+        XContentBuilder builder = channel.newBuilder();
+        builder.startObject();
+        response.toXContent(builder, request);
+        builder.endObject();
+        assertEquals(builder.bytes(), chunkedResponse.content());
+        assertEquals(builder.contentType().mediaType(), chunkedResponse.contentType());
+        assertEquals(response.status(), chunkedResponse.status());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search;
+
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksResponse;
+import org.elasticsearch.action.admin.cluster.node.tasks.list.ListTasksResponse;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollAction;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.script.AbstractSearchScript;
+import org.elasticsearch.script.ExecutableScript;
+import org.elasticsearch.script.NativeScriptFactory;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptModule;
+import org.elasticsearch.script.ScriptService.ScriptType;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.elasticsearch.index.query.QueryBuilders.scriptQuery;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+
+@ESIntegTestCase.ClusterScope(scope = ESIntegTestCase.Scope.TEST)
+public class SearchCancellationIT extends ESIntegTestCase {
+
+    @Override
+    protected Collection<Class<? extends Plugin>> nodePlugins() {
+        return Collections.singleton(BlockingScriptPlugin.class);
+    }
+
+    private void indexTestData() {
+        List<IndexRequestBuilder> builders = new ArrayList<>();
+        int numDocs = scaledRandomIntBetween(10, 50);
+        for (int i = 0; i < numDocs; i++) {
+            builders.add(client().prepareIndex("test", "type", Integer.toString(i)).setSource("field", "value" + i));
+        }
+        indexRandom(true, builders);
+    }
+
+    private void awaitForBlock() throws Exception {
+        assertBusy(() -> assertThat(BlockingScript.HITS.get(), greaterThan(0)));
+    }
+
+    private void cancelSearch(String action) {
+        ListTasksResponse listTasksResponse = client().admin().cluster().prepareListTasks().setActions(action).get();
+        assertThat(listTasksResponse.getTasks(), hasSize(1));
+        CancelTasksResponse cancelTasksResponse = client().admin().cluster().prepareCancelTasks().setActions(action).get();
+        assertThat(cancelTasksResponse.getTasks(), hasSize(1));
+        assertEquals(listTasksResponse.getTasks().get(0).getTaskId(), cancelTasksResponse.getTasks().get(0).getTaskId());
+    }
+
+    private void ensureSearchWasCancelled(ListenableActionFuture<SearchResponse> searchResponse) {
+        try {
+            SearchResponse response = searchResponse.actionGet();
+            logger.info("Search response {}", response);
+            assertThat("At least one shard should have failed", response.getFailedShards(), greaterThan(0));
+        } catch (SearchPhaseExecutionException ex) {
+            logger.info("All shards failed with", ex);
+        }
+    }
+
+    public void testCancellationDuringQueryPhase() throws Exception {
+        createIndex("test");
+        indexTestData();
+        BlockingScript.block();
+
+        logger.info("Executing search");
+        ListenableActionFuture<SearchResponse> searchResponse = client().prepareSearch("test")
+            .setQuery(scriptQuery(new Script(BlockingScript.NAME, ScriptType.INLINE, "native", null)))
+            .execute();
+
+        awaitForBlock();
+        cancelSearch(SearchAction.NAME);
+        BlockingScript.unblock();
+        ensureSearchWasCancelled(searchResponse);
+    }
+
+    public void testCancellationOfScrollSearchesOnFollowupRequests() throws Exception {
+        createIndex("test");
+        indexTestData();
+        BlockingScript.unblock();
+        TimeValue keepAlive = TimeValue.timeValueSeconds(5);
+
+        SearchResponse searchResponse = client().prepareSearch("test")
+            .setScroll(keepAlive)
+            .setSize(2)
+            .setQuery(scriptQuery(new Script(BlockingScript.NAME, ScriptType.INLINE, "native", null)))
+            .get();
+        assertNotNull(searchResponse.getScrollId());
+
+        BlockingScript.block();
+        String scrollId = searchResponse.getScrollId();
+        logger.info("Executing scroll with id {}", scrollId);
+        ListenableActionFuture<SearchResponse> scrollResponse = client().prepareSearchScroll(scrollId).setScroll(keepAlive).execute();
+
+        awaitForBlock();
+        cancelSearch(SearchScrollAction.NAME);
+        BlockingScript.unblock();
+        ensureSearchWasCancelled(scrollResponse);
+
+        client().prepareClearScroll().addScrollId(scrollId).get();
+    }
+
+    public static class BlockingScriptPlugin extends Plugin {
+        @Override
+        public String name() {
+            return "test-blocking-script";
+        }
+
+        @Override
+        public String description() {
+            return "installs a script that blocks searches for testing cancellation";
+        }
+
+        public void onModule(ScriptModule module) {
+            module.registerScript(BlockingScript.NAME, BlockingScript.Factory.class);
+        }
+    }
+
+    /**
+     * Matches all documents, but blocks on every document while {@link #block()} is in effect.
+     */
+    public static class BlockingScript extends AbstractSearchScript {
+
+        public static final String NAME = "native_test_blocking_script";
+
+        static final AtomicInteger HITS = new AtomicInteger();
+
+        private static volatile boolean shouldBlock;
+
+        static void block() {
+            HITS.set(0);
+            shouldBlock = true;
+        }
+
+        static void unblock() {
+            shouldBlock = false;
+        }
+
+        public static class Factory implements NativeScriptFactory {
+
+            @Override
+            public ExecutableScript newScript(Map<String, Object> params) {
+                return new BlockingScript();
+            }
+
+            @Override
+            public boolean needsScores() {
+                return false;
+            }
+        }
+
+        @Override
+        public Object run() {
+            HITS.incrementAndGet();
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (shouldBlock && System.nanoTime() < deadline) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return true;
+        }
+    }
+}
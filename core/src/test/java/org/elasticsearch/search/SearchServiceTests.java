@@ -20,11 +20,19 @@ package org.elasticsearch.search;
 
 
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.MatchNoneQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
 import java.util.concurrent.ExecutionException;
 
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 
@@ -70,4 +78,64 @@ public class SearchServiceTests extends ESSingleNodeTestCase {
         assertAcked(client().admin().indices().prepareDelete("index"));
         assertEquals(0, service.getActiveContexts());
     }
+
+    public void testCanRewriteToMatchNone() {
+        assertFalse(SearchService.canRewriteToMatchNone(null));
+        assertFalse(SearchService.canRewriteToMatchNone(new SearchSourceBuilder()));
+        assertFalse(SearchService.canRewriteToMatchNone(new SearchSourceBuilder().query(QueryBuilders.matchAllQuery())));
+        assertTrue(SearchService.canRewriteToMatchNone(new SearchSourceBuilder().query(new MatchNoneQueryBuilder())));
+        assertTrue(SearchService.canRewriteToMatchNone(new SearchSourceBuilder()
+            .query(QueryBuilders.boolQuery().should(QueryBuilders.matchAllQuery()).filter(new MatchNoneQueryBuilder()))));
+        assertFalse(SearchService.canRewriteToMatchNone(new SearchSourceBuilder()
+            .query(QueryBuilders.boolQuery().should(QueryBuilders.matchAllQuery()).should(new MatchNoneQueryBuilder()))));
+        assertTrue(SearchService.canRewriteToMatchNone(new SearchSourceBuilder()
+            .query(QueryBuilders.constantScoreQuery(new MatchNoneQueryBuilder()))));
+        assertTrue(SearchService.canRewriteToMatchNone(new SearchSourceBuilder().query(new MatchNoneQueryBuilder())
+            .aggregation(AggregationBuilders.terms("terms").field("field").minDocCount(1))));
+        assertFalse(SearchService.canRewriteToMatchNone(new SearchSourceBuilder().query(new MatchNoneQueryBuilder())
+            .aggregation(AggregationBuilders.terms("terms").field("field").minDocCount(0))));
+        assertFalse(SearchService.canRewriteToMatchNone(new SearchSourceBuilder().query(new MatchNoneQueryBuilder())
+            .aggregation(AggregationBuilders.global("global"))));
+        assertTrue(SearchService.canRewriteToMatchNone(new SearchSourceBuilder().query(new MatchNoneQueryBuilder())
+            .aggregation(AggregationBuilders.histogram("histo").field("field").interval(1).minDocCount(1)
+                .subAggregation(AggregationBuilders.avg("avg").field("field")))));
+        assertFalse(SearchService.canRewriteToMatchNone(new SearchSourceBuilder().query(new MatchNoneQueryBuilder())
+            .aggregation(AggregationBuilders.histogram("histo").field("field").interval(1).minDocCount(0))));
+        assertFalse(SearchService.canRewriteToMatchNone(new SearchSourceBuilder().query(new MatchNoneQueryBuilder())
+            .aggregation(AggregationBuilders.dateHistogram("histo").field("field").interval(1).minDocCount(0))));
+        assertFalse(SearchService.canRewriteToMatchNone(new SearchSourceBuilder().query(new MatchNoneQueryBuilder())
+            .aggregation(AggregationBuilders.missing("missing").field("field"))));
+        assertFalse(SearchService.canRewriteToMatchNone(new SearchSourceBuilder().query(new MatchNoneQueryBuilder())
+            .aggregation(AggregationBuilders.terms("terms").field("field").minDocCount(1)
+                .subAggregation(AggregationBuilders.missing("missing").field("field")))));
+    }
+
+    public void testPreFilterSkipsShards() {
+        final String[] dates = new String[] {"2016-01-01", "2016-03-01", "2016-05-01"};
+        for (int i = 0; i < dates.length; i++) {
+            createIndex("index" + i, Settings.builder().put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1).build(),
+                "type", "date", "type=date");
+            client().prepareIndex("index" + i, "type", "1").setSource("date", dates[i]).setRefresh(true).get();
+        }
+
+        SearchResponse response = client().prepareSearch("index*").setPreFilterShardSize(1)
+            .setQuery(QueryBuilders.rangeQuery("date").gte("2016-02-01").lte("2016-04-01")).get();
+        assertHitCount(response, 1);
+        assertThat(response.getTotalShards(), equalTo(3));
+        assertThat(response.getSuccessfulShards(), equalTo(3));
+        assertThat(response.getSkippedShards(), equalTo(2));
+
+        // one shard is still searched if none can match
+        response = client().prepareSearch("index*").setPreFilterShardSize(1)
+            .setQuery(QueryBuilders.rangeQuery("date").gte("2017-01-01")).get();
+        assertHitCount(response, 0);
+        assertThat(response.getSuccessfulShards(), equalTo(3));
+        assertThat(response.getSkippedShards(), equalTo(2));
+
+        // no pre-filter round below the threshold
+        response = client().prepareSearch("index*")
+            .setQuery(QueryBuilders.rangeQuery("date").gte("2016-02-01").lte("2016-04-01")).get();
+        assertHitCount(response, 1);
+        assertThat(response.getSkippedShards(), equalTo(0));
+    }
 }
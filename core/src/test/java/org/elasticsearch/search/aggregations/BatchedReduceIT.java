@@ -0,0 +1,193 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.tophits.TopHits;
+import org.elasticsearch.search.aggregations.pipeline.SimpleValue;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.histogram;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.topHits;
+import static org.elasticsearch.search.aggregations.pipeline.PipelineAggregatorBuilders.derivative;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Checks that reducing the aggregations of shard results in several batches gives the same results as reducing them at once.
+ */
+@ESIntegTestCase.SuiteScopeTestCase
+public class BatchedReduceIT extends ESIntegTestCase {
+
+    private static final int NUM_SHARDS = 5;
+
+    @Override
+    public void setupSuiteScopeCluster() throws Exception {
+        assertAcked(prepareCreate("idx")
+            .setSettings(Settings.builder().put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, NUM_SHARDS))
+            .addMapping("type", "term", "type=keyword", "value", "type=long"));
+        List<IndexRequestBuilder> builders = new ArrayList<>();
+        int numDocs = between(50, 200);
+        int numTerms = between(5, 50);
+        for (int i = 0; i < numDocs; i++) {
+            builders.add(client().prepareIndex("idx", "type", Integer.toString(i)).setSource(jsonBuilder()
+                .startObject()
+                .field("term", "term" + randomInt(numTerms))
+                .field("value", randomInt(100))
+                .endObject()));
+        }
+        indexRandom(true, builders);
+        ensureSearchable();
+    }
+
+    private SearchRequestBuilder search(boolean batched) {
+        SearchRequestBuilder builder = client().prepareSearch("idx").setSize(0);
+        if (batched) {
+            builder.setBatchedReduceSize(2);
+        }
+        return builder;
+    }
+
+    public void testTerms() {
+        int size = randomIntBetween(1, 10);
+        int shardSize = randomIntBetween(size, size * 2);
+        SearchResponse accurateResponse = search(false)
+            .addAggregation(terms("terms").field("term").showTermDocCountError(true).size(0).shardSize(0)).get();
+        assertSearchResponse(accurateResponse);
+        SearchResponse response = search(true)
+            .addAggregation(terms("terms").field("term").showTermDocCountError(true).size(size).shardSize(shardSize)).get();
+        assertSearchResponse(response);
+
+        Terms accurateTerms = accurateResponse.getAggregations().get("terms");
+        Terms terms = response.getAggregations().get("terms");
+        assertThat(terms.getBuckets().size(), lessThanOrEqualTo(size));
+        assertThat(terms.getDocCountError(), greaterThanOrEqualTo(0L));
+        for (Terms.Bucket bucket : terms.getBuckets()) {
+            Terms.Bucket accurateBucket = accurateTerms.getBucketByKey(bucket.getKeyAsString());
+            assertThat(accurateBucket, notNullValue());
+            assertThat(bucket.getDocCountError(), lessThanOrEqualTo(terms.getDocCountError()));
+            assertThat(bucket.getDocCount() + bucket.getDocCountError(), greaterThanOrEqualTo(accurateBucket.getDocCount()));
+            assertThat(bucket.getDocCount() - bucket.getDocCountError(), lessThanOrEqualTo(accurateBucket.getDocCount()));
+        }
+        for (Terms.Bucket accurateBucket : accurateTerms.getBuckets()) {
+            if (terms.getBucketByKey(accurateBucket.getKeyAsString()) == null) {
+                assertThat(accurateBucket.getDocCount(), lessThanOrEqualTo(terms.getDocCountError()));
+            }
+        }
+    }
+
+    public void testTermsOrderedByTerm() {
+        // partial reduces trim terms like shards do, which is exact when terms are sorted by term
+        int size = randomIntBetween(1, 10);
+        SearchResponse expectedResponse = search(false)
+            .addAggregation(terms("terms").field("term").order(Terms.Order.term(true)).size(size).shardSize(size)).get();
+        assertSearchResponse(expectedResponse);
+        SearchResponse response = search(true)
+            .addAggregation(terms("terms").field("term").order(Terms.Order.term(true)).size(size).shardSize(size)).get();
+        assertSearchResponse(response);
+
+        List<Terms.Bucket> expectedBuckets = ((Terms) expectedResponse.getAggregations().get("terms")).getBuckets();
+        List<Terms.Bucket> buckets = ((Terms) response.getAggregations().get("terms")).getBuckets();
+        assertThat(buckets.size(), equalTo(expectedBuckets.size()));
+        for (int i = 0; i < buckets.size(); i++) {
+            assertThat(buckets.get(i).getKeyAsString(), equalTo(expectedBuckets.get(i).getKeyAsString()));
+            assertThat(buckets.get(i).getDocCount(), equalTo(expectedBuckets.get(i).getDocCount()));
+        }
+        assertThat(((Terms) response.getAggregations().get("terms")).getDocCountError(), equalTo(0L));
+    }
+
+    public void testHistogramWithMinDocCount() {
+        long minDocCount = randomIntBetween(1, 5);
+        SearchResponse expectedResponse = search(false)
+            .addAggregation(histogram("histo").field("value").interval(10).minDocCount(minDocCount)).get();
+        assertSearchResponse(expectedResponse);
+        SearchResponse response = search(true)
+            .addAggregation(histogram("histo").field("value").interval(10).minDocCount(minDocCount)).get();
+        assertSearchResponse(response);
+
+        List<? extends Histogram.Bucket> expectedBuckets = ((Histogram) expectedResponse.getAggregations().get("histo")).getBuckets();
+        List<? extends Histogram.Bucket> buckets = ((Histogram) response.getAggregations().get("histo")).getBuckets();
+        assertThat(buckets.size(), equalTo(expectedBuckets.size()));
+        for (int i = 0; i < buckets.size(); i++) {
+            assertThat(buckets.get(i).getKey(), equalTo(expectedBuckets.get(i).getKey()));
+            assertThat(buckets.get(i).getDocCount(), equalTo(expectedBuckets.get(i).getDocCount()));
+        }
+    }
+
+    public void testPipelineAggregationsRunOnce() {
+        SearchResponse expectedResponse = search(false)
+            .addAggregation(histogram("histo").field("value").interval(10).minDocCount(0)
+                .subAggregation(derivative("deriv", "_count"))).get();
+        assertSearchResponse(expectedResponse);
+        SearchResponse response = search(true)
+            .addAggregation(histogram("histo").field("value").interval(10).minDocCount(0)
+                .subAggregation(derivative("deriv", "_count"))).get();
+        assertSearchResponse(response);
+
+        List<? extends Histogram.Bucket> expectedBuckets = ((Histogram) expectedResponse.getAggregations().get("histo")).getBuckets();
+        List<? extends Histogram.Bucket> buckets = ((Histogram) response.getAggregations().get("histo")).getBuckets();
+        assertThat(buckets.size(), equalTo(expectedBuckets.size()));
+        for (int i = 0; i < buckets.size(); i++) {
+            SimpleValue expectedDerivative = expectedBuckets.get(i).getAggregations().get("deriv");
+            SimpleValue derivative = buckets.get(i).getAggregations().get("deriv");
+            if (expectedDerivative == null) {
+                assertThat(derivative, nullValue());
+            } else {
+                assertThat(derivative.value(), equalTo(expectedDerivative.value()));
+            }
+        }
+    }
+
+    public void testTopHitsWithFrom() {
+        int from = randomIntBetween(0, 10);
+        int size = randomIntBetween(1, 10);
+        SearchResponse expectedResponse = search(false)
+            .addAggregation(topHits("hits").from(from).size(size).sort("value", SortOrder.DESC).sort("_uid", SortOrder.ASC)).get();
+        assertSearchResponse(expectedResponse);
+        SearchResponse response = search(true)
+            .addAggregation(topHits("hits").from(from).size(size).sort("value", SortOrder.DESC).sort("_uid", SortOrder.ASC)).get();
+        assertSearchResponse(response);
+
+        TopHits expectedHits = expectedResponse.getAggregations().get("hits");
+        TopHits hits = response.getAggregations().get("hits");
+        assertThat(hits.getHits().getTotalHits(), equalTo(expectedHits.getHits().getTotalHits()));
+        assertThat(hits.getHits().getHits().length, equalTo(expectedHits.getHits().getHits().length));
+        for (int i = 0; i < hits.getHits().getHits().length; i++) {
+            assertThat(hits.getHits().getAt(i).getId(), equalTo(expectedHits.getHits().getAt(i).getId()));
+        }
+    }
+}
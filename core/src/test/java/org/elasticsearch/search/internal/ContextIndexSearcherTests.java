@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.tasks.TaskCancelledException;
+import org.elasticsearch.tasks.TaskManager;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class ContextIndexSearcherTests extends ESTestCase {
+
+    public void testCancellation() throws IOException {
+        Directory dir = newDirectory();
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+        final int numDocs = randomIntBetween(3, 5) * ContextIndexSearcher.CHECK_CANCELLED_INTERVAL;
+        for (int i = 0; i < numDocs; i++) {
+            w.addDocument(new Document());
+        }
+        final IndexReader reader = w.getReader();
+        w.close();
+
+        final ContextIndexSearcher searcher = new ContextIndexSearcher(new Engine.Searcher("test", new IndexSearcher(reader)),
+            null, MAYBE_CACHE_POLICY);
+        final TaskManager taskManager = new TaskManager(Settings.EMPTY);
+        final SearchTask task = (SearchTask) taskManager.register("transport", SearchAction.NAME, new SearchRequest());
+        searcher.setTask(task);
+
+        // as long as the task isn't cancelled, all documents are collected
+        TotalHitCountCollector totalHitCountCollector = new TotalHitCountCollector();
+        searcher.search(new MatchAllDocsQuery(), totalHitCountCollector);
+        assertEquals(numDocs, totalHitCountCollector.getTotalHits());
+
+        // collection stops at the next window once the task is cancelled
+        final AtomicInteger collected = new AtomicInteger();
+        try {
+            searcher.search(new MatchAllDocsQuery(), new SimpleCollector() {
+                @Override
+                public void collect(int doc) throws IOException {
+                    if (collected.incrementAndGet() == 1) {
+                        taskManager.cancel(task, "test", nodes -> {});
+                    }
+                }
+
+                @Override
+                public boolean needsScores() {
+                    return false;
+                }
+            });
+            fail("search should have been cancelled");
+        } catch (TaskCancelledException e) {
+            assertEquals("task cancelled [test]", e.getMessage());
+        }
+        assertThat(collected.get(), greaterThan(0));
+        assertThat(collected.get(), lessThanOrEqualTo(ContextIndexSearcher.CHECK_CANCELLED_INTERVAL));
+
+        // searches that start after the cancellation fail right away
+        try {
+            searcher.search(new MatchAllDocsQuery(), new TotalHitCountCollector());
+            fail("search should have been cancelled");
+        } catch (TaskCancelledException e) {
+            // expected
+        }
+
+        // without a task, searches can't be cancelled
+        searcher.setTask(null);
+        totalHitCountCollector = new TotalHitCountCollector();
+        searcher.search(new MatchAllDocsQuery(), totalHitCountCollector);
+        assertEquals(numDocs, totalHitCountCollector.getTotalHits());
+
+        taskManager.unregister(task);
+        reader.close();
+        dir.close();
+    }
+}
@@ -19,10 +19,15 @@
 
 package org.elasticsearch.search.msearch;
 
+import org.elasticsearch.action.search.MultiSearchRequestBuilder;
 import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.TransportSearchAction;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.test.ESIntegTestCase;
 
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertFirstHit;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
@@ -54,4 +59,55 @@ public class SimpleMultiSearchIT extends ESIntegTestCase {
         assertFirstHit(response.getResponses()[0].getResponse(), hasId("1"));
         assertFirstHit(response.getResponses()[1].getResponse(), hasId("2"));
     }
+
+    public void testSimpleMultiSearchMoreRequests() {
+        createIndex("test");
+        int numDocs = randomIntBetween(0, 16);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("{}").get();
+        }
+        refresh();
+
+        int numSearchRequests = randomIntBetween(1, 64);
+        MultiSearchRequestBuilder request = client().prepareMultiSearch();
+        if (randomBoolean()) {
+            request.setMaxConcurrentSearchRequests(randomIntBetween(1, numSearchRequests));
+        }
+        for (int i = 0; i < numSearchRequests; i++) {
+            request.add(client().prepareSearch("test"));
+        }
+
+        MultiSearchResponse response = request.get();
+        assertThat(response.getResponses().length, equalTo(numSearchRequests));
+        for (MultiSearchResponse.Item item : response) {
+            assertNoFailures(item.getResponse());
+            assertHitCount(item.getResponse(), numDocs);
+        }
+    }
+
+    public void testBatchedShardRequests() {
+        assertAcked(client().admin().cluster().prepareUpdateSettings()
+            .setTransientSettings(Settings.builder().put(TransportSearchAction.BATCH_SHARD_REQUESTS_SETTING.getKey(), true)));
+        try {
+            assertAcked(prepareCreate("test").setSettings(Settings.builder().put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, between(2, 10))));
+            int numDocs = randomIntBetween(1, 50);
+            for (int i = 0; i < numDocs; i++) {
+                client().prepareIndex("test", "type", Integer.toString(i)).setSource("field", i % 2 == 0 ? "even" : "odd").get();
+            }
+            refresh();
+
+            MultiSearchResponse response = client().prepareMultiSearch()
+                .add(client().prepareSearch("test").setQuery(QueryBuilders.matchAllQuery()))
+                .add(client().prepareSearch("test").setQuery(QueryBuilders.termQuery("field", "even")))
+                .get();
+            for (MultiSearchResponse.Item item : response) {
+                assertNoFailures(item.getResponse());
+            }
+            assertHitCount(response.getResponses()[0].getResponse(), numDocs);
+            assertHitCount(response.getResponses()[1].getResponse(), (numDocs + 1) / 2);
+        } finally {
+            assertAcked(client().admin().cluster().prepareUpdateSettings()
+                .setTransientSettings(Settings.builder().putNull(TransportSearchAction.BATCH_SHARD_REQUESTS_SETTING.getKey())));
+        }
+    }
 }
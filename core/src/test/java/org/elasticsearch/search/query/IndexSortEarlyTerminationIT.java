@@ -0,0 +1,86 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCount;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+public class IndexSortEarlyTerminationIT extends ESSingleNodeTestCase {
+
+    public void testTotalHitsAreExactUnlessOptedOut() {
+        final SortOrder order = randomFrom(SortOrder.values());
+        createIndex("test", Settings.builder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .put("index.sort.field", "timestamp")
+                .put("index.sort.order", order.toString())
+                .build(),
+            "type", "timestamp", "type=long");
+        final int numDocs = randomIntBetween(20, 100);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("timestamp", randomLong()).get();
+            if (i == numDocs / 2) {
+                // only merged segments are sorted, so make sure there is something to merge
+                client().admin().indices().prepareRefresh("test").get();
+            }
+        }
+        client().admin().indices().prepareForceMerge("test").setMaxNumSegments(1).get();
+        client().admin().indices().prepareRefresh("test").get();
+        final int size = randomIntBetween(1, numDocs / 2);
+
+        // hits.total is exact by default, even though the search is sorted like the index
+        final SearchResponse exact = client().prepareSearch("test").addSort("timestamp", order).setSize(size).get();
+        assertHitCount(exact, numDocs);
+        assertNotEquals(Boolean.TRUE, exact.isTerminatedEarly());
+
+        final SearchResponse early = client().prepareSearch("test").addSort("timestamp", order).setSize(size)
+            .setTrackTotalHits(false)
+            .addAggregation(AggregationBuilders.count("count").field("timestamp"))
+            .get();
+        assertEquals(Boolean.TRUE, early.isTerminatedEarly());
+        assertThat(early.getHits().totalHits(), lessThan((long) numDocs));
+        final SearchHit[] expectedHits = exact.getHits().getHits();
+        final SearchHit[] actualHits = early.getHits().getHits();
+        assertThat(actualHits.length, equalTo(expectedHits.length));
+        for (int i = 0; i < expectedHits.length; i++) {
+            assertEquals(expectedHits[i].getId(), actualHits[i].getId());
+        }
+        // aggregations still see all documents
+        final ValueCount count = early.getAggregations().get("count");
+        assertThat(count.getValue(), equalTo((long) numDocs));
+
+        // tracking scores needs all documents as well
+        final SearchResponse trackScores = client().prepareSearch("test").addSort("timestamp", order).setSize(size)
+            .setTrackTotalHits(false)
+            .setTrackScores(true)
+            .get();
+        assertHitCount(trackScores, numDocs);
+        assertNotEquals(Boolean.TRUE, trackScores.isTerminatedEarly());
+    }
+}
@@ -21,6 +21,7 @@ package org.elasticsearch.search.query;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriterConfig;
@@ -28,24 +29,44 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.SortingMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSelector;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.fielddata.fieldcomparator.LongValuesComparatorSource;
 import org.elasticsearch.index.query.ParsedQuery;
+import org.elasticsearch.search.MultiValueMode;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.TestSearchContext;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class QueryPhaseTests extends ESTestCase {
@@ -165,4 +186,181 @@ public class QueryPhaseTests extends ESTestCase {
         assertTrue(collected.get());
     }
 
+    public void testCanEarlyTerminate() {
+        final boolean reverse = randomBoolean();
+        final SortedNumericSortField indexSortField = new SortedNumericSortField("timestamp", SortField.Type.LONG, reverse,
+            reverse ? SortedNumericSelector.Type.MAX : SortedNumericSelector.Type.MIN);
+        final Sort indexSort = new Sort(indexSortField);
+        final MultiValueMode defaultMode = reverse ? MultiValueMode.MAX : MultiValueMode.MIN;
+        final Sort sort = new Sort(new SortField("timestamp", new LongValuesComparatorSource(null, null, defaultMode, null), reverse));
+        assertTrue(QueryPhase.canEarlyTerminate(indexSort, sort));
+
+        assertFalse(QueryPhase.canEarlyTerminate(null, sort));
+        assertFalse(QueryPhase.canEarlyTerminate(indexSort, null));
+        assertFalse(QueryPhase.canEarlyTerminate(indexSort, Sort.RELEVANCE));
+        assertFalse(QueryPhase.canEarlyTerminate(indexSort,
+            new Sort(new SortField("timestamp", new LongValuesComparatorSource(null, null, defaultMode, null), reverse == false))));
+        assertFalse(QueryPhase.canEarlyTerminate(indexSort,
+            new Sort(new SortField("other", new LongValuesComparatorSource(null, null, defaultMode, null), reverse))));
+        assertFalse(QueryPhase.canEarlyTerminate(indexSort,
+            new Sort(new SortField("timestamp", new LongValuesComparatorSource(null, "_first", defaultMode, null), reverse))));
+        assertFalse(QueryPhase.canEarlyTerminate(indexSort,
+            new Sort(new SortField("timestamp", new LongValuesComparatorSource(null, null, MultiValueMode.AVG, null), reverse))));
+        assertFalse(QueryPhase.canEarlyTerminate(indexSort, new Sort(sort.getSort()[0], SortField.FIELD_SCORE)));
+    }
+
+    public void testSortedSegmentsEarlyTermination() throws Exception {
+        final boolean reverse = randomBoolean();
+        final SortedNumericSortField indexSortField = new SortedNumericSortField("timestamp", SortField.Type.LONG, reverse);
+        final Sort indexSort = new Sort(indexSortField);
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(new SortingMergePolicy(newLogMergePolicy(), indexSort));
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(100, 200);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new SortedNumericDocValuesField("timestamp", randomLong()));
+            w.addDocument(doc);
+            if (i == numDocs / 2) {
+                // make sure there is something to merge, only merged segments are sorted
+                w.commit();
+            }
+        }
+        w.forceMerge(1);
+        final IndexReader reader = w.getReader();
+        final IndexSearcher searcher = new IndexSearcher(reader);
+        final int size = randomIntBetween(1, numDocs - 1);
+
+        final TopFieldCollector expected = TopFieldCollector.create(indexSort, size, null, true, false, false);
+        searcher.search(new MatchAllDocsQuery(), expected);
+        final TopFieldCollector actual = TopFieldCollector.create(indexSort, size, null, true, false, false);
+        final SortedSegmentsEarlyTerminatingCollector collector = new SortedSegmentsEarlyTerminatingCollector(actual, indexSort, size);
+        searcher.search(new MatchAllDocsQuery(), collector);
+
+        assertTrue(collector.terminatedEarly());
+        final ScoreDoc[] expectedDocs = expected.topDocs().scoreDocs;
+        final ScoreDoc[] actualDocs = actual.topDocs().scoreDocs;
+        assertEquals(expectedDocs.length, actualDocs.length);
+        for (int i = 0; i < expectedDocs.length; i++) {
+            assertEquals(expectedDocs[i].doc, actualDocs[i].doc);
+        }
+
+        // a segment that was sorted differently is collected entirely
+        final TopFieldCollector other = TopFieldCollector.create(indexSort, size, null, true, false, false);
+        final Sort otherSort = new Sort(new SortedNumericSortField("timestamp", SortField.Type.LONG, reverse == false));
+        final SortedSegmentsEarlyTerminatingCollector notTerminating = new SortedSegmentsEarlyTerminatingCollector(other, otherSort, size);
+        searcher.search(new MatchAllDocsQuery(), notTerminating);
+        assertFalse(notTerminating.terminatedEarly());
+        assertEquals(numDocs, other.getTotalHits());
+
+        reader.close();
+        w.close();
+        dir.close();
+    }
+
+    public void testConcurrentSearchMatchesSequentialSearch() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(200, 500);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            for (int j = randomInt(3); j >= 0; j--) {
+                doc.add(new StringField("foo", randomFrom("bar", "baz"), Store.NO));
+            }
+            w.addDocument(doc);
+            if (rarely()) {
+                w.commit();
+            }
+        }
+        // make sure there are enough segments for several slices
+        for (int i = 0; i < ContextIndexSearcher.MAX_SEGMENTS_PER_SLICE + 1; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("foo", "bar", Store.NO));
+            w.addDocument(doc);
+            w.commit();
+        }
+        final IndexReader reader = w.getReader();
+        // with a queue of a single slice the executor rejects slices, which are then searched on the calling thread
+        final ExecutorService executor = EsExecutors.newFixed(getTestName(), randomIntBetween(1, 4), randomFrom(-1, 1),
+            EsExecutors.daemonThreadFactory("test"), new ThreadContext(Settings.EMPTY));
+        try {
+            final ContextIndexSearcher searcher = new ContextIndexSearcher(new Engine.Searcher("test", new IndexSearcher(reader)),
+                null, MAYBE_CACHE_POLICY);
+            searcher.setConcurrentSearchExecutor(executor);
+            assertTrue(searcher.canSearchConcurrently());
+            int numLeaves = 0;
+            for (IndexSearcher.LeafSlice slice : searcher.getSlices()) {
+                assertTrue(slice.leaves.length <= ContextIndexSearcher.MAX_SEGMENTS_PER_SLICE);
+                numLeaves += slice.leaves.length;
+            }
+            assertEquals(reader.leaves().size(), numLeaves);
+
+            final Query query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("foo", "bar")), Occur.SHOULD)
+                .add(new TermQuery(new Term("foo", "baz")), Occur.SHOULD)
+                .build();
+            final int size = randomIntBetween(0, numDocs);
+            final ParsedQuery postFilter = randomBoolean() ? new ParsedQuery(new TermQuery(new Term("foo", "baz"))) : null;
+            final TestSearchContext expectedContext = new TestSearchContext(null);
+            expectedContext.parsedQuery(new ParsedQuery(query));
+            expectedContext.parsedPostFilter(postFilter);
+            expectedContext.setSize(size);
+            QueryPhase.execute(expectedContext, new IndexSearcher(reader));
+
+            final TestSearchContext context = new TestSearchContext(null);
+            context.parsedQuery(new ParsedQuery(query));
+            context.parsedPostFilter(postFilter);
+            context.setSize(size);
+            assertTrue(ConcurrentQueryPhase.canExecute(context, searcher));
+            QueryPhase.execute(context, searcher);
+
+            final TopDocs expected = expectedContext.queryResult().topDocs();
+            final TopDocs actual = context.queryResult().topDocs();
+            assertEquals(expected.totalHits, actual.totalHits);
+            assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+            for (int i = 0; i < expected.scoreDocs.length; i++) {
+                assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+                assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0f);
+            }
+            if (size > 0) {
+                assertEquals(expected.getMaxScore(), actual.getMaxScore(), 0f);
+            }
+
+            // aggregations need a single collector to see all segments
+            context.queryCollectors().put(TotalHitCountCollector.class, new TotalHitCountCollector());
+            assertFalse(ConcurrentQueryPhase.canExecute(context, searcher));
+        } finally {
+            terminate(executor);
+            reader.close();
+            w.close();
+            dir.close();
+        }
+    }
+
+    public void testMergeTopDocsBreaksTiesByDocId() throws Exception {
+        final TopDocs first = new TopDocs(3, new ScoreDoc[] { new ScoreDoc(7, 2f), new ScoreDoc(8, 1f) }, 2f);
+        final TopDocs second = new TopDocs(2, new ScoreDoc[] { new ScoreDoc(1, 2f), new ScoreDoc(2, 1f) }, 2f);
+        final TopDocs empty = new TopDocs(0, new ScoreDoc[0], Float.NaN);
+        final TopDocs merged = ConcurrentQueryPhase.mergeTopDocs(null, 3, Arrays.asList(first, empty, second));
+        assertEquals(5, merged.totalHits);
+        assertEquals(2f, merged.getMaxScore(), 0f);
+        assertEquals(3, merged.scoreDocs.length);
+        assertEquals(1, merged.scoreDocs[0].doc);
+        assertEquals(7, merged.scoreDocs[1].doc);
+        assertEquals(2, merged.scoreDocs[2].doc);
+
+        final Sort sort = new Sort(new SortField("foo", SortField.Type.INT));
+        final TopDocs fieldFirst = new TopFieldDocs(1, new ScoreDoc[] { new FieldDoc(5, Float.NaN, new Object[] { 3 }) },
+            sort.getSort(), Float.NaN);
+        final TopDocs fieldSecond = new TopFieldDocs(2, new ScoreDoc[] {
+            new FieldDoc(4, Float.NaN, new Object[] { 3 }), new FieldDoc(9, Float.NaN, new Object[] { 1 }) }, sort.getSort(), Float.NaN);
+        final TopDocs fieldMerged = ConcurrentQueryPhase.mergeTopDocs(sort, 10, Arrays.asList(fieldFirst, fieldSecond));
+        assertTrue(fieldMerged instanceof TopFieldDocs);
+        assertEquals(3, fieldMerged.totalHits);
+        assertTrue(Float.isNaN(fieldMerged.getMaxScore()));
+        assertEquals(9, fieldMerged.scoreDocs[0].doc);
+        assertEquals(4, fieldMerged.scoreDocs[1].doc);
+        assertEquals(5, fieldMerged.scoreDocs[2].doc);
+    }
 }
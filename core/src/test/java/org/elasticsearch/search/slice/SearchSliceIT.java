@@ -0,0 +1,142 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.slice;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchContextException;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.transport.RemoteTransportException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.equalTo;
+
+public class SearchSliceIT extends ESIntegTestCase {
+    private static final int NUM_DOCS = 1000;
+
+    private int setupIndex(boolean withDocs) throws Exception {
+        int numberOfShards = randomIntBetween(1, 7);
+        assertAcked(client().admin().indices().prepareCreate("test")
+            .setSettings(Settings.builder().put("number_of_shards", numberOfShards))
+            .addMapping("type", "random_int", "type=integer", "static_int", "type=integer",
+                "invalid_random_int", "type=integer,doc_values=false"));
+        ensureGreen();
+
+        if (withDocs == false) {
+            return numberOfShards;
+        }
+
+        List<IndexRequestBuilder> requests = new ArrayList<>();
+        for (int i = 0; i < NUM_DOCS; i++) {
+            requests.add(client().prepareIndex("test", "type").setSource("random_int", randomInt(), "static_int", 0,
+                "invalid_random_int", randomInt()));
+        }
+        indexRandom(true, requests);
+        return numberOfShards;
+    }
+
+    public void testSlicedScroll() throws Exception {
+        int numShards = setupIndex(true);
+        int fetchSize = randomIntBetween(10, 100);
+        SearchRequestBuilder request = client().prepareSearch("test")
+            .setQuery(matchAllQuery())
+            .setScroll(new TimeValue(10000))
+            .setSize(fetchSize);
+        for (String field : new String[]{"_uid", "random_int", "static_int"}) {
+            int max = randomIntBetween(2, numShards * 3);
+            assertSearchSlicesWithScroll(request, field, max);
+        }
+    }
+
+    public void testInvalidFields() throws Exception {
+        setupIndex(false);
+        SearchPhaseExecutionException exc = expectThrows(SearchPhaseExecutionException.class,
+            () -> client().prepareSearch("test")
+                .setQuery(matchAllQuery())
+                .setScroll(new TimeValue(10000))
+                .slice(new SliceBuilder("invalid_random_int", 0, 10))
+                .get());
+        Throwable rootCause = findRootCause(exc);
+        assertThat(rootCause.getClass(), equalTo(IllegalArgumentException.class));
+        assertThat(rootCause.getMessage(), equalTo("cannot load numeric doc values on invalid_random_int"));
+    }
+
+    public void testInvalidQuery() throws Exception {
+        setupIndex(false);
+        SearchPhaseExecutionException exc = expectThrows(SearchPhaseExecutionException.class,
+            () -> client().prepareSearch("test")
+                .setQuery(matchAllQuery())
+                .slice(new SliceBuilder("invalid_random_int", 0, 10))
+                .get());
+        Throwable rootCause = findRootCause(exc);
+        assertThat(rootCause.getClass(), equalTo(SearchContextException.class));
+        assertThat(rootCause.getMessage(), equalTo("`slice` cannot be used outside of a scroll context"));
+    }
+
+    private void assertSearchSlicesWithScroll(SearchRequestBuilder request, String field, int numSlice) {
+        int totalResults = 0;
+        Set<String> keys = new HashSet<>();
+        for (int id = 0; id < numSlice; id++) {
+            SliceBuilder sliceBuilder = new SliceBuilder(field, id, numSlice);
+            SearchResponse searchResponse = request.slice(sliceBuilder).get();
+            totalResults += searchResponse.getHits().getHits().length;
+            int expectedSliceResults = (int) searchResponse.getHits().getTotalHits();
+            int numSliceResults = searchResponse.getHits().getHits().length;
+            String scrollId = searchResponse.getScrollId();
+            for (SearchHit hit : searchResponse.getHits().getHits()) {
+                assertTrue("document [" + hit.getId() + "] is part of more than one slice", keys.add(hit.getId()));
+            }
+            while (searchResponse.getHits().getHits().length > 0) {
+                searchResponse = client().prepareSearchScroll(scrollId)
+                    .setScroll(new TimeValue(10000))
+                    .get();
+                scrollId = searchResponse.getScrollId();
+                totalResults += searchResponse.getHits().getHits().length;
+                numSliceResults += searchResponse.getHits().getHits().length;
+                for (SearchHit hit : searchResponse.getHits().getHits()) {
+                    assertTrue("document [" + hit.getId() + "] is part of more than one slice", keys.add(hit.getId()));
+                }
+            }
+            assertThat(numSliceResults, equalTo(expectedSliceResults));
+            clearScroll(scrollId);
+        }
+        assertThat(totalResults, equalTo(NUM_DOCS));
+        assertThat(keys.size(), equalTo(NUM_DOCS));
+    }
+
+    private Throwable findRootCause(Exception e) {
+        Throwable ret = e;
+        while (ret.getCause() != null) {
+            ret = ret.getCause();
+        }
+        return ret;
+    }
+}
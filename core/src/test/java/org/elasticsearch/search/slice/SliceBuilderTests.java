@@ -0,0 +1,213 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.slice;
+
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.ParseFieldMatcher;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.index.query.QueryParseContext;
+import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.indices.query.IndicesQueriesRegistry;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SliceBuilderTests extends ESTestCase {
+    private static final int MAX_SLICE = 20;
+
+    private static SliceBuilder randomSliceBuilder() throws IOException {
+        int max = randomIntBetween(2, MAX_SLICE);
+        int id = randomInt(max - 1);
+        String field = randomAsciiOfLengthBetween(5, 20);
+        return new SliceBuilder(field, id, max);
+    }
+
+    private static SliceBuilder serializedCopy(SliceBuilder original) throws IOException {
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            original.writeTo(output);
+            try (StreamInput in = StreamInput.wrap(output.bytes())) {
+                return new SliceBuilder(in);
+            }
+        }
+    }
+
+    public void testSerialization() throws Exception {
+        SliceBuilder original = randomSliceBuilder();
+        SliceBuilder deserialized = serializedCopy(original);
+        assertEquals(deserialized, original);
+        assertEquals(deserialized.hashCode(), original.hashCode());
+        assertNotSame(deserialized, original);
+    }
+
+    public void testEqualsAndHashcode() throws Exception {
+        SliceBuilder firstBuilder = randomSliceBuilder();
+        assertFalse("sliceBuilder is equal to null", firstBuilder.equals(null));
+        assertFalse("sliceBuilder is equal to incompatible type", firstBuilder.equals(""));
+        assertTrue("sliceBuilder is not equal to self", firstBuilder.equals(firstBuilder));
+        assertThat("same searchFrom's hashcode returns different values if called multiple times",
+            firstBuilder.hashCode(), equalTo(firstBuilder.hashCode()));
+
+        SliceBuilder secondBuilder = serializedCopy(firstBuilder);
+        assertTrue("sliceBuilder is not equal to self", secondBuilder.equals(secondBuilder));
+        assertTrue("sliceBuilder is not equal to its copy", firstBuilder.equals(secondBuilder));
+        assertTrue("equals is not symmetric", secondBuilder.equals(firstBuilder));
+        assertThat("sliceBuilder copy's hashcode is different from original hashcode", secondBuilder.hashCode(),
+            equalTo(firstBuilder.hashCode()));
+
+        SliceBuilder thirdBuilder = new SliceBuilder(firstBuilder.getField(), firstBuilder.getId(), firstBuilder.getMax() + 1);
+        assertFalse("sliceBuilder is equal to a slice with another max", firstBuilder.equals(thirdBuilder));
+    }
+
+    public void testFromXContent() throws Exception {
+        SliceBuilder sliceBuilder = randomSliceBuilder();
+        XContentBuilder builder = XContentFactory.contentBuilder(randomFrom(XContentType.values()));
+        if (randomBoolean()) {
+            builder.prettyPrint();
+        }
+        builder.startObject();
+        sliceBuilder.innerToXContent(builder);
+        builder.endObject();
+        XContentParser parser = XContentHelper.createParser(builder.bytes());
+        QueryParseContext context = new QueryParseContext(new IndicesQueriesRegistry());
+        context.reset(parser);
+        context.parseFieldMatcher(new ParseFieldMatcher(Settings.EMPTY));
+        SliceBuilder secondSliceBuilder = SliceBuilder.fromXContent(context);
+        assertNotSame(sliceBuilder, secondSliceBuilder);
+        assertEquals(sliceBuilder, secondSliceBuilder);
+        assertEquals(sliceBuilder.hashCode(), secondSliceBuilder.hashCode());
+    }
+
+    public void testInvalidArguments() throws Exception {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new SliceBuilder("field", -1, 10));
+        assertEquals("id must be greater than or equal to 0", e.getMessage());
+
+        e = expectThrows(IllegalArgumentException.class, () -> new SliceBuilder("field", 10, -1));
+        assertEquals("max must be greater than 1", e.getMessage());
+
+        e = expectThrows(IllegalArgumentException.class, () -> new SliceBuilder("field", 10, 0));
+        assertEquals("max must be greater than 1", e.getMessage());
+
+        e = expectThrows(IllegalArgumentException.class, () -> new SliceBuilder("field", 10, 5));
+        assertEquals("max must be greater than id", e.getMessage());
+
+        e = expectThrows(IllegalArgumentException.class, () -> new SliceBuilder("field", 1000, 1000));
+        assertEquals("max must be greater than id", e.getMessage());
+
+        e = expectThrows(IllegalArgumentException.class, () -> new SliceBuilder(null, 1, 10));
+        assertEquals("field name is null or empty", e.getMessage());
+    }
+
+    public void testToFilterSingleShard() throws Exception {
+        QueryShardContext context = mockContext();
+        int max = randomIntBetween(2, MAX_SLICE);
+        int id = randomInt(max - 1);
+        Query query = new SliceBuilder(id, max).toFilter(context, 0, 1);
+        assertThat(query, instanceOf(TermsSliceQuery.class));
+        assertEquals(new TermsSliceQuery(UidFieldMapper.NAME, id, max), query);
+
+        query = new SliceBuilder("field_doc_values", id, max).toFilter(context, 0, 1);
+        assertEquals(new DocValuesSliceQuery("field_doc_values", id, max), query);
+
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> new SliceBuilder("field_without_doc_values", id, max).toFilter(context, 0, 1));
+        assertThat(e.getMessage(), containsString("cannot load numeric doc values"));
+
+        e = expectThrows(IllegalArgumentException.class, () -> new SliceBuilder("unknown_field", id, max).toFilter(context, 0, 1));
+        assertThat(e.getMessage(), containsString("field unknown_field not found"));
+    }
+
+    public void testToFilterMoreSlicesThanShards() throws Exception {
+        QueryShardContext context = mockContext();
+        int numShards = randomIntBetween(2, 10);
+        int max = randomIntBetween(numShards, MAX_SLICE);
+        Set<String> shardSlices = new HashSet<>();
+        for (int id = 0; id < max; id++) {
+            int matchingShards = 0;
+            for (int shardId = 0; shardId < numShards; shardId++) {
+                Query query = new SliceBuilder(id, max).toFilter(context, shardId, numShards);
+                if (query.equals(Queries.newMatchNoDocsQuery())) {
+                    continue;
+                }
+                matchingShards++;
+                if (query instanceof MatchAllDocsQuery) {
+                    assertTrue(shardSlices.add(shardId + ":all"));
+                } else {
+                    TermsSliceQuery termsSliceQuery = (TermsSliceQuery) query;
+                    // each slice of a shard must be distinct
+                    assertTrue(shardSlices.add(shardId + ":" + termsSliceQuery.getId() + "/" + termsSliceQuery.getMax()));
+                }
+            }
+            assertThat("slice [" + id + "] must target exactly one shard", matchingShards, equalTo(1));
+        }
+        assertThat(shardSlices.size(), equalTo(max));
+    }
+
+    public void testToFilterMoreShardsThanSlices() throws Exception {
+        QueryShardContext context = mockContext();
+        int max = randomIntBetween(2, 10);
+        int numShards = randomIntBetween(max + 1, MAX_SLICE);
+        for (int shardId = 0; shardId < numShards; shardId++) {
+            int matchingSlices = 0;
+            for (int id = 0; id < max; id++) {
+                Query query = new SliceBuilder(id, max).toFilter(context, shardId, numShards);
+                if (query.equals(Queries.newMatchNoDocsQuery()) == false) {
+                    assertThat(query, instanceOf(MatchAllDocsQuery.class));
+                    matchingSlices++;
+                }
+            }
+            assertThat("shard [" + shardId + "] must belong to exactly one slice", matchingSlices, equalTo(1));
+        }
+    }
+
+    private static QueryShardContext mockContext() {
+        MappedFieldType uidType = mock(MappedFieldType.class);
+        MappedFieldType docValuesType = mock(MappedFieldType.class);
+        when(docValuesType.hasDocValues()).thenReturn(true);
+        MappedFieldType noDocValuesType = mock(MappedFieldType.class);
+        when(noDocValuesType.hasDocValues()).thenReturn(false);
+        QueryShardContext context = mock(QueryShardContext.class);
+        when(context.fieldMapper(UidFieldMapper.NAME)).thenReturn(uidType);
+        when(context.fieldMapper("field_doc_values")).thenReturn(docValuesType);
+        when(context.fieldMapper("field_without_doc_values")).thenReturn(noDocValuesType);
+        IndexNumericFieldData fieldData = mock(IndexNumericFieldData.class);
+        when(context.<IndexNumericFieldData>getForField(docValuesType)).thenReturn(fieldData);
+        return context;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.slice;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.QueryUtils;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests that the slice queries split the documents of an index in disjoint slices that cover all documents.
+ */
+public class SliceQueryTests extends ESTestCase {
+
+    public void testBasics() {
+        SliceQuery query1 = new TermsSliceQuery("field1", 1, 10);
+        SliceQuery query2 = new TermsSliceQuery("field1", 1, 10);
+        SliceQuery query3 = new TermsSliceQuery("field2", 1, 10);
+        SliceQuery query4 = new TermsSliceQuery("field1", 2, 10);
+        QueryUtils.check(query1);
+        QueryUtils.checkEqual(query1, query2);
+        QueryUtils.checkUnequal(query1, query3);
+        QueryUtils.checkUnequal(query1, query4);
+        QueryUtils.checkUnequal(query1, new DocValuesSliceQuery("field1", 1, 10));
+    }
+
+    public void testSearch() throws Exception {
+        final int numDocs = randomIntBetween(100, 200);
+        final Directory dir = newDirectory();
+        final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new StringField(UidFieldMapper.NAME, "type#" + UUIDs.randomBase64UUID(), Field.Store.NO));
+            if (rarely() == false) {
+                doc.add(new SortedNumericDocValuesField("field", randomLong()));
+            }
+            w.addDocument(doc);
+        }
+        final IndexReader reader = w.getReader();
+        final IndexSearcher searcher = newSearcher(reader);
+        final int max = randomIntBetween(2, 10);
+        assertSlices(searcher, numDocs, max, id -> new TermsSliceQuery(UidFieldMapper.NAME, id, max));
+        assertSlices(searcher, numDocs, max, id -> new DocValuesSliceQuery("field", id, max));
+        w.close();
+        reader.close();
+        dir.close();
+    }
+
+    private interface SliceQueryFactory {
+        SliceQuery newQuery(int id);
+    }
+
+    private static void assertSlices(IndexSearcher searcher, int numDocs, int max, SliceQueryFactory factory) throws IOException {
+        final FixedBitSet seen = new FixedBitSet(numDocs);
+        int total = 0;
+        for (int id = 0; id < max; id++) {
+            SliceQuery query = factory.newQuery(id);
+            searcher.search(query, new SimpleCollector() {
+                private int docBase;
+
+                @Override
+                protected void doSetNextReader(LeafReaderContext context) throws IOException {
+                    docBase = context.docBase;
+                }
+
+                @Override
+                public void collect(int doc) throws IOException {
+                    assertFalse("document [" + (docBase + doc) + "] is part of two slices", seen.getAndSet(docBase + doc));
+                }
+
+                @Override
+                public boolean needsScores() {
+                    return false;
+                }
+            });
+            total += searcher.count(query);
+        }
+        assertThat(total, equalTo(numDocs));
+        assertThat(seen.cardinality(), equalTo(numDocs));
+    }
+}
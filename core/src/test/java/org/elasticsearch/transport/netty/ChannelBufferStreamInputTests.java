@@ -0,0 +1,80 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import java.io.EOFException;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ChannelBufferStreamInputTests extends ESTestCase {
+
+    public void testReadBytesReferenceDoesNotCopy() throws Exception {
+        final byte[] content = randomBytes(randomIntBetween(1, 1000));
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeString("header");
+        out.writeBytesReference(new BytesArray(content));
+        out.writeVInt(42);
+        final byte[] bytes = out.bytes().toBytes();
+        // the stream is wrapped like the transport wraps the streams of incoming messages
+        final int offset = randomIntBetween(0, 10);
+        final ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(new byte[offset], bytes);
+        buffer.skipBytes(offset);
+        StreamInput in = new NamedWriteableAwareStreamInput(ChannelBufferStreamInputFactory.create(buffer), new NamedWriteableRegistry());
+        assertEquals("header", in.readString());
+        BytesReference reference = in.readBytesReference();
+        assertThat(reference, instanceOf(ChannelBufferBytesReference.class));
+        assertEquals(new BytesArray(content), reference);
+        assertEquals(42, in.readVInt());
+
+        final int from = randomIntBetween(0, content.length - 1);
+        final int length = randomIntBetween(0, content.length - from);
+        assertEquals(new BytesArray(content, from, length), reference.slice(from, length));
+
+        // the content is shared with the buffer rather than copied
+        buffer.setByte(buffer.readerIndex() - 1 - content.length, ~content[0]);
+        assertEquals((byte) ~content[0], reference.get(0));
+    }
+
+    public void testReadBytesReferenceBeyondMessage() throws Exception {
+        final ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(randomBytes(10));
+        StreamInput in = ChannelBufferStreamInputFactory.create(buffer, 5);
+        assertThat(in.readBytesReference(0), sameInstance(BytesArray.EMPTY));
+        expectThrows(EOFException.class, () -> in.readBytesReference(6));
+        assertEquals(new BytesArray(buffer.array(), 0, 5), in.readBytesReference(5));
+    }
+
+    private static byte[] randomBytes(int length) {
+        final byte[] bytes = new byte[length];
+        random().nextBytes(bytes);
+        return bytes;
+    }
+}
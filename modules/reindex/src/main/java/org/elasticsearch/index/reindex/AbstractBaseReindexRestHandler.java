@@ -83,6 +83,7 @@ public abstract class AbstractBaseReindexRestHandler<
         if (requestsPerSecond != null) {
             internalRequest.setRequestsPerSecond(requestsPerSecond);
         }
+        internalRequest.setSlices(request.paramAsInt("slices", internalRequest.getSlices()));
 
         if (request.paramAsBoolean("wait_for_completion", true)) {
             action.execute(internalRequest, new BulkIndexByScrollResponseContentListener<Response>(channel));
@@ -19,16 +19,17 @@
 
 package org.elasticsearch.index.reindex;
 
-import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.WriteConsistencyLevel;
 import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.support.ChildTaskActionRequest;
 import org.elasticsearch.action.support.replication.ReplicationRequest;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -38,7 +39,7 @@ import static org.elasticsearch.common.unit.TimeValue.timeValueMillis;
 import static org.elasticsearch.common.unit.TimeValue.timeValueMinutes;
 
 public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScrollRequest<Self>>
-        extends ActionRequest<Self> {
+        extends ChildTaskActionRequest<Self> {
     public static final int SIZE_ALL_MATCHES = -1;
     private static final TimeValue DEFAULT_SCROLL_TIMEOUT = timeValueMinutes(5);
     private static final int DEFAULT_SCROLL_SIZE = 100;
@@ -92,17 +93,34 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
      */
     private float requestsPerSecond = 0;
 
+    /**
+     * The number of slices this task should be divided into. Defaults to 1 meaning the task isn't sliced into subtasks.
+     */
+    private int slices = 1;
+
     public AbstractBulkByScrollRequest() {
     }
 
     public AbstractBulkByScrollRequest(SearchRequest source) {
-        this.searchRequest = source;
+        this(source, true);
+    }
 
-        // Set the defaults which differ from SearchRequest's defaults.
-        source.scroll(DEFAULT_SCROLL_TIMEOUT);
-        source.source(new SearchSourceBuilder());
-        source.source().version(true);
-        source.source().size(DEFAULT_SCROLL_SIZE);
+    /**
+     * Constructor for actual use.
+     *
+     * @param source the search request
+     * @param setDefaults should this request set the defaults on the search request? Usually set to true but leave it false to build
+     *        the request for a single slice of a sliced request, whose search request already has them
+     */
+    protected AbstractBulkByScrollRequest(SearchRequest source, boolean setDefaults) {
+        this.searchRequest = source;
+        if (setDefaults) {
+            // Set the defaults which differ from SearchRequest's defaults.
+            source.scroll(DEFAULT_SCROLL_TIMEOUT);
+            source.source(new SearchSourceBuilder());
+            source.source().version(true);
+            source.source().size(DEFAULT_SCROLL_SIZE);
+        }
     }
 
     /**
@@ -129,6 +147,17 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
                             + size + "]",
                     e);
         }
+        if (slices < 1) {
+            e = addValidationError("slices must be at least 1 but was [" + slices + "]", e);
+        }
+        if (slices > 1) {
+            if (size != SIZE_ALL_MATCHES) {
+                e = addValidationError("can't specify both slices and size", e);
+            }
+            if (searchRequest.source() != null && searchRequest.source().slice() != null) {
+                e = addValidationError("can't specify both slices and a slice in the search request", e);
+            }
+        }
         return e;
     }
 
@@ -277,9 +306,46 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
         return self();
     }
 
+    /**
+     * The number of slices this task should be divided into. Defaults to 1 meaning the task isn't sliced into subtasks.
+     */
+    public int getSlices() {
+        return slices;
+    }
+
+    /**
+     * The number of slices this task should be divided into. Defaults to 1 meaning the task isn't sliced into subtasks.
+     */
+    public Self setSlices(int slices) {
+        this.slices = slices;
+        return self();
+    }
+
+    /**
+     * Build a new request for a slice of this request. The slice request runs as a child task of the slicing task.
+     *
+     * @param slicingTask the task that runs this request and waits for its slices
+     * @param slice the search request of the slice
+     */
+    protected abstract Self forSlice(TaskId slicingTask, SearchRequest slice);
+
+    /**
+     * Setup a clone of this request with the information needed to process a slice of it.
+     */
+    protected Self doForSlice(Self request, TaskId slicingTask) {
+        request.setAbortOnVersionConflict(abortOnVersionConflict).setRefresh(refresh).setTimeout(timeout)
+                .setConsistency(consistency).setRetryBackoffInitialTime(retryBackoffInitialTime).setMaxRetries(maxRetries)
+                // Split requests per second between all slices
+                .setRequestsPerSecond(requestsPerSecond / slices)
+                // Slices are never sliced again
+                .setSlices(1);
+        request.setParentTask(slicingTask.getNodeId(), slicingTask.getId());
+        return request;
+    }
+
     @Override
-    public Task createTask(long id, String type, String action) {
-        return new BulkByScrollTask(id, type, action, getDescription(), requestsPerSecond);
+    public Task createTask(long id, String type, String action, TaskId parentTaskId) {
+        return new BulkByScrollTask(id, type, action, getDescription(), parentTaskId, requestsPerSecond);
     }
 
     @Override
@@ -295,6 +361,7 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
         retryBackoffInitialTime = TimeValue.readTimeValue(in);
         maxRetries = in.readVInt();
         requestsPerSecond = in.readFloat();
+        slices = in.readVInt();
     }
 
     @Override
@@ -309,6 +376,7 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
         retryBackoffInitialTime.writeTo(out);
         out.writeVInt(maxRetries);
         out.writeFloat(requestsPerSecond);
+        out.writeVInt(slices);
     }
 
     /**
@@ -24,6 +24,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.script.Script;
+import org.elasticsearch.tasks.TaskId;
 
 import java.io.IOException;
 
@@ -41,6 +42,10 @@ public abstract class AbstractBulkIndexByScrollRequest<Self extends AbstractBulk
         super(source);
     }
 
+    protected AbstractBulkIndexByScrollRequest(SearchRequest source, boolean setDefaults) {
+        super(source, setDefaults);
+    }
+
     /**
      * Script to modify the documents before they are processed.
      */
@@ -56,6 +61,11 @@ public abstract class AbstractBulkIndexByScrollRequest<Self extends AbstractBulk
         return self();
     }
 
+    @Override
+    protected Self doForSlice(Self request, TaskId slicingTask) {
+        return super.doForSlice(request, slicingTask).setScript(script);
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
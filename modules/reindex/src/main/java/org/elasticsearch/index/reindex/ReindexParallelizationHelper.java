@@ -0,0 +1,190 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.reindex;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.bulk.BulkItemResponse.Failure;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.tasks.TaskManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.Math.max;
+import static java.util.Collections.unmodifiableList;
+import static org.elasticsearch.common.unit.TimeValue.timeValueNanos;
+
+/**
+ * Helps parallelize reindex requests using sliced scrolls. Each slice runs as a child task of the request's task and the response of
+ * the request is the sum of the responses of its slices.
+ */
+final class ReindexParallelizationHelper {
+    private ReindexParallelizationHelper() {}
+
+    /**
+     * Builds the response of a request from the merged results of its slices.
+     */
+    interface ResponseFactory<Response extends BulkIndexByScrollResponse> {
+        Response newResponse(TimeValue took, BulkByScrollTask.Status status, List<Failure> indexingFailures,
+                List<ShardSearchFailure> searchFailures, boolean timedOut);
+    }
+
+    /**
+     * Runs one slice of the request per {@link AbstractBulkByScrollRequest#getSlices()} and notifies the listener once all of them
+     * completed. If any slice fails then the listener is notified of that failure.
+     */
+    static <Request extends AbstractBulkByScrollRequest<Request>, Response extends BulkIndexByScrollResponse,
+            RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>> void startSlices(Client client,
+            TaskManager taskManager, Action<Request, Response, RequestBuilder> action, String localNodeId, Task task, Request request,
+            ResponseFactory<Response> responseFactory, ActionListener<Response> listener) {
+        final TaskId parentTaskId = new TaskId(localNodeId, task.getId());
+        final long startTime = System.nanoTime();
+        final SearchRequest[] sliceRequests = sliceIntoSubRequests(request.getSearchRequest(), UidFieldMapper.NAME, request.getSlices());
+        final AtomicArray<Response> responses = new AtomicArray<>(sliceRequests.length);
+        final AtomicArray<Throwable> failures = new AtomicArray<>(sliceRequests.length);
+        final AtomicInteger remaining = new AtomicInteger(sliceRequests.length);
+        for (int i = 0; i < sliceRequests.length; i++) {
+            final int slice = i;
+            Request sliceRequest = request.forSlice(parentTaskId, sliceRequests[i]);
+            taskManager.registerChildTask(task, localNodeId);
+            client.execute(action, sliceRequest, new ActionListener<Response>() {
+                @Override
+                public void onResponse(Response response) {
+                    responses.setOnce(slice, response);
+                    onSliceDone();
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    failures.setOnce(slice, e);
+                    onSliceDone();
+                }
+
+                private void onSliceDone() {
+                    if (remaining.decrementAndGet() != 0) {
+                        return;
+                    }
+                    Throwable failure = null;
+                    for (AtomicArray.Entry<Throwable> entry : failures.asList()) {
+                        failure = ExceptionsHelper.useOrSuppress(failure, entry.value);
+                    }
+                    if (failure != null) {
+                        listener.onFailure(failure);
+                        return;
+                    }
+                    List<Response> sliceResponses = new ArrayList<>(sliceRequests.length);
+                    for (int s = 0; s < sliceRequests.length; s++) {
+                        sliceResponses.add(responses.get(s));
+                    }
+                    listener.onResponse(mergeResponses(timeValueNanos(System.nanoTime() - startTime), sliceResponses, responseFactory));
+                }
+            });
+        }
+    }
+
+    /**
+     * Splits the search request into one search request per slice. Package private for testing.
+     */
+    static SearchRequest[] sliceIntoSubRequests(SearchRequest request, String field, int times) {
+        SearchSourceBuilder source = request.source() == null ? new SearchSourceBuilder() : request.source();
+        SearchRequest[] slices = new SearchRequest[times];
+        for (int slice = 0; slice < times; slice++) {
+            slices[slice] = new SearchRequest()
+                    .source(source.copyWithNewSlice(new SliceBuilder(field, slice, times)))
+                    .searchType(request.searchType())
+                    .indices(request.indices())
+                    .types(request.types())
+                    .routing(request.routing())
+                    .preference(request.preference())
+                    .requestCache(request.requestCache())
+                    .scroll(request.scroll())
+                    .indicesOptions(request.indicesOptions());
+        }
+        return slices;
+    }
+
+    /**
+     * Merges the responses of all slices into the response of the request. Package private for testing.
+     */
+    static <Response extends BulkIndexByScrollResponse> Response mergeResponses(TimeValue took, List<Response> sliceResponses,
+            ResponseFactory<Response> responseFactory) {
+        List<BulkByScrollTask.Status> statuses = new ArrayList<>(sliceResponses.size());
+        List<Failure> indexingFailures = new ArrayList<>();
+        List<ShardSearchFailure> searchFailures = new ArrayList<>();
+        boolean timedOut = false;
+        for (Response response : sliceResponses) {
+            statuses.add(response.getStatus());
+            indexingFailures.addAll(response.getIndexingFailures());
+            searchFailures.addAll(response.getSearchFailures());
+            timedOut |= response.isTimedOut();
+        }
+        return responseFactory.newResponse(took, mergeStatuses(statuses), unmodifiableList(indexingFailures),
+                unmodifiableList(searchFailures), timedOut);
+    }
+
+    /**
+     * Sums the counters of the statuses of all slices. Package private for testing.
+     */
+    static BulkByScrollTask.Status mergeStatuses(List<BulkByScrollTask.Status> statuses) {
+        long total = 0;
+        long updated = 0;
+        long created = 0;
+        long deleted = 0;
+        int batches = 0;
+        long versionConflicts = 0;
+        long noops = 0;
+        long retries = 0;
+        long throttledNanos = 0;
+        float requestsPerSecond = 0;
+        String reasonCancelled = null;
+        long throttledUntilNanos = 0;
+        for (BulkByScrollTask.Status status : statuses) {
+            total += status.getTotal();
+            updated += status.getUpdated();
+            created += status.getCreated();
+            deleted += status.getDeleted();
+            batches += status.getBatches();
+            versionConflicts += status.getVersionConflicts();
+            noops += status.getNoops();
+            retries += status.getRetries();
+            throttledNanos += status.getThrottled().nanos();
+            requestsPerSecond += status.getRequestsPerSecond();
+            if (reasonCancelled == null) {
+                reasonCancelled = status.getReasonCancelled();
+            }
+            throttledUntilNanos = max(throttledUntilNanos, status.getThrottledUntil().nanos());
+        }
+        return new BulkByScrollTask.Status(total, updated, created, deleted, batches, versionConflicts, noops, retries,
+                timeValueNanos(throttledNanos), requestsPerSecond, reasonCancelled, timeValueNanos(throttledUntilNanos));
+    }
+}
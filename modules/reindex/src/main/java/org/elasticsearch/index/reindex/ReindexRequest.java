@@ -31,6 +31,7 @@ import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.tasks.TaskId;
 
 import static java.util.Collections.unmodifiableList;
 
@@ -53,7 +54,11 @@ public class ReindexRequest extends AbstractBulkIndexByScrollRequest<ReindexRequ
     }
 
     public ReindexRequest(SearchRequest search, IndexRequest destination) {
-        super(search);
+        this(search, destination, true);
+    }
+
+    private ReindexRequest(SearchRequest search, IndexRequest destination, boolean setDefaults) {
+        super(search, setDefaults);
         this.destination = destination;
     }
 
@@ -111,6 +116,11 @@ public class ReindexRequest extends AbstractBulkIndexByScrollRequest<ReindexRequ
         return destination;
     }
 
+    @Override
+    protected ReindexRequest forSlice(TaskId slicingTask, SearchRequest slice) {
+        return doForSlice(new ReindexRequest(slice, destination, false), slicingTask);
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
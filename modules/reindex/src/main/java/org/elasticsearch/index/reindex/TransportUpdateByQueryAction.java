@@ -27,6 +27,7 @@ import org.elasticsearch.action.support.ActionFilters;
 import org.elasticsearch.action.support.HandledTransportAction;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.settings.Settings;
@@ -50,21 +51,28 @@ import java.util.List;
 public class TransportUpdateByQueryAction extends HandledTransportAction<UpdateByQueryRequest, BulkIndexByScrollResponse> {
     private final Client client;
     private final ScriptService scriptService;
+    private final ClusterService clusterService;
 
     @Inject
     public TransportUpdateByQueryAction(Settings settings, ThreadPool threadPool, ActionFilters actionFilters,
             IndexNameExpressionResolver indexNameExpressionResolver, Client client, TransportService transportService,
-            ScriptService scriptService) {
+            ScriptService scriptService, ClusterService clusterService) {
         super(settings, UpdateByQueryAction.NAME, threadPool, transportService, actionFilters,
                 indexNameExpressionResolver, UpdateByQueryRequest::new);
         this.client = client;
         this.scriptService = scriptService;
+        this.clusterService = clusterService;
     }
 
     @Override
     protected void doExecute(Task task, UpdateByQueryRequest request,
             ActionListener<BulkIndexByScrollResponse> listener) {
-        new AsyncIndexBySearchAction((BulkByScrollTask) task, logger, scriptService, client, threadPool, request, listener).start();
+        if (request.getSlices() > 1) {
+            ReindexParallelizationHelper.startSlices(client, taskManager, UpdateByQueryAction.INSTANCE, clusterService.localNode().getId(),
+                    task, request, BulkIndexByScrollResponse::new, listener);
+        } else {
+            new AsyncIndexBySearchAction((BulkByScrollTask) task, logger, scriptService, client, threadPool, request, listener).start();
+        }
     }
 
     @Override
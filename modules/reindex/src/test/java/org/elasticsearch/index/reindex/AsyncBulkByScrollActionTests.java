@@ -60,6 +60,7 @@ import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.internal.InternalSearchHit;
 import org.elasticsearch.search.internal.InternalSearchHits;
 import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.tasks.TaskId;
 import org.elasticsearch.tasks.TaskManager;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.client.NoOpClient;
@@ -620,6 +621,11 @@ public class AsyncBulkByScrollActionTests extends ESTestCase {
         protected DummyAbstractBulkByScrollRequest self() {
             return this;
         }
+
+        @Override
+        protected DummyAbstractBulkByScrollRequest forSlice(TaskId slicingTask, SearchRequest slice) {
+            throw new UnsupportedOperationException();
+        }
     }
 
     private class MyMockClient extends FilterClient {
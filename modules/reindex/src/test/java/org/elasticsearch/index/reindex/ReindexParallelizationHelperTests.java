@@ -0,0 +1,85 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.reindex;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.search.Scroll;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.unit.TimeValue.timeValueMillis;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+
+public class ReindexParallelizationHelperTests extends ESTestCase {
+    public void testSliceIntoSubRequests() {
+        SearchRequest searchRequest = new SearchRequest("index1", "index2").types("type").routing("routing")
+                .preference("preference").scroll(new Scroll(timeValueMillis(between(1, 10000))))
+                .source(new SearchSourceBuilder().query(termQuery("foo", "bar")).size(between(1, 1000)).version(randomBoolean()));
+        int times = between(2, 100);
+        SearchRequest[] slices = ReindexParallelizationHelper.sliceIntoSubRequests(searchRequest, UidFieldMapper.NAME, times);
+        assertEquals(times, slices.length);
+        for (int slice = 0; slice < times; slice++) {
+            SearchRequest sliceRequest = slices[slice];
+            assertArrayEquals(searchRequest.indices(), sliceRequest.indices());
+            assertArrayEquals(searchRequest.types(), sliceRequest.types());
+            assertEquals(searchRequest.routing(), sliceRequest.routing());
+            assertEquals(searchRequest.preference(), sliceRequest.preference());
+            assertEquals(searchRequest.scroll(), sliceRequest.scroll());
+            assertEquals(searchRequest.source().query(), sliceRequest.source().query());
+            assertEquals(searchRequest.source().size(), sliceRequest.source().size());
+            assertEquals(searchRequest.source().version(), sliceRequest.source().version());
+            assertEquals(UidFieldMapper.NAME, sliceRequest.source().slice().getField());
+            assertEquals(slice, sliceRequest.source().slice().getId());
+            assertEquals(times, sliceRequest.source().slice().getMax());
+        }
+        // the original request isn't sliced
+        assertNull(searchRequest.source().slice());
+    }
+
+    public void testMergeStatuses() {
+        int slices = between(2, 10);
+        List<BulkByScrollTask.Status> statuses = new ArrayList<>(slices);
+        long total = 0;
+        long created = 0;
+        int batches = 0;
+        long throttledMillis = 0;
+        for (int i = 0; i < slices; i++) {
+            BulkByScrollTask.Status status = new BulkByScrollTask.Status(between(0, 1000), between(0, 1000), between(0, 1000),
+                    between(0, 1000), between(0, 1000), between(0, 1000), between(0, 1000), between(0, 1000),
+                    timeValueMillis(between(0, 1000)), between(0, 100), i == 1 ? "cancelled" : null, timeValueMillis(between(0, 1000)));
+            total += status.getTotal();
+            created += status.getCreated();
+            batches += status.getBatches();
+            throttledMillis += status.getThrottled().millis();
+            statuses.add(status);
+        }
+        BulkByScrollTask.Status merged = ReindexParallelizationHelper.mergeStatuses(statuses);
+        assertEquals(total, merged.getTotal());
+        assertEquals(created, merged.getCreated());
+        assertEquals(batches, merged.getBatches());
+        assertEquals(TimeValue.timeValueMillis(throttledMillis), merged.getThrottled());
+        assertEquals("cancelled", merged.getReasonCancelled());
+    }
+}
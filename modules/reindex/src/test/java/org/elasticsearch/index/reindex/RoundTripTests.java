@@ -80,6 +80,7 @@ public class RoundTripTests extends ESTestCase {
         request.setConsistency(randomFrom(WriteConsistencyLevel.values()));
         request.setScript(random().nextBoolean() ? null : randomScript());
         request.setRequestsPerSecond(between(0, Integer.MAX_VALUE));
+        request.setSlices(between(1, 100));
     }
 
     private void assertRequestEquals(AbstractBulkIndexByScrollRequest<?> request,
@@ -94,6 +95,7 @@ public class RoundTripTests extends ESTestCase {
         assertEquals(request.getRetryBackoffInitialTime(), tripped.getRetryBackoffInitialTime());
         assertEquals(request.getMaxRetries(), tripped.getMaxRetries());
         assertEquals(request.getRequestsPerSecond(), tripped.getRequestsPerSecond(), 0d);
+        assertEquals(request.getSlices(), tripped.getSlices());
     }
 
     public void testBulkByTaskStatus() throws IOException {
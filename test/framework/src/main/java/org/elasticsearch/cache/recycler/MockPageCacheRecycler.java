@@ -27,6 +27,7 @@ import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -79,7 +80,9 @@ public class MockPageCacheRecycler extends PageCacheRecycler {
                     throw new IllegalStateException("Releasing a page that has not been acquired");
                 }
                 final T ref = v();
-                if (ref instanceof Object[]) {
+                if (ref instanceof ByteBuffer) {
+                    fill((ByteBuffer) ref);
+                } else if (ref instanceof Object[]) {
                     Arrays.fill((Object[])ref, 0, Array.getLength(ref), null);
                 } else if (ref instanceof byte[]) {
                     Arrays.fill((byte[])ref, 0, Array.getLength(ref), (byte) random.nextInt(256));
@@ -144,4 +147,19 @@ public class MockPageCacheRecycler extends PageCacheRecycler {
         return wrap(super.objectPage());
     }
 
+    @Override
+    public V<ByteBuffer> directPage(boolean clear) {
+        final V<ByteBuffer> page = super.directPage(clear);
+        if (!clear) {
+            fill(page.v());
+        }
+        return wrap(page);
+    }
+
+    private void fill(ByteBuffer page) {
+        for (int i = 0; i < page.capacity(); ++i) {
+            page.put(i, (byte) random.nextInt(256));
+        }
+    }
+
 }
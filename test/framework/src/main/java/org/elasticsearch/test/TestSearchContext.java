@@ -29,6 +29,7 @@ import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.Counter;
+import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
 import org.elasticsearch.common.ParseFieldMatcher;
@@ -95,7 +96,9 @@ public class TestSearchContext extends SearchContext {
     ContextIndexSearcher searcher;
     int size;
     private int terminateAfter = DEFAULT_TERMINATE_AFTER;
+    private boolean trackTotalHits = true;
     private SearchContextAggregations aggregations;
+    private SearchTask task;
 
     private final long originNanoTime = System.nanoTime();
     private final Map<String, FetchSubPhaseContext> subPhaseContexts = new HashMap<>();
@@ -389,6 +392,17 @@ public class TestSearchContext extends SearchContext {
         return false;
     }
 
+    @Override
+    public SearchContext trackTotalHits(boolean trackTotalHits) {
+        this.trackTotalHits = trackTotalHits;
+        return this;
+    }
+
+    @Override
+    public boolean trackTotalHits() {
+        return trackTotalHits;
+    }
+
     @Override
     public SearchContext searchAfter(FieldDoc searchAfter) {
         return null;
@@ -591,6 +605,21 @@ public class TestSearchContext extends SearchContext {
         return null; // no profiling
     }
 
+    @Override
+    public void setTask(SearchTask task) {
+        this.task = task;
+    }
+
+    @Override
+    public SearchTask getTask() {
+        return task;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return task != null && task.isCancelled();
+    }
+
     @Override
     public Map<Class<?>, Collector> queryCollectors() {return queryCollectors;}
 